@@ -0,0 +1,118 @@
+package com.alicloud.tablestore.benchmark;
+
+import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.OTSConstants;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import com.alicloud.tablestore.hbase.TablestoreConnection;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The throughput of concurrent {@link BufferedMutator#mutate} calls, with 1, 8 and 64 producers, so
+ * the scaling with the producers is shown in one run. The buffer has a single stripe, which all the
+ * producers append to, or 64 stripes, so the striped buffer is compared with a single one. The
+ * mutator writes to the in-memory emulator, with a max pending size large enough for the producers
+ * to be measured rather than the flushes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BufferedMutatorBenchmark {
+    private static final String TABLE_NAME = "mutator";
+    private static final int ROWS_PER_THREAD = 1000;
+
+    @State(Scope.Benchmark)
+    public static class MutatorState {
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        @Param({"1", "64"})
+        public int stripes;
+
+        public BufferedMutator mutator;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            Configuration conf = new Configuration(false);
+            conf.set(TablestoreClientConf.TABLESTORE_CLIENT_FACTORY, InMemoryAsyncClient.Factory.class.getName());
+            conf.set(TablestoreClientConf.TABLESTORE_CLIENT_INSTANCENAME,
+                    "mutator-benchmark-" + INSTANCES.incrementAndGet());
+            conf.set(OTSConstants.GLOBAL_FAMILY_CONF_KEY, RowState.FAMILY);
+            conf.setLong(OTSConstants.WRITE_BUFFER_MAX_PENDING_CONF_KEY, 256L * 1024 * 1024);
+            conf.setInt(OTSConstants.WRITE_BUFFER_STRIPES_CONF_KEY, stripes);
+            TablestoreConnection connection = new TablestoreConnection(conf);
+            OTSAdapter adapter = OTSAdapter.getInstance(connection.getTablestoreConf());
+            adapter.createTable(new OTableDescriptor(TABLE_NAME));
+            adapter.close();
+            mutator = connection.getBufferedMutator(
+                    new BufferedMutatorParams(TableName.valueOf(TABLE_NAME)).writeBufferSize(8L * 1024 * 1024));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            mutator.close();
+        }
+    }
+
+    /**
+     * The puts of one producer, which cycle over its own rows so the emulator stays bounded.
+     */
+    @State(Scope.Thread)
+    public static class ProducerState {
+        private static final AtomicInteger PRODUCERS = new AtomicInteger();
+
+        private final int producer = PRODUCERS.incrementAndGet();
+        private final byte[] value = new byte[100];
+        private int next = 0;
+
+        public Put nextPut() {
+            Put put = new Put(Bytes.toBytes(String.format("p%03d_%06d", producer, next)));
+            put.addColumn(Bytes.toBytes(RowState.FAMILY), Bytes.toBytes("field0"), value);
+            next = (next + 1) % ROWS_PER_THREAD;
+            return put;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void mutate1Producer(MutatorState mutator, ProducerState producer) throws IOException {
+        mutator.mutator.mutate(producer.nextPut());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void mutate8Producers(MutatorState mutator, ProducerState producer) throws IOException {
+        mutator.mutator.mutate(producer.nextPut());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void mutate64Producers(MutatorState mutator, ProducerState producer) throws IOException {
+        mutator.mutator.mutate(producer.nextPut());
+    }
+}
@@ -0,0 +1,66 @@
+package com.alicloud.tablestore.benchmark;
+
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of comparing row keys and qualifiers, which all the sorted maps of the client do.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BytesBenchmark {
+
+    @Param({"16", "64", "1024"})
+    public int length;
+
+    private byte[] left;
+    private byte[] equal;
+    private byte[] differAtEnd;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        left = new byte[length];
+        new Random(0).nextBytes(left);
+        // separate arrays, so the comparison can not stop at the reference check
+        equal = Arrays.copyOf(left, length);
+        differAtEnd = Arrays.copyOf(left, length);
+        differAtEnd[length - 1]++;
+    }
+
+    @Benchmark
+    public int compareEqual() {
+        return Bytes.compareTo(left, equal);
+    }
+
+    @Benchmark
+    public int compareDifferAtEnd() {
+        return Bytes.compareTo(left, differAtEnd);
+    }
+
+    /**
+     * The comparison of HBase, as a baseline.
+     */
+    @Benchmark
+    public int hbaseCompareEqual() {
+        return org.apache.hadoop.hbase.util.Bytes.compareTo(left, equal);
+    }
+}
@@ -0,0 +1,55 @@
+package com.alicloud.tablestore.benchmark;
+
+import com.alicloud.openservices.tablestore.model.RowUpdateChange;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.hbase.ElementConvertor;
+import org.apache.hadoop.hbase.client.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-row cost of converting between the HBase, the adaptor and the Tablestore forms of a row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Benchmark
+    public OPut toOtsPut(RowState state) {
+        return ElementConvertor.toOtsPut(state.put, state.columnMapping);
+    }
+
+    @Benchmark
+    public OGet toOtsGet(RowState state) throws IOException {
+        return ElementConvertor.toOtsGet(state.get, state.columnMapping);
+    }
+
+    @Benchmark
+    public Result toHBaseResult(RowState state) {
+        return ElementConvertor.toHBaseResult(state.result, state.columnMapping);
+    }
+
+    @Benchmark
+    public RowUpdateChange putToOTSParameter(RowState state) {
+        return state.oput.toOTSParameter(RowState.TABLE_NAME);
+    }
+
+    @Benchmark
+    public OResult parseOTSRowToResult(RowState state) {
+        return OTSUtil.parseOTSRowToResult(state.otsRow);
+    }
+}
@@ -0,0 +1,43 @@
+package com.alicloud.tablestore.benchmark;
+
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of reading the columns of a result, per row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OResultBenchmark {
+
+    /**
+     * Looks up the latest version of every column of the row.
+     */
+    @Benchmark
+    public void getColumnLatest(RowState state, Blackhole blackhole) {
+        for (byte[] qualifier : state.qualifiers) {
+            blackhole.consume(state.result.getColumnLatest(qualifier));
+        }
+    }
+
+    /**
+     * Builds the map of a new result each time, as the map is cached by the result.
+     */
+    @Benchmark
+    public NavigableMap<byte[], NavigableMap<Long, byte[]>> getMap(RowState state) {
+        return new OResult(state.row, state.cells).getMap();
+    }
+}
@@ -0,0 +1,88 @@
+package com.alicloud.tablestore.benchmark;
+
+import com.alicloud.tablestore.adaptor.client.OTSImplement;
+import com.alicloud.tablestore.adaptor.client.OTSInterface;
+import com.alicloud.tablestore.adaptor.client.RetryProxy;
+import com.alicloud.tablestore.adaptor.client.RetryingOTSInterface;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of a get through the retrying layer of the adapter: {@link RetryingOTSInterface}, which
+ * dispatches the call directly, against the deprecated {@link RetryProxy}, which dispatches it by
+ * reflection. Without an operation timeout both run the call on the calling thread; with one, the
+ * proxy hands the call to a thread of its pool while the decorator arms the timer of the operation.
+ * Both read the same row from the in-memory emulator, so the difference is the cost of the
+ * retrying layer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetryBenchmark {
+    private static final String TABLE_NAME = "retry";
+
+    @State(Scope.Benchmark)
+    public static class RetryState {
+        /** The operation timeout in milliseconds, {@link Integer#MAX_VALUE} for none. */
+        @Param({"2147483647", "60000"})
+        public int operationTimeout;
+
+        public OTSInterface proxy;
+        public OTSInterface decorator;
+        public OGet get;
+
+        @Setup(Level.Trial)
+        @SuppressWarnings("deprecation")
+        public void setup() throws IOException {
+            TablestoreClientConf conf = new TablestoreClientConf();
+            conf.setOperationTimeout(operationTimeout);
+            InMemoryAsyncClient emulator = InMemoryAsyncClient.configure(conf, "retry-benchmark");
+            proxy = (OTSInterface) RetryProxy.create(conf);
+            decorator = new RetryingOTSInterface(conf, new OTSImplement(conf, emulator));
+            decorator.createTable(new OTableDescriptor(TABLE_NAME));
+            byte[] row = Bytes.toBytes("row");
+            decorator.put(TABLE_NAME, new OPut(row).add(Bytes.toBytes("field0"), new byte[100]));
+            get = new OGet(row);
+        }
+
+        @TearDown(Level.Trial)
+        @SuppressWarnings("deprecation")
+        public void tearDown() throws IOException {
+            RetryProxy.stopProxy(proxy);
+            decorator.close();
+        }
+    }
+
+    @Benchmark
+    public OResult retryingOTSInterface(RetryState state) throws IOException {
+        return state.decorator.get(TABLE_NAME, state.get);
+    }
+
+    @Benchmark
+    public OResult retryProxy(RetryState state) throws IOException {
+        return state.proxy.get(TABLE_NAME, state.get);
+    }
+}
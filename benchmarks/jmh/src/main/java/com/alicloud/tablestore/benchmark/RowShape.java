@@ -0,0 +1,37 @@
+package com.alicloud.tablestore.benchmark;
+
+/**
+ * The shapes of the rows the benchmarks are run with.
+ */
+public enum RowShape {
+    /** A few small columns, the common case of the online reads and writes. */
+    NARROW(10, 1, 16),
+    /** A row of 1,000 columns, as written by the wide-row schemas. */
+    WIDE(1000, 1, 16),
+    /** A few columns of 10 versions each. */
+    MULTI_VERSION(10, 10, 16),
+    /** A few columns of 64KB values. */
+    LARGE_VALUE(4, 1, 64 * 1024);
+
+    private final int columns;
+    private final int versions;
+    private final int valueSize;
+
+    RowShape(int columns, int versions, int valueSize) {
+        this.columns = columns;
+        this.versions = versions;
+        this.valueSize = valueSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getVersions() {
+        return versions;
+    }
+
+    public int getValueSize() {
+        return valueSize;
+    }
+}
@@ -0,0 +1,91 @@
+package com.alicloud.tablestore.benchmark;
+
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.openservices.tablestore.model.PrimaryKeyBuilder;
+import com.alicloud.openservices.tablestore.model.PrimaryKeyValue;
+import com.alicloud.openservices.tablestore.model.Row;
+import com.alicloud.tablestore.adaptor.client.OTSConstants;
+import com.alicloud.tablestore.adaptor.struct.OColumnValue;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.hbase.ColumnMapping;
+import com.alicloud.tablestore.hbase.ElementConvertor;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One row of the given shape, in each of the forms the client converts between: the HBase
+ * {@link Put}, {@link Get} and cells, the adaptor {@link OPut} and {@link OResult}, and the
+ * {@link Row} returned by Tablestore.
+ */
+@State(Scope.Benchmark)
+public class RowState {
+    public static final String TABLE_NAME = "benchmark";
+    public static final String FAMILY = "f";
+
+    @Param({"NARROW", "WIDE", "MULTI_VERSION", "LARGE_VALUE"})
+    public RowShape shape;
+
+    public ColumnMapping columnMapping;
+    public byte[] row;
+    public byte[][] qualifiers;
+    public Put put;
+    public Get get;
+    public OPut oput;
+    /** The cells sorted by qualifier, then by timestamp from the newest, as in a result. */
+    public OColumnValue[] cells;
+    public OResult result;
+    public Row otsRow;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Configuration conf = new Configuration(false);
+        conf.set(OTSConstants.GLOBAL_FAMILY_CONF_KEY, FAMILY);
+        columnMapping = new ColumnMapping(TABLE_NAME, conf);
+
+        Random random = new Random(0);
+        row = Bytes.toBytes(String.format("user%016d", random.nextInt(Integer.MAX_VALUE)));
+        qualifiers = new byte[shape.getColumns()][];
+        for (int i = 0; i < qualifiers.length; i++) {
+            qualifiers[i] = Bytes.toBytes(String.format("field%04d", i));
+        }
+
+        long now = System.currentTimeMillis();
+        put = new Put(row);
+        get = new Get(row);
+        get.readVersions(shape.getVersions());
+        List<OColumnValue> kvs = new ArrayList<OColumnValue>();
+        List<Column> columns = new ArrayList<Column>();
+        for (byte[] qualifier : qualifiers) {
+            get.addColumn(Bytes.toBytes(FAMILY), qualifier);
+            for (int v = 0; v < shape.getVersions(); v++) {
+                long ts = now - v;
+                byte[] value = new byte[shape.getValueSize()];
+                random.nextBytes(value);
+                put.addColumn(Bytes.toBytes(FAMILY), qualifier, ts, value);
+                kvs.add(new OColumnValue(row, qualifier, ts, OColumnValue.Type.PUT, value));
+                columns.add(new Column(Bytes.toString(qualifier), ColumnValue.fromBinary(value), ts));
+            }
+        }
+        oput = ElementConvertor.toOtsPut(put, columnMapping);
+        cells = kvs.toArray(new OColumnValue[kvs.size()]);
+        result = new OResult(row, cells);
+
+        PrimaryKey primaryKey = PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                .addPrimaryKeyColumn(OTSConstants.PRIMARY_KEY_NAME, PrimaryKeyValue.fromBinary(row)).build();
+        otsRow = new Row(primaryKey, columns);
+    }
+}
@@ -0,0 +1,140 @@
+package com.alicloud.tablestore.benchmark.workload;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses the records the operations of a workload are run on. The records are numbered in the
+ * order they are inserted, and each number is hashed into a row key, so the popular records are
+ * spread over the whole key space.
+ */
+public abstract class KeyGenerator {
+    public static final String UNIFORM = "uniform";
+    public static final String ZIPFIAN = "zipfian";
+    public static final String LATEST = "latest";
+
+    // the number of the records inserted so far
+    protected final AtomicLong recordCount;
+
+    protected KeyGenerator(AtomicLong recordCount) {
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * @param distribution one of {@link #UNIFORM}, {@link #ZIPFIAN} and {@link #LATEST}
+     * @param recordCount the number of the records inserted so far, counted up by the inserts
+     */
+    public static KeyGenerator create(String distribution, AtomicLong recordCount) {
+        if (UNIFORM.equals(distribution)) {
+            return new Uniform(recordCount);
+        }
+        if (ZIPFIAN.equals(distribution)) {
+            return new Zipfian(recordCount, false);
+        }
+        if (LATEST.equals(distribution)) {
+            return new Zipfian(recordCount, true);
+        }
+        throw new IllegalArgumentException("Unknown request distribution: " + distribution);
+    }
+
+    /**
+     * @return the number of an inserted record
+     */
+    public abstract long nextKeyNumber(Random random);
+
+    public static String toRowKey(long keyNumber) {
+        return "user" + Long.toString(fnvHash64(keyNumber) & Long.MAX_VALUE);
+    }
+
+    private static long fnvHash64(long value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < 8; i++) {
+            hash ^= value & 0xff;
+            hash *= 1099511628211L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    private static class Uniform extends KeyGenerator {
+        Uniform(AtomicLong recordCount) {
+            super(recordCount);
+        }
+
+        @Override
+        public long nextKeyNumber(Random random) {
+            long count = recordCount.get();
+            return (long) (random.nextDouble() * count);
+        }
+    }
+
+    /**
+     * The zipfian distribution of "Quickly Generating Billion-Record Synthetic Databases" (Gray et
+     * al.), with the records counted from the first inserted, or from the last inserted if latest.
+     * The zeta constant is extended as records are inserted.
+     */
+    private static class Zipfian extends KeyGenerator {
+        private static final double THETA = 0.99;
+        private static final double ALPHA = 1.0 / (1.0 - THETA);
+        private static final double ZETA_2 = 1.0 + Math.pow(0.5, THETA);
+
+        private static final class Constants {
+            final long items;
+            final double zetaN;
+            final double eta;
+
+            Constants(long items, double zetaN) {
+                this.items = items;
+                this.zetaN = zetaN;
+                this.eta = (1 - Math.pow(2.0 / items, 1 - THETA)) / (1 - ZETA_2 / zetaN);
+            }
+        }
+
+        private final boolean latest;
+        private volatile Constants constants = new Constants(0, 0);
+
+        Zipfian(AtomicLong recordCount, boolean latest) {
+            super(recordCount);
+            this.latest = latest;
+        }
+
+        private Constants constants(long items) {
+            Constants current = constants;
+            if (current.items >= items) {
+                return current;
+            }
+            synchronized (this) {
+                current = constants;
+                if (current.items < items) {
+                    double zetaN = current.zetaN;
+                    for (long i = current.items + 1; i <= items; i++) {
+                        zetaN += 1.0 / Math.pow(i, THETA);
+                    }
+                    current = new Constants(items, zetaN);
+                    constants = current;
+                }
+                return current;
+            }
+        }
+
+        @Override
+        public long nextKeyNumber(Random random) {
+            long items = recordCount.get();
+            if (items <= 1) {
+                return 0;
+            }
+            Constants constants = constants(items);
+            double u = random.nextDouble();
+            double uz = u * constants.zetaN;
+            long rank;
+            if (uz < 1.0) {
+                rank = 0;
+            } else if (uz < 1.0 + Math.pow(0.5, THETA)) {
+                rank = 1;
+            } else {
+                rank = Math.min(items - 1, (long) (items * Math.pow(constants.eta * u - constants.eta + 1, ALPHA)));
+            }
+            return latest ? items - 1 - rank : rank;
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.alicloud.tablestore.benchmark.workload;
+
+import com.alicloud.tablestore.hbase.TablestoreConnection;
+import org.HdrHistogram.Histogram;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a YCSB-style workload through the HBase API of the client: {@link TablestoreConnection},
+ * {@link com.alicloud.tablestore.hbase.TablestoreTable} and
+ * {@link com.alicloud.tablestore.hbase.TablestoreBufferedMutator}. The load phase inserts the
+ * records, and the run phase runs the mix of reads, updates, inserts and scans, at the target rate
+ * if one is given. The latency of each operation is measured from when it was due, so a backend
+ * that falls behind the target rate is not hidden by the waiting of the workers.
+ * <p>
+ * Usage: LoadGenerator [load] [run] [-P workload.properties] [-p key=value]...
+ * <p>
+ * By default both phases are run against the in-memory emulator, see {@link WorkloadConfig}.
+ */
+public class LoadGenerator {
+    public static final String LOAD = "load";
+    public static final String RUN = "run";
+
+    private final WorkloadConfig config;
+    private final Connection connection;
+    private final TableName tableName;
+    private final byte[] family;
+    private final byte[][] fields;
+    // the number of the records whose inserts are acknowledged, which the reads and scans pick from
+    private final AtomicLong recordCount = new AtomicLong();
+    // the acknowledged inserts above a record which is not acknowledged yet
+    private final ConcurrentSkipListSet<Long> acknowledged = new ConcurrentSkipListSet<Long>();
+    private final KeyGenerator keyGenerator;
+    // the run time of the last phase
+    private long runTimeMillis;
+
+    private enum Operation {
+        READ, UPDATE, INSERT, SCAN
+    }
+
+    public LoadGenerator(WorkloadConfig config) throws IOException {
+        this.config = config;
+        Configuration conf = config.toConfiguration();
+        this.connection = new TablestoreConnection(conf);
+        this.tableName = TableName.valueOf(config.getTable());
+        this.family = Bytes.toBytes(config.getFamily(conf));
+        this.fields = new byte[config.getFieldCount()][];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = Bytes.toBytes("field" + i);
+        }
+        this.keyGenerator = KeyGenerator.create(config.getRequestDistribution(), recordCount);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        List<String> phases = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-P") && i + 1 < args.length) {
+                InputStream in = new FileInputStream(args[++i]);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } else if (args[i].equals("-p") && i + 1 < args.length) {
+                String property = args[++i];
+                int eq = property.indexOf('=');
+                if (eq < 0) {
+                    usage("Malformed property: " + property);
+                }
+                properties.setProperty(property.substring(0, eq), property.substring(eq + 1));
+            } else if (args[i].equals(LOAD) || args[i].equals(RUN)) {
+                phases.add(args[i]);
+            } else {
+                usage("Unknown argument: " + args[i]);
+            }
+        }
+        if (phases.isEmpty()) {
+            phases.add(LOAD);
+            phases.add(RUN);
+        }
+
+        LoadGenerator generator = new LoadGenerator(new WorkloadConfig(properties));
+        try {
+            for (String phase : phases) {
+                Map<Operation, OperationStats> stats = phase.equals(LOAD) ? generator.load() : generator.run();
+                generator.report(phase, stats, System.out);
+            }
+        } finally {
+            generator.close();
+        }
+        System.exit(0);
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: LoadGenerator [load] [run] [-P workload.properties] [-p key=value]...");
+        System.exit(1);
+    }
+
+    /**
+     * Creates the table if it does not exist, and inserts the records.
+     */
+    public Map<Operation, OperationStats> load() throws Exception {
+        Admin admin = connection.getAdmin();
+        try {
+            if (!admin.tableExists(tableName)) {
+                admin.createTable(TableDescriptorBuilder.newBuilder(tableName)
+                        .setColumnFamily(ColumnFamilyDescriptorBuilder.of(family)).build());
+            }
+        } finally {
+            admin.close();
+        }
+
+        final long records = config.getRecordCount();
+        final int threads = config.getThreads();
+        recordCount.set(0);
+        acknowledged.clear();
+        final Map<Operation, OperationStats> stats = newStats(Operation.INSERT);
+        final AtomicLong next = new AtomicLong();
+        runWorkers(threads, stats, new WorkerBody() {
+            @Override
+            public void run(Random random, Table table, BufferedMutator mutator, Pacer pacer)
+                    throws IOException {
+                long keyNumber;
+                while ((keyNumber = next.getAndIncrement()) < records && pacer.await()) {
+                    long start = pacer.due();
+                    try {
+                        mutator.mutate(newPut(keyNumber, random, true));
+                        stats.get(Operation.INSERT).record(micros(start));
+                    } catch (IOException e) {
+                        failed(stats.get(Operation.INSERT), e);
+                    }
+                }
+            }
+        });
+        recordCount.set(records);
+        return stats;
+    }
+
+    /**
+     * Runs the mix of operations on the loaded records.
+     */
+    public Map<Operation, OperationStats> run() throws Exception {
+        if (recordCount.get() == 0) {
+            recordCount.set(config.getRecordCount());
+        }
+        final double read = config.getReadProportion();
+        final double update = read + config.getUpdateProportion();
+        final double insert = update + config.getInsertProportion();
+        final double total = insert + config.getScanProportion();
+        if (total <= 0) {
+            throw new IllegalArgumentException("The proportions of the operations are all 0");
+        }
+        final Map<Operation, OperationStats> stats = newStats(Operation.values());
+        final AtomicLong nextInsert = new AtomicLong(recordCount.get());
+        final boolean buffered = config.isWriteBuffered();
+        final int maxScanLength = Math.max(1, config.getMaxScanLength());
+        runWorkers(config.getThreads(), stats, new WorkerBody() {
+            @Override
+            public void run(Random random, Table table, BufferedMutator mutator, Pacer pacer)
+                    throws IOException {
+                // the buffered inserts of the worker, which are acknowledged once they are flushed
+                List<Long> pendingInserts = new ArrayList<Long>();
+                while (pacer.await()) {
+                    double choice = random.nextDouble() * total;
+                    Operation operation = choice < read ? Operation.READ
+                            : choice < update ? Operation.UPDATE
+                            : choice < insert ? Operation.INSERT : Operation.SCAN;
+                    long start = pacer.due();
+                    try {
+                        switch (operation) {
+                            case READ:
+                                Result result = table.get(new Get(rowKey(keyGenerator.nextKeyNumber(random))));
+                                if (result.isEmpty()) {
+                                    throw new IOException("Record not found");
+                                }
+                                break;
+                            case UPDATE:
+                                write(newPut(keyGenerator.nextKeyNumber(random), random, false), table, mutator, buffered);
+                                break;
+                            case INSERT:
+                                long keyNumber = nextInsert.getAndIncrement();
+                                write(newPut(keyNumber, random, true), table, mutator, buffered);
+                                if (buffered) {
+                                    pendingInserts.add(keyNumber);
+                                } else {
+                                    acknowledge(keyNumber);
+                                }
+                                break;
+                            case SCAN:
+                                scan(table, rowKey(keyGenerator.nextKeyNumber(random)), 1 + random.nextInt(maxScanLength));
+                                break;
+                        }
+                        stats.get(operation).record(micros(start));
+                    } catch (IOException e) {
+                        failed(stats.get(operation), e);
+                    }
+                }
+                if (!pendingInserts.isEmpty()) {
+                    mutator.flush();
+                    for (long keyNumber : pendingInserts) {
+                        acknowledge(keyNumber);
+                    }
+                }
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * Counts an insert which is written, so the records can be read once all the inserts before it
+     * are written too. The inserts of a buffered run are only read by the next run, as the mutator
+     * does not tell when they are written.
+     */
+    private void acknowledge(long keyNumber) {
+        acknowledged.add(keyNumber);
+        synchronized (acknowledged) {
+            long count = recordCount.get();
+            while (acknowledged.remove(count)) {
+                count = recordCount.incrementAndGet();
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        connection.close();
+    }
+
+    private byte[] rowKey(long keyNumber) {
+        return Bytes.toBytes(KeyGenerator.toRowKey(keyNumber));
+    }
+
+    private Put newPut(long keyNumber, Random random, boolean allFields) {
+        Put put = new Put(rowKey(keyNumber));
+        if (allFields) {
+            for (byte[] field : fields) {
+                put.addColumn(family, field, randomValue(random));
+            }
+        } else {
+            put.addColumn(family, fields[random.nextInt(fields.length)], randomValue(random));
+        }
+        return put;
+    }
+
+    private byte[] randomValue(Random random) {
+        byte[] value = new byte[config.getFieldLength()];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) (' ' + random.nextInt(95));
+        }
+        return value;
+    }
+
+    private static void write(Put put, Table table, BufferedMutator mutator, boolean buffered) throws IOException {
+        if (buffered) {
+            mutator.mutate(put);
+        } else {
+            table.put(put);
+        }
+    }
+
+    private static void scan(Table table, byte[] startRow, int length) throws IOException {
+        Scan scan = new Scan().withStartRow(startRow);
+        scan.setCaching(length);
+        ResultScanner scanner = table.getScanner(scan);
+        try {
+            for (int i = 0; i < length && scanner.next() != null; i++) {
+            }
+        } finally {
+            scanner.close();
+        }
+    }
+
+    private static long micros(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+
+    private static void failed(OperationStats stats, Exception e) {
+        // only the first failure of each operation is printed, the others are counted
+        if (stats.getFailures() == 0) {
+            System.err.println("Failed " + stats.getName() + ": " + e);
+        }
+        stats.fail();
+    }
+
+    private static Map<Operation, OperationStats> newStats(Operation... operations) {
+        Map<Operation, OperationStats> stats = new LinkedHashMap<Operation, OperationStats>();
+        for (Operation operation : operations) {
+            stats.put(operation, new OperationStats(operation.name()));
+        }
+        return stats;
+    }
+
+    private interface WorkerBody {
+        void run(Random random, Table table, BufferedMutator mutator, Pacer pacer) throws IOException;
+    }
+
+    /**
+     * Spaces the operations of a worker to its share of the target rate, and ends the phase at the
+     * operation count or the execution time.
+     */
+    private static class Pacer {
+        private final long intervalNanos;
+        private final long deadline;
+        private final long operations;
+        private long count = 0;
+        private long due;
+
+        Pacer(long intervalNanos, long deadline, long operations) {
+            this.intervalNanos = intervalNanos;
+            this.deadline = deadline;
+            this.operations = operations;
+            this.due = System.nanoTime();
+        }
+
+        /**
+         * Waits until the next operation is due.
+         * @return false if the phase is over
+         */
+        boolean await() {
+            if (operations > 0 && count >= operations) {
+                return false;
+            }
+            if (intervalNanos > 0) {
+                if (count > 0) {
+                    due += intervalNanos;
+                }
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                due = System.nanoTime();
+            }
+            count++;
+            return deadline == 0 || due - deadline < 0;
+        }
+
+        /**
+         * @return when the current operation was due
+         */
+        long due() {
+            return due;
+        }
+    }
+
+    private void runWorkers(final int threads, final Map<Operation, OperationStats> stats, final WorkerBody body)
+            throws Exception {
+        double target = config.getTarget();
+        final long intervalNanos = target > 0 ? (long) (threads * 1e9 / target) : 0;
+        long maxExecutionTime = config.getMaxExecutionTimeSeconds();
+        final long startNanos = System.nanoTime();
+        final long deadline = maxExecutionTime > 0 ? startNanos + TimeUnit.SECONDS.toNanos(maxExecutionTime) : 0;
+        long operationCount = config.getOperationCount();
+        final CountDownLatch done = new CountDownLatch(threads);
+        final List<Exception> errors = new ArrayList<Exception>();
+
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            final long operations = operationCount > 0 ? operationCount / threads + (i < operationCount % threads ? 1 : 0) : 0;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Table table = connection.getTable(tableName);
+                        BufferedMutator mutator = connection.getBufferedMutator(tableName);
+                        try {
+                            body.run(new Random(config.getSeed() * 31 + index), table, mutator,
+                                    new Pacer(intervalNanos, deadline, operations));
+                        } finally {
+                            // flushes what is left in the buffer, within the run time of the phase
+                            mutator.close();
+                            table.close();
+                        }
+                    } catch (Exception e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "workload-" + i);
+            worker.start();
+        }
+
+        long statusInterval = TimeUnit.SECONDS.toMillis(Math.max(1, config.getStatusIntervalSeconds()));
+        while (!done.await(statusInterval, TimeUnit.MILLISECONDS)) {
+            status(System.nanoTime() - startNanos, stats, System.err);
+        }
+        status(System.nanoTime() - startNanos, stats, System.err);
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+        runTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static void status(long elapsedNanos, Map<Operation, OperationStats> stats, PrintStream out) {
+        long operations = 0;
+        StringBuilder details = new StringBuilder();
+        for (OperationStats operation : stats.values()) {
+            Histogram interval = operation.sample();
+            operations += operation.getTotal().getTotalCount();
+            if (interval.getTotalCount() > 0) {
+                details.append(" [").append(operation.getName())
+                        .append(": Count=").append(interval.getTotalCount())
+                        .append(", Avg=").append(String.format("%.1f", interval.getMean()))
+                        .append(", 99=").append(interval.getValueAtPercentile(99))
+                        .append(", Max=").append(interval.getMaxValue()).append("]");
+            }
+        }
+        out.println(TimeUnit.NANOSECONDS.toSeconds(elapsedNanos) + " sec: " + operations + " operations;" + details);
+    }
+
+    private void report(String phase, Map<Operation, OperationStats> stats, PrintStream out) throws IOException {
+        long operations = 0;
+        for (OperationStats operation : stats.values()) {
+            operations += operation.getTotal().getTotalCount();
+        }
+        out.println("[OVERALL], Phase, " + phase);
+        out.println("[OVERALL], RunTime(ms), " + runTimeMillis);
+        out.println("[OVERALL], Throughput(ops/sec), "
+                + String.format("%.1f", operations * 1000.0 / Math.max(1, runTimeMillis)));
+        String outputPath = config.getHistogramOutputPath();
+        for (OperationStats operation : stats.values()) {
+            if (operation.getTotal().getTotalCount() == 0 && operation.getFailures() == 0) {
+                continue;
+            }
+            operation.report(out, runTimeMillis);
+            if (outputPath != null) {
+                File dir = new File(outputPath);
+                dir.mkdirs();
+                PrintStream file = new PrintStream(new FileOutputStream(new File(dir, phase + "-" + operation.getName() + ".hgrm")));
+                try {
+                    operation.getTotal().outputPercentileDistribution(file, 1.0);
+                } finally {
+                    file.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.alicloud.tablestore.benchmark.workload;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latencies, in microseconds, and the failures of one kind of operation. The latencies are
+ * recorded by the workers without locking, and collected by the reporter at each interval.
+ */
+public class OperationStats {
+    private final String name;
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final AtomicLong failures = new AtomicLong();
+    private Histogram interval = null;
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long latencyMicros) {
+        recorder.recordValue(Math.max(0, latencyMicros));
+    }
+
+    public void fail() {
+        failures.incrementAndGet();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Collects the latencies recorded since the last call.
+     * @return the latencies of the interval
+     */
+    public synchronized Histogram sample() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return interval;
+    }
+
+    /**
+     * @return the latencies collected so far
+     */
+    public synchronized Histogram getTotal() {
+        return total.copy();
+    }
+
+    public void report(PrintStream out, long runTimeMillis) {
+        Histogram histogram = getTotal();
+        String prefix = "[" + name + "], ";
+        out.println(prefix + "Operations, " + histogram.getTotalCount());
+        out.println(prefix + "Throughput(ops/sec), "
+                + String.format("%.1f", histogram.getTotalCount() * 1000.0 / Math.max(1, runTimeMillis)));
+        out.println(prefix + "AverageLatency(us), " + String.format("%.1f", histogram.getMean()));
+        out.println(prefix + "MinLatency(us), " + histogram.getMinValue());
+        out.println(prefix + "50thPercentileLatency(us), " + histogram.getValueAtPercentile(50));
+        out.println(prefix + "95thPercentileLatency(us), " + histogram.getValueAtPercentile(95));
+        out.println(prefix + "99thPercentileLatency(us), " + histogram.getValueAtPercentile(99));
+        out.println(prefix + "99.9thPercentileLatency(us), " + histogram.getValueAtPercentile(99.9));
+        out.println(prefix + "MaxLatency(us), " + histogram.getMaxValue());
+        out.println(prefix + "Failures, " + failures.get());
+    }
+}
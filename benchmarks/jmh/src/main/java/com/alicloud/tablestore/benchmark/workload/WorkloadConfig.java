@@ -0,0 +1,179 @@
+package com.alicloud.tablestore.benchmark.workload;
+
+import com.alicloud.tablestore.adaptor.client.OTSConstants;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.hbase.TablestoreConnection;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import java.util.Properties;
+
+/**
+ * The properties of a workload, with the names of YCSB where there is one. The properties starting
+ * with "hbase." or "tablestore." are passed to the client, so all the client settings can be
+ * compared under the same workload.
+ */
+public class WorkloadConfig {
+    /** "emulator" runs against an in-memory Tablestore in this process, "tablestore" against an instance. */
+    public static final String BACKEND = "backend";
+    public static final String BACKEND_EMULATOR = "emulator";
+    public static final String BACKEND_TABLESTORE = "tablestore";
+    /** An hbase-site.xml with the settings of the client, such as the endpoint and the credentials. */
+    public static final String HBASE_SITE = "hbase.site";
+
+    public static final String TABLE = "table";
+    public static final String RECORD_COUNT = "recordcount";
+    public static final String OPERATION_COUNT = "operationcount";
+    public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
+    public static final String THREADS = "threadcount";
+    public static final String TARGET = "target";
+    public static final String READ_PROPORTION = "readproportion";
+    public static final String UPDATE_PROPORTION = "updateproportion";
+    public static final String INSERT_PROPORTION = "insertproportion";
+    public static final String SCAN_PROPORTION = "scanproportion";
+    public static final String REQUEST_DISTRIBUTION = "requestdistribution";
+    public static final String FIELD_COUNT = "fieldcount";
+    public static final String FIELD_LENGTH = "fieldlength";
+    public static final String MAX_SCAN_LENGTH = "maxscanlength";
+    /** Whether the updates and inserts of the run are sent through a BufferedMutator, as the load always is. */
+    public static final String WRITE_BUFFERED = "writebuffered";
+    public static final String SEED = "seed";
+    public static final String STATUS_INTERVAL = "status.interval";
+    /** A directory to write the latency distribution of each operation to, in the format of HdrHistogram. */
+    public static final String HISTOGRAM_OUTPUT_PATH = "hdrhistogram.output.path";
+
+    private final Properties properties;
+
+    public WorkloadConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public String getString(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public String getTable() {
+        return getString(TABLE, "usertable");
+    }
+
+    public long getRecordCount() {
+        return getLong(RECORD_COUNT, 1000);
+    }
+
+    public long getOperationCount() {
+        return getLong(OPERATION_COUNT, 0);
+    }
+
+    public long getMaxExecutionTimeSeconds() {
+        return getLong(MAX_EXECUTION_TIME, getOperationCount() > 0 ? 0 : 30);
+    }
+
+    public int getThreads() {
+        return getInt(THREADS, 1);
+    }
+
+    public double getTarget() {
+        return getDouble(TARGET, 0);
+    }
+
+    public double getReadProportion() {
+        return getDouble(READ_PROPORTION, 0.95);
+    }
+
+    public double getUpdateProportion() {
+        return getDouble(UPDATE_PROPORTION, 0.05);
+    }
+
+    public double getInsertProportion() {
+        return getDouble(INSERT_PROPORTION, 0);
+    }
+
+    public double getScanProportion() {
+        return getDouble(SCAN_PROPORTION, 0);
+    }
+
+    public String getRequestDistribution() {
+        return getString(REQUEST_DISTRIBUTION, KeyGenerator.UNIFORM);
+    }
+
+    public int getFieldCount() {
+        return getInt(FIELD_COUNT, 10);
+    }
+
+    public int getFieldLength() {
+        return getInt(FIELD_LENGTH, 100);
+    }
+
+    public int getMaxScanLength() {
+        return getInt(MAX_SCAN_LENGTH, 100);
+    }
+
+    public boolean isWriteBuffered() {
+        return getBoolean(WRITE_BUFFERED, false);
+    }
+
+    public long getSeed() {
+        return getLong(SEED, 0);
+    }
+
+    public int getStatusIntervalSeconds() {
+        return getInt(STATUS_INTERVAL, 10);
+    }
+
+    public String getHistogramOutputPath() {
+        return getString(HISTOGRAM_OUTPUT_PATH, null);
+    }
+
+    /**
+     * @return the configuration of the client to run the workload with
+     */
+    public Configuration toConfiguration() {
+        Configuration conf = new Configuration();
+        String site = getString(HBASE_SITE, null);
+        if (site != null) {
+            conf.addResource(new Path(site));
+        }
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.equals(HBASE_SITE) && (key.startsWith("hbase.") || key.startsWith("tablestore."))) {
+                conf.set(key, properties.getProperty(key));
+            }
+        }
+        conf.set("hbase.client.connection.impl", TablestoreConnection.class.getName());
+        String backend = getString(BACKEND, BACKEND_EMULATOR);
+        if (BACKEND_EMULATOR.equals(backend)) {
+            conf.set(TablestoreClientConf.TABLESTORE_CLIENT_FACTORY, InMemoryAsyncClient.Factory.class.getName());
+            if (conf.get(TablestoreClientConf.TABLESTORE_CLIENT_INSTANCENAME) == null) {
+                conf.set(TablestoreClientConf.TABLESTORE_CLIENT_INSTANCENAME, "workload");
+            }
+        } else if (!BACKEND_TABLESTORE.equals(backend)) {
+            throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+        return conf;
+    }
+
+    public String getFamily(Configuration conf) {
+        return conf.get(OTSConstants.GLOBAL_FAMILY_CONF_KEY + "." + getTable(),
+                conf.get(OTSConstants.GLOBAL_FAMILY_CONF_KEY, OTSConstants.DEFAULT_FAMILY_NAME));
+    }
+}
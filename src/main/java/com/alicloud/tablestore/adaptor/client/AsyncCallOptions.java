@@ -0,0 +1,123 @@
+package com.alicloud.tablestore.adaptor.client;
+
+/**
+ * The limits of the calls of an {@link OTSAsyncInterface} view, see
+ * {@link OTSAsyncInterface#withOptions}. The times are in milliseconds, and a limit which is not set
+ * is left to the conf of the adapter and the {@link RetryPolicy}.
+ */
+public class AsyncCallOptions {
+  private int operationTimeout = Integer.MAX_VALUE;
+  private int readRpcTimeout = Integer.MAX_VALUE;
+  private int writeRpcTimeout = Integer.MAX_VALUE;
+  private int maxAttempts = 0;
+  private long retryPause = 0;
+  private long retryPauseForServerOverloaded = 0;
+
+  /**
+   * Get the time a call may take, including its retries
+   * @return the operation timeout, Integer.MAX_VALUE for none
+   */
+  public int getOperationTimeout() {
+    return operationTimeout;
+  }
+
+  /**
+   * Set the time a call may take, including its retries
+   * @param operationTimeout
+   */
+  public AsyncCallOptions setOperationTimeout(int operationTimeout) {
+    this.operationTimeout = operationTimeout;
+    return this;
+  }
+
+  /**
+   * Get the time a request reading rows may take before it is failed, and retried if the policy
+   * allows
+   * @return the read rpc timeout, Integer.MAX_VALUE to wait as long as the socket timeout
+   */
+  public int getReadRpcTimeout() {
+    return readRpcTimeout;
+  }
+
+  /**
+   * Set the time a request reading rows may take before it is failed, and retried if the policy
+   * allows
+   * @param readRpcTimeout
+   */
+  public AsyncCallOptions setReadRpcTimeout(int readRpcTimeout) {
+    this.readRpcTimeout = readRpcTimeout;
+    return this;
+  }
+
+  /**
+   * Get the time a request writing rows may take before it is failed, and retried if the policy
+   * allows
+   * @return the write rpc timeout, Integer.MAX_VALUE to wait as long as the socket timeout
+   */
+  public int getWriteRpcTimeout() {
+    return writeRpcTimeout;
+  }
+
+  /**
+   * Set the time a request writing rows may take before it is failed, and retried if the policy
+   * allows
+   * @param writeRpcTimeout
+   */
+  public AsyncCallOptions setWriteRpcTimeout(int writeRpcTimeout) {
+    this.writeRpcTimeout = writeRpcTimeout;
+    return this;
+  }
+
+  /**
+   * Get the max times the request of a call is sent, the first one included. The retry policy may
+   * give up earlier.
+   * @return the max attempts, 0 for no limit but the retry policy
+   */
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Set the max times the request of a call is sent, the first one included
+   * @param maxAttempts
+   */
+  public AsyncCallOptions setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+    return this;
+  }
+
+  /**
+   * Get the base of the waits between the retries, which grow by {@code HConstants.RETRY_BACKOFF}
+   * as in HBase
+   * @return the retry pause, 0 to wait as long as the retry policy decides
+   */
+  public long getRetryPause() {
+    return retryPause;
+  }
+
+  /**
+   * Set the base of the waits between the retries
+   * @param retryPause
+   */
+  public AsyncCallOptions setRetryPause(long retryPause) {
+    this.retryPause = retryPause;
+    return this;
+  }
+
+  /**
+   * Get the base of the waits between the retries of the throttled requests
+   * @return the retry pause of the throttled requests, 0 to use the retry pause
+   */
+  public long getRetryPauseForServerOverloaded() {
+    return retryPauseForServerOverloaded;
+  }
+
+  /**
+   * Set the base of the waits between the retries of the throttled requests
+   * @param retryPauseForServerOverloaded
+   */
+  public AsyncCallOptions setRetryPauseForServerOverloaded(long retryPauseForServerOverloaded) {
+    this.retryPauseForServerOverloaded = retryPauseForServerOverloaded;
+    return this;
+  }
+}
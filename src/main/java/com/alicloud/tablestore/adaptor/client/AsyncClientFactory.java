@@ -0,0 +1,20 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+
+/**
+ * Creates the OTS client an adapter sends its requests to, in place of the {@code AsyncClient} of
+ * the SDK built from the endpoint and the credentials of the conf. It lets the adapter run against
+ * another implementation of the service, such as an emulator in tests and benchmarks. An
+ * implementation configured by tablestore.client.factory must have a public constructor without
+ * arguments. Its own settings go under the tablestore.client.factory. prefix, which are passed
+ * through from the HBase configuration with the other settings of the client.
+ */
+public interface AsyncClientFactory {
+
+  /**
+   * @param conf the conf of the adapter
+   * @return the client the adapter uses, which it shuts down when closed
+   */
+  AsyncClientInterface create(TablestoreClientConf conf);
+}
@@ -0,0 +1,197 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the requests of each table to a rate of read and write capacity units per second, so a job
+ * does not overrun the reserved throughput of the table and get throttled by the service. Each
+ * table has a token bucket for the reads and one for the writes, which hold at most one second of
+ * capacity units. A request takes the capacity units it is estimated to consume before it is sent,
+ * and waits while the bucket is in debt. Since the size of a row is not known before it is read,
+ * a read is estimated as one capacity unit, and the bucket is settled with the capacity units
+ * reported by the response.
+ * <p>
+ * If adaptive, the rate of a table is halved on a throttling error, at most once per second, and
+ * grows back to the configured rate by a tenth of it per second.
+ */
+final class CapacityLimiter {
+  private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+  // the rate is never decreased below this fraction of the configured rate
+  private static final double MIN_RATE_RATIO = 0.05;
+  private static final double RECOVERY_RATIO_PER_SECOND = 0.1;
+
+  private final double readUnitsPerSecond;
+  private final double writeUnitsPerSecond;
+  private final boolean adaptive;
+  private final ConcurrentMap<String, Bucket[]> tables = new ConcurrentHashMap<String, Bucket[]>();
+
+  /**
+   * A token bucket of capacity units. The tokens go negative when a request takes more than there
+   * are, and the next requests wait until the debt is refilled.
+   */
+  static final class Bucket {
+    private final double maxRate;
+    private final boolean adaptive;
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long lastThrottled;
+
+    Bucket(double maxRate, boolean adaptive) {
+      this.maxRate = maxRate;
+      this.adaptive = adaptive;
+      this.rate = maxRate;
+      this.tokens = maxRate;
+      this.lastRefill = System.nanoTime();
+      this.lastThrottled = lastRefill - SECOND_NANOS;
+    }
+
+    private void refill(long now) {
+      double seconds = (double) (now - lastRefill) / SECOND_NANOS;
+      lastRefill = now;
+      if (adaptive && rate < maxRate) {
+        rate = Math.min(maxRate, rate + maxRate * RECOVERY_RATIO_PER_SECOND * seconds);
+      }
+      tokens = Math.min(rate, tokens + rate * seconds);
+    }
+
+    /**
+     * Takes the capacity units.
+     * @return the nanoseconds to wait before sending the request
+     */
+    synchronized long reserve(int units) {
+      long now = System.nanoTime();
+      refill(now);
+      long waitNanos = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / rate * SECOND_NANOS);
+      tokens -= units;
+      return waitNanos;
+    }
+
+    /**
+     * Takes or gives back the difference between the consumed and the estimated capacity units.
+     */
+    synchronized void settle(int units) {
+      tokens = Math.max(-rate, tokens - units);
+    }
+
+    synchronized void throttled() {
+      long now = System.nanoTime();
+      refill(now);
+      tokens = Math.min(tokens, 0);
+      if (adaptive && now - lastThrottled >= SECOND_NANOS) {
+        lastThrottled = now;
+        rate = Math.max(maxRate * MIN_RATE_RATIO, rate / 2);
+      }
+    }
+
+    synchronized double getRate() {
+      return rate;
+    }
+  }
+
+  CapacityLimiter(double readUnitsPerSecond, double writeUnitsPerSecond, boolean adaptive) {
+    this.readUnitsPerSecond = readUnitsPerSecond;
+    this.writeUnitsPerSecond = writeUnitsPerSecond;
+    this.adaptive = adaptive;
+  }
+
+  /**
+   * @return the limiter configured by the conf, or null if neither the reads nor the writes are
+   *         limited
+   */
+  static CapacityLimiter create(TablestoreClientConf conf) {
+    if (conf.getCapacityLimitReadUnits() <= 0 && conf.getCapacityLimitWriteUnits() <= 0) {
+      return null;
+    }
+    return new CapacityLimiter(conf.getCapacityLimitReadUnits(), conf.getCapacityLimitWriteUnits(),
+        conf.isCapacityLimitAdaptive());
+  }
+
+  /**
+   * @return the read and the write bucket of the table, null if not limited
+   */
+  private Bucket[] buckets(String tableName) {
+    Bucket[] buckets = tables.get(tableName);
+    if (buckets == null) {
+      buckets = new Bucket[] {
+          readUnitsPerSecond > 0 ? new Bucket(readUnitsPerSecond, adaptive) : null,
+          writeUnitsPerSecond > 0 ? new Bucket(writeUnitsPerSecond, adaptive) : null };
+      Bucket[] existing = tables.putIfAbsent(tableName, buckets);
+      if (existing != null) {
+        buckets = existing;
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * Takes the estimated capacity units of a request to the table, and waits until the table has
+   * the capacity to send it.
+   */
+  void acquire(String tableName, int readUnits, int writeUnits) throws IOException {
+    long waitNanos = reserve(tableName, readUnits, writeUnits);
+    if (waitNanos > 0) {
+      try {
+        OperationContext.sleep(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while waiting for the capacity of " + tableName);
+      }
+    }
+  }
+
+  /**
+   * Takes the estimated capacity units of a request to the table without waiting, for the requests
+   * of the async client which are sent later by a timer.
+   * @return the nanoseconds to wait before sending the request
+   */
+  long reserve(String tableName, int readUnits, int writeUnits) {
+    Bucket[] buckets = buckets(tableName);
+    long waitNanos = 0;
+    if (readUnits > 0 && buckets[0] != null) {
+      waitNanos = buckets[0].reserve(readUnits);
+    }
+    if (writeUnits > 0 && buckets[1] != null) {
+      waitNanos = Math.max(waitNanos, buckets[1].reserve(writeUnits));
+    }
+    return waitNanos;
+  }
+
+  /**
+   * Settles the read bucket of the table with the capacity units a response reports.
+   */
+  void consumed(String tableName, int estimatedReadUnits, int readUnits) {
+    Bucket read = buckets(tableName)[0];
+    if (read != null && readUnits != estimatedReadUnits) {
+      read.settle(readUnits - estimatedReadUnits);
+    }
+  }
+
+  /**
+   * Slows down the reads or the writes of the table after a throttling error.
+   */
+  void throttled(String tableName, boolean write) {
+    Bucket bucket = buckets(tableName)[write ? 1 : 0];
+    if (bucket != null) {
+      bucket.throttled();
+    }
+  }
+
+  /**
+   * @return the current rate of the reads or the writes of the table, or 0 if not limited
+   */
+  double getRate(String tableName, boolean write) {
+    Bucket bucket = buckets(tableName)[write ? 1 : 0];
+    return bucket == null ? 0 : bucket.getRate();
+  }
+
+  /**
+   * @return the estimated write capacity units of a row change, one per started 4KB
+   */
+  static int writeUnits(com.alicloud.openservices.tablestore.model.RowChange change) {
+    return Math.max(1, (int) ((change.getDataSize() + 4095) / 4096));
+  }
+}
@@ -0,0 +1,333 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.tablestore.adaptor.client.metrics.Histogram;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+
+/**
+ * Caps the requests of one adapter in flight to the OTS client, so a large batch can not take all
+ * the connections and starve the other callers of the adapter. The limit adapts by AIMD: it grows
+ * by one for each request completed in time while at least half of the limit is in use, and is
+ * cut by a tenth when a request is throttled or slower than the latency threshold. It is cut at
+ * most once per round trip, by a request sent after the last cut, as the requests sent before saw
+ * the same congestion. A request waits for a permit for at most the queue timeout, and is rejected
+ * afterwards.
+ * <p>
+ * The callback of a permit is passed to the request, which releases the permit once the request is
+ * completed. The requests of the async client wait for a permit without a thread, and the blocked
+ * callers on this limiter, in one queue, so the permits are given in the order they were asked for.
+ */
+public class ConcurrencyLimiter {
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+  private final long queueTimeoutNanos;
+  // guarded by this
+  private double limit;
+  private int inFlight = 0;
+  // when the limit was last cut, the requests sent before do not cut it again
+  private long lastDecreaseNanos = System.nanoTime();
+
+  private final LongAdder queued = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final Histogram queueTimeMicros = new Histogram();
+  // the requests waiting for a permit, of the async client and of the blocked callers, guarded by this
+  private final ArrayDeque<Waiter> waiters = new ArrayDeque<Waiter>();
+
+  /**
+   * Called with the permit of a request which waits for it without blocking.
+   */
+  interface PermitListener {
+    void onPermit(Permit permit);
+
+    /**
+     * Called instead if no permit is available within the queue timeout.
+     */
+    void onRejected(IOException ex);
+  }
+
+  /**
+   * A request in the queue. A request of the async client has a listener, and is rejected by the
+   * timer once the queue timeout is passed. A blocked caller has none, and waits for its permit on
+   * this limiter.
+   */
+  private final class Waiter implements Runnable {
+    private final PermitListener listener;
+    private final long start = System.nanoTime();
+    private volatile ScheduledFuture<?> timeout;
+    // set when the waiter is taken from the queue, guarded by the limiter
+    private Permit permit;
+
+    Waiter(PermitListener listener) {
+      this.listener = listener;
+    }
+
+    void grant() {
+      if (listener == null) {
+        return;
+      }
+      ScheduledFuture<?> task = timeout;
+      if (task != null) {
+        task.cancel(false);
+      }
+      queueTimeMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+      listener.onPermit(permit);
+    }
+
+    @Override
+    public void run() {
+      reject(null);
+    }
+
+    void reject(Throwable cause) {
+      int current;
+      synchronized (ConcurrencyLimiter.this) {
+        if (!waiters.remove(this)) {
+          // granted already
+          return;
+        }
+        current = (int) limit;
+      }
+      rejected.increment();
+      queueTimeMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+      listener.onRejected(new IOException("Too many requests in flight, the limit is " + current, cause));
+    }
+  }
+
+  /**
+   * The permit to send one request, released when the request is completed.
+   */
+  public final class Permit {
+    private final long start = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    /**
+     * @return the callback of the request, which releases the permit
+     */
+    public <Req, Res> TableStoreCallback<Req, Res> callback() {
+      return callback(null);
+    }
+
+    /**
+     * @param next the callback called after the permit is released, may be null
+     * @return the callback of the request, which releases the permit
+     */
+    public <Req, Res> TableStoreCallback<Req, Res> callback(final TableStoreCallback<Req, Res> next) {
+      return new TableStoreCallback<Req, Res>() {
+        @Override
+        public void onCompleted(Req request, Res response) {
+          release(null);
+          if (next != null) {
+            next.onCompleted(request, response);
+          }
+        }
+
+        @Override
+        public void onFailed(Req request, Exception ex) {
+          release(ex);
+          if (next != null) {
+            next.onFailed(request, ex);
+          }
+        }
+      };
+    }
+
+    /**
+     * Releases the permit, if not yet released. Called directly if the request could not be sent.
+     * @param error the error of the request, or null if it succeeded
+     */
+    void release(Throwable error) {
+      if (released.compareAndSet(false, true)) {
+        ConcurrencyLimiter.this.release(start, error != null && OTSUtil.isThrottled(error));
+      }
+    }
+  }
+
+  public ConcurrencyLimiter(int minLimit, int maxLimit, long latencyThresholdMillis, long queueTimeoutMillis) {
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+    this.limit = Math.max(this.minLimit, this.maxLimit / 4);
+  }
+
+  /**
+   * @return the limiter configured by the conf, or null if the requests in flight are not limited
+   */
+  static ConcurrencyLimiter create(TablestoreClientConf conf) {
+    if (conf.getConcurrencyLimitMax() <= 0) {
+      return null;
+    }
+    return new ConcurrencyLimiter(conf.getConcurrencyLimitMin(), conf.getConcurrencyLimitMax(),
+        conf.getConcurrencyLimitLatencyThreshold(), conf.getConcurrencyLimitQueueTimeout());
+  }
+
+  /**
+   * Waits for a permit to send a request, behind the requests which are already waiting.
+   * @return the permit, whose callback is to be passed to the request
+   * @throws IOException if no permit is available within the queue timeout
+   */
+  Permit acquire() throws IOException {
+    synchronized (this) {
+      if (waiters.isEmpty() && inFlight < (int) limit) {
+        inFlight++;
+        return new Permit();
+      }
+      queued.increment();
+      Waiter waiter = new Waiter(null);
+      waiters.add(waiter);
+      long waitNanos = queueTimeoutNanos;
+      try {
+        while (waiter.permit == null) {
+          if (waitNanos <= 0) {
+            rejected.increment();
+            queueTimeMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - waiter.start));
+            throw new IOException("Too many requests in flight, the limit is " + (int) limit);
+          }
+          // the wait also ends at the deadline of the operation, even if its interrupt was consumed
+          long deadlineNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, OperationContext.remainingMillis()));
+          try {
+            TimeUnit.NANOSECONDS.timedWait(this, Math.min(waitNanos, deadlineNanos));
+          } catch (InterruptedException e) {
+            if (waiter.permit != null) {
+              // granted already, so the request is sent and the interrupt is left to the caller
+              Thread.currentThread().interrupt();
+              break;
+            }
+            OperationContext.checkDeadline();
+            throw new InterruptedIOException("Interrupted while waiting for a request permit");
+          }
+          if (waiter.permit == null) {
+            OperationContext.checkDeadline();
+          }
+          waitNanos = queueTimeoutNanos - (System.nanoTime() - waiter.start);
+        }
+      } finally {
+        if (waiter.permit == null) {
+          waiters.remove(waiter);
+        }
+      }
+      queueTimeMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - waiter.start));
+      return waiter.permit;
+    }
+  }
+
+  /**
+   * Gets a permit without blocking. The listener is called at once if a permit is available, and
+   * otherwise once a request in flight releases its permit, or from the timer once the queue
+   * timeout is passed.
+   * @param timer rejects the request after the queue timeout
+   */
+  void acquire(PermitListener listener, ScheduledExecutorService timer) {
+    Waiter waiter = null;
+    synchronized (this) {
+      if (waiters.isEmpty() && inFlight < (int) limit) {
+        inFlight++;
+      } else {
+        queued.increment();
+        waiter = new Waiter(listener);
+        waiters.add(waiter);
+      }
+    }
+    if (waiter == null) {
+      listener.onPermit(new Permit());
+      return;
+    }
+    try {
+      waiter.timeout = timer.schedule(waiter, queueTimeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      // the timer is shut down
+      waiter.reject(e);
+    }
+  }
+
+  /**
+   * @return a permit to send a request, or null if the limit is reached or other requests are
+   *         waiting for a permit
+   */
+  synchronized Permit tryAcquire() {
+    if (!waiters.isEmpty() || inFlight >= (int) limit) {
+      return null;
+    }
+    inFlight++;
+    return new Permit();
+  }
+
+  /**
+   * @param startNanos when the permit of the request was given
+   * @param throttled whether the request was throttled
+   */
+  private void release(long startNanos, boolean throttled) {
+    List<Waiter> granted = null;
+    synchronized (this) {
+      long now = System.nanoTime();
+      if (throttled || now - startNanos > latencyThresholdNanos) {
+        if (startNanos - lastDecreaseNanos >= 0) {
+          limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+          lastDecreaseNanos = now;
+        }
+      } else if (inFlight * 2 >= limit) {
+        limit = Math.min(maxLimit, limit + 1);
+      }
+      inFlight--;
+      while (!waiters.isEmpty() && inFlight < (int) limit) {
+        Waiter next = waiters.poll();
+        inFlight++;
+        next.permit = new Permit();
+        if (granted == null) {
+          granted = new ArrayList<Waiter>();
+        }
+        granted.add(next);
+      }
+      notifyAll();
+    }
+    if (granted != null) {
+      for (Waiter next : granted) {
+        next.grant();
+      }
+    }
+  }
+
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * @return the number of the requests which waited for a permit
+   */
+  public long getQueued() {
+    return queued.sum();
+  }
+
+  /**
+   * @return the number of the requests which got no permit within the queue timeout
+   */
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * @return the time the queued requests waited for a permit
+   */
+  public Histogram getQueueTimeMicros() {
+    return queueTimeMicros;
+  }
+}
@@ -0,0 +1,119 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+
+/**
+ * Retries the throttled and the transient errors up to the retry count, with full jitter
+ * exponential backoff: the delay of the n-th retry is random between 0 and base * 2^n, capped by
+ * the max delay. The base of the throttling errors is 4 times longer, as the service needs more
+ * time to recover from them.
+ * <p>
+ * To not multiply the load of a struggling service, the retries share a budget: each call earns a
+ * ratio of a retry, and a minimum number of retries per second is always allowed. A retry which
+ * would not finish before the deadline of the operation is not tried.
+ */
+public class DefaultRetryPolicy implements RetryPolicy {
+  private static final int THROTTLED_BASE_MULTIPLIER = 4;
+  // the budget saved is capped at this number of seconds of the min retries
+  private static final int BUDGET_SECONDS = 10;
+
+  private final int maxRetries;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+  private final double budgetRatio;
+  private final double minRetriesPerSecond;
+  private final double maxTokens;
+  // guarded by this
+  private double tokens;
+  private long lastRefill = System.nanoTime();
+
+  public DefaultRetryPolicy(TablestoreClientConf conf) {
+    this(conf.getRetryCount(), conf.getRetryBaseDelay(), conf.getRetryMaxDelay(), conf.getRetryBudgetRatio(),
+        conf.getRetryBudgetMinPerSecond());
+  }
+
+  public DefaultRetryPolicy(int maxRetries, long baseDelayMillis, long maxDelayMillis, double budgetRatio,
+      double minRetriesPerSecond) {
+    this.maxRetries = maxRetries;
+    this.baseDelayMillis = Math.max(1, baseDelayMillis);
+    this.maxDelayMillis = maxDelayMillis;
+    this.budgetRatio = budgetRatio;
+    this.minRetriesPerSecond = minRetriesPerSecond;
+    this.maxTokens = Math.max(1, minRetriesPerSecond * BUDGET_SECONDS);
+    this.tokens = maxTokens;
+  }
+
+  /**
+   * Creates the policy configured by tablestore.client.retry.policy, this one by default.
+   */
+  static RetryPolicy create(TablestoreClientConf conf) {
+    String className = conf.getRetryPolicy();
+    if (className == null || className.equals(DefaultRetryPolicy.class.getName())) {
+      return new DefaultRetryPolicy(conf);
+    }
+    try {
+      return (RetryPolicy) Class.forName(className).getConstructor(TablestoreClientConf.class).newInstance(conf);
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Can not create the retry policy " + className, e);
+    }
+  }
+
+  /**
+   * Classifies an error by the error code of the OTS exception causing it.
+   */
+  public static ErrorClass classify(Throwable error) {
+    for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+      if (e instanceof DoNotRetryIOException || e instanceof OperationTimeoutException
+          || e instanceof IllegalArgumentException || e instanceof UnsupportedOperationException) {
+        return ErrorClass.NOT_RETRYABLE;
+      }
+      if (e instanceof TableStoreException) {
+        if (!OTSUtil.shouldRetry(e)) {
+          return ErrorClass.NOT_RETRYABLE;
+        }
+        if (OTSUtil.isThrottled(e)
+            || OTSErrorCode.TOO_FREQUENT_RESERVED_THROUGHPUT_ADJUSTMENT.equals(((TableStoreException) e).getErrorCode())) {
+          return ErrorClass.THROTTLED;
+        }
+        return ErrorClass.TRANSIENT;
+      }
+    }
+    return ErrorClass.TRANSIENT;
+  }
+
+  @Override
+  public synchronized void onCall() {
+    tokens = Math.min(maxTokens, tokens + budgetRatio);
+  }
+
+  private synchronized boolean withdraw() {
+    long now = System.nanoTime();
+    tokens = Math.min(maxTokens, tokens + minRetriesPerSecond * (now - lastRefill) / TimeUnit.SECONDS.toNanos(1));
+    lastRefill = now;
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  @Override
+  public long retryDelay(Throwable error, int retries) {
+    ErrorClass errorClass = classify(error);
+    if (errorClass == ErrorClass.NOT_RETRYABLE || retries >= maxRetries) {
+      return -1;
+    }
+    long base = errorClass == ErrorClass.THROTTLED ? baseDelayMillis * THROTTLED_BASE_MULTIPLIER : baseDelayMillis;
+    long ceiling = Math.min(maxDelayMillis, base << Math.min(retries, 30));
+    long delay = ThreadLocalRandom.current().nextLong(Math.max(0, ceiling) + 1);
+    if (delay >= OperationContext.remainingMillis() || !withdraw()) {
+      return -1;
+    }
+    return delay;
+  }
+}
@@ -0,0 +1,180 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+import com.alicloud.tablestore.adaptor.client.util.ThreadFactoryBuilder;
+
+/**
+ * Coalesces the concurrent single-row gets of a table into one batch get. The first get of a batch
+ * waits for at most the window, or until the batch has maxRows gets, and then hands the batch to a
+ * thread of the coalescer, which sends it on behalf of all the gets in it. Each get waits for the
+ * result of the batch until its own operation timeout, so an interrupt or a deadline of one caller
+ * only fails the get of that caller.
+ */
+final class GetCoalescer {
+  private static final ExecutorService FLUSH_POOL = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("otsadapter-get-coalescer-%d").setDaemon(true).build());
+
+  private final OTSInterface ots;
+  private final long windowNanos;
+  private final int maxRows;
+  private final int operationTimeout;
+  // the open batch of each table, guarded by itself
+  private final Map<String, Batch> pending = new HashMap<String, Batch>();
+
+  private static class Batch {
+    final List<com.alicloud.tablestore.adaptor.struct.OGet> gets = new ArrayList<com.alicloud.tablestore.adaptor.struct.OGet>();
+    final CountDownLatch done = new CountDownLatch(1);
+    // set with the lock of pending held, once no more get can join the batch
+    volatile boolean sealed = false;
+    Object[] results;
+    Throwable error;
+  }
+
+  GetCoalescer(OTSInterface ots, long windowMicros, int maxRows, int operationTimeout) {
+    this.ots = ots;
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+    this.maxRows = Math.max(1, maxRows);
+    this.operationTimeout = operationTimeout;
+  }
+
+  com.alicloud.tablestore.adaptor.struct.OResult get(String tableName, com.alicloud.tablestore.adaptor.struct.OGet get) throws IOException {
+    OperationContext context = operationTimeout == Integer.MAX_VALUE ? null : OperationContext.start("get", operationTimeout);
+    if (context == null) {
+      return coalesce(tableName, get);
+    }
+    try {
+      return coalesce(tableName, get);
+    } catch (IOException e) {
+      if (context.isExpired()) {
+        throw context.timeoutException();
+      }
+      throw e;
+    } finally {
+      context.finish();
+    }
+  }
+
+  private com.alicloud.tablestore.adaptor.struct.OResult coalesce(String tableName, com.alicloud.tablestore.adaptor.struct.OGet get)
+      throws IOException {
+    Batch batch;
+    int index;
+    boolean leader;
+    boolean full = false;
+    synchronized (pending) {
+      batch = pending.get(tableName);
+      leader = batch == null;
+      if (leader) {
+        batch = new Batch();
+        pending.put(tableName, batch);
+      }
+      index = batch.gets.size();
+      batch.gets.add(get);
+      if (batch.gets.size() >= maxRows) {
+        batch.sealed = true;
+        pending.remove(tableName);
+        full = true;
+      }
+    }
+
+    if (leader) {
+      long deadline = System.nanoTime() + windowNanos;
+      boolean interrupted = false;
+      synchronized (batch) {
+        long remaining;
+        while (!batch.sealed && (remaining = deadline - System.nanoTime()) > 0) {
+          try {
+            TimeUnit.NANOSECONDS.timedWait(batch, remaining);
+          } catch (InterruptedException e) {
+            // the others are waiting for this batch, so send it anyway
+            interrupted = true;
+            break;
+          }
+        }
+      }
+      synchronized (pending) {
+        if (!batch.sealed) {
+          batch.sealed = true;
+          pending.remove(tableName);
+        }
+      }
+      flush(tableName, batch);
+      if (interrupted) {
+        OperationContext.checkDeadline();
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the batch get of " + tableName);
+      }
+    } else if (full) {
+      synchronized (batch) {
+        batch.notifyAll();
+      }
+    }
+    await(tableName, batch);
+
+    Object result = batch.results[index];
+    if (result instanceof com.alicloud.tablestore.adaptor.struct.OResult) {
+      return (com.alicloud.tablestore.adaptor.struct.OResult) result;
+    }
+    throw toIOException(tableName, result instanceof Throwable ? (Throwable) result : batch.error);
+  }
+
+  /**
+   * @return the error of a get as it would be thrown if the get was not coalesced, so the retries
+   *         above see the same type
+   */
+  private static IOException toIOException(String tableName, Throwable error) {
+    if (error instanceof IOException) {
+      return (IOException) error;
+    }
+    if (error != null && !OTSUtil.shouldRetry(error)) {
+      return new DoNotRetryIOException(error.getMessage(), error);
+    }
+    return new IOException("Failed the batch get of " + tableName, error);
+  }
+
+  /**
+   * Waits for the result of the batch until the deadline of the get on the current thread.
+   */
+  private static void await(String tableName, Batch batch) throws IOException {
+    try {
+      while (!batch.done.await(OperationContext.remainingMillis(), TimeUnit.MILLISECONDS)) {
+        OperationContext.checkDeadline();
+      }
+    } catch (InterruptedException e) {
+      OperationContext.checkDeadline();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the batch get of " + tableName);
+    }
+  }
+
+  /**
+   * Sends the batch from a thread of the coalescer, which no caller interrupts.
+   */
+  private void flush(final String tableName, final Batch batch) {
+    FLUSH_POOL.execute(new Runnable() {
+      @Override
+      public void run() {
+        Object[] results = new Object[batch.gets.size()];
+        try {
+          ots.batch(tableName, batch.gets, results);
+        } catch (Throwable e) {
+          batch.error = e;
+        } finally {
+          batch.results = results;
+          batch.done.countDown();
+        }
+      }
+    });
+  }
+}
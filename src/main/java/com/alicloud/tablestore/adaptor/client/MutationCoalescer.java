@@ -0,0 +1,169 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.alicloud.openservices.tablestore.model.RowExistenceExpectation;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OColumnValue;
+import com.alicloud.tablestore.adaptor.struct.ODelete;
+import com.alicloud.tablestore.adaptor.struct.OMutation;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+
+/**
+ * Coalesces the buffered mutations of a row, so a row is written once per batch rather than once
+ * per mutation. The consecutive mutations of a row are merged while the result is the same as
+ * applying them in order:
+ * <ul>
+ * <li>the puts are merged into one put, and a put of a column and timestamp replaces the previous
+ * one, so the last writer wins also for the columns written at the latest timestamp;</li>
+ * <li>the deletes of columns are merged into one delete;</li>
+ * <li>a delete of the row replaces all the mutations before it;</li>
+ * <li>a delete of columns drops the puts it deletes, and replaces a put left empty.</li>
+ * </ul>
+ * A mutation which can not be merged, such as a put after a delete of the row, or a conditional
+ * one, starts a new mutation of the row. The n-th mutations of all the rows make the n-th round,
+ * which is sorted by row key and has each row at most once, so the rounds are written one after
+ * the other.
+ */
+public final class MutationCoalescer {
+
+  /**
+   * A coalesced mutation, and the indexes of the mutations merged into it.
+   */
+  public static final class Entry {
+    private OMutation mutation;
+    private final List<Integer> indexes = new ArrayList<Integer>();
+
+    public OMutation getMutation() {
+      return mutation;
+    }
+
+    public List<Integer> getIndexes() {
+      return indexes;
+    }
+  }
+
+  private MutationCoalescer() {
+  }
+
+  /**
+   * @param mutations the puts and the deletes, in the order they were made
+   * @return the rounds of the coalesced mutations, each sorted by row key
+   */
+  public static List<List<Entry>> coalesce(List<? extends OMutation> mutations) {
+    Map<byte[], List<Entry>> rows = new TreeMap<byte[], List<Entry>>(Bytes.BYTES_COMPARATOR);
+    int rounds = 0;
+    for (int i = 0; i < mutations.size(); i++) {
+      OMutation mutation = mutations.get(i);
+      List<Entry> entries = rows.get(mutation.getRow());
+      if (entries == null) {
+        entries = new ArrayList<Entry>();
+        rows.put(mutation.getRow(), entries);
+      }
+      Entry last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+      OMutation merged = last == null ? null : merge(last.mutation, mutation);
+      if (merged != null) {
+        last.mutation = merged;
+        last.indexes.add(i);
+      } else {
+        Entry entry = new Entry();
+        entry.mutation = mutation;
+        entry.indexes.add(i);
+        entries.add(entry);
+        rounds = Math.max(rounds, entries.size());
+      }
+    }
+
+    List<List<Entry>> result = new ArrayList<List<Entry>>(rounds);
+    for (int round = 0; round < rounds; round++) {
+      List<Entry> entries = new ArrayList<Entry>();
+      for (List<Entry> rowEntries : rows.values()) {
+        if (round < rowEntries.size()) {
+          entries.add(rowEntries.get(round));
+        }
+      }
+      result.add(entries);
+    }
+    return result;
+  }
+
+  private static boolean isUnconditional(OMutation mutation) {
+    return mutation.getCondition().getColumnCondition() == null
+        && mutation.getCondition().getRowExistenceExpectation() == RowExistenceExpectation.IGNORE;
+  }
+
+  private static boolean isRowDelete(OMutation mutation) {
+    return mutation instanceof ODelete && mutation.getKeyValues().isEmpty();
+  }
+
+  /**
+   * @return the mutation with the same effect as the two applied in order, or null if there is none
+   */
+  private static OMutation merge(OMutation last, OMutation next) {
+    if (!isUnconditional(last) || !isUnconditional(next)) {
+      return null;
+    }
+    if (isRowDelete(next)) {
+      return new ODelete(next.getRow());
+    }
+    if (isRowDelete(last)) {
+      return null;
+    }
+    if (last instanceof OPut && next instanceof OPut) {
+      OPut merged = new OPut((OPut) last);
+      for (OColumnValue kv : next.getKeyValues()) {
+        removePuts(merged.getKeyValues(), kv.getQualifier(), kv.getTimestamp(), false);
+        merged.getKeyValues().add(kv);
+      }
+      return merged;
+    }
+    if (last instanceof ODelete && next instanceof ODelete) {
+      ODelete merged = new ODelete((ODelete) last);
+      for (OColumnValue kv : next.getKeyValues()) {
+        if (!contains(merged.getKeyValues(), kv)) {
+          merged.getKeyValues().add(kv);
+        }
+      }
+      return merged;
+    }
+    if (last instanceof OPut && next instanceof ODelete) {
+      List<OColumnValue> puts = new ArrayList<OColumnValue>(last.getKeyValues());
+      for (OColumnValue kv : next.getKeyValues()) {
+        removePuts(puts, kv.getQualifier(), kv.getTimestamp(), kv.getType() == OColumnValue.Type.DELETE_ALL);
+      }
+      // the deletes must be applied after the puts left, which one mutation can not do
+      return puts.isEmpty() ? new ODelete((ODelete) next) : null;
+    }
+    return null;
+  }
+
+  /**
+   * Removes the puts of the column at the timestamp, or at any timestamp if allVersions. Otherwise
+   * a put at the latest timestamp is only removed by another one, as the time of the server is not
+   * known.
+   */
+  private static void removePuts(List<OColumnValue> kvs, byte[] qualifier, long ts, boolean allVersions) {
+    Iterator<OColumnValue> it = kvs.iterator();
+    while (it.hasNext()) {
+      OColumnValue kv = it.next();
+      if (kv.getType() == OColumnValue.Type.PUT && Bytes.equals(kv.getQualifier(), qualifier)
+          && (allVersions || kv.getTimestamp() == ts)) {
+        it.remove();
+      }
+    }
+  }
+
+  private static boolean contains(List<OColumnValue> kvs, OColumnValue kv) {
+    for (OColumnValue other : kvs) {
+      if (other.getType() == kv.getType() && other.getTimestamp() == kv.getTimestamp()
+          && Bytes.equals(other.getQualifier(), kv.getQualifier())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
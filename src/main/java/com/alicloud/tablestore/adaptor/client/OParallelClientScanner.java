@@ -0,0 +1,160 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.client.util.ThreadFactoryBuilder;
+
+/**
+ * A result scanner which splits the scan range at the shard boundaries of the table, and scans the
+ * sub-ranges concurrently with at most parallelism {@link OClientScanner}s.
+ * <p/>
+ * In the ordered mode the rows are returned in the order of a sequential scan. The sub-ranges are
+ * disjoint and sorted, so merging them is reading the results of one sub-range after another, while
+ * the following sub-ranges are scanned ahead into bounded buffers. In the unordered mode the rows are
+ * returned as soon as any sub-scan reads them.
+ */
+public class OParallelClientScanner extends AbstractOClientScanner {
+  // marks the end of a sub-scan in the queues
+  private static final Object END = new Object();
+
+  private final List<com.alicloud.tablestore.adaptor.struct.OScan> subScans;
+  private final BlockingQueue<Object>[] queues;
+  private final ExecutorService pool;
+  private final boolean ordered;
+  private int current = 0;
+  private int finished = 0;
+  private boolean closed = false;
+
+  @SuppressWarnings("unchecked")
+  public OParallelClientScanner(final String tableName, com.alicloud.tablestore.adaptor.struct.OScan scan, final OTSInterface ots,
+      byte[][] startKeys, byte[][] endKeys, int parallelism, boolean ordered) throws IOException {
+    if (scan.getReversed()) {
+      throw new UnsupportedOperationException("Reversed scan can not be run in parallel.");
+    }
+    this.ordered = ordered;
+    this.subScans = split(scan, startKeys, endKeys);
+    int caching = scan.getCaching() > 0 ? scan.getCaching() : OClientScanner.DEFAULT_CLIENT_SCANNER_CACHING;
+    int threads = Math.max(1, Math.min(parallelism, subScans.size()));
+
+    this.queues = new BlockingQueue[subScans.size()];
+    BlockingQueue<Object> shared = new ArrayBlockingQueue<Object>(caching * threads + 1);
+    for (int i = 0; i < queues.length; i++) {
+      queues[i] = ordered ? new ArrayBlockingQueue<Object>(caching + 1) : shared;
+    }
+
+    this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat("otsadapter-parallel-scan-%d").setDaemon(true).build());
+    // the sub-scans are started in the order of their ranges, so the one being read in the ordered
+    // mode is always running or done
+    for (int i = 0; i < subScans.size(); i++) {
+      final com.alicloud.tablestore.adaptor.struct.OScan subScan = subScans.get(i);
+      final BlockingQueue<Object> queue = queues[i];
+      pool.execute(new Runnable() {
+        @Override
+        public void run() {
+          Object end = END;
+          try {
+            OClientScanner scanner = new OClientScanner(tableName, subScan, ots);
+            com.alicloud.tablestore.adaptor.struct.OResult result;
+            while ((result = scanner.next()) != null) {
+              queue.put(result);
+            }
+          } catch (InterruptedException e) {
+            return;
+          } catch (Throwable e) {
+            end = e;
+          }
+          try {
+            queue.put(end);
+          } catch (InterruptedException e) {
+            // closed
+          }
+        }
+      });
+    }
+    pool.shutdown();
+  }
+
+  /**
+   * Intersects the range of the scan with each shard of the table.
+   */
+  static List<com.alicloud.tablestore.adaptor.struct.OScan> split(com.alicloud.tablestore.adaptor.struct.OScan scan,
+      byte[][] startKeys, byte[][] endKeys) throws IOException {
+    byte[] scanStart = scan.getStartRow() == null ? new byte[0] : scan.getStartRow();
+    byte[] scanStop = scan.getStopRow() == null ? new byte[0] : scan.getStopRow();
+    List<com.alicloud.tablestore.adaptor.struct.OScan> subScans = new ArrayList<com.alicloud.tablestore.adaptor.struct.OScan>();
+    for (int i = 0; i < startKeys.length; i++) {
+      byte[] start = scanStart;
+      if (Bytes.compareTo(startKeys[i], scanStart) > 0) {
+        start = startKeys[i];
+      }
+      byte[] stop = scanStop;
+      if (endKeys[i].length != 0 && (scanStop.length == 0 || Bytes.compareTo(endKeys[i], scanStop) < 0)) {
+        stop = endKeys[i];
+      }
+      if (stop.length != 0 && Bytes.compareTo(start, stop) >= 0) {
+        continue;
+      }
+      com.alicloud.tablestore.adaptor.struct.OScan subScan = new com.alicloud.tablestore.adaptor.struct.OScan(scan);
+      subScan.setStartRow(start);
+      subScan.setStopRow(stop);
+      subScans.add(subScan);
+    }
+    return subScans;
+  }
+
+  public com.alicloud.tablestore.adaptor.struct.OResult next() throws IOException {
+    while (!closed && current < queues.length && finished < queues.length) {
+      Object next;
+      try {
+        next = queues[current].take();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while waiting for the parallel scan");
+      }
+      if (next instanceof com.alicloud.tablestore.adaptor.struct.OResult) {
+        return (com.alicloud.tablestore.adaptor.struct.OResult) next;
+      }
+      if (next instanceof Throwable) {
+        close();
+        throw new IOException((Throwable) next);
+      }
+      if (ordered) {
+        current++;
+      } else {
+        finished++;
+      }
+    }
+    return null;
+  }
+
+  public com.alicloud.tablestore.adaptor.struct.OResult[] next(int nbRows) throws IOException {
+    // Collect values to be returned here
+    ArrayList<com.alicloud.tablestore.adaptor.struct.OResult> resultSets = new ArrayList<com.alicloud.tablestore.adaptor.struct.OResult>(nbRows);
+    for (int i = 0; i < nbRows; i++) {
+      com.alicloud.tablestore.adaptor.struct.OResult next = next();
+      if (next != null) {
+        resultSets.add(next);
+      } else {
+        break;
+      }
+    }
+    return resultSets.toArray(new com.alicloud.tablestore.adaptor.struct.OResult[resultSets.size()]);
+  }
+
+  public void close() {
+    if (!closed) {
+      closed = true;
+      pool.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A result scanner which fetches the following pages of the scan through the
+ * {@link OTSAsyncInterface} while the caller drains the current one. At most prefetchDepth pages
+ * are held ahead of the caller, and no more page is requested once the held pages reach
+ * maxPrefetchBytes. Pages are requested one after another, since the start row of a page is only
+ * known from the response of the previous one.
+ */
+public class OPrefetchingClientScanner extends AbstractOClientScanner {
+  private final OTSAsyncInterface ots;
+  private final com.alicloud.tablestore.adaptor.struct.OScan scan;
+  private final String table;
+  private final int caching;
+  private final int prefetchDepth;
+  private final long maxPrefetchBytes;
+
+  // the page being drained by the caller
+  private LinkedList<com.alicloud.tablestore.adaptor.struct.OResult> cache = new LinkedList<com.alicloud.tablestore.adaptor.struct.OResult>();
+  // the pages fetched ahead of the caller, guarded by this
+  private final LinkedList<Page> pages = new LinkedList<Page>();
+  private long prefetchedBytes = 0;
+  private boolean fetching = false;
+  private boolean exhausted = false;
+  private boolean closed = false;
+  private Throwable error = null;
+  private byte[] nextRow = null;
+
+  private static class Page {
+    final List<com.alicloud.tablestore.adaptor.struct.OResult> results;
+    final long bytes;
+
+    Page(List<com.alicloud.tablestore.adaptor.struct.OResult> results) {
+      this.results = results;
+      long size = 0;
+      for (com.alicloud.tablestore.adaptor.struct.OResult result : results) {
+        size += result.getSerializedSize();
+      }
+      this.bytes = size;
+    }
+  }
+
+  public OPrefetchingClientScanner(String tableName, com.alicloud.tablestore.adaptor.struct.OScan scan, OTSAsyncInterface ots,
+      int prefetchDepth, long maxPrefetchBytes) throws IOException {
+    this.ots = ots;
+    this.scan = scan;
+    this.table = tableName;
+    if (scan.getCaching() > 0) {
+      this.caching = scan.getCaching();
+    } else {
+      this.caching = OClientScanner.DEFAULT_CLIENT_SCANNER_CACHING;
+    }
+    this.prefetchDepth = Math.max(1, prefetchDepth);
+    this.maxPrefetchBytes = maxPrefetchBytes;
+
+    // Wait for the first page, so the errors of the scan are thrown here as OClientScanner does.
+    synchronized (this) {
+      fetchNextPage();
+      waitForPage();
+    }
+  }
+
+  /**
+   * Requests the next page if there is room for it. Must be called with the lock held.
+   */
+  private void fetchNextPage() {
+    if (fetching || exhausted || closed || error != null) {
+      return;
+    }
+    if (pages.size() >= prefetchDepth || (!pages.isEmpty() && prefetchedBytes >= maxPrefetchBytes)) {
+      return;
+    }
+    fetching = true;
+    if (nextRow != null) {
+      scan.setStartRow(nextRow);
+    }
+    final ByteArrayOutputStream nextRowOutputStream = new ByteArrayOutputStream();
+    ots.scan(table, scan, caching, nextRowOutputStream).whenComplete(
+        new java.util.function.BiConsumer<List<com.alicloud.tablestore.adaptor.struct.OResult>, Throwable>() {
+          @Override
+          public void accept(List<com.alicloud.tablestore.adaptor.struct.OResult> results, Throwable ex) {
+            onPage(results, nextRowOutputStream.toByteArray(), ex);
+          }
+        });
+  }
+
+  private synchronized void onPage(List<com.alicloud.tablestore.adaptor.struct.OResult> results, byte[] next, Throwable ex) {
+    fetching = false;
+    if (ex != null) {
+      error = ex;
+    } else if (!closed) {
+      Page page = new Page(results);
+      pages.add(page);
+      prefetchedBytes += page.bytes;
+      nextRow = next;
+      if (next.length == 0) {
+        exhausted = true;
+      }
+      fetchNextPage();
+    }
+    notifyAll();
+  }
+
+  /**
+   * Waits until a page is fetched, the scan is exhausted or failed. Must be called with the lock
+   * held.
+   */
+  private void waitForPage() throws IOException {
+    while (pages.isEmpty() && fetching) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while waiting for the scan of " + table);
+      }
+    }
+    if (pages.isEmpty() && error != null) {
+      throw new IOException(error);
+    }
+  }
+
+  public com.alicloud.tablestore.adaptor.struct.OResult next() throws IOException {
+    while (cache.isEmpty()) {
+      synchronized (this) {
+        if (closed) {
+          return null;
+        }
+        waitForPage();
+        if (pages.isEmpty()) {
+          return null;
+        }
+        Page page = pages.poll();
+        prefetchedBytes -= page.bytes;
+        cache = new LinkedList<com.alicloud.tablestore.adaptor.struct.OResult>(page.results);
+        fetchNextPage();
+      }
+    }
+    return cache.poll();
+  }
+
+  public com.alicloud.tablestore.adaptor.struct.OResult[] next(int nbRows) throws IOException {
+    // Collect values to be returned here
+    ArrayList<com.alicloud.tablestore.adaptor.struct.OResult> resultSets = new ArrayList<com.alicloud.tablestore.adaptor.struct.OResult>(nbRows);
+    for (int i = 0; i < nbRows; i++) {
+      com.alicloud.tablestore.adaptor.struct.OResult next = next();
+      if (next != null) {
+        resultSets.add(next);
+      } else {
+        break;
+      }
+    }
+    return resultSets.toArray(new com.alicloud.tablestore.adaptor.struct.OResult[resultSets.size()]);
+  }
+
+  public synchronized void close() {
+    // the page in flight, if any, is dropped when it arrives
+    closed = true;
+    pages.clear();
+    prefetchedBytes = 0;
+    cache.clear();
+  }
+}
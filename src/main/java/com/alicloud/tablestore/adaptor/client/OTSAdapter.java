@@ -4,8 +4,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.alicloud.tablestore.adaptor.client.metrics.ClientMetrics;
 import com.alicloud.tablestore.adaptor.client.util.Bytes;
 import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
 
@@ -33,8 +35,17 @@ public class OTSAdapter implements OTSInterface {
   static boolean mockMode = false;
 
   private final TablestoreClientConf clientConf;
-  // A Proxy to access adaptor service
+  // A retrying decorator to access adaptor service
   private OTSInterface otsProxy;
+  // The non-blocking access to adaptor service, sharing the OTS client with otsProxy
+  private OTSAsyncInterface otsAsync;
+  // Coalesces concurrent gets into batch gets, null if disabled
+  private GetCoalescer getCoalescer;
+  // The metrics of the calls, null if disabled
+  private ClientMetrics metrics;
+  private static final AtomicInteger METRICS_IDS = new AtomicInteger();
+  // The read-through row caches of the tables listed in the conf
+  private final Map<String, RowCache> rowCaches = new HashMap<String, RowCache>();
   int refCount;
 
   private static final String SEPARATOR = ".";
@@ -49,12 +60,35 @@ public class OTSAdapter implements OTSInterface {
 
   private OTSAdapter(TablestoreClientConf conf) {
     this.clientConf = conf;
+    String rowCacheTables = conf.getRowCacheTables();
+    if (rowCacheTables != null) {
+      for (String table : rowCacheTables.split(",")) {
+        if (!table.trim().isEmpty()) {
+          rowCaches.put(table.trim(), new RowCache(conf.getRowCacheSize(), conf.getRowCacheTtlMillis()));
+        }
+      }
+    }
     initAndStart();
   }
 
   private void initAndStart() {
     if (mockMode) return;
-    otsProxy = (OTSInterface) com.alicloud.tablestore.adaptor.client.RetryProxy.create(this.clientConf);
+    OTSImplement otsImplement = new OTSImplement(this.clientConf);
+    if (this.clientConf.isMetricsEnabled()) {
+      metrics = new ClientMetrics(this.clientConf.getOTSInstanceName() + "-" + METRICS_IDS.incrementAndGet(),
+          ClientMetrics.createReporters(this.clientConf.getMetricsReporters()));
+      otsImplement.setMetrics(metrics);
+      for (Map.Entry<String, RowCache> rowCache : rowCaches.entrySet()) {
+        metrics.addRowCache(rowCache.getKey(), rowCache.getValue());
+      }
+    }
+    otsProxy = new RetryingOTSInterface(this.clientConf, otsImplement, metrics, otsImplement.getRetryPolicy());
+    otsAsync = new OTSAsyncImplement(this.clientConf, otsImplement, metrics);
+    if (this.clientConf.getGetCoalescingWindowMicros() > 0) {
+      getCoalescer = new GetCoalescer(otsProxy, this.clientConf.getGetCoalescingWindowMicros(),
+          Math.min(this.clientConf.getGetCoalescingMaxRows(), this.clientConf.getOTSMaxBatchGetRowCount()),
+          this.clientConf.getOperationTimeout());
+    }
   }
 
   /**
@@ -77,13 +111,35 @@ public class OTSAdapter implements OTSInterface {
 
   @Override
   public com.alicloud.tablestore.adaptor.struct.OResult get(String tableName, com.alicloud.tablestore.adaptor.struct.OGet get) throws IOException {
+    RowCache rowCache = rowCaches.get(tableName);
+    if (rowCache == null) {
+      return doGet(tableName, get);
+    }
+    com.alicloud.tablestore.adaptor.struct.OResult result = rowCache.get(get);
+    if (result == null) {
+      long generation = rowCache.getGeneration();
+      result = doGet(tableName, get);
+      rowCache.put(get, result, generation);
+    }
+    return result;
+  }
+
+  private com.alicloud.tablestore.adaptor.struct.OResult doGet(String tableName, com.alicloud.tablestore.adaptor.struct.OGet get) throws IOException {
+    if (getCoalescer != null) {
+      return getCoalescer.get(tableName, get);
+    }
     return otsProxy.get(tableName, get);
   }
 
   @Override
   public void put(String tableName, com.alicloud.tablestore.adaptor.struct.OPut put) throws IOException {
     if (getAutoFlush(tableName)) {
-      otsProxy.put(tableName, put);
+      invalidateRow(tableName, put.getRow());
+      try {
+        otsProxy.put(tableName, put);
+      } finally {
+        invalidateRow(tableName, put.getRow());
+      }
     } else {
       doPut(tableName, Arrays.asList(put));
     }
@@ -93,7 +149,12 @@ public class OTSAdapter implements OTSInterface {
   @Override
   public void putMultiple(String tableName, List<com.alicloud.tablestore.adaptor.struct.OPut> puts) throws IOException {
     if (getAutoFlush(tableName)) {
-      otsProxy.putMultiple(tableName, puts);
+      invalidateRows(tableName, puts);
+      try {
+        otsProxy.putMultiple(tableName, puts);
+      } finally {
+        invalidateRows(tableName, puts);
+      }
     } else {
       doPut(tableName, puts);
     }
@@ -106,6 +167,8 @@ public class OTSAdapter implements OTSInterface {
     long writeBufferSize = getWriteBufferSize(tableName);
 
     List<com.alicloud.tablestore.adaptor.struct.OPut> flushPuts = null;
+    // the buffered rows are invalidated again once flushed
+    invalidateRows(tableName, puts);
     synchronized (tableWriteBuffer) {
       for (com.alicloud.tablestore.adaptor.struct.OPut put : puts) {
         tableWriteBuffer.add(put);
@@ -123,7 +186,21 @@ public class OTSAdapter implements OTSInterface {
   }
 
   public void update(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update) throws IOException {
-    otsProxy.update(tableName, update);
+    invalidateRow(tableName, update.getRow());
+    try {
+      otsProxy.update(tableName, update);
+    } finally {
+      invalidateRow(tableName, update.getRow());
+    }
+  }
+
+  public com.alicloud.tablestore.adaptor.struct.OResult increment(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update) throws IOException {
+    invalidateRow(tableName, update.getRow());
+    try {
+      return otsProxy.increment(tableName, update);
+    } finally {
+      invalidateRow(tableName, update.getRow());
+    }
   }
 
   private ArrayList<com.alicloud.tablestore.adaptor.struct.OPut> getTableWriteBuffer(String tableName) {
@@ -154,9 +231,21 @@ public class OTSAdapter implements OTSInterface {
   private void doCommits(String tableName, final List<com.alicloud.tablestore.adaptor.struct.OPut> puts) throws IOException {
     boolean flushSuccessfully = false;
     try {
-      otsProxy.putMultiple(tableName, puts);
+      if (clientConf.isWriteCoalescingEnabled()) {
+        for (List<MutationCoalescer.Entry> round : MutationCoalescer.coalesce(puts)) {
+          List<com.alicloud.tablestore.adaptor.struct.OPut> roundPuts =
+              new ArrayList<com.alicloud.tablestore.adaptor.struct.OPut>(round.size());
+          for (MutationCoalescer.Entry entry : round) {
+            roundPuts.add((com.alicloud.tablestore.adaptor.struct.OPut) entry.getMutation());
+          }
+          otsProxy.putMultiple(tableName, roundPuts);
+        }
+      } else {
+        otsProxy.putMultiple(tableName, puts);
+      }
       flushSuccessfully = true;
     } finally {
+      invalidateRows(tableName, puts);
       if (!flushSuccessfully && !getClearBufferOnFail(tableName)) {
         ArrayList<com.alicloud.tablestore.adaptor.struct.OPut> tableWriteBuffer = getTableWriteBuffer(tableName);
         synchronized (tableWriteBuffer) {
@@ -186,7 +275,34 @@ public class OTSAdapter implements OTSInterface {
 
   @Override
   public List<com.alicloud.tablestore.adaptor.struct.OResult> getMultiple(String tableName, List<com.alicloud.tablestore.adaptor.struct.OGet> gets) throws IOException {
-    return otsProxy.getMultiple(tableName, gets);
+    RowCache rowCache = rowCaches.get(tableName);
+    if (rowCache == null) {
+      return otsProxy.getMultiple(tableName, gets);
+    }
+    List<com.alicloud.tablestore.adaptor.struct.OResult> results = new ArrayList<com.alicloud.tablestore.adaptor.struct.OResult>(gets.size());
+    List<com.alicloud.tablestore.adaptor.struct.OGet> missedGets = new ArrayList<com.alicloud.tablestore.adaptor.struct.OGet>();
+    for (com.alicloud.tablestore.adaptor.struct.OGet get : gets) {
+      com.alicloud.tablestore.adaptor.struct.OResult result = rowCache.get(get);
+      results.add(result);
+      if (result == null) {
+        missedGets.add(get);
+      }
+    }
+    if (missedGets.isEmpty()) {
+      return results;
+    }
+    long generation = rowCache.getGeneration();
+    List<com.alicloud.tablestore.adaptor.struct.OResult> missedResults = otsProxy.getMultiple(tableName, missedGets);
+    int next = 0;
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) == null) {
+        com.alicloud.tablestore.adaptor.struct.OResult result = missedResults.get(next);
+        rowCache.put(missedGets.get(next), result, generation);
+        results.set(i, result);
+        next++;
+      }
+    }
+    return results;
   }
 
   @Override
@@ -201,24 +317,71 @@ public class OTSAdapter implements OTSInterface {
 
   @Override
   public void delete(String tableName, com.alicloud.tablestore.adaptor.struct.ODelete delete) throws IOException {
-    otsProxy.delete(tableName, delete);
+    invalidateRow(tableName, delete.getRow());
+    try {
+      otsProxy.delete(tableName, delete);
+    } finally {
+      invalidateRow(tableName, delete.getRow());
+    }
   }
 
   @Override
   public void deleteMultiple(String tableName, List<com.alicloud.tablestore.adaptor.struct.ODelete> deletes) throws IOException {
-    otsProxy.deleteMultiple(tableName, deletes);
+    invalidateRows(tableName, deletes);
+    try {
+      otsProxy.deleteMultiple(tableName, deletes);
+    } finally {
+      invalidateRows(tableName, deletes);
+    }
 
   }
 
   @Override
   public void batch(String tableName, List<? extends com.alicloud.tablestore.adaptor.struct.ORow> actions, Object[] results)
       throws IOException {
-    otsProxy.batch(tableName, actions, results);
+    invalidateRows(tableName, actions);
+    try {
+      otsProxy.batch(tableName, actions, results);
+    } finally {
+      invalidateRows(tableName, actions);
+    }
   }
 
   @Override
   public Object[] batch(String tableName, List<? extends com.alicloud.tablestore.adaptor.struct.ORow> actions) throws IOException {
-    return otsProxy.batch(tableName, actions);
+    invalidateRows(tableName, actions);
+    try {
+      return otsProxy.batch(tableName, actions);
+    } finally {
+      invalidateRows(tableName, actions);
+    }
+  }
+
+  /**
+   * Get the row cache of the table.
+   * @param tableName
+   * @return the row cache, or null if the rows of the table are not cached
+   */
+  public RowCache getRowCache(String tableName) {
+    return rowCaches.get(tableName);
+  }
+
+  private void invalidateRow(String tableName, byte[] row) {
+    RowCache rowCache = rowCaches.get(tableName);
+    if (rowCache != null) {
+      rowCache.invalidate(row);
+    }
+  }
+
+  private void invalidateRows(String tableName, List<? extends com.alicloud.tablestore.adaptor.struct.ORow> rows) {
+    RowCache rowCache = rowCaches.get(tableName);
+    if (rowCache != null) {
+      for (com.alicloud.tablestore.adaptor.struct.ORow row : rows) {
+        if (!(row instanceof com.alicloud.tablestore.adaptor.struct.OGet)) {
+          rowCache.invalidate(row.getRow());
+        }
+      }
+    }
   }
 
   public void setOperationTimeout(int operationTimeout) {
@@ -242,25 +405,70 @@ public class OTSAdapter implements OTSInterface {
       this.decCount();
       if (isZeroReference()) {
         OTS_INSTANCES.remove(this.clientConf);
+        if (this.otsAsync != null) {
+          this.otsAsync.close();
+        }
         if (this.otsProxy != null) {
-          com.alicloud.tablestore.adaptor.client.RetryProxy.stopProxy(this.otsProxy);
+          this.otsProxy.close();
+        }
+        if (this.metrics != null) {
+          this.metrics.close();
         }
       }
     }
   }
 
+  /**
+   * Returns the metrics of the calls of this adapter, per table and operation.
+   * @return the metrics, or null if disabled
+   */
+  public ClientMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Returns the non-blocking access to OTS, which shares the connections of this adapter. It is
+   * valid until the adapter is closed.
+   * @return the async interface
+   */
+  public OTSAsyncInterface getAsyncInterface() {
+    return this.otsAsync;
+  }
+
   /**
    * Returns a scanner on the specified table as specified by the {@link com.alicloud.tablestore.adaptor.struct.OScan} object. Note that
-   * the passed {@link com.alicloud.tablestore.adaptor.struct.OScan}'s start row and caching properties maybe changed.
+   * the passed {@link com.alicloud.tablestore.adaptor.struct.OScan}'s start row and caching properties maybe changed. If
+   * {@link TablestoreClientConf#getScannerPrefetchDepth()} is positive, the following pages are fetched in the background
+   * by an {@link OPrefetchingClientScanner}.
    * @param tableName the table to scan
    * @param scan A configured {@link com.alicloud.tablestore.adaptor.struct.OScan} object.
    * @return A scanner.
    * @throws IOException if a remote or network exception occurs.
    */
   public com.alicloud.tablestore.adaptor.client.OResultScanner getScanner(String tableName, com.alicloud.tablestore.adaptor.struct.OScan scan) throws IOException {
+    if (this.clientConf.getScannerPrefetchDepth() > 0) {
+      return new OPrefetchingClientScanner(tableName, scan, this.otsAsync, this.clientConf.getScannerPrefetchDepth(),
+          this.clientConf.getScannerPrefetchMaxBytes());
+    }
     return new com.alicloud.tablestore.adaptor.client.OClientScanner(tableName, scan, this.otsProxy);
   }
 
+  /**
+   * Returns a scanner which scans the shards of the table concurrently, at most
+   * {@link TablestoreClientConf#getScannerParallelism()} shards at a time.
+   * @param tableName the table to scan
+   * @param scan A configured {@link com.alicloud.tablestore.adaptor.struct.OScan} object, which must not be reversed.
+   * @param ordered whether the rows are returned in the order of the row keys
+   * @return A scanner.
+   * @throws IOException if a remote or network exception occurs.
+   */
+  public com.alicloud.tablestore.adaptor.client.OResultScanner getParallelScanner(String tableName, com.alicloud.tablestore.adaptor.struct.OScan scan,
+      boolean ordered) throws IOException {
+    OTableDescriptor descriptor = describeTable(tableName);
+    return new OParallelClientScanner(tableName, scan, this.otsProxy, descriptor.getStartKeys(), descriptor.getEndKeys(),
+        this.clientConf.getScannerParallelism(), ordered);
+  }
+
   /**
    * Increment this client's reference count.
    */
@@ -0,0 +1,604 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+import com.alicloud.tablestore.adaptor.client.metrics.ClientMetrics;
+import com.alicloud.tablestore.adaptor.client.metrics.OperationMetrics;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+import com.alicloud.tablestore.adaptor.client.util.Preconditions;
+import com.alicloud.tablestore.adaptor.client.util.ThreadFactoryBuilder;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.HConstants;
+
+/**
+ * An {@link OTSAsyncInterface} implementation which shares the OTS async client with
+ * {@link OTSImplement}. Requests are completed from the {@link TableStoreCallback}s of the client,
+ * and failed requests are re-sent by a timer after the delay of the {@link RetryPolicy} of the
+ * adapter, which also decides whether they are retried, so no thread is parked while waiting for a response or a retry. The operation timeout is enforced
+ * by the same timer, which fails the future once the timeout is passed.
+ * <p>
+ * The requests go through the capacity limiter and the limiter of the requests in flight of
+ * {@link OTSImplement}, and wait for them on the timer rather than on a thread. If metrics are
+ * given, the latency, the retries and the failures of each call are recorded as by
+ * {@link RetryingOTSInterface}.
+ */
+public class OTSAsyncImplement implements OTSAsyncInterface {
+  private static final Log LOG = LogFactory.getLog(OTSAsyncImplement.class);
+
+  // shared with OTSImplement, so the async retries draw from the same budget
+  private final RetryPolicy retryPolicy;
+  private final int operationTimeout;
+  private final int readRpcTimeout;
+  private final int writeRpcTimeout;
+  // 0 if the attempts are limited by the retry policy only
+  private final int maxAttempts;
+  // 0 if the waits between the retries are decided by the retry policy
+  private final long retryPause;
+  private final long retryPauseForServerOverloaded;
+  private final int maxScanLimit;
+  private final AsyncClientInterface ots;
+  // accounts the capacity units of the responses and the throttling errors
+  private final OTSImplement otsImplement;
+  // null if the capacity units of the tables are not limited
+  private final CapacityLimiter limiter;
+  // null if the requests in flight are not limited
+  private final ConcurrencyLimiter concurrencyLimiter;
+  // null if the calls are not measured
+  private final ClientMetrics metrics;
+  private final ScheduledThreadPoolExecutor retryTimer;
+  // false for a view of withOptions, which does not stop the shared timer when closed
+  private final boolean ownsTimer;
+
+  OTSAsyncImplement(TablestoreClientConf conf, OTSImplement otsImplement, ClientMetrics metrics) {
+    this.retryPolicy = otsImplement.getRetryPolicy();
+    this.operationTimeout = conf.getOperationTimeout();
+    this.readRpcTimeout = Integer.MAX_VALUE;
+    this.writeRpcTimeout = Integer.MAX_VALUE;
+    this.maxAttempts = 0;
+    this.retryPause = 0;
+    this.retryPauseForServerOverloaded = 0;
+    this.maxScanLimit = conf.getOTSMaxScanLimit();
+    this.ots = otsImplement.getAsyncClient();
+    this.otsImplement = otsImplement;
+    this.limiter = otsImplement.getCapacityLimiter();
+    this.concurrencyLimiter = otsImplement.getConcurrencyLimiter();
+    this.metrics = metrics;
+    this.retryTimer = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setNameFormat("otsadapter-async-retry-%d").setDaemon(true).build());
+    this.retryTimer.setRemoveOnCancelPolicy(true);
+    this.ownsTimer = true;
+  }
+
+  private OTSAsyncImplement(OTSAsyncImplement parent, AsyncCallOptions options) {
+    this.retryPolicy = parent.retryPolicy;
+    this.operationTimeout = options.getOperationTimeout();
+    this.readRpcTimeout = options.getReadRpcTimeout();
+    this.writeRpcTimeout = options.getWriteRpcTimeout();
+    this.maxAttempts = options.getMaxAttempts();
+    this.retryPause = options.getRetryPause();
+    this.retryPauseForServerOverloaded = options.getRetryPauseForServerOverloaded() > 0
+        ? options.getRetryPauseForServerOverloaded() : options.getRetryPause();
+    this.maxScanLimit = parent.maxScanLimit;
+    this.ots = parent.ots;
+    this.otsImplement = parent.otsImplement;
+    this.limiter = parent.limiter;
+    this.concurrencyLimiter = parent.concurrencyLimiter;
+    this.metrics = parent.metrics;
+    this.retryTimer = parent.retryTimer;
+    this.ownsTimer = false;
+  }
+
+  @Override
+  public OTSAsyncInterface withOptions(AsyncCallOptions options) {
+    return new OTSAsyncImplement(this, options);
+  }
+
+  /**
+   * Sends one request of the OTS async client with the given callback.
+   */
+  private interface AsyncCall<Req, Res> {
+    Future<Res> call(TableStoreCallback<Req, Res> callback);
+  }
+
+  private <Req, Res> CompletableFuture<Res> execute(String operation, String tableName, int readUnits,
+      int writeUnits, AsyncCall<Req, Res> call) {
+    return execute(operation, tableName, readUnits, writeUnits, call, true);
+  }
+
+  /**
+   * @param readUnits the read capacity units the request is estimated to consume
+   * @param writeUnits the write capacity units the request is estimated to consume
+   * @param idempotent whether the request may be re-sent if it failed
+   */
+  private <Req, Res> CompletableFuture<Res> execute(final String operation, String tableName, int readUnits,
+      int writeUnits, AsyncCall<Req, Res> call, boolean idempotent) {
+    final CompletableFuture<Res> future = new CompletableFuture<Res>();
+    OperationMetrics operationMetrics = metrics == null ? null : metrics.operation(tableName, operation);
+    final Attempt<Req, Res> attempt =
+        new Attempt<Req, Res>(operation, tableName, readUnits, writeUnits, call, idempotent, operationMetrics, future);
+    if (operationTimeout != Integer.MAX_VALUE) {
+      try {
+        final ScheduledFuture<?> timeoutTask = retryTimer.schedule(new Runnable() {
+          @Override
+          public void run() {
+            attempt.fail(new OperationTimeoutException("Failed exectuing operation "
+                + operation + " after " + operationTimeout + "ms"));
+          }
+        }, operationTimeout, TimeUnit.MILLISECONDS);
+        future.whenComplete(new java.util.function.BiConsumer<Res, Throwable>() {
+          @Override
+          public void accept(Res res, Throwable ex) {
+            timeoutTask.cancel(false);
+          }
+        });
+      } catch (Throwable ex) {
+        // the timer is shut down
+        attempt.fail(new IOException(ex));
+        return future;
+      }
+    }
+    retryPolicy.onCall();
+    attempt.start(0);
+    return future;
+  }
+
+  /**
+   * The attempts of one call, each of which waits for the capacity of the table and for a permit
+   * before its request is sent. The call is measured before its future is completed, so the
+   * metrics include it once the caller sees the result.
+   */
+  private final class Attempt<Req, Res> {
+    private final String operation;
+    private final String tableName;
+    private final int readUnits;
+    private final int writeUnits;
+    private final AsyncCall<Req, Res> call;
+    private final boolean idempotent;
+    private final OperationMetrics operationMetrics;
+    private final CompletableFuture<Res> future;
+    private final long start = System.nanoTime();
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+
+    Attempt(String operation, String tableName, int readUnits, int writeUnits, AsyncCall<Req, Res> call,
+        boolean idempotent, OperationMetrics operationMetrics, CompletableFuture<Res> future) {
+      this.operation = operation;
+      this.tableName = tableName;
+      this.readUnits = readUnits;
+      this.writeUnits = writeUnits;
+      this.call = call;
+      this.idempotent = idempotent;
+      this.operationMetrics = operationMetrics;
+      this.future = future;
+    }
+
+    void complete(Res res) {
+      if (finished.compareAndSet(false, true)) {
+        record(false);
+        future.complete(res);
+      }
+    }
+
+    void fail(Throwable ex) {
+      if (finished.compareAndSet(false, true)) {
+        record(true);
+        future.completeExceptionally(ex);
+      }
+    }
+
+    private void record(boolean failed) {
+      if (operationMetrics != null) {
+        operationMetrics.recordLatencyMicros((System.nanoTime() - start) / 1000);
+        if (failed) {
+          operationMetrics.incrementFailures();
+        }
+      }
+    }
+
+    void start(final int retried) {
+      if (future.isDone()) {
+        // cancelled by the caller
+        return;
+      }
+      long waitNanos = limiter == null ? 0 : limiter.reserve(tableName, readUnits, writeUnits);
+      if (waitNanos <= 0) {
+        acquire(retried);
+        return;
+      }
+      try {
+        retryTimer.schedule(new Runnable() {
+          @Override
+          public void run() {
+            acquire(retried);
+          }
+        }, waitNanos, TimeUnit.NANOSECONDS);
+      } catch (Throwable ex) {
+        // the timer is shut down
+        fail(new IOException(ex));
+      }
+    }
+
+    private void acquire(final int retried) {
+      if (concurrencyLimiter == null) {
+        send(retried, null);
+        return;
+      }
+      concurrencyLimiter.acquire(new ConcurrencyLimiter.PermitListener() {
+        @Override
+        public void onPermit(ConcurrencyLimiter.Permit permit) {
+          send(retried, permit);
+        }
+
+        @Override
+        public void onRejected(IOException ex) {
+          fail(ex);
+        }
+      }, retryTimer);
+    }
+
+    private void send(final int retried, ConcurrencyLimiter.Permit permit) {
+      if (future.isDone()) {
+        if (permit != null) {
+          permit.release(null);
+        }
+        return;
+      }
+      final int rpcTimeout = writeUnits > 0 ? writeRpcTimeout : readRpcTimeout;
+      // settled by the response or by the rpc timeout, whichever comes first
+      final AtomicBoolean settled = new AtomicBoolean(false);
+      final ScheduledFuture<?> rpcTimeoutTask = rpcTimeout == Integer.MAX_VALUE ? null
+          : scheduleRpcTimeout(retried, rpcTimeout, settled);
+      TableStoreCallback<Req, Res> callback = new TableStoreCallback<Req, Res>() {
+        @Override
+        public void onCompleted(Req req, Res res) {
+          if (!settle(settled, rpcTimeoutTask)) {
+            return;
+          }
+          otsImplement.consumed(tableName, operation, consumedCapacity(res), readUnits);
+          complete(res);
+        }
+
+        @Override
+        public void onFailed(Req req, Exception ex) {
+          if (settle(settled, rpcTimeoutTask)) {
+            onFailure(retried, ex);
+          }
+        }
+      };
+      try {
+        ClientFaultInjector.instance.fetchFromHBaseServiceException();
+        call.call(permit == null ? callback : permit.callback(callback));
+      } catch (Throwable ex) {
+        if (permit != null) {
+          permit.release(ex);
+        }
+        if (settle(settled, rpcTimeoutTask)) {
+          onFailure(retried, ex);
+        }
+      }
+    }
+
+    /**
+     * Fails the attempt once the rpc timeout is passed, so it is retried if the policy allows. The
+     * request keeps its permit until its response comes, which is ignored.
+     */
+    private ScheduledFuture<?> scheduleRpcTimeout(final int retried, final int rpcTimeout,
+        final AtomicBoolean settled) {
+      try {
+        return retryTimer.schedule(new Runnable() {
+          @Override
+          public void run() {
+            if (settled.compareAndSet(false, true)) {
+              onFailure(retried, new SocketTimeoutException("No response of " + operation + " in " + rpcTimeout + "ms"));
+            }
+          }
+        }, rpcTimeout, TimeUnit.MILLISECONDS);
+      } catch (Throwable ex) {
+        // the timer is shut down, the socket timeout of the client still applies
+        return null;
+      }
+    }
+
+    private boolean settle(AtomicBoolean settled, ScheduledFuture<?> rpcTimeoutTask) {
+      if (!settled.compareAndSet(false, true)) {
+        return false;
+      }
+      if (rpcTimeoutTask != null) {
+        rpcTimeoutTask.cancel(false);
+      }
+      return true;
+    }
+
+    private void onFailure(final int retried, Throwable ex) {
+      otsImplement.throttled(tableName, ex, writeUnits > 0);
+      if (operationMetrics != null && OTSUtil.isThrottled(ex)) {
+        operationMetrics.incrementThrottled();
+      }
+      if (!OTSUtil.shouldRetry(ex)) {
+        fail(new DoNotRetryIOException(ex.getMessage(), ex));
+        return;
+      }
+      if (!idempotent) {
+        fail(new IOException(ex));
+        return;
+      }
+      long delay = maxAttempts > 0 && retried + 1 >= maxAttempts ? -1 : retryPolicy.retryDelay(ex, retried);
+      long pause = OTSUtil.isThrottled(ex) ? retryPauseForServerOverloaded : retryPause;
+      if (delay >= 0 && pause > 0) {
+        delay = pauseTime(pause, retried);
+      }
+      if (delay < 0) {
+        String msg = "Failed calling " + operation + " after retring " + retried + " time(s)";
+        LOG.warn(msg, ex);
+        fail(new IOException(msg, ex));
+        return;
+      }
+      LOG.warn("Failed calling " + operation + " because of " + ex + ", will retry...");
+      if (operationMetrics != null) {
+        operationMetrics.incrementRetries();
+      }
+      try {
+        retryTimer.schedule(new Runnable() {
+          @Override
+          public void run() {
+            start(retried + 1);
+          }
+        }, delay, TimeUnit.MILLISECONDS);
+      } catch (Throwable e) {
+        // the timer is shut down
+        fail(new IOException(ex));
+      }
+    }
+  }
+
+  /**
+   * @return the wait before the retry after the given retries, growing from the pause as the waits
+   *         of the HBase client do
+   */
+  private static long pauseTime(long pause, int retried) {
+    long normalPause = pause * HConstants.RETRY_BACKOFF[Math.min(retried, HConstants.RETRY_BACKOFF.length - 1)];
+    return normalPause + (long) (normalPause * ThreadLocalRandom.current().nextFloat() * 0.01f);
+  }
+
+  /**
+   * @return the capacity units a response reports, or null if it reports none
+   */
+  private static ConsumedCapacity consumedCapacity(Object response) {
+    if (response instanceof GetRowResponse) {
+      return ((GetRowResponse) response).getConsumedCapacity();
+    } else if (response instanceof GetRangeResponse) {
+      return ((GetRangeResponse) response).getConsumedCapacity();
+    } else if (response instanceof UpdateRowResponse) {
+      return ((UpdateRowResponse) response).getConsumedCapacity();
+    } else if (response instanceof DeleteRowResponse) {
+      return ((DeleteRowResponse) response).getConsumedCapacity();
+    }
+    return null;
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Throwable ex) {
+    CompletableFuture<T> future = new CompletableFuture<T>();
+    future.completeExceptionally(ex);
+    return future;
+  }
+
+  public CompletableFuture<com.alicloud.tablestore.adaptor.struct.OResult> get(String tableName, com.alicloud.tablestore.adaptor.struct.OGet get) {
+    final GetRowRequest request;
+    try {
+      request = new GetRowRequest(get.toOTSParameter(tableName));
+    } catch (Throwable ex) {
+      return failedFuture(new DoNotRetryIOException(ex.getMessage(), ex));
+    }
+    final CompletableFuture<com.alicloud.tablestore.adaptor.struct.OResult> result =
+        new CompletableFuture<com.alicloud.tablestore.adaptor.struct.OResult>();
+    execute("get", tableName, 1, 0, new AsyncCall<GetRowRequest, GetRowResponse>() {
+      @Override
+      public Future<GetRowResponse> call(TableStoreCallback<GetRowRequest, GetRowResponse> callback) {
+        return ots.getRow(request, callback);
+      }
+    }).whenComplete(new java.util.function.BiConsumer<GetRowResponse, Throwable>() {
+      @Override
+      public void accept(GetRowResponse response, Throwable ex) {
+        if (ex != null) {
+          result.completeExceptionally(ex);
+        } else {
+          result.complete(OTSUtil.parseOTSRowToResult(response.getRow()));
+        }
+      }
+    });
+    return result;
+  }
+
+  public CompletableFuture<List<com.alicloud.tablestore.adaptor.struct.OResult>> scan(String tableName, com.alicloud.tablestore.adaptor.struct.OScan scan, int limit, final ByteArrayOutputStream nextRow) {
+    final GetRangeRequest request;
+    try {
+      Preconditions.checkArgument(limit <= maxScanLimit,
+          String.format("The limit:%d can not exceed %d.", limit, maxScanLimit));
+      Preconditions.checkNotNull(nextRow);
+      RangeRowQueryCriteria criteria = scan.toOTSParameter(tableName);
+      if (criteria.getLimit() == -1 || limit < criteria.getLimit()) {
+        criteria.setLimit(limit);
+      }
+      request = new GetRangeRequest(criteria);
+    } catch (Throwable ex) {
+      return failedFuture(new DoNotRetryIOException(ex.getMessage(), ex));
+    }
+    final CompletableFuture<List<com.alicloud.tablestore.adaptor.struct.OResult>> result =
+        new CompletableFuture<List<com.alicloud.tablestore.adaptor.struct.OResult>>();
+    execute("scan", tableName, 1, 0, new AsyncCall<GetRangeRequest, GetRangeResponse>() {
+      @Override
+      public Future<GetRangeResponse> call(TableStoreCallback<GetRangeRequest, GetRangeResponse> callback) {
+        return ots.getRange(request, callback);
+      }
+    }).whenComplete(new java.util.function.BiConsumer<GetRangeResponse, Throwable>() {
+      @Override
+      public void accept(GetRangeResponse response, Throwable ex) {
+        if (ex != null) {
+          result.completeExceptionally(ex);
+          return;
+        }
+        List<com.alicloud.tablestore.adaptor.struct.OResult> results = new ArrayList<com.alicloud.tablestore.adaptor.struct.OResult>();
+        for (Row row : response.getRows()) {
+          results.add(OTSUtil.parseOTSRowToResult(row));
+        }
+        if (!results.isEmpty()) {
+          results.get(results.size() - 1).setOtsResult(response);
+        }
+        nextRow.reset();
+        if (response.getNextStartPrimaryKey() != null) {
+          byte[] next = response.getNextStartPrimaryKey()
+              .getPrimaryKeyColumn(OTSConstants.PRIMARY_KEY_NAME).getValue().asBinary();
+          nextRow.write(next, 0, next.length);
+        }
+        result.complete(results);
+      }
+    });
+    return result;
+  }
+
+  public CompletableFuture<Void> put(String tableName, com.alicloud.tablestore.adaptor.struct.OPut put) {
+    final UpdateRowRequest request;
+    try {
+      request = new UpdateRowRequest(put.toOTSParameter(tableName));
+    } catch (Throwable ex) {
+      return failedFuture(new DoNotRetryIOException(ex.getMessage(), ex));
+    }
+    return toVoid(execute("put", tableName, 0, CapacityLimiter.writeUnits(request.getRowChange()), new AsyncCall<UpdateRowRequest, UpdateRowResponse>() {
+      @Override
+      public Future<UpdateRowResponse> call(TableStoreCallback<UpdateRowRequest, UpdateRowResponse> callback) {
+        return ots.updateRow(request, callback);
+      }
+    }));
+  }
+
+  public CompletableFuture<Void> delete(String tableName, com.alicloud.tablestore.adaptor.struct.ODelete delete) {
+    final RowChange rowChange;
+    try {
+      rowChange = delete.toOTSParameter(tableName);
+    } catch (Throwable ex) {
+      return failedFuture(new DoNotRetryIOException(ex.getMessage(), ex));
+    }
+    if (rowChange instanceof RowDeleteChange) {
+      final DeleteRowRequest request = new DeleteRowRequest((RowDeleteChange) rowChange);
+      return toVoid(execute("delete", tableName, 0, CapacityLimiter.writeUnits(rowChange), new AsyncCall<DeleteRowRequest, DeleteRowResponse>() {
+        @Override
+        public Future<DeleteRowResponse> call(TableStoreCallback<DeleteRowRequest, DeleteRowResponse> callback) {
+          return ots.deleteRow(request, callback);
+        }
+      }));
+    } else {
+      final UpdateRowRequest request = new UpdateRowRequest((RowUpdateChange) rowChange);
+      return toVoid(execute("delete", tableName, 0, CapacityLimiter.writeUnits(rowChange), new AsyncCall<UpdateRowRequest, UpdateRowResponse>() {
+        @Override
+        public Future<UpdateRowResponse> call(TableStoreCallback<UpdateRowRequest, UpdateRowResponse> callback) {
+          return ots.updateRow(request, callback);
+        }
+      }));
+    }
+  }
+
+  public CompletableFuture<Void> update(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update) {
+    final UpdateRowRequest request;
+    try {
+      request = new UpdateRowRequest(update.toOTSParameter(tableName));
+    } catch (Throwable ex) {
+      return failedFuture(new DoNotRetryIOException(ex.getMessage(), ex));
+    }
+    return toVoid(execute("update", tableName, 0, CapacityLimiter.writeUnits(request.getRowChange()), new AsyncCall<UpdateRowRequest, UpdateRowResponse>() {
+      @Override
+      public Future<UpdateRowResponse> call(TableStoreCallback<UpdateRowRequest, UpdateRowResponse> callback) {
+        return ots.updateRow(request, callback);
+      }
+    }));
+  }
+
+  public CompletableFuture<com.alicloud.tablestore.adaptor.struct.OResult> increment(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update) {
+    final UpdateRowRequest request;
+    try {
+      request = new UpdateRowRequest(update.toOTSParameter(tableName));
+    } catch (Throwable ex) {
+      return failedFuture(new DoNotRetryIOException(ex.getMessage(), ex));
+    }
+    final CompletableFuture<com.alicloud.tablestore.adaptor.struct.OResult> result =
+        new CompletableFuture<com.alicloud.tablestore.adaptor.struct.OResult>();
+    execute("increment", tableName, 0, CapacityLimiter.writeUnits(request.getRowChange()), new AsyncCall<UpdateRowRequest, UpdateRowResponse>() {
+      @Override
+      public Future<UpdateRowResponse> call(TableStoreCallback<UpdateRowRequest, UpdateRowResponse> callback) {
+        return ots.updateRow(request, callback);
+      }
+    }, false).whenComplete(new java.util.function.BiConsumer<UpdateRowResponse, Throwable>() {
+      @Override
+      public void accept(UpdateRowResponse response, Throwable ex) {
+        if (ex != null) {
+          result.completeExceptionally(ex);
+        } else {
+          result.complete(OTSUtil.parseOTSRowToResult(response.getRow()));
+        }
+      }
+    });
+    return result;
+  }
+
+  public CompletableFuture<OTableDescriptor> describeTable(final String tableName) {
+    final DescribeTableRequest request = new DescribeTableRequest(tableName);
+    final CompletableFuture<OTableDescriptor> result = new CompletableFuture<OTableDescriptor>();
+    execute("describeTable", tableName, 0, 0, new AsyncCall<DescribeTableRequest, DescribeTableResponse>() {
+      @Override
+      public Future<DescribeTableResponse> call(TableStoreCallback<DescribeTableRequest, DescribeTableResponse> callback) {
+        return ots.describeTable(request, callback);
+      }
+    }).whenComplete(new java.util.function.BiConsumer<DescribeTableResponse, Throwable>() {
+      @Override
+      public void accept(DescribeTableResponse response, Throwable ex) {
+        if (ex != null) {
+          result.completeExceptionally(ex);
+        } else {
+          result.complete(OTSImplement.toTableDescriptor(tableName, response));
+        }
+      }
+    });
+    return result;
+  }
+
+  private static <T> CompletableFuture<Void> toVoid(CompletableFuture<T> future) {
+    final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    future.whenComplete(new java.util.function.BiConsumer<T, Throwable>() {
+      @Override
+      public void accept(T response, Throwable ex) {
+        if (ex != null) {
+          result.completeExceptionally(ex);
+        } else {
+          result.complete(null);
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Stops the retry timer, unless this is a view of {@link #withOptions} sharing it. The OTS async
+   * client is shared with {@link OTSImplement} and is shut down by it.
+   */
+  @Override
+  public void close() throws IOException {
+    if (ownsTimer) {
+      retryTimer.shutdownNow();
+    }
+  }
+}
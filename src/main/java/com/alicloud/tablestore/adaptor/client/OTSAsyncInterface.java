@@ -0,0 +1,86 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The non-blocking counterpart of {@link OTSInterface}. The returned futures are completed by the
+ * callbacks of the OTS async client, so no thread is blocked while a request is on the wire. Failed
+ * requests are retried without blocking, and the futures complete exceptionally with an
+ * IOException (or a {@link com.alicloud.tablestore.adaptor.DoNotRetryIOException}) as the blocking
+ * methods throw.
+ */
+public interface OTSAsyncInterface extends Closeable {
+
+  /**
+   * Method for getting data from a row. If the row cannot be found an empty Result is returned.
+   * @param tableName
+   * @param get
+   * @return the future of the result of row
+   */
+  public CompletableFuture<com.alicloud.tablestore.adaptor.struct.OResult> get(String tableName, com.alicloud.tablestore.adaptor.struct.OGet get);
+
+  /**
+   * Method for scan the range rows as the specified OScan. The most count of rows to return is
+   * specified by limit.
+   * @param tableName
+   * @param scan
+   * @param limit the most rows count to return
+   * @param nextRow filled with the next row key before the future completes, if there are more rows
+   *          between start row and end row.
+   * @return the future of the results
+   */
+  public CompletableFuture<List<com.alicloud.tablestore.adaptor.struct.OResult>> scan(String tableName, com.alicloud.tablestore.adaptor.struct.OScan scan, int limit, ByteArrayOutputStream nextRow);
+
+  /**
+   * Method for putting data of a row to the specified table.
+   * @param tableName
+   * @param put
+   * @return the future completed when the row is written
+   */
+  public CompletableFuture<Void> put(String tableName, com.alicloud.tablestore.adaptor.struct.OPut put);
+
+  /**
+   * Method for deleting data of a row from the specified table.
+   * @param tableName
+   * @param delete
+   * @return the future completed when the row is deleted
+   */
+  public CompletableFuture<Void> delete(String tableName, com.alicloud.tablestore.adaptor.struct.ODelete delete);
+
+  /**
+   * Method for put or delete data of a row to the specified table.
+   * @param tableName
+   * @param update
+   * @return the future completed when the row is updated
+   */
+  public CompletableFuture<Void> update(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update);
+
+  /**
+   * Atomically increments the integer columns of a row. The request is not re-sent if it failed.
+   * @param tableName
+   * @param update with the increments added by {@link com.alicloud.tablestore.adaptor.struct.OUpdate#increment}
+   * @return the incremented columns after the update
+   */
+  public CompletableFuture<com.alicloud.tablestore.adaptor.struct.OResult> increment(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update);
+
+  /**
+   * describe table
+   * @param tableName
+   * @return the future of the table descriptor
+   */
+  public CompletableFuture<OTableDescriptor> describeTable(String tableName);
+
+  /**
+   * Get a view of this interface whose calls are limited by the given options instead of the
+   * operation timeout of the conf. The view shares the client, the limiters and the retry budget
+   * with this interface, and closing it closes nothing.
+   * @param options the limits of the calls, which are copied
+   * @return the view
+   */
+  public OTSAsyncInterface withOptions(AsyncCallOptions options);
+}
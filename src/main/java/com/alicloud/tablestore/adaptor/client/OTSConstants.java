@@ -32,4 +32,20 @@ public class OTSConstants {
   public static final String GLOBAL_FAMILY_CONF_KEY = "hbase.client.tablestore.family";
   public static final String DEFAULT_FAMILY_NAME = "s";
 
+  /**
+   * The max bytes buffered or being flushed by a BufferedMutator, 4 times the write buffer by default
+   */
+  public static final String WRITE_BUFFER_MAX_PENDING_CONF_KEY = "hbase.client.tablestore.write.buffer.max.pending";
+
+  /**
+   * Whether a BufferedMutator blocks the producers when full, or fails them
+   */
+  public static final String WRITE_BUFFER_BLOCK_CONF_KEY = "hbase.client.tablestore.write.buffer.block";
+
+  /**
+   * The number of stripes of the buffer of a BufferedMutator, rounded up to a power of 2, twice the
+   * processors by default
+   */
+  public static final String WRITE_BUFFER_STRIPES_CONF_KEY = "hbase.client.tablestore.write.buffer.stripes";
+
 }
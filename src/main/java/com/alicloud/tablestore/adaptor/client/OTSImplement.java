@@ -2,61 +2,283 @@ package com.alicloud.tablestore.adaptor.client;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import com.alicloud.openservices.tablestore.*;
 import com.alicloud.openservices.tablestore.model.*;
 import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+import com.alicloud.tablestore.adaptor.client.metrics.ClientMetrics;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
 import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+import com.alicloud.tablestore.adaptor.client.util.PlainBufferSize;
 import com.alicloud.tablestore.adaptor.client.util.Preconditions;
 import com.alicloud.tablestore.adaptor.struct.ODelete;
 import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
 import org.apache.hadoop.hbase.HConstants;
 
 public class OTSImplement implements OTSInterface {
-
-  private int retryCount;
   private int maxBatchRowCount;
   private int maxBatchDataSize;
+  private int maxBatchGetRowCount;
   private int maxScanLimit;
+  private int maxInflightBatchWrites;
   private AsyncClientInterface ots = null;
+  private final RetryPolicy retryPolicy;
+  // Where the consumed capacity units are accounted, null if the metrics are disabled
+  private ClientMetrics metrics = null;
+  private boolean attachCapacity;
+  // null if the capacity units of the tables are not limited
+  private final CapacityLimiter limiter;
+  // null if the requests in flight are not limited
+  private final ConcurrencyLimiter concurrencyLimiter;
+  // null if the reads are not hedged
+  private final ReadHedger hedger;
+  // null if the rows of batch writes are not grouped by partition
+  private final ShardSplits shardSplits;
 
   OTSImplement(TablestoreClientConf conf) {
-    retryCount = conf.getRetryCount();
+    this(conf, createClient(conf));
+  }
+
+  /**
+   * Create an adapter sending its requests to the given client, which it shuts down when closed.
+   * @param conf
+   * @param ots
+   */
+  public OTSImplement(TablestoreClientConf conf, AsyncClientInterface ots) {
+    retryPolicy = DefaultRetryPolicy.create(conf);
     maxBatchRowCount = conf.getOTSMaxBatchRowCount();
     maxBatchDataSize = conf.getOTSMaxBatchDataSize();
+    maxBatchGetRowCount = conf.getOTSMaxBatchGetRowCount();
     maxScanLimit = conf.getOTSMaxScanLimit();
+    maxInflightBatchWrites = Math.max(1, conf.getMaxInflightBatchWrites());
+    attachCapacity = conf.isCapacityAttachedToResults();
+    limiter = CapacityLimiter.create(conf);
+    concurrencyLimiter = ConcurrencyLimiter.create(conf);
+    hedger = ReadHedger.create(conf);
+    shardSplits = ShardSplits.create(conf, ots);
+    this.ots = ots;
+  }
+
+  private static final class NoRetryStrategy implements RetryStrategy {
+    @Override
+    public RetryStrategy clone() {
+      return this;
+    }
+
+    @Override
+    public int getRetries() {
+      return 0;
+    }
+
+    @Override
+    public long nextPause(String action, Exception ex) {
+      return 0;
+    }
+  }
+
+  RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  void setMetrics(ClientMetrics metrics) {
+    this.metrics = metrics;
+    if (metrics != null) {
+      metrics.setConcurrencyLimiter(concurrencyLimiter);
+    }
+  }
+
+  /**
+   * Accounts the capacity units a response reports to the operation on the table, and settles the
+   * read capacity units the request was estimated to consume by the limiter.
+   */
+  void consumed(String tableName, String operation, ConsumedCapacity consumedCapacity, int estimatedReadUnits) {
+    if (consumedCapacity == null || consumedCapacity.getCapacityUnit() == null) {
+      return;
+    }
+    CapacityUnit capacityUnit = consumedCapacity.getCapacityUnit();
+    int readUnits = capacityUnit.hasSetReadCapacityUnit() ? capacityUnit.getReadCapacityUnit() : 0;
+    int writeUnits = capacityUnit.hasSetWriteCapacityUnit() ? capacityUnit.getWriteCapacityUnit() : 0;
+    if (metrics != null) {
+      metrics.operation(tableName, operation).addCapacityUnits(readUnits, writeUnits);
+    }
+    if (limiter != null) {
+      limiter.consumed(tableName, estimatedReadUnits, readUnits);
+    }
+  }
+
+  /**
+   * Waits for the capacity of a request. Every request is sent after this, so no request is sent
+   * once the deadline of the operation is passed.
+   */
+  private void acquire(String tableName, int readUnits, int writeUnits) throws IOException {
+    OperationContext.checkDeadline();
+    if (limiter != null) {
+      limiter.acquire(tableName, readUnits, writeUnits);
+    }
+  }
+
+  void throttled(String tableName, Throwable ex, boolean write) {
+    if (limiter != null && OTSUtil.isThrottled(ex)) {
+      limiter.throttled(tableName, write);
+    }
+  }
+
+  /**
+   * Waits for the permit to send a request.
+   * @return the permit, or null if the requests in flight are not limited
+   */
+  private ConcurrencyLimiter.Permit permit() throws IOException {
+    return concurrencyLimiter == null ? null : concurrencyLimiter.acquire();
+  }
+
+  private static <Req, Res> TableStoreCallback<Req, Res> callback(ConcurrencyLimiter.Permit permit) {
+    return permit == null ? null : permit.<Req, Res>callback();
+  }
+
+  /**
+   * Releases the permit of a request which failed. A request interrupted while waiting for its
+   * response is still in flight, and keeps its permit until its callback is called.
+   */
+  private static void release(ConcurrencyLimiter.Permit permit, Throwable ex) {
+    if (permit != null && !(ex instanceof InterruptedException)) {
+      permit.release(ex);
+    }
+  }
+
+  /**
+   * A read which may be hedged. The duplicate of the read is only sent if a permit is available at
+   * once, and is not paced by the capacity limiter, as the hedges are bounded by their budget.
+   */
+  private abstract class HedgedRead<Req, Res> implements ReadHedger.Sender<Req, Res> {
+    private final String tableName;
+    private final String operation;
+
+    HedgedRead(String tableName, String operation) {
+      this.tableName = tableName;
+      this.operation = operation;
+    }
+
+    protected abstract Future<Res> send(TableStoreCallback<Req, Res> callback);
+
+    @Override
+    public Future<Res> send(TableStoreCallback<Req, Res> callback, boolean hedge) throws IOException {
+      ConcurrencyLimiter.Permit permit = null;
+      if (concurrencyLimiter != null) {
+        permit = hedge ? concurrencyLimiter.tryAcquire() : concurrencyLimiter.acquire();
+        if (permit == null) {
+          return null;
+        }
+      }
+      if (hedge && metrics != null) {
+        metrics.operation(tableName, operation).incrementHedged();
+      }
+      try {
+        return send(permit == null ? callback : permit.callback(callback));
+      } catch (RuntimeException ex) {
+        release(permit, ex);
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * @return the cause of an ExecutionException, which the futures of the hedged reads throw unlike
+   *         the futures of the OTS client, so the error is classified by its own type
+   */
+  private static Throwable unwrap(Throwable ex) {
+    return ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+  }
+
+  private static int writeUnits(BatchWriteRowRequest request) {
+    int units = 0;
+    for (List<RowChange> rowChanges : request.getRowChange().values()) {
+      for (RowChange rowChange : rowChanges) {
+        units += CapacityLimiter.writeUnits(rowChange);
+      }
+    }
+    return units;
+  }
+
+  private com.alicloud.tablestore.adaptor.struct.OResult attach(com.alicloud.tablestore.adaptor.struct.OResult result,
+      Response response, ConsumedCapacity consumedCapacity) {
+    if (attachCapacity && result != null) {
+      if (response != null) {
+        result.setOtsResult(response);
+      }
+      if (consumedCapacity != null) {
+        result.setConsumedCapacity(consumedCapacity.getCapacityUnit());
+      }
+    }
+    return result;
+  }
+
+  private static AsyncClientInterface createClient(TablestoreClientConf conf) {
+    String factory = conf.getClientFactory();
+    if (factory != null) {
+      try {
+        return ((AsyncClientFactory) Class.forName(factory).newInstance()).create(conf);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalArgumentException("Can not create the client factory " + factory, e);
+      } catch (ClassCastException e) {
+        throw new IllegalArgumentException("Can not create the client factory " + factory, e);
+      }
+    }
     ClientConfiguration otsConf = new ClientConfiguration();
     otsConf.setMaxConnections(conf.getOTSMaxConnections());
-    otsConf.setSocketTimeoutInMillisecond(conf.getOTSSocketTimeout());
+    // a request is not waited for longer than an operation, so its connection is not held longer
+    otsConf.setSocketTimeoutInMillisecond(Math.min(conf.getOTSSocketTimeout(), conf.getOperationTimeout()));
     otsConf.setConnectionTimeoutInMillisecond(conf.getOTSConnectionTimeout());
-    otsConf.setRetryStrategy(new DefaultRetryStrategy());
-    ots =
-        new AsyncClient(conf.getOTSEndpoint(), conf.getTablestoreAccessKeyId(), conf.getTablestoreAccessKeySecret(),
-            conf.getOTSInstanceName(), otsConf);
+    // the requests are retried by the RetryPolicy of the adapter only
+    otsConf.setRetryStrategy(new NoRetryStrategy());
+    return new AsyncClient(conf.getOTSEndpoint(), conf.getTablestoreAccessKeyId(), conf.getTablestoreAccessKeySecret(),
+        conf.getOTSInstanceName(), otsConf);
   }
 
   public com.alicloud.tablestore.adaptor.struct.OResult get(String tableName, com.alicloud.tablestore.adaptor.struct.OGet get) throws IOException {
+    ConcurrencyLimiter.Permit permit = null;
     try {
       SingleRowQueryCriteria singleRowQueryCriteria = get.toOTSParameter(tableName);
-      GetRowRequest getRowRequest = new GetRowRequest(singleRowQueryCriteria);
-      GetRowResponse result = ots.getRow(getRowRequest, null).get();
-      return OTSUtil.parseOTSRowToResult(result.getRow());
+      final GetRowRequest getRowRequest = new GetRowRequest(singleRowQueryCriteria);
+      acquire(tableName, 1, 0);
+      GetRowResponse result;
+      if (hedger != null) {
+        result = hedger.send("get/" + tableName, new HedgedRead<GetRowRequest, GetRowResponse>(tableName, "get") {
+          @Override
+          protected Future<GetRowResponse> send(TableStoreCallback<GetRowRequest, GetRowResponse> callback) {
+            return ots.getRow(getRowRequest, callback);
+          }
+        }).get();
+      } else {
+        permit = permit();
+        result = ots.getRow(getRowRequest, OTSImplement.<GetRowRequest, GetRowResponse>callback(permit)).get();
+      }
+      consumed(tableName, "get", result.getConsumedCapacity(), 1);
+      return attach(OTSUtil.parseOTSRowToResult(result.getRow()), result, result.getConsumedCapacity());
     } catch (Throwable ex) {
-      if (OTSUtil.shouldRetry(ex)) {
-        throw new IOException(ex);
+      Throwable error = unwrap(ex);
+      release(permit, error);
+      throttled(tableName, error, false);
+      if (OTSUtil.shouldRetry(error)) {
+        throw new IOException(error);
       } else {
-        throw new DoNotRetryIOException(ex.getMessage(), ex);
+        throw new DoNotRetryIOException(error.getMessage(), error);
       }
     }
   }
 
   public List<com.alicloud.tablestore.adaptor.struct.OResult> getMultiple(String tableName, List<com.alicloud.tablestore.adaptor.struct.OGet> gets) throws IOException {
     Object[] r1 = new Object[gets.size()];
-    batchGet(tableName, gets, r1);
+    batchGet(tableName, "getMultiple", gets, r1);
     List<com.alicloud.tablestore.adaptor.struct.OResult> results = new ArrayList<com.alicloud.tablestore.adaptor.struct.OResult>();
     for (Object o : r1) {
       results.add((com.alicloud.tablestore.adaptor.struct.OResult) o);
@@ -78,11 +300,16 @@ public class OTSImplement implements OTSInterface {
     }
 
     GetRangeResponse getRangeResult = null;
+    acquire(tableName, 1, 0);
+    ConcurrencyLimiter.Permit permit = permit();
     try {
-      getRangeResult = ots.getRange(new GetRangeRequest(criteria), null).get();
+      getRangeResult = ots.getRange(new GetRangeRequest(criteria), OTSImplement.<GetRangeRequest, GetRangeResponse>callback(permit)).get();
     } catch (Throwable ex) {
+      release(permit, ex);
+      throttled(tableName, ex, false);
       throw new IOException(ex);
     }
+    consumed(tableName, "scan", getRangeResult.getConsumedCapacity(), 1);
 
     List<com.alicloud.tablestore.adaptor.struct.OResult> results = new ArrayList<com.alicloud.tablestore.adaptor.struct.OResult>();
     for (Row row : getRangeResult.getRows()) {
@@ -90,6 +317,7 @@ public class OTSImplement implements OTSInterface {
     }
     if (!results.isEmpty()) {
       results.get(results.size() - 1).setOtsResult(getRangeResult);
+      attach(results.get(results.size() - 1), null, getRangeResult.getConsumedCapacity());
     }
     nextRow.reset();
     if (getRangeResult.getNextStartPrimaryKey() != null) {
@@ -100,10 +328,17 @@ public class OTSImplement implements OTSInterface {
   }
 
   public void put(String tableName, com.alicloud.tablestore.adaptor.struct.OPut put) throws IOException {
+    ConcurrencyLimiter.Permit permit = null;
     try {
       RowUpdateChange rowPutChange = put.toOTSParameter(tableName);
-      ots.updateRow(new UpdateRowRequest(rowPutChange), null).get();
+      acquire(tableName, 0, CapacityLimiter.writeUnits(rowPutChange));
+      permit = permit();
+      UpdateRowResponse response = ots.updateRow(new UpdateRowRequest(rowPutChange),
+          OTSImplement.<UpdateRowRequest, UpdateRowResponse>callback(permit)).get();
+      consumed(tableName, "put", response.getConsumedCapacity(), 0);
     } catch (Throwable ex) {
+      release(permit, ex);
+      throttled(tableName, ex, true);
       if (OTSUtil.shouldRetry(ex)) {
         throw new IOException(ex);
       } else {
@@ -114,18 +349,27 @@ public class OTSImplement implements OTSInterface {
 
   public void putMultiple(String tableName, List<com.alicloud.tablestore.adaptor.struct.OPut> puts) throws IOException {
     Object[] r1 = new Object[puts.size()];
-    batchPut(tableName, puts, r1);
+    batchPut(tableName, "putMultiple", puts, r1);
   }
 
   public void delete(String tableName, com.alicloud.tablestore.adaptor.struct.ODelete delete) throws IOException {
+    ConcurrencyLimiter.Permit permit = null;
     try {
       RowChange rowChange = delete.toOTSParameter(tableName);
+      acquire(tableName, 0, CapacityLimiter.writeUnits(rowChange));
+      permit = permit();
       if (rowChange instanceof RowDeleteChange) {
-        ots.deleteRow(new DeleteRowRequest((RowDeleteChange) rowChange), null).get();
+        DeleteRowResponse response = ots.deleteRow(new DeleteRowRequest((RowDeleteChange) rowChange),
+            OTSImplement.<DeleteRowRequest, DeleteRowResponse>callback(permit)).get();
+        consumed(tableName, "delete", response.getConsumedCapacity(), 0);
       } else if (rowChange instanceof RowUpdateChange) {
-        ots.updateRow(new UpdateRowRequest((RowUpdateChange) rowChange), null).get();
+        UpdateRowResponse response = ots.updateRow(new UpdateRowRequest((RowUpdateChange) rowChange),
+            OTSImplement.<UpdateRowRequest, UpdateRowResponse>callback(permit)).get();
+        consumed(tableName, "delete", response.getConsumedCapacity(), 0);
       }
     } catch (Throwable ex) {
+      release(permit, ex);
+      throttled(tableName, ex, true);
       if (OTSUtil.shouldRetry(ex)) {
         throw new IOException(ex);
       } else {
@@ -148,12 +392,16 @@ public class OTSImplement implements OTSInterface {
     Object[] r2 = new Object[deleteColumns.size()];
     Throwable error = null;
     try {
-      batchDeleteRow(tableName, deleteRows, r1);
+      batchMutate(tableName, "deleteMultiple", deleteRows, r1);
+    } catch (InterruptedIOException ex) {
+      throw ex;
     } catch (Throwable ex) {
       error = ex;
     }
     try {
-      batchDeleteColumn(tableName, deleteColumns, r2);
+      batchMutate(tableName, "deleteMultiple", deleteColumns, r2);
+    } catch (InterruptedIOException ex) {
+      throw ex;
     } catch (Throwable ex) {
       error = ex;
     }
@@ -163,10 +411,17 @@ public class OTSImplement implements OTSInterface {
   }
 
   public void update(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update) throws IOException {
+    ConcurrencyLimiter.Permit permit = null;
     try {
       RowUpdateChange rowUpdateChange = update.toOTSParameter(tableName);
-      ots.updateRow(new UpdateRowRequest(rowUpdateChange), null).get();
+      acquire(tableName, 0, CapacityLimiter.writeUnits(rowUpdateChange));
+      permit = permit();
+      UpdateRowResponse response = ots.updateRow(new UpdateRowRequest(rowUpdateChange),
+          OTSImplement.<UpdateRowRequest, UpdateRowResponse>callback(permit)).get();
+      consumed(tableName, "update", response.getConsumedCapacity(), 0);
     } catch (Throwable ex) {
+      release(permit, ex);
+      throttled(tableName, ex, true);
       if (OTSUtil.shouldRetry(ex)) {
         throw new IOException(ex);
       } else {
@@ -175,7 +430,28 @@ public class OTSImplement implements OTSInterface {
     }
   }
 
-  private void batchGet(String tableName, List<com.alicloud.tablestore.adaptor.struct.OGet> gets, Object[] results) throws IOException {
+  public com.alicloud.tablestore.adaptor.struct.OResult increment(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update) throws IOException {
+    ConcurrencyLimiter.Permit permit = null;
+    try {
+      RowUpdateChange rowUpdateChange = update.toOTSParameter(tableName);
+      acquire(tableName, 0, CapacityLimiter.writeUnits(rowUpdateChange));
+      permit = permit();
+      UpdateRowResponse response = ots.updateRow(new UpdateRowRequest(rowUpdateChange),
+          OTSImplement.<UpdateRowRequest, UpdateRowResponse>callback(permit)).get();
+      consumed(tableName, "increment", response.getConsumedCapacity(), 0);
+      return attach(OTSUtil.parseOTSRowToResult(response.getRow()), response, response.getConsumedCapacity());
+    } catch (Throwable ex) {
+      release(permit, ex);
+      throttled(tableName, ex, true);
+      if (OTSUtil.shouldRetry(ex)) {
+        throw new IOException(ex);
+      } else {
+        throw new DoNotRetryIOException(ex.getMessage(), ex);
+      }
+    }
+  }
+
+  private void batchGet(String tableName, String operation, List<com.alicloud.tablestore.adaptor.struct.OGet> gets, Object[] results) throws IOException {
     int size = gets.size();
     if (size == 0) return;
 
@@ -183,8 +459,9 @@ public class OTSImplement implements OTSInterface {
     while (true) {
       Throwable error = null;
 
-      Future[] futures = new Future[size];
-
+      // Gets sharing the same columns, versions, time range and filter are fetched by one
+      // MultiRowQueryCriteria, and a BatchGetRowRequest holds one criteria per table.
+      Map<QueryKey, List<Integer>> groups = new LinkedHashMap<QueryKey, List<Integer>>();
       for (int i = 0; i < size; i++) {
 
         // check should retry
@@ -198,421 +475,413 @@ public class OTSImplement implements OTSInterface {
         }
 
         if (retried == 0 || shouldRetryVar) {
-          SingleRowQueryCriteria criteria = gets.get(i).toOTSParameter(tableName);
-          try {
-            Future<GetRowResponse> future = ots.getRow(new GetRowRequest(criteria), null);
-            futures[i] = future;
-          } catch (Throwable ex) {
-            results[i] = ex;
-            error = ex;
+          QueryKey key = new QueryKey(gets.get(i));
+          List<Integer> group = groups.get(key);
+          if (group == null) {
+            group = new ArrayList<Integer>();
+            groups.put(key, group);
           }
+          group.add(i);
         }
       }
 
-      for (int i = 0; i < size; i++) {
-        if (futures[i] != null) {
-          try {
-            GetRowResponse result = (GetRowResponse) futures[i].get();
-            results[i] = OTSUtil.parseOTSRowToResult(result.getRow());
-          } catch (Throwable ex) {
-            results[i] = ex;
-            error = ex;
+      List<BatchGetRowRequest> batches = new ArrayList<BatchGetRowRequest>();
+      // for each batch, the indexes of gets reading the row at the same position of the criteria
+      List<List<List<Integer>>> batchIndexes = new ArrayList<List<List<Integer>>>();
+      for (List<Integer> group : groups.values()) {
+        BatchGetRowRequest request = null;
+        MultiRowQueryCriteria criteria = null;
+        List<List<Integer>> rowIndexes = null;
+        Map<byte[], List<Integer>> rowsInBatch = null;
+        for (int idx : group) {
+          com.alicloud.tablestore.adaptor.struct.OGet get = gets.get(idx);
+          if (criteria == null || criteria.size() >= maxBatchGetRowCount) {
+            criteria = get.toMultiRowQueryCriteria(tableName);
+            rowIndexes = new ArrayList<List<Integer>>();
+            rowsInBatch = new TreeMap<byte[], List<Integer>>(Bytes.BYTES_COMPARATOR);
+            request = new BatchGetRowRequest();
+            batches.add(request);
+            batchIndexes.add(rowIndexes);
           }
-        }
-      }
-
-      if (error == null) return;
-
-      boolean hasItemNeedRetry = false;
-      for (int i = 0; i < size; i++) {
-        if (results[i] instanceof Throwable) {
-          if (OTSUtil.shouldRetry((Throwable) results[i])) {
-            hasItemNeedRetry = true;
-            break;
+          // the same row is read only once per batch
+          List<Integer> sameRow = rowsInBatch.get(get.getRow());
+          if (sameRow == null) {
+            sameRow = new ArrayList<Integer>();
+            rowsInBatch.put(get.getRow(), sameRow);
+            rowIndexes.add(sameRow);
+            criteria.addRow(OTSUtil.toPrimaryKey(get.getRow(), OTSConstants.PRIMARY_KEY_NAME));
+            if (criteria.size() == 1) {
+              // the request only accepts a criteria with rows
+              request.addMultiRowQueryCriteria(criteria);
+            }
           }
+          sameRow.add(idx);
         }
       }
 
-      if (retried >= retryCount || !hasItemNeedRetry) {
-        throw new DoNotRetryIOException(error.getMessage(), error);
-      }
-
-      try {
-        Thread.sleep(10 + retried * 1000); // 与RetryInvocationHandler中一致。
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-      retried++;
-    }
-  }
-
-  private void batchPut(String tableName, List<com.alicloud.tablestore.adaptor.struct.OPut> puts, Object[] results) throws IOException {
-    int size = puts.size();
-    if (size == 0) return;
-
-    // check puts
-    for (int i = 0; i < size; i++) {
-      if (puts.get(i).size() == 0) {
-        results[i] = new IllegalArgumentException("The put cannot be empty.");
-      }
-    }
-
-    int retried = 0;
-    while (true) {
-      Throwable error = null;
-
-      List<BatchWriteRowRequest> batches = new ArrayList<BatchWriteRowRequest>();
-      List<List<Integer>> batchIndexes = new ArrayList<List<Integer>>();
-
-      BatchWriteRowRequest request = new BatchWriteRowRequest();
-      List<Integer> requestIndexes = new ArrayList<Integer>();
-      int batchCount = 0;
-      long batchSize = 0;
-      for (int i = 0; i < size; i++) {
-
-        // check should retry
-        boolean shouldRetryVar = false;
-        if (results[i] instanceof Throwable) {
-          if (OTSUtil.shouldRetry((Throwable) results[i])) {
-            shouldRetryVar = true;
+      Future[] futures = new Future[batches.size()];
+      for (int i = 0; i < batches.size(); i++) {
+        acquire(tableName, batchIndexes.get(i).size(), 0);
+        ConcurrencyLimiter.Permit permit = null;
+        final BatchGetRowRequest batch = batches.get(i);
+        try {
+          if (hedger != null) {
+            futures[i] = hedger.send("batchGet/" + tableName,
+                new HedgedRead<BatchGetRowRequest, BatchGetRowResponse>(tableName, operation) {
+                  @Override
+                  protected Future<BatchGetRowResponse> send(TableStoreCallback<BatchGetRowRequest, BatchGetRowResponse> callback) {
+                    return ots.batchGetRow(batch, callback);
+                  }
+                });
           } else {
-            error = (Throwable) results[i];
+            permit = permit();
+            futures[i] = ots.batchGetRow(batch, OTSImplement.<BatchGetRowRequest, BatchGetRowResponse>callback(permit));
           }
-        }
-        if (retried == 0 || shouldRetryVar) {
-          if (batchCount < maxBatchRowCount
-              && (batchCount == 0 || (batchSize + puts.get(i).getWritableSize()) <= maxBatchDataSize)) {
-            request.addRowChange(puts.get(i).toOTSParameter(tableName));
-            requestIndexes.add(i);
-            batchSize += puts.get(i).getWritableSize();
-            batchCount++;
-          } else {
-            batches.add(request);
-            batchIndexes.add(requestIndexes);
-            request = new BatchWriteRowRequest();
-            requestIndexes = new ArrayList<Integer>();
-            request.addRowChange(puts.get(i).toOTSParameter(tableName));
-            requestIndexes.add(i);
-            batchCount = 1;
-            batchSize = puts.get(i).getWritableSize();
+        } catch (OperationTimeoutException ex) {
+          throw ex;
+        } catch (InterruptedIOException ex) {
+          throw ex;
+        } catch (Throwable ex) {
+          release(permit, ex);
+          throttled(tableName, ex, false);
+          error = ex;
+          for (List<Integer> indexes : batchIndexes.get(i)) {
+            for (int idx : indexes) {
+              results[idx] = ex;
+            }
           }
         }
-        if (i == size - 1 && batchCount > 0) {
-          batches.add(request);
-          batchIndexes.add(requestIndexes);
-        }
       }
 
       for (int i = 0; i < batches.size(); i++) {
-        try {
-          Future<BatchWriteRowResponse> future = ots.batchWriteRow(batches.get(i), null);
+        if (futures[i] != null) {
           try {
-            BatchWriteRowResponse result = (BatchWriteRowResponse) future.get();
-            for (BatchWriteRowResponse.RowResult res : result.getSucceedRows()) {
-              byte[] rowKey = null;
-              if (res.getRow() != null) {
-                rowKey = res.getRow().getPrimaryKey().getPrimaryKeyColumn(0).getValue().asBinary();
+            BatchGetRowResponse result = (BatchGetRowResponse) OperationContext.await(futures[i]);
+            for (BatchGetRowResponse.RowResult res : result.getBatchGetRowResult(tableName)) {
+              List<Integer> indexes = batchIndexes.get(i).get(res.getIndex());
+              consumed(tableName, operation, res.getConsumedCapacity(), 1);
+              if (res.isSucceed()) {
+                for (int idx : indexes) {
+                  results[idx] = attach(OTSUtil.parseOTSRowToResult(res.getRow()), null, res.getConsumedCapacity());
+                }
+              } else {
+                TableStoreException ex =
+                    new TableStoreException(res.getError().getMessage(), null, res.getError().getCode(), result.getRequestId(),
+                        0);
+                throttled(tableName, ex, false);
+                for (int idx : indexes) {
+                  results[idx] = ex;
+                }
+                error = ex;
               }
-              results[batchIndexes.get(i).get(res.getIndex())] = new com.alicloud.tablestore.adaptor.struct.OResult(rowKey, new com.alicloud.tablestore.adaptor.struct.OColumnValue[0]);
-            }
-            for (BatchWriteRowResponse.RowResult res : result.getFailedRows()) {
-              TableStoreException ex =
-                  new TableStoreException(res.getError().getMessage(), null, res.getError().getCode(), result.getRequestId(),
-                      0);
-              results[batchIndexes.get(i).get(res.getIndex())] = ex;
-              error = ex;
             }
+          } catch (OperationTimeoutException ex) {
+            throw ex;
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the " + operation + " of " + tableName);
           } catch (Throwable ex) {
-            error = ex;
-            if (!OTSUtil.shouldRetry(ex)) {
-              throw ex;
-            }
-            for (int idx : batchIndexes.get(i)) {
-              results[idx] = ex;
+            error = unwrap(ex);
+            throttled(tableName, error, false);
+            for (List<Integer> indexes : batchIndexes.get(i)) {
+              for (int idx : indexes) {
+                results[idx] = error;
+              }
             }
           }
-        } catch (Throwable ex) {
-          error = ex;
-          if (!OTSUtil.shouldRetry(ex)) {
-            throw new DoNotRetryIOException(error.getMessage(), error);
-          }
-          for (int idx : batchIndexes.get(i)) {
-            results[idx] = ex;
-          }
         }
       }
 
       if (error == null) return;
 
-      boolean hasItemNeedRetry = false;
+      Throwable retryError = null;
       for (int i = 0; i < size; i++) {
         if (results[i] instanceof Throwable) {
           if (OTSUtil.shouldRetry((Throwable) results[i])) {
-            hasItemNeedRetry = true;
+            retryError = (Throwable) results[i];
             break;
           }
         }
       }
 
-      if (retried >= retryCount || !hasItemNeedRetry) {
+      long delay = retryError == null ? -1 : retryPolicy.retryDelay(retryError, retried);
+      if (delay < 0) {
         throw new DoNotRetryIOException(error.getMessage(), error);
       }
 
-      try {
-        Thread.sleep(10 + retried * 1000); // 与RetryInvocationHandler中一致。
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
+      sleepBeforeRetry(tableName, operation, delay);
       retried++;
     }
   }
 
-  private void batchDeleteColumn(String tableName, List<com.alicloud.tablestore.adaptor.struct.ODelete> deletes, Object[] results)
-      throws IOException {
-    int size = deletes.size();
+  private void batchPut(String tableName, String operation, List<com.alicloud.tablestore.adaptor.struct.OPut> puts, Object[] results) throws IOException {
+    // check puts
+    for (int i = 0; i < puts.size(); i++) {
+      if (puts.get(i).size() == 0) {
+        results[i] = new IllegalArgumentException("The put cannot be empty.");
+      }
+    }
+    batchMutate(tableName, operation, puts, results);
+  }
+
+  /**
+   * Writes the puts or the deletes in BatchWriteRow requests, and sends again the rows which failed
+   * with a retryable error, as long as the retry policy allows.
+   */
+  private void batchMutate(String tableName, String operation, List<? extends com.alicloud.tablestore.adaptor.struct.OMutation> mutations,
+      Object[] results) throws IOException {
+    int size = mutations.size();
     if (size == 0) return;
 
+    int[] partitions = partitions(tableName, mutations);
+    int[] order = groupByPartition(partitions);
     int retried = 0;
     while (true) {
       Throwable error = null;
-
-      List<BatchWriteRowRequest> batches = new ArrayList<BatchWriteRowRequest>();
-      List<List<Integer>> batchIndexes = new ArrayList<List<Integer>>();
-
-      BatchWriteRowRequest request = new BatchWriteRowRequest();
-      List<Integer> requestIndexes = new ArrayList<Integer>();
-      int batchCount = 0;
-      long batchSize = 0;
       for (int i = 0; i < size; i++) {
-
-        // check should retry
-        boolean shouldRetryVar = false;
-        if (results[i] instanceof Throwable) {
-          if (OTSUtil.shouldRetry((Throwable) results[i])) {
-            shouldRetryVar = true;
-          } else {
-            error = (Throwable) results[i];
-          }
-        }
-        if (retried == 0 || shouldRetryVar) {
-          ODelete oDelete = deletes.get(i);
-          RowChange rowChange = oDelete.toOTSParameter(tableName);
-          if (batchCount < maxBatchRowCount
-              && (batchCount == 0 || (batchSize + oDelete.getWritableSize()) <= maxBatchDataSize)) {
-            request.addRowChange(rowChange);
-            requestIndexes.add(i);
-            batchSize += oDelete.getWritableSize();
-            batchCount++;
-          } else {
-            batches.add(request);
-            batchIndexes.add(requestIndexes);
-            request = new BatchWriteRowRequest();
-            requestIndexes = new ArrayList<Integer>();
-            request.addRowChange(rowChange);
-            requestIndexes.add(i);
-            batchCount = 1;
-            batchSize = oDelete.getWritableSize();
-          }
-        }
-        if (i == size - 1 && batchCount > 0) {
-          batches.add(request);
-          batchIndexes.add(requestIndexes);
-        }
-      }
-
-      Future[] futures = new Future[batches.size()];
-      for (int i = 0; i < batches.size(); i++) {
-        try {
-          futures[i] = ots.batchWriteRow(batches.get(i), null);
-        } catch (Throwable ex) {
-          error = ex;
-          if (!OTSUtil.shouldRetry(ex)) {
-            throw new DoNotRetryIOException(error.getMessage(), error);
-          }
-          for (int idx : batchIndexes.get(i)) {
-            results[idx] = ex;
-          }
+        if (results[i] instanceof Throwable && !OTSUtil.shouldRetry((Throwable) results[i])) {
+          error = (Throwable) results[i];
         }
       }
 
-      for (int i = 0; i < batches.size(); i++) {
-        if (futures[i] != null) {
-          try {
-            BatchWriteRowResponse result = (BatchWriteRowResponse) futures[i].get();
-            for (BatchWriteRowResponse.RowResult res : result.getSucceedRows()) {
-              byte[] rowKey = null;
-              if (res.getRow() != null) {
-                rowKey = res.getRow().getPrimaryKey().getPrimaryKeyColumn(0).getValue().asBinary();
-              }
-              results[batchIndexes.get(i).get(res.getIndex())] = new com.alicloud.tablestore.adaptor.struct.OResult(rowKey, new com.alicloud.tablestore.adaptor.struct.OColumnValue[0]);
-            }
-            for (BatchWriteRowResponse.RowResult res : result.getFailedRows()) {
-              TableStoreException ex =
-                  new TableStoreException(res.getError().getMessage(), null, res.getError().getCode(), result.getRequestId(),
-                      0);
-              results[batchIndexes.get(i).get(res.getIndex())] = ex;
-              error = ex;
-            }
-          } catch (Throwable ex) {
-            error = ex;
-            if (!OTSUtil.shouldRetry(ex)) {
-              throw new DoNotRetryIOException(error.getMessage(), error);
-            }
-            for (int idx : batchIndexes.get(i)) {
-              results[idx] = ex;
-            }
-          }
-        }
+      List<List<Integer>> batchIndexes = new ArrayList<List<Integer>>();
+      List<BatchWriteRowRequest> batches = pack(tableName, mutations, partitions, order, results, retried == 0, batchIndexes);
+      Throwable batchError = batchWrite(tableName, operation, batches, batchIndexes, results);
+      if (batchError != null) {
+        error = batchError;
       }
 
       if (error == null) return;
 
-      boolean hasItemNeedRetry = false;
+      Throwable retryError = null;
       for (int i = 0; i < size; i++) {
         if (results[i] instanceof Throwable) {
           if (OTSUtil.shouldRetry((Throwable) results[i])) {
-            hasItemNeedRetry = true;
+            retryError = (Throwable) results[i];
             break;
           }
         }
       }
 
-      if (retried >= retryCount || !hasItemNeedRetry) {
+      long delay = retryError == null ? -1 : retryPolicy.retryDelay(retryError, retried);
+      if (delay < 0) {
         throw new DoNotRetryIOException(error.getMessage(), error);
       }
 
-      try {
-        Thread.sleep(10 + retried * 1000); // 与RetryInvocationHandler中一致。
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
+      sleepBeforeRetry(tableName, operation, delay);
       retried++;
     }
   }
 
-  private void batchDeleteRow(String tableName, List<com.alicloud.tablestore.adaptor.struct.ODelete> deletes, Object[] results)
-      throws IOException {
-    int size = deletes.size();
-    if (size == 0) return;
+  /**
+   * Packs the rows in BatchWriteRow requests of at most maxBatchRowCount rows and maxBatchDataSize
+   * bytes, each holding the rows of one partition. After the first try, only the rows which failed
+   * with a retryable error are packed.
+   * @param batchIndexes filled with the indexes of the rows of each request
+   */
+  private List<BatchWriteRowRequest> pack(String tableName, List<? extends com.alicloud.tablestore.adaptor.struct.OMutation> mutations,
+      int[] partitions, int[] order, Object[] results, boolean firstTry, List<List<Integer>> batchIndexes) {
+    List<BatchWriteRowRequest> batches = new ArrayList<BatchWriteRowRequest>();
+    BatchWriteRowRequest request = null;
+    List<Integer> requestIndexes = null;
+    long batchSize = 0;
+    int batchPartition = 0;
+    for (int i : order) {
+      if (!firstTry && !(results[i] instanceof Throwable && OTSUtil.shouldRetry((Throwable) results[i]))) {
+        continue;
+      }
+      RowChange rowChange = toRowChange(tableName, mutations.get(i));
+      long rowSize = PlainBufferSize.ofBatchWriteRow(rowChange);
+      if (request == null || requestIndexes.size() >= maxBatchRowCount || partitions[i] != batchPartition
+          || batchSize + rowSize > maxBatchDataSize) {
+        request = new BatchWriteRowRequest();
+        requestIndexes = new ArrayList<Integer>();
+        batches.add(request);
+        batchIndexes.add(requestIndexes);
+        batchSize = 0;
+        batchPartition = partitions[i];
+      }
+      request.addRowChange(rowChange);
+      requestIndexes.add(i);
+      batchSize += rowSize;
+    }
+    return batches;
+  }
 
-    int retried = 0;
-    while (true) {
-      Throwable error = null;
+  private static RowChange toRowChange(String tableName, com.alicloud.tablestore.adaptor.struct.OMutation mutation) {
+    if (mutation instanceof com.alicloud.tablestore.adaptor.struct.OPut) {
+      return ((com.alicloud.tablestore.adaptor.struct.OPut) mutation).toOTSParameter(tableName);
+    }
+    return ((ODelete) mutation).toOTSParameter(tableName);
+  }
 
-      List<BatchWriteRowRequest> batches = new ArrayList<BatchWriteRowRequest>();
-      List<List<Integer>> batchIndexes = new ArrayList<List<Integer>>();
+  /**
+   * Waits before the failed rows of a batch are sent again. An interrupt fails the batch, and is
+   * kept on the thread.
+   */
+  private static void sleepBeforeRetry(String tableName, String operation, long delay) throws IOException {
+    try {
+      OperationContext.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry the " + operation + " of " + tableName);
+    }
+  }
 
-      BatchWriteRowRequest request = new BatchWriteRowRequest();
-      List<Integer> requestIndexes = new ArrayList<Integer>();
-      int batchCount = 0;
-      long batchSize = 0;
-      for (int i = 0; i < size; i++) {
+  /**
+   * @return the index of the partition of each row, or all 0 if the rows are not grouped by partition
+   */
+  private int[] partitions(String tableName, List<? extends com.alicloud.tablestore.adaptor.struct.OMutation> mutations) {
+    if (shardSplits == null) {
+      return new int[mutations.size()];
+    }
+    return shardSplits.partitions(tableName, mutations);
+  }
 
-        // check should retry
-        boolean shouldRetryVar = false;
-        if (results[i] instanceof Throwable) {
-          if (OTSUtil.shouldRetry((Throwable) results[i])) {
-            shouldRetryVar = true;
-          } else {
-            error = (Throwable) results[i];
-          }
-        }
-        if (retried == 0 || shouldRetryVar) {
-          ODelete oDelete = deletes.get(i);
-          RowChange rowChange = oDelete.toOTSParameter(tableName);
-          if (batchCount < maxBatchRowCount
-              && (batchCount == 0 || (batchSize + oDelete.getWritableSize()) <= maxBatchDataSize)) {
-            request.addRowChange(rowChange);
-            requestIndexes.add(i);
-            batchSize += oDelete.getWritableSize();
-            batchCount++;
-          } else {
-            batches.add(request);
-            batchIndexes.add(requestIndexes);
-            request = new BatchWriteRowRequest();
-            requestIndexes = new ArrayList<Integer>();
-            request.addRowChange(rowChange);
-            requestIndexes.add(i);
-            batchCount = 1;
-            batchSize = oDelete.getWritableSize();
-          }
-        }
-        if (i == size - 1 && batchCount > 0) {
-          batches.add(request);
-          batchIndexes.add(requestIndexes);
-        }
-      }
+  /**
+   * Orders the rows by partition, keeping the order of the rows of a partition, so the batches of a
+   * partition never hold rows of another one, and are sent concurrently with those of the others.
+   * @return the indexes of the rows in the order they are batched
+   */
+  static int[] groupByPartition(int[] partitions) {
+    int count = 0;
+    for (int partition : partitions) {
+      count = Math.max(count, partition + 1);
+    }
+    int[] starts = new int[count + 1];
+    for (int partition : partitions) {
+      starts[partition + 1]++;
+    }
+    for (int p = 0; p < count; p++) {
+      starts[p + 1] += starts[p];
+    }
+    int[] order = new int[partitions.length];
+    for (int i = 0; i < partitions.length; i++) {
+      order[starts[partitions[i]]++] = i;
+    }
+    return order;
+  }
 
-      Future[] futures = new Future[batches.size()];
-      for (int i = 0; i < batches.size(); i++) {
+  /**
+   * Sends the BatchWriteRow requests with at most maxInflightBatchWrites of them on the wire at the
+   * same time, and fills the result of each row by its index. A batch rejected as too large is
+   * split in two halves, which are sent again. Once a batch fails with an error which is not
+   * retryable, no other batch is sent, but the batches in flight are awaited and their results
+   * filled before the error is thrown.
+   * @return the last error met, or null if all rows succeeded
+   */
+  private Throwable batchWrite(String tableName, String operation, List<BatchWriteRowRequest> batches, List<List<Integer>> batchIndexes, Object[] results)
+      throws IOException {
+    Throwable error = null;
+    Throwable fatal = null;
+    List<Future> futures = new ArrayList<Future>();
+    LinkedList<Integer> inflight = new LinkedList<Integer>();
+    int next = 0;
+    while ((fatal == null && next < batches.size()) || !inflight.isEmpty()) {
+      if (fatal == null && next < batches.size() && inflight.size() < maxInflightBatchWrites) {
+        acquire(tableName, 0, writeUnits(batches.get(next)));
+        ConcurrencyLimiter.Permit permit = permit();
+        futures.add(null);
         try {
-          futures[i] = ots.batchWriteRow(batches.get(i), null);
+          futures.set(next, ots.batchWriteRow(batches.get(next),
+              OTSImplement.<BatchWriteRowRequest, BatchWriteRowResponse>callback(permit)));
+          inflight.add(next);
         } catch (Throwable ex) {
+          release(permit, ex);
+          if (split(tableName, batches, batchIndexes, next, ex)) {
+            next++;
+            continue;
+          }
+          throttled(tableName, ex, true);
           error = ex;
           if (!OTSUtil.shouldRetry(ex)) {
-            throw new DoNotRetryIOException(error.getMessage(), error);
+            fatal = ex;
           }
-          for (int idx : batchIndexes.get(i)) {
+          for (int idx : batchIndexes.get(next)) {
             results[idx] = ex;
           }
         }
+        next++;
+        continue;
       }
 
-      for (int i = 0; i < batches.size(); i++) {
-        if (futures[i] != null) {
-          try {
-            BatchWriteRowResponse result = (BatchWriteRowResponse) futures[i].get();
-            for (BatchWriteRowResponse.RowResult res : result.getSucceedRows()) {
-              byte[] rowKey = null;
-              if (res.getRow() != null) {
-                rowKey = res.getRow().getPrimaryKey().getPrimaryKeyColumn(0).getValue().asBinary();
-              }
-              results[batchIndexes.get(i).get(res.getIndex())] = new com.alicloud.tablestore.adaptor.struct.OResult(rowKey, new com.alicloud.tablestore.adaptor.struct.OColumnValue[0]);
-            }
-            for (BatchWriteRowResponse.RowResult res : result.getFailedRows()) {
-              TableStoreException ex =
-                  new TableStoreException(res.getError().getMessage(), null, res.getError().getCode(), result.getRequestId(),
-                      0);
-              results[batchIndexes.get(i).get(res.getIndex())] = ex;
-              error = ex;
-            }
-          } catch (Throwable ex) {
-            error = ex;
-            if (!OTSUtil.shouldRetry(ex)) {
-              throw new DoNotRetryIOException(error.getMessage(), error);
-            }
-            for (int idx : batchIndexes.get(i)) {
-              results[idx] = ex;
-            }
+      int i = inflight.poll();
+      try {
+        BatchWriteRowResponse result = (BatchWriteRowResponse) OperationContext.await(futures.get(i));
+        for (BatchWriteRowResponse.RowResult res : result.getSucceedRows()) {
+          consumed(tableName, operation, res.getConsumedCapacity(), 0);
+          byte[] rowKey = null;
+          if (res.getRow() != null) {
+            rowKey = res.getRow().getPrimaryKey().getPrimaryKeyColumn(0).getValue().asBinary();
           }
+          results[batchIndexes.get(i).get(res.getIndex())] = new com.alicloud.tablestore.adaptor.struct.OResult(rowKey, new com.alicloud.tablestore.adaptor.struct.OColumnValue[0]);
         }
-      }
-
-      if (error == null) return;
-
-      boolean hasItemNeedRetry = false;
-      for (int i = 0; i < size; i++) {
-        if (results[i] instanceof Throwable) {
-          if (OTSUtil.shouldRetry((Throwable) results[i])) {
-            hasItemNeedRetry = true;
-            break;
-          }
+        for (BatchWriteRowResponse.RowResult res : result.getFailedRows()) {
+          consumed(tableName, operation, res.getConsumedCapacity(), 0);
+          TableStoreException ex =
+              new TableStoreException(res.getError().getMessage(), null, res.getError().getCode(), result.getRequestId(),
+                  0);
+          throttled(tableName, ex, true);
+          results[batchIndexes.get(i).get(res.getIndex())] = ex;
+          error = ex;
+        }
+      } catch (OperationTimeoutException ex) {
+        throw ex;
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the " + operation + " of " + tableName);
+      } catch (Throwable ex) {
+        if (split(tableName, batches, batchIndexes, i, ex)) {
+          continue;
+        }
+        throttled(tableName, ex, true);
+        error = ex;
+        if (!OTSUtil.shouldRetry(ex)) {
+          fatal = ex;
+        }
+        for (int idx : batchIndexes.get(i)) {
+          results[idx] = ex;
         }
       }
-
-      if (retried >= retryCount || !hasItemNeedRetry) {
-        throw new DoNotRetryIOException(error.getMessage(), error);
+    }
+    if (fatal != null) {
+      // the rows of the batches which are not sent fail with the same error
+      for (int k = next; k < batches.size(); k++) {
+        for (int idx : batchIndexes.get(k)) {
+          results[idx] = fatal;
+        }
       }
+      throw new DoNotRetryIOException(fatal.getMessage(), fatal);
+    }
+    return error;
+  }
 
-      try {
-        Thread.sleep(10 + retried * 1000); // 与RetryInvocationHandler中一致。
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+  /**
+   * Splits a batch of more than one row which is rejected as too large in two halves, and queues
+   * them to be sent after the other batches.
+   * @return true if the batch is split, false if the error is another one or the batch has one row
+   */
+  private static boolean split(String tableName, List<BatchWriteRowRequest> batches, List<List<Integer>> batchIndexes,
+      int index, Throwable ex) {
+    List<Integer> indexes = batchIndexes.get(index);
+    if (!(ex instanceof TableStoreException)
+        || !OTSErrorCode.REQUEST_TOO_LARGE.equals(((TableStoreException) ex).getErrorCode()) || indexes.size() < 2) {
+      return false;
+    }
+    List<RowChange> rowChanges = batches.get(index).getRowChange().get(tableName);
+    int[] bounds = new int[] { 0, indexes.size() / 2, indexes.size() };
+    for (int k = 0; k < 2; k++) {
+      BatchWriteRowRequest request = new BatchWriteRowRequest();
+      for (RowChange rowChange : rowChanges.subList(bounds[k], bounds[k + 1])) {
+        request.addRowChange(rowChange);
       }
-      retried++;
+      batches.add(request);
+      batchIndexes.add(new ArrayList<Integer>(indexes.subList(bounds[k], bounds[k + 1])));
     }
+    return true;
   }
 
+
   public void batch(final String tableName, List<? extends com.alicloud.tablestore.adaptor.struct.ORow> actions, Object[] results)
       throws IOException {
 
@@ -660,17 +929,21 @@ public class OTSImplement implements OTSInterface {
           Object[] res = new Object[i - startIdx];
           try {
             if (lastType == 1) {
-              batchGet(tableName, (List<com.alicloud.tablestore.adaptor.struct.OGet>) actions.subList(startIdx, i), res);
+              batchGet(tableName, "batch", (List<com.alicloud.tablestore.adaptor.struct.OGet>) actions.subList(startIdx, i), res);
             }
             if (lastType == 2) {
-              batchPut(tableName, (List<com.alicloud.tablestore.adaptor.struct.OPut>) actions.subList(startIdx, i), res);
+              batchPut(tableName, "batch", (List<com.alicloud.tablestore.adaptor.struct.OPut>) actions.subList(startIdx, i), res);
             }
             if (lastType == 3) {
-              batchDeleteRow(tableName, (List<com.alicloud.tablestore.adaptor.struct.ODelete>) actions.subList(startIdx, i), res);
+              batchMutate(tableName, "batch", (List<com.alicloud.tablestore.adaptor.struct.ODelete>) actions.subList(startIdx, i), res);
             }
             if (lastType == 4) {
-              batchDeleteColumn(tableName, (List<com.alicloud.tablestore.adaptor.struct.ODelete>) actions.subList(startIdx, i), res);
+              batchMutate(tableName, "batch", (List<com.alicloud.tablestore.adaptor.struct.ODelete>) actions.subList(startIdx, i), res);
             }
+          } catch (OperationTimeoutException ex) {
+            throw ex;
+          } catch (InterruptedIOException ex) {
+            throw ex;
           } catch (Throwable ex) {
             error = ex;
           }
@@ -697,6 +970,24 @@ public class OTSImplement implements OTSInterface {
     ots.shutdown();
   }
 
+  AsyncClientInterface getAsyncClient() {
+    return ots;
+  }
+
+  /**
+   * @return the limiter of the capacity units of the tables, shared with the async client, or null
+   */
+  CapacityLimiter getCapacityLimiter() {
+    return limiter;
+  }
+
+  /**
+   * @return the limiter of the requests in flight, shared with the async client, or null
+   */
+  ConcurrencyLimiter getConcurrencyLimiter() {
+    return concurrencyLimiter;
+  }
+
   public List<String> listTable() throws IOException {
     try {
       ListTableResponse response = ots.listTable(null).get();
@@ -733,6 +1024,9 @@ public class OTSImplement implements OTSInterface {
 
   public void deleteTable(String tableName) throws IOException {
     DeleteTableRequest request = new DeleteTableRequest(tableName);
+    if (shardSplits != null) {
+      shardSplits.invalidate(tableName);
+    }
     try {
       ots.deleteTable(request, null).get();
     } catch (Throwable ex) {
@@ -748,21 +1042,7 @@ public class OTSImplement implements OTSInterface {
     DescribeTableRequest request = new DescribeTableRequest(tableName);
     try {
       DescribeTableResponse response = ots.describeTable(request, null).get();
-
-      OTableDescriptor tableDescriptor = new OTableDescriptor(tableName);
-      tableDescriptor.setMaxTimeDeviation(response.getTableOptions().getMaxTimeDeviation());
-      tableDescriptor.setMaxVersion(response.getTableOptions().getMaxVersions());
-      tableDescriptor.setTimeToLive(response.getTableOptions().getTimeToLive());
-
-      List<PrimaryKey> primaryKeys = response.getShardSplits();
-      byte[] start = HConstants.EMPTY_START_ROW;
-      for (PrimaryKey primaryKey : primaryKeys) {
-        byte[] end = primaryKey.getPrimaryKeyColumn(0).getValue().asBinary();
-        tableDescriptor.addSplitKey(start, end);
-        start = end;
-      }
-      tableDescriptor.addSplitKey(start, HConstants.EMPTY_END_ROW);
-      return tableDescriptor;
+      return toTableDescriptor(tableName, response);
     } catch (Throwable ex) {
       if (OTSUtil.shouldRetry(ex)) {
         throw new IOException(ex);
@@ -772,6 +1052,23 @@ public class OTSImplement implements OTSInterface {
     }
   }
 
+  static OTableDescriptor toTableDescriptor(String tableName, DescribeTableResponse response) {
+    OTableDescriptor tableDescriptor = new OTableDescriptor(tableName);
+    tableDescriptor.setMaxTimeDeviation(response.getTableOptions().getMaxTimeDeviation());
+    tableDescriptor.setMaxVersion(response.getTableOptions().getMaxVersions());
+    tableDescriptor.setTimeToLive(response.getTableOptions().getTimeToLive());
+
+    List<PrimaryKey> primaryKeys = response.getShardSplits();
+    byte[] start = HConstants.EMPTY_START_ROW;
+    for (PrimaryKey primaryKey : primaryKeys) {
+      byte[] end = primaryKey.getPrimaryKeyColumn(0).getValue().asBinary();
+      tableDescriptor.addSplitKey(start, end);
+      start = end;
+    }
+    tableDescriptor.addSplitKey(start, HConstants.EMPTY_END_ROW);
+    return tableDescriptor;
+  }
+
   public void updateTable(OTableDescriptor descriptor) throws IOException {
     TableOptions tableOptions = new TableOptions();
     tableOptions.setMaxVersions(descriptor.getMaxVersion());
@@ -790,4 +1087,27 @@ public class OTSImplement implements OTSInterface {
       }
     }
   }
+
+  /**
+   * Groups gets which could be fetched by the same MultiRowQueryCriteria.
+   */
+  private static final class QueryKey {
+    private final com.alicloud.tablestore.adaptor.struct.OGet get;
+    private final int hash;
+
+    QueryKey(com.alicloud.tablestore.adaptor.struct.OGet get) {
+      this.get = get;
+      this.hash = get.queryHashCode();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof QueryKey && get.isSameQuery(((QueryKey) other).get);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
 }
@@ -110,6 +110,16 @@ public interface OTSInterface extends Closeable {
   @Idempotent
   public void update(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update) throws IOException;
 
+  /**
+   * Method for atomically incrementing the integer columns of a row, along with the other changes
+   * of the update. It is not retried, since a retried increment may be applied twice.
+   * @param tableName
+   * @param update with the increments added by {@link com.alicloud.tablestore.adaptor.struct.OUpdate#increment}
+   * @return the incremented columns after the update, or an empty result if the update does not
+   *         return results
+   */
+  public com.alicloud.tablestore.adaptor.struct.OResult increment(String tableName, com.alicloud.tablestore.adaptor.struct.OUpdate update) throws IOException;
+
   /**
    * Method that does a batch call on ODeletes, OGets, OPuts. The ordering of execution of the
    * actions is not defined. Meaning if you do a Put and a Get in the same {@link #batch} call, you
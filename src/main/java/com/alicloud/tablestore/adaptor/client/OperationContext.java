@@ -0,0 +1,148 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.alicloud.tablestore.adaptor.client.util.ThreadFactoryBuilder;
+
+/**
+ * The deadline of the operation running on the current thread. The operation is run by the calling
+ * thread itself, and a timer shared by all the operations interrupts the thread once the deadline
+ * is passed, which wakes it up from waiting on the OTS client or sleeping before a retry. The
+ * {@link Future}s of the OTS client can not be cancelled, so interrupting the waiting thread is the
+ * only way to fail the caller in time.
+ */
+final class OperationContext {
+  private static final ThreadLocal<OperationContext> CURRENT = new ThreadLocal<OperationContext>();
+
+  private static final ScheduledThreadPoolExecutor TIMER;
+
+  static {
+    TIMER = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setNameFormat("otsadapter-operation-timer-%d").setDaemon(true).build());
+    TIMER.setRemoveOnCancelPolicy(true);
+  }
+
+  private final String operation;
+  private final long timeoutMillis;
+  private final long deadlineNanos;
+  private final Thread thread;
+  private ScheduledFuture<?> timeoutTask;
+  private boolean expired = false;
+  private boolean finished = false;
+
+  private OperationContext(String operation, long timeoutMillis) {
+    this.operation = operation;
+    this.timeoutMillis = timeoutMillis;
+    this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    this.thread = Thread.currentThread();
+  }
+
+  /**
+   * Starts the deadline of an operation on the current thread. Returns null if there is already
+   * one, in which case the outer deadline applies.
+   */
+  static OperationContext start(String operation, long timeoutMillis) {
+    if (CURRENT.get() != null) {
+      return null;
+    }
+    final OperationContext context = new OperationContext(operation, timeoutMillis);
+    CURRENT.set(context);
+    context.timeoutTask = TIMER.schedule(new Runnable() {
+      @Override
+      public void run() {
+        context.expire();
+      }
+    }, timeoutMillis, TimeUnit.MILLISECONDS);
+    return context;
+  }
+
+  private synchronized void expire() {
+    if (!finished) {
+      expired = true;
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * The deadline is passed once the timer fired, or as soon as the clock says so, which stops the
+   * work of an operation in time even if the timer is late.
+   */
+  synchronized boolean isExpired() {
+    return expired || System.nanoTime() - deadlineNanos >= 0;
+  }
+
+  /**
+   * Ends the operation. Must be called by the thread which started it.
+   */
+  void finish() {
+    synchronized (this) {
+      finished = true;
+      if (expired) {
+        // the interrupt is from the timer rather than the caller
+        Thread.interrupted();
+      }
+    }
+    timeoutTask.cancel(false);
+    CURRENT.remove();
+  }
+
+  OperationTimeoutException timeoutException() {
+    return new OperationTimeoutException("Failed exectuing operation " + operation + " after "
+        + timeoutMillis + "ms");
+  }
+
+  /**
+   * @return the milliseconds left before the deadline of the operation on the current thread, or
+   *         Long.MAX_VALUE if it has no deadline
+   */
+  static long remainingMillis() {
+    OperationContext context = CURRENT.get();
+    if (context == null) {
+      return Long.MAX_VALUE;
+    }
+    return TimeUnit.NANOSECONDS.toMillis(context.deadlineNanos - System.nanoTime());
+  }
+
+  /**
+   * Throws if the deadline of the operation on the current thread is passed.
+   */
+  static void checkDeadline() throws OperationTimeoutException {
+    OperationContext context = CURRENT.get();
+    if (context != null && context.isExpired()) {
+      throw context.timeoutException();
+    }
+  }
+
+  /**
+   * Waits for the response of the OTS client, or throws {@link OperationTimeoutException} if the
+   * deadline of the operation on the current thread is passed in the meantime.
+   */
+  static <T> T await(Future<T> future) throws InterruptedException, ExecutionException,
+      OperationTimeoutException {
+    checkDeadline();
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      checkDeadline();
+      throw e;
+    }
+  }
+
+  /**
+   * Sleeps before a retry, or throws {@link OperationTimeoutException} if the deadline of the
+   * operation on the current thread is passed in the meantime.
+   */
+  static void sleep(long millis) throws InterruptedException, OperationTimeoutException {
+    checkDeadline();
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      checkDeadline();
+      throw e;
+    }
+  }
+}
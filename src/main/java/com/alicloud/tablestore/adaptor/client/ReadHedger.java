@@ -0,0 +1,211 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.tablestore.adaptor.client.metrics.Histogram;
+import com.alicloud.tablestore.adaptor.client.util.ThreadFactoryBuilder;
+
+/**
+ * Hedges the reads: if a read is not answered within a percentile of the recent latencies of its
+ * kind, a duplicate of it is sent, and the first response wins. The percentile is taken over the
+ * latencies of the last window, and no read is hedged until a window has enough of them. To not
+ * amplify the load when the service is slow as a whole, each read earns a fraction of a hedge, and
+ * a duplicate is only sent with a whole one.
+ */
+final class ReadHedger {
+  private static final int MIN_SAMPLES = 100;
+  // the hedges earned and not used are capped, so a burst of slow reads hedges only a few of them
+  private static final double MAX_TOKENS = 10;
+  private static final long DEFAULT_WINDOW_MILLIS = 10000;
+
+  private static final ScheduledThreadPoolExecutor TIMER;
+
+  static {
+    TIMER = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setNameFormat("otsadapter-hedge-timer-%d").setDaemon(true).build());
+    TIMER.setRemoveOnCancelPolicy(true);
+  }
+
+  private final double percentile;
+  private final double budgetRatio;
+  private final long minDelayNanos;
+  private final long windowNanos;
+  private final ConcurrentMap<String, Latencies> latencies = new ConcurrentHashMap<String, Latencies>();
+  // guarded by this
+  private double tokens = 0;
+
+  /**
+   * Sends one copy of a read.
+   */
+  interface Sender<Req, Res> {
+    /**
+     * @param callback to be passed to the request
+     * @param hedge true for the duplicate of the read, which must not wait to be sent
+     * @return the future of the response, or null if the duplicate is not sent
+     */
+    Future<Res> send(TableStoreCallback<Req, Res> callback, boolean hedge) throws IOException;
+  }
+
+  /**
+   * The latencies of one kind of read, in the current and the last window.
+   */
+  private final class Latencies {
+    private volatile Histogram current = new Histogram();
+    private volatile long windowStart = System.nanoTime();
+    // the delay of the hedges, computed from the last window, or -1 if not enough samples
+    private volatile long delayNanos = -1;
+
+    private void rotate(long now) {
+      if (now - windowStart < windowNanos) {
+        return;
+      }
+      synchronized (this) {
+        if (now - windowStart < windowNanos) {
+          return;
+        }
+        Histogram.Snapshot last = current.snapshot();
+        current = new Histogram();
+        windowStart = now;
+        delayNanos = last.getCount() < MIN_SAMPLES ? -1
+            : Math.max(minDelayNanos, TimeUnit.MICROSECONDS.toNanos(last.getValueAtPercentile(percentile)));
+      }
+    }
+
+    void record(long latencyNanos) {
+      current.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+      rotate(System.nanoTime());
+    }
+
+    long delayNanos() {
+      rotate(System.nanoTime());
+      return delayNanos;
+    }
+  }
+
+  /**
+   * One read and its duplicate. The result is completed by the first response, or by the error of
+   * the last copy to fail.
+   */
+  private final class Call<Req, Res> implements TableStoreCallback<Req, Res> {
+    final CompletableFuture<Res> result = new CompletableFuture<Res>();
+    final AtomicInteger pending = new AtomicInteger(1);
+    final Latencies latencies;
+    final long start = System.nanoTime();
+
+    Call(Latencies latencies) {
+      this.latencies = latencies;
+    }
+
+    @Override
+    public void onCompleted(Req request, Res response) {
+      if (result.complete(response)) {
+        latencies.record(System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    public void onFailed(Req request, Exception ex) {
+      if (pending.decrementAndGet() == 0) {
+        result.completeExceptionally(ex);
+      }
+    }
+  }
+
+  ReadHedger(double percentile, double budgetRatio, long minDelayMillis, long windowMillis) {
+    this.percentile = percentile;
+    this.budgetRatio = budgetRatio;
+    this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+  }
+
+  /**
+   * @return the hedger configured by the conf, or null if the reads are not hedged
+   */
+  static ReadHedger create(TablestoreClientConf conf) {
+    if (conf.getHedgePercentile() <= 0) {
+      return null;
+    }
+    return new ReadHedger(conf.getHedgePercentile(), conf.getHedgeBudgetRatio(), conf.getHedgeMinDelay(),
+        DEFAULT_WINDOW_MILLIS);
+  }
+
+  private Latencies latencies(String kind) {
+    Latencies kindLatencies = latencies.get(kind);
+    if (kindLatencies == null) {
+      Latencies created = new Latencies();
+      kindLatencies = latencies.putIfAbsent(kind, created);
+      if (kindLatencies == null) {
+        kindLatencies = created;
+      }
+    }
+    return kindLatencies;
+  }
+
+  private synchronized void earn() {
+    tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+  }
+
+  private synchronized boolean spend() {
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  /**
+   * Sends the read, and schedules its duplicate after the hedge delay of its kind.
+   * @param kind the kind of the read, whose latencies decide when it is hedged
+   * @return the future of the first response
+   */
+  <Req, Res> Future<Res> send(String kind, final Sender<Req, Res> sender) throws IOException {
+    final Call<Req, Res> call = new Call<Req, Res>(latencies(kind));
+    earn();
+    sender.send(call, false);
+    long delayNanos = call.latencies.delayNanos();
+    // the duplicate is not sent after the caller gave up at the deadline of its operation
+    if (delayNanos >= 0 && TimeUnit.NANOSECONDS.toMillis(delayNanos) < OperationContext.remainingMillis()
+        && !call.result.isDone()) {
+      final ScheduledFuture<?> hedge = TIMER.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (call.result.isDone() || !spend()) {
+            return;
+          }
+          call.pending.incrementAndGet();
+          try {
+            if (sender.send(call, true) == null) {
+              call.pending.decrementAndGet();
+            }
+          } catch (Throwable ex) {
+            call.pending.decrementAndGet();
+          }
+        }
+      }, delayNanos, TimeUnit.NANOSECONDS);
+      call.result.whenComplete(new BiConsumer<Res, Throwable>() {
+        @Override
+        public void accept(Res response, Throwable error) {
+          hedge.cancel(false);
+        }
+      });
+    }
+    return call.result;
+  }
+
+  /**
+   * @return the delay after which a read of the kind is hedged, or -1 if it is not hedged yet
+   */
+  long getDelayNanos(String kind) {
+    return latencies(kind).delayNanos();
+  }
+}
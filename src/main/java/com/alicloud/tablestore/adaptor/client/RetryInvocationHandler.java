@@ -16,7 +16,9 @@ import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
 
 /**
  * An invocation handler which supports retry for failed invoke.
+ * @deprecated use {@link RetryingOTSInterface}, which dispatches the calls without reflection.
  */
+@Deprecated
 public class RetryInvocationHandler implements InvocationHandler, Closeable {
   public static final Log LOG = LogFactory.getLog(RetryInvocationHandler.class);
 
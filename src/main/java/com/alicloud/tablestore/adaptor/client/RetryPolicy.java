@@ -0,0 +1,35 @@
+package com.alicloud.tablestore.adaptor.client;
+
+/**
+ * Decides whether and when a failed call is retried. One policy is shared by all the retries of an
+ * adapter: the retries of the failed rows of a batch in {@link OTSImplement}, and the retries of
+ * the whole calls in {@link RetryingOTSInterface}. The retries of the OTS client itself are
+ * disabled. An implementation configured by tablestore.client.retry.policy must be thread safe,
+ * and have a public constructor taking a {@link TablestoreClientConf}.
+ */
+public interface RetryPolicy {
+
+  /**
+   * The kinds of errors, which are backed off differently.
+   */
+  enum ErrorClass {
+    /** The service is busy or the capacity of the table is exhausted. */
+    THROTTLED,
+    /** The partition or the service is unavailable for a while, or the request timed out. */
+    TRANSIENT,
+    /** The request is invalid, and fails again if retried. */
+    NOT_RETRYABLE
+  }
+
+  /**
+   * Counts a call, which earns the retry budget.
+   */
+  void onCall();
+
+  /**
+   * @param error the error of the last attempt
+   * @param retries the number of the retries done so far
+   * @return the milliseconds to wait before retrying, or -1 to not retry
+   */
+  long retryDelay(Throwable error, int retries);
+}
@@ -10,7 +10,9 @@ import org.apache.commons.logging.LogFactory;
 
 /**
  * A factory for createing retry proxies
+ * @deprecated use {@link RetryingOTSInterface}, which dispatches the calls without reflection.
  */
+@Deprecated
 public class RetryProxy {
   static final Log LOG = LogFactory.getLog(RetryProxy.class);
 
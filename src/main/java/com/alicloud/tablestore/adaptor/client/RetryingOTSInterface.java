@@ -0,0 +1,382 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+import com.alicloud.tablestore.adaptor.client.metrics.ClientMetrics;
+import com.alicloud.tablestore.adaptor.client.metrics.OperationMetrics;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+
+/**
+ * An OTSInterface decorator which retries the failed calls. Only the idempotent methods, those
+ * annotated with {@link Idempotent} in {@link OTSInterface}, are retried. A failure of another
+ * method, a {@link DoNotRetryIOException} or an {@link OperationTimeoutException} is thrown at once.
+ * When and how often a call is retried is decided by the {@link RetryPolicy} of the adapter, and the
+ * last error is thrown, wrapped in an IOException, once the policy gives up. The calls run on the calling thread. If the
+ * operation timeout is set, it bounds the whole call including the retries and the waits between
+ * them, and is enforced by the timer of {@link OperationContext}. If metrics are given, the latency,
+ * the retries and the failures of each call are recorded per table and method.
+ */
+public class RetryingOTSInterface implements OTSInterface {
+  public static final Log LOG = LogFactory.getLog(RetryingOTSInterface.class);
+
+  private final RetryPolicy retryPolicy;
+
+  private final OTSInterface ots;
+
+  private final TablestoreClientConf conf;
+
+  // null if the calls are not measured
+  private final ClientMetrics metrics;
+
+  public RetryingOTSInterface(TablestoreClientConf conf, OTSInterface ots) {
+    this(conf, ots, null);
+  }
+
+  public RetryingOTSInterface(TablestoreClientConf conf, OTSInterface ots, ClientMetrics metrics) {
+    this(conf, ots, metrics, DefaultRetryPolicy.create(conf));
+  }
+
+  public RetryingOTSInterface(TablestoreClientConf conf, OTSInterface ots, ClientMetrics metrics, RetryPolicy retryPolicy) {
+    this.conf = conf;
+    this.retryPolicy = retryPolicy;
+    this.ots = ots;
+    this.metrics = metrics;
+  }
+
+  /**
+   * One call of the wrapped OTSInterface, which is retried if it failed and it is idempotent.
+   */
+  private abstract class Caller<T> implements Callable<T> {
+    private final String name;
+    private final String table;
+    private final boolean idempotent;
+    // the number of rows of a batch call, -1 for a single row call
+    private final int rows;
+    private OperationMetrics operationMetrics;
+
+    Caller(String name, String table, boolean idempotent) {
+      this(name, table, idempotent, -1);
+    }
+
+    Caller(String name, String table, boolean idempotent, int rows) {
+      this.name = name;
+      this.table = table;
+      this.idempotent = idempotent;
+      this.rows = rows;
+    }
+
+    protected abstract T invoke() throws IOException;
+
+    @Override
+    public T call() throws Exception {
+      // The number of times this method invocation has been failed over.
+      int invocationRetryCount = 0;
+      Throwable error = null;
+      retryPolicy.onCall();
+      while (true) {
+        try {
+          ClientFaultInjector.instance.fetchFromHBaseServiceException();
+          return invoke();
+        } catch (OperationTimeoutException e) {
+          throw e;
+        } catch (Throwable e) {
+          OperationContext.checkDeadline();
+          if (operationMetrics != null && OTSUtil.isThrottled(e)) {
+            operationMetrics.incrementThrottled();
+          }
+          LOG.warn("Failed invoking method " + name + " to " + ots
+              + " because of " + e + ", will retry...");
+          if (e instanceof DoNotRetryIOException) {
+            throw new IOException(e);
+          }
+          error = e;
+        }
+
+        // a call which is not idempotent is never retried, so it takes nothing from the retry budget
+        if (!idempotent) {
+          throw new IOException(error);
+        }
+
+        // there is error, so retry the method if the policy allows
+        long delay = retryPolicy.retryDelay(error, invocationRetryCount);
+        if (delay < 0) {
+          String msg =
+              "Failed calling " + name + " after retring " + invocationRetryCount
+                  + " time(s)";
+          LOG.warn(msg, error);
+          throw new IOException(msg, error);
+        }
+
+        OperationContext.sleep(delay);
+        invocationRetryCount++;
+        if (operationMetrics != null) {
+          operationMetrics.incrementRetries();
+        }
+        error = null;
+      }
+    }
+  }
+
+  /**
+   * Runs the call on the calling thread. If the operation timeout is set, the shared timer of
+   * {@link OperationContext} fails the call once the timeout is passed.
+   */
+  private <T> T execute(Caller<T> caller) throws IOException {
+    if (metrics == null) {
+      return executeWithTimeout(caller);
+    }
+    OperationMetrics operationMetrics = metrics.operation(caller.table, caller.name);
+    caller.operationMetrics = operationMetrics;
+    if (caller.rows >= 0) {
+      operationMetrics.recordBatchSize(caller.rows);
+    }
+    long start = System.nanoTime();
+    boolean succeeded = false;
+    try {
+      T result = executeWithTimeout(caller);
+      succeeded = true;
+      return result;
+    } finally {
+      operationMetrics.recordLatencyMicros((System.nanoTime() - start) / 1000);
+      if (!succeeded) {
+        operationMetrics.incrementFailures();
+      }
+    }
+  }
+
+  private <T> T executeWithTimeout(Caller<T> caller) throws IOException {
+    if (conf.getOperationTimeout() == Integer.MAX_VALUE) {
+      // Call directly if no operation timeout
+      return callDirectly(caller);
+    }
+    OperationContext context = OperationContext.start(caller.name, conf.getOperationTimeout());
+    if (context == null) {
+      return callDirectly(caller);
+    }
+    try {
+      return callDirectly(caller);
+    } catch (IOException e) {
+      if (context.isExpired()) {
+        throw context.timeoutException();
+      }
+      throw e;
+    } finally {
+      context.finish();
+    }
+  }
+
+  private static int rows(List<?> rows) {
+    return rows == null ? -1 : rows.size();
+  }
+
+  private static String tableName(OTableDescriptor descriptor) {
+    return descriptor == null ? "" : descriptor.getTableName();
+  }
+
+  private static <T> T callDirectly(Caller<T> caller) throws IOException {
+    try {
+      return caller.call();
+    } catch (IOException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public com.alicloud.tablestore.adaptor.struct.OResult get(final String tableName, final com.alicloud.tablestore.adaptor.struct.OGet get) throws IOException {
+    return execute(new Caller<com.alicloud.tablestore.adaptor.struct.OResult>("get", tableName, true) {
+      @Override
+      protected com.alicloud.tablestore.adaptor.struct.OResult invoke() throws IOException {
+        return ots.get(tableName, get);
+      }
+    });
+  }
+
+  @Override
+  public List<com.alicloud.tablestore.adaptor.struct.OResult> getMultiple(final String tableName, final List<com.alicloud.tablestore.adaptor.struct.OGet> gets) throws IOException {
+    return execute(new Caller<List<com.alicloud.tablestore.adaptor.struct.OResult>>("getMultiple", tableName, true, rows(gets)) {
+      @Override
+      protected List<com.alicloud.tablestore.adaptor.struct.OResult> invoke() throws IOException {
+        return ots.getMultiple(tableName, gets);
+      }
+    });
+  }
+
+  @Override
+  public List<com.alicloud.tablestore.adaptor.struct.OResult> scan(final String tableName, final com.alicloud.tablestore.adaptor.struct.OScan scan, final int limit) throws IOException {
+    return execute(new Caller<List<com.alicloud.tablestore.adaptor.struct.OResult>>("scan", tableName, true) {
+      @Override
+      protected List<com.alicloud.tablestore.adaptor.struct.OResult> invoke() throws IOException {
+        return ots.scan(tableName, scan, limit);
+      }
+    });
+  }
+
+  @Override
+  public List<com.alicloud.tablestore.adaptor.struct.OResult> scan(final String tableName, final com.alicloud.tablestore.adaptor.struct.OScan scan, final int limit, final ByteArrayOutputStream nextRow) throws IOException {
+    return execute(new Caller<List<com.alicloud.tablestore.adaptor.struct.OResult>>("scan", tableName, true) {
+      @Override
+      protected List<com.alicloud.tablestore.adaptor.struct.OResult> invoke() throws IOException {
+        return ots.scan(tableName, scan, limit, nextRow);
+      }
+    });
+  }
+
+  @Override
+  public void put(final String tableName, final com.alicloud.tablestore.adaptor.struct.OPut put) throws IOException {
+    execute(new Caller<Void>("put", tableName, true) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.put(tableName, put);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public void putMultiple(final String tableName, final List<com.alicloud.tablestore.adaptor.struct.OPut> puts) throws IOException {
+    execute(new Caller<Void>("putMultiple", tableName, true, rows(puts)) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.putMultiple(tableName, puts);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public void delete(final String tableName, final com.alicloud.tablestore.adaptor.struct.ODelete delete) throws IOException {
+    execute(new Caller<Void>("delete", tableName, true) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.delete(tableName, delete);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public void deleteMultiple(final String tableName, final List<com.alicloud.tablestore.adaptor.struct.ODelete> deletes) throws IOException {
+    execute(new Caller<Void>("deleteMultiple", tableName, true, rows(deletes)) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.deleteMultiple(tableName, deletes);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public void update(final String tableName, final com.alicloud.tablestore.adaptor.struct.OUpdate update) throws IOException {
+    execute(new Caller<Void>("update", tableName, true) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.update(tableName, update);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public com.alicloud.tablestore.adaptor.struct.OResult increment(final String tableName, final com.alicloud.tablestore.adaptor.struct.OUpdate update) throws IOException {
+    return execute(new Caller<com.alicloud.tablestore.adaptor.struct.OResult>("increment", tableName, false) {
+      @Override
+      protected com.alicloud.tablestore.adaptor.struct.OResult invoke() throws IOException {
+        return ots.increment(tableName, update);
+      }
+    });
+  }
+
+  @Override
+  public void batch(final String tableName, final List<? extends com.alicloud.tablestore.adaptor.struct.ORow> actions, final Object[] results)
+      throws IOException {
+    execute(new Caller<Void>("batch", tableName, true, rows(actions)) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.batch(tableName, actions, results);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public Object[] batch(final String tableName, final List<? extends com.alicloud.tablestore.adaptor.struct.ORow> actions) throws IOException {
+    return execute(new Caller<Object[]>("batch", tableName, true, rows(actions)) {
+      @Override
+      protected Object[] invoke() throws IOException {
+        return ots.batch(tableName, actions);
+      }
+    });
+  }
+
+  @Override
+  public List<String> listTable() throws IOException {
+    return execute(new Caller<List<String>>("listTable", "", false) {
+      @Override
+      protected List<String> invoke() throws IOException {
+        return ots.listTable();
+      }
+    });
+  }
+
+  @Override
+  public void createTable(final OTableDescriptor descriptor) throws IOException {
+    execute(new Caller<Void>("createTable", tableName(descriptor), false) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.createTable(descriptor);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public void deleteTable(final String tableName) throws IOException {
+    execute(new Caller<Void>("deleteTable", tableName, false) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.deleteTable(tableName);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public OTableDescriptor describeTable(final String tableName) throws IOException {
+    return execute(new Caller<OTableDescriptor>("describeTable", tableName, false) {
+      @Override
+      protected OTableDescriptor invoke() throws IOException {
+        return ots.describeTable(tableName);
+      }
+    });
+  }
+
+  @Override
+  public void updateTable(final OTableDescriptor descriptor) throws IOException {
+    execute(new Caller<Void>("updateTable", tableName(descriptor), false) {
+      @Override
+      protected Void invoke() throws IOException {
+        ots.updateTable(descriptor);
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.ots.close();
+  }
+}
@@ -0,0 +1,199 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded LRU cache of the results of the gets of one table. A result is cached per row and
+ * query (see {@link com.alicloud.tablestore.adaptor.struct.OGet#isSameQuery}), and expires after
+ * the TTL. The writes of {@link OTSAdapter} invalidate the rows they change. A result read before a
+ * write is not cached if its row is invalidated in the meantime, so an in-flight get can not put a
+ * stale row back. The invalidations of the rows are remembered up to the size of the cache, and a
+ * result read before a forgotten invalidation is not cached either.
+ * <p>
+ * The results are cached without the response and the consumed capacity of the request which read
+ * them, and each caller gets its own copy.
+ */
+public class RowCache {
+  private final int maxEntries;
+  private final long ttlMillis;
+  // row -> the cached results of the row, in the order of access. Guarded by this.
+  private final LinkedHashMap<RowKey, List<Entry>> rows = new LinkedHashMap<RowKey, List<Entry>>(16, 0.75f, true);
+  private int entryCount = 0;
+  private long generation = 0;
+  // row -> the generation of its last invalidation, in the order of invalidation. Guarded by this.
+  private final LinkedHashMap<RowKey, Long> invalidations = new LinkedHashMap<RowKey, Long>();
+  // the last generation of the invalidations forgotten
+  private long forgottenGeneration = 0;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  private static final class RowKey {
+    final byte[] row;
+    final int hash;
+
+    RowKey(byte[] row) {
+      this.row = row;
+      this.hash = Arrays.hashCode(row);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof RowKey && Arrays.equals(row, ((RowKey) other).row);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Entry {
+    final com.alicloud.tablestore.adaptor.struct.OGet query;
+    final com.alicloud.tablestore.adaptor.struct.OResult result;
+    final long expireTime;
+
+    Entry(com.alicloud.tablestore.adaptor.struct.OGet query, com.alicloud.tablestore.adaptor.struct.OResult result, long expireTime) {
+      this.query = query;
+      this.result = result;
+      this.expireTime = expireTime;
+    }
+  }
+
+  public RowCache(int maxEntries, long ttlMillis) {
+    this.maxEntries = Math.max(1, maxEntries);
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * @return the cached result of the get, or null if it is not cached or expired
+   */
+  public synchronized com.alicloud.tablestore.adaptor.struct.OResult get(com.alicloud.tablestore.adaptor.struct.OGet get) {
+    List<Entry> entries = rows.get(new RowKey(get.getRow()));
+    if (entries != null) {
+      Iterator<Entry> iterator = entries.iterator();
+      while (iterator.hasNext()) {
+        Entry entry = iterator.next();
+        if (entry.query.isSameQuery(get)) {
+          if (entry.expireTime > System.currentTimeMillis()) {
+            hitCount.incrementAndGet();
+            return copy(entry.result);
+          }
+          iterator.remove();
+          entryCount--;
+          if (entries.isEmpty()) {
+            rows.remove(new RowKey(get.getRow()));
+          }
+          break;
+        }
+      }
+    }
+    missCount.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Must be called before reading the rows to be cached.
+   * @return the generation to pass to {@link #put}
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Caches the result of the get, unless its row is invalidated since the generation was taken.
+   */
+  public synchronized void put(com.alicloud.tablestore.adaptor.struct.OGet get, com.alicloud.tablestore.adaptor.struct.OResult result, long generation) {
+    RowKey key = new RowKey(get.getRow());
+    Long invalidated = invalidations.get(key);
+    if (result == null || generation < forgottenGeneration || (invalidated != null && generation < invalidated)) {
+      return;
+    }
+    List<Entry> entries = rows.get(key);
+    if (entries == null) {
+      entries = new ArrayList<Entry>(1);
+      rows.put(key, entries);
+    }
+    Iterator<Entry> iterator = entries.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().query.isSameQuery(get)) {
+        iterator.remove();
+        entryCount--;
+      }
+    }
+    entries.add(new Entry(get, copy(result), System.currentTimeMillis() + ttlMillis));
+    entryCount++;
+
+    Iterator<Map.Entry<RowKey, List<Entry>>> eldest = rows.entrySet().iterator();
+    while (entryCount > maxEntries && eldest.hasNext()) {
+      Map.Entry<RowKey, List<Entry>> row = eldest.next();
+      if (row.getKey().equals(key)) {
+        continue;
+      }
+      entryCount -= row.getValue().size();
+      evictionCount.addAndGet(row.getValue().size());
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Drops the cached results of the row.
+   */
+  public synchronized void invalidate(byte[] row) {
+    generation++;
+    RowKey key = new RowKey(row);
+    // moved to the end of the order of invalidation
+    invalidations.remove(key);
+    invalidations.put(key, generation);
+    Iterator<Map.Entry<RowKey, Long>> eldest = invalidations.entrySet().iterator();
+    while (invalidations.size() > maxEntries) {
+      forgottenGeneration = eldest.next().getValue();
+      eldest.remove();
+    }
+    List<Entry> entries = rows.remove(key);
+    if (entries != null) {
+      entryCount -= entries.size();
+    }
+  }
+
+  public synchronized void clear() {
+    generation++;
+    forgottenGeneration = generation;
+    invalidations.clear();
+    rows.clear();
+    entryCount = 0;
+  }
+
+  /**
+   * @return a copy of the result without the metadata of the request which read it
+   */
+  private static com.alicloud.tablestore.adaptor.struct.OResult copy(com.alicloud.tablestore.adaptor.struct.OResult result) {
+    return new com.alicloud.tablestore.adaptor.struct.OResult(result.getRow(), result.raw().clone());
+  }
+
+  /**
+   * @return the number of cached results
+   */
+  public synchronized int size() {
+    return entryCount;
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+}
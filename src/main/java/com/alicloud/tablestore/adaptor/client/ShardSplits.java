@@ -0,0 +1,113 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.model.DescribeTableRequest;
+import com.alicloud.openservices.tablestore.model.DescribeTableResponse;
+import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OMutation;
+
+/**
+ * Finds the partitions of the rows of a batch write from the shard splits of the table, which are
+ * described once and cached for a while. The splits only decide how the rows are grouped, so stale
+ * ones make the batches less local but never wrong, and a table which can not be described is
+ * written as if it had one partition.
+ */
+final class ShardSplits {
+  private static final Log LOG = LogFactory.getLog(ShardSplits.class);
+
+  private final AsyncClientInterface ots;
+  private final long ttlNanos;
+  private final ConcurrentMap<String, Splits> splits = new ConcurrentHashMap<String, Splits>();
+
+  /**
+   * The split keys of a table, each the start key of a partition but the first.
+   */
+  private static final class Splits {
+    private final byte[][] keys;
+    private final long expireNanos;
+
+    private Splits(byte[][] keys, long expireNanos) {
+      this.keys = keys;
+      this.expireNanos = expireNanos;
+    }
+  }
+
+  ShardSplits(AsyncClientInterface ots, long ttlMillis) {
+    this.ots = ots;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+  }
+
+  /**
+   * @return the shard splits of the tables, or null if the writes are not grouped by partition
+   */
+  static ShardSplits create(TablestoreClientConf conf, AsyncClientInterface ots) {
+    if (!conf.isWritePartitionGroupingEnabled()) {
+      return null;
+    }
+    return new ShardSplits(ots, conf.getShardSplitsCacheTtlMillis());
+  }
+
+  /**
+   * @return the index of the partition of each row, counted from 0
+   */
+  int[] partitions(String tableName, List<? extends OMutation> mutations) {
+    byte[][] keys = getSplitKeys(tableName);
+    int[] partitions = new int[mutations.size()];
+    if (keys.length == 0) {
+      return partitions;
+    }
+    for (int i = 0; i < partitions.length; i++) {
+      int index = Arrays.binarySearch(keys, mutations.get(i).getRow(), Bytes.BYTES_COMPARATOR);
+      // a row equal to a split key is the first row of the partition after it
+      partitions[i] = index >= 0 ? index + 1 : -(index + 1);
+    }
+    return partitions;
+  }
+
+  byte[][] getSplitKeys(String tableName) {
+    long now = System.nanoTime();
+    Splits cached = splits.get(tableName);
+    if (cached != null && now - cached.expireNanos < 0) {
+      return cached.keys;
+    }
+    try {
+      DescribeTableResponse response = OperationContext.await(ots.describeTable(new DescribeTableRequest(tableName), null));
+      List<PrimaryKey> shardSplits = response.getShardSplits();
+      byte[][] keys = new byte[shardSplits.size()][];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = shardSplits.get(i).getPrimaryKeyColumn(0).getValue().asBinary();
+      }
+      splits.put(tableName, new Splits(keys, now + ttlNanos));
+      return keys;
+    } catch (OperationTimeoutException ex) {
+      // the write fails on the deadline anyway, and the cached splits are kept
+      return cached == null ? new byte[0][] : cached.keys;
+    } catch (Throwable ex) {
+      if (ex instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      LOG.warn("Failed describing the shard splits of table " + tableName + ", the rows are not grouped by partition", ex);
+      // described again after the ttl, not on every write
+      byte[][] keys = cached == null ? new byte[0][] : cached.keys;
+      splits.put(tableName, new Splits(keys, now + ttlNanos));
+      return keys;
+    }
+  }
+
+  /**
+   * Forgets the splits of a table, e.g. once it is deleted.
+   */
+  void invalidate(String tableName) {
+    splits.remove(tableName);
+  }
+}
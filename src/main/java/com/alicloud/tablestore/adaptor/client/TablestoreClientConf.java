@@ -21,10 +21,76 @@ public class TablestoreClientConf {
   public static final int DEFAULT_TABLESTORE_CLIENT_OPERATION_TIMEOUT = Integer.MAX_VALUE;
   public static final String TABLESTORE_CLIENT_RETRIES = "tablestore.client.retries";
   public static final int DEFAULT_TABLESTORE_CLIENT_RETRIES = 3;
+  public static final String TABLESTORE_CLIENT_RETRY_POLICY = "tablestore.client.retry.policy";
+  public static final String DEFAULT_TABLESTORE_CLIENT_RETRY_POLICY =
+      "com.alicloud.tablestore.adaptor.client.DefaultRetryPolicy";
+  public static final String TABLESTORE_CLIENT_RETRY_BASE_DELAY_MS = "tablestore.client.retry.base.delay.ms";
+  public static final int DEFAULT_TABLESTORE_CLIENT_RETRY_BASE_DELAY_MS = 100;
+  public static final String TABLESTORE_CLIENT_RETRY_MAX_DELAY_MS = "tablestore.client.retry.max.delay.ms";
+  public static final int DEFAULT_TABLESTORE_CLIENT_RETRY_MAX_DELAY_MS = 10000;
+  public static final String TABLESTORE_CLIENT_RETRY_BUDGET_RATIO = "tablestore.client.retry.budget.ratio";
+  public static final String DEFAULT_TABLESTORE_CLIENT_RETRY_BUDGET_RATIO = "0.1";
+  public static final String TABLESTORE_CLIENT_RETRY_BUDGET_MIN_PER_SECOND = "tablestore.client.retry.budget.min.per.second";
+  public static final int DEFAULT_TABLESTORE_CLIENT_RETRY_BUDGET_MIN_PER_SECOND = 10;
+  public static final String TABLESTORE_CLIENT_MAX_INFLIGHT_BATCH_WRITES = "tablestore.client.max.inflight.batch.writes";
+  public static final int DEFAULT_TABLESTORE_CLIENT_MAX_INFLIGHT_BATCH_WRITES = 8;
+  public static final String TABLESTORE_CLIENT_SCANNER_PREFETCH_DEPTH = "tablestore.client.scanner.prefetch.depth";
+  public static final int DEFAULT_TABLESTORE_CLIENT_SCANNER_PREFETCH_DEPTH = 0;
+  public static final String TABLESTORE_CLIENT_SCANNER_PREFETCH_MAX_BYTES = "tablestore.client.scanner.prefetch.max.bytes";
+  public static final int DEFAULT_TABLESTORE_CLIENT_SCANNER_PREFETCH_MAX_BYTES = 32 * 1024 * 1024;
+  public static final String TABLESTORE_CLIENT_SCANNER_PARALLELISM = "tablestore.client.scanner.parallelism";
+  public static final int DEFAULT_TABLESTORE_CLIENT_SCANNER_PARALLELISM = 4;
+  public static final String TABLESTORE_CLIENT_GET_COALESCING_WINDOW_MICROS = "tablestore.client.get.coalescing.window.micros";
+  public static final int DEFAULT_TABLESTORE_CLIENT_GET_COALESCING_WINDOW_MICROS = 0;
+  public static final String TABLESTORE_CLIENT_GET_COALESCING_MAX_ROWS = "tablestore.client.get.coalescing.max.rows";
+  public static final int DEFAULT_TABLESTORE_CLIENT_GET_COALESCING_MAX_ROWS = 100;
+  public static final String TABLESTORE_CLIENT_ROW_CACHE_TABLES = "tablestore.client.row.cache.tables";
+  public static final String TABLESTORE_CLIENT_ROW_CACHE_SIZE = "tablestore.client.row.cache.size";
+  public static final int DEFAULT_TABLESTORE_CLIENT_ROW_CACHE_SIZE = 10000;
+  public static final String TABLESTORE_CLIENT_ROW_CACHE_TTL_MS = "tablestore.client.row.cache.ttl.ms";
+  public static final int DEFAULT_TABLESTORE_CLIENT_ROW_CACHE_TTL_MS = 60 * 1000;
+  public static final String TABLESTORE_CLIENT_FACTORY = "tablestore.client.factory";
+  public static final String TABLESTORE_CLIENT_WRITE_COALESCING = "tablestore.client.write.coalescing";
+  public static final boolean DEFAULT_TABLESTORE_CLIENT_WRITE_COALESCING = false;
+  public static final String TABLESTORE_CLIENT_WRITE_PARTITION_GROUPING = "tablestore.client.write.partition.grouping";
+  public static final boolean DEFAULT_TABLESTORE_CLIENT_WRITE_PARTITION_GROUPING = false;
+  public static final String TABLESTORE_CLIENT_SHARD_SPLITS_CACHE_TTL_MS = "tablestore.client.shard.splits.cache.ttl.ms";
+  public static final int DEFAULT_TABLESTORE_CLIENT_SHARD_SPLITS_CACHE_TTL_MS = 5 * 60 * 1000;
+  public static final String TABLESTORE_CLIENT_METRICS_ENABLED = "tablestore.client.metrics.enabled";
+  public static final boolean DEFAULT_TABLESTORE_CLIENT_METRICS_ENABLED = true;
+  public static final String TABLESTORE_CLIENT_METRICS_REPORTERS = "tablestore.client.metrics.reporters";
+  public static final String DEFAULT_TABLESTORE_CLIENT_METRICS_REPORTERS =
+      "com.alicloud.tablestore.adaptor.client.metrics.JmxMetricsReporter";
+  public static final String TABLESTORE_CLIENT_CAPACITY_ATTACH_RESULTS = "tablestore.client.capacity.attach.results";
+  public static final boolean DEFAULT_TABLESTORE_CLIENT_CAPACITY_ATTACH_RESULTS = false;
+  public static final String TABLESTORE_CLIENT_CAPACITY_LIMIT_READ_UNITS = "tablestore.client.capacity.limit.read.units";
+  public static final int DEFAULT_TABLESTORE_CLIENT_CAPACITY_LIMIT_READ_UNITS = 0;
+  public static final String TABLESTORE_CLIENT_CAPACITY_LIMIT_WRITE_UNITS = "tablestore.client.capacity.limit.write.units";
+  public static final int DEFAULT_TABLESTORE_CLIENT_CAPACITY_LIMIT_WRITE_UNITS = 0;
+  public static final String TABLESTORE_CLIENT_CAPACITY_LIMIT_ADAPTIVE = "tablestore.client.capacity.limit.adaptive";
+  public static final boolean DEFAULT_TABLESTORE_CLIENT_CAPACITY_LIMIT_ADAPTIVE = true;
+  public static final String TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MAX = "tablestore.client.concurrency.limit.max";
+  public static final int DEFAULT_TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MAX = 0;
+  public static final String TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MIN = "tablestore.client.concurrency.limit.min";
+  public static final int DEFAULT_TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MIN = 1;
+  public static final String TABLESTORE_CLIENT_CONCURRENCY_LIMIT_LATENCY_THRESHOLD_MS = "tablestore.client.concurrency.limit.latency.threshold.ms";
+  public static final int DEFAULT_TABLESTORE_CLIENT_CONCURRENCY_LIMIT_LATENCY_THRESHOLD_MS = 1000;
+  public static final String TABLESTORE_CLIENT_CONCURRENCY_LIMIT_QUEUE_TIMEOUT_MS = "tablestore.client.concurrency.limit.queue.timeout.ms";
+  public static final int DEFAULT_TABLESTORE_CLIENT_CONCURRENCY_LIMIT_QUEUE_TIMEOUT_MS = 10000;
+  public static final String TABLESTORE_CLIENT_HEDGE_PERCENTILE = "tablestore.client.hedge.percentile";
+  public static final String DEFAULT_TABLESTORE_CLIENT_HEDGE_PERCENTILE = "0";
+  public static final String TABLESTORE_CLIENT_HEDGE_BUDGET_RATIO = "tablestore.client.hedge.budget.ratio";
+  public static final String DEFAULT_TABLESTORE_CLIENT_HEDGE_BUDGET_RATIO = "0.05";
+  public static final String TABLESTORE_CLIENT_HEDGE_MIN_DELAY_MS = "tablestore.client.hedge.min.delay.ms";
+  public static final int DEFAULT_TABLESTORE_CLIENT_HEDGE_MIN_DELAY_MS = 1;
   public static final String TABLESTORE_MAX_BATCH_ROW_COUNT = "tablestore.max.batch.row.count";
   public static final int DEFAULT_TABLESTORE_MAX_BATCH_ROW_COUNT = 100;
   public static final String TABLESTORE_MAX_BATCH_DATA_SIZE = "tablestore.max.batch.data.size";
-  public static final int DEFAULT_TABLESTORE_MAX_BATCH_DATA_SIZE = 1024 * 1024;
+  // below the 4MB of the service, so a request packed to the limit is not rejected for the bytes of
+  // the request which the rows do not count
+  public static final int DEFAULT_TABLESTORE_MAX_BATCH_DATA_SIZE = 3584 * 1024;
+  public static final String TABLESTORE_MAX_BATCH_GET_ROW_COUNT = "tablestore.max.batch.get.row.count";
+  public static final int DEFAULT_TABLESTORE_MAX_BATCH_GET_ROW_COUNT = 100;
   public static final String TABLESTORE_MAX_SCAN_LIMIT = "tablestore.max.scan.limit";
   public static final int DEFAULT_TABLESTORE_MAX_SCAN_LIMIT = 5000;
 
@@ -174,6 +240,513 @@ public class TablestoreClientConf {
     setInt(TABLESTORE_CLIENT_RETRIES, retryCount);
   }
 
+  /**
+   * Get the class of the {@link RetryPolicy} deciding when a failed request is retried
+   * @return the class name of the retry policy
+   */
+  public String getRetryPolicy() {
+    return getValue(TABLESTORE_CLIENT_RETRY_POLICY, DEFAULT_TABLESTORE_CLIENT_RETRY_POLICY);
+  }
+
+  /**
+   * Set the class of the {@link RetryPolicy} deciding when a failed request is retried
+   * @param className
+   */
+  public void setRetryPolicy(String className) {
+    setValue(TABLESTORE_CLIENT_RETRY_POLICY, className);
+  }
+
+  /**
+   * Get the base in milliseconds of the backoff before the retries
+   * @return the base delay of the retries in milliseconds
+   */
+  public int getRetryBaseDelay() {
+    return getInt(TABLESTORE_CLIENT_RETRY_BASE_DELAY_MS, DEFAULT_TABLESTORE_CLIENT_RETRY_BASE_DELAY_MS);
+  }
+
+  /**
+   * Set the base in milliseconds of the backoff before the retries
+   * @param baseDelayMillis
+   */
+  public void setRetryBaseDelay(int baseDelayMillis) {
+    setInt(TABLESTORE_CLIENT_RETRY_BASE_DELAY_MS, baseDelayMillis);
+  }
+
+  /**
+   * Get the max backoff in milliseconds before a retry
+   * @return the max delay of the retries in milliseconds
+   */
+  public int getRetryMaxDelay() {
+    return getInt(TABLESTORE_CLIENT_RETRY_MAX_DELAY_MS, DEFAULT_TABLESTORE_CLIENT_RETRY_MAX_DELAY_MS);
+  }
+
+  /**
+   * Set the max backoff in milliseconds before a retry
+   * @param maxDelayMillis
+   */
+  public void setRetryMaxDelay(int maxDelayMillis) {
+    setInt(TABLESTORE_CLIENT_RETRY_MAX_DELAY_MS, maxDelayMillis);
+  }
+
+  /**
+   * Get the retries each call earns, e.g. 0.1 allows one retry per 10 calls
+   * @return the retry budget ratio
+   */
+  public double getRetryBudgetRatio() {
+    return Double.parseDouble(getValue(TABLESTORE_CLIENT_RETRY_BUDGET_RATIO, DEFAULT_TABLESTORE_CLIENT_RETRY_BUDGET_RATIO));
+  }
+
+  /**
+   * Set the retries each call earns, e.g. 0.1 allows one retry per 10 calls
+   * @param budgetRatio
+   */
+  public void setRetryBudgetRatio(double budgetRatio) {
+    setValue(TABLESTORE_CLIENT_RETRY_BUDGET_RATIO, Double.toString(budgetRatio));
+  }
+
+  /**
+   * Get the retries per second allowed regardless of the number of calls
+   * @return the min retries per second
+   */
+  public int getRetryBudgetMinPerSecond() {
+    return getInt(TABLESTORE_CLIENT_RETRY_BUDGET_MIN_PER_SECOND, DEFAULT_TABLESTORE_CLIENT_RETRY_BUDGET_MIN_PER_SECOND);
+  }
+
+  /**
+   * Set the retries per second allowed regardless of the number of calls
+   * @param minRetriesPerSecond
+   */
+  public void setRetryBudgetMinPerSecond(int minRetriesPerSecond) {
+    setInt(TABLESTORE_CLIENT_RETRY_BUDGET_MIN_PER_SECOND, minRetriesPerSecond);
+  }
+
+  /**
+   * Get the max number of BatchWriteRow requests sent concurrently by one batch write
+   * @return the max number of in-flight batch write requests
+   */
+  public int getMaxInflightBatchWrites() {
+    return getInt(TABLESTORE_CLIENT_MAX_INFLIGHT_BATCH_WRITES, DEFAULT_TABLESTORE_CLIENT_MAX_INFLIGHT_BATCH_WRITES);
+  }
+
+  /**
+   * Set the max number of BatchWriteRow requests sent concurrently by one batch write
+   * @param maxInflight
+   */
+  public void setMaxInflightBatchWrites(int maxInflight) {
+    setInt(TABLESTORE_CLIENT_MAX_INFLIGHT_BATCH_WRITES, maxInflight);
+  }
+
+  /**
+   * Get the number of pages a scanner fetches ahead in the background, 0 to disable the prefetch
+   * @return the prefetch depth of scanners
+   */
+  public int getScannerPrefetchDepth() {
+    return getInt(TABLESTORE_CLIENT_SCANNER_PREFETCH_DEPTH, DEFAULT_TABLESTORE_CLIENT_SCANNER_PREFETCH_DEPTH);
+  }
+
+  /**
+   * Set the number of pages a scanner fetches ahead in the background, 0 to disable the prefetch
+   * @param depth
+   */
+  public void setScannerPrefetchDepth(int depth) {
+    setInt(TABLESTORE_CLIENT_SCANNER_PREFETCH_DEPTH, depth);
+  }
+
+  /**
+   * Get the max bytes of the pages a scanner holds ahead of the caller
+   * @return the max prefetched bytes of scanners
+   */
+  public int getScannerPrefetchMaxBytes() {
+    return getInt(TABLESTORE_CLIENT_SCANNER_PREFETCH_MAX_BYTES, DEFAULT_TABLESTORE_CLIENT_SCANNER_PREFETCH_MAX_BYTES);
+  }
+
+  /**
+   * Set the max bytes of the pages a scanner holds ahead of the caller
+   * @param maxBytes
+   */
+  public void setScannerPrefetchMaxBytes(int maxBytes) {
+    setInt(TABLESTORE_CLIENT_SCANNER_PREFETCH_MAX_BYTES, maxBytes);
+  }
+
+  /**
+   * Get the max number of shards scanned concurrently by a parallel scanner
+   * @return the parallelism of parallel scanners
+   */
+  public int getScannerParallelism() {
+    return getInt(TABLESTORE_CLIENT_SCANNER_PARALLELISM, DEFAULT_TABLESTORE_CLIENT_SCANNER_PARALLELISM);
+  }
+
+  /**
+   * Set the max number of shards scanned concurrently by a parallel scanner
+   * @param parallelism
+   */
+  public void setScannerParallelism(int parallelism) {
+    setInt(TABLESTORE_CLIENT_SCANNER_PARALLELISM, parallelism);
+  }
+
+  /**
+   * Get the time in microseconds concurrent gets of a table wait to be sent as one batch get, 0 to
+   * send each get alone
+   * @return the coalescing window of gets
+   */
+  public int getGetCoalescingWindowMicros() {
+    return getInt(TABLESTORE_CLIENT_GET_COALESCING_WINDOW_MICROS, DEFAULT_TABLESTORE_CLIENT_GET_COALESCING_WINDOW_MICROS);
+  }
+
+  /**
+   * Set the time in microseconds concurrent gets of a table wait to be sent as one batch get, 0 to
+   * send each get alone
+   * @param windowMicros
+   */
+  public void setGetCoalescingWindowMicros(int windowMicros) {
+    setInt(TABLESTORE_CLIENT_GET_COALESCING_WINDOW_MICROS, windowMicros);
+  }
+
+  /**
+   * Get the max number of gets coalesced into one batch get
+   * @return the max rows of a coalesced batch get
+   */
+  public int getGetCoalescingMaxRows() {
+    return getInt(TABLESTORE_CLIENT_GET_COALESCING_MAX_ROWS, DEFAULT_TABLESTORE_CLIENT_GET_COALESCING_MAX_ROWS);
+  }
+
+  /**
+   * Set the max number of gets coalesced into one batch get
+   * @param maxRows
+   */
+  public void setGetCoalescingMaxRows(int maxRows) {
+    setInt(TABLESTORE_CLIENT_GET_COALESCING_MAX_ROWS, maxRows);
+  }
+
+  /**
+   * Get the comma separated names of the tables whose rows are cached by the client
+   * @return the tables with a row cache, or null if none
+   */
+  public String getRowCacheTables() {
+    return getValue(TABLESTORE_CLIENT_ROW_CACHE_TABLES);
+  }
+
+  /**
+   * Set the comma separated names of the tables whose rows are cached by the client
+   * @param tables
+   */
+  public void setRowCacheTables(String tables) {
+    setValue(TABLESTORE_CLIENT_ROW_CACHE_TABLES, tables);
+  }
+
+  /**
+   * Get the max number of results cached for each table
+   * @return the size of the row cache of a table
+   */
+  public int getRowCacheSize() {
+    return getInt(TABLESTORE_CLIENT_ROW_CACHE_SIZE, DEFAULT_TABLESTORE_CLIENT_ROW_CACHE_SIZE);
+  }
+
+  /**
+   * Set the max number of results cached for each table
+   * @param size
+   */
+  public void setRowCacheSize(int size) {
+    setInt(TABLESTORE_CLIENT_ROW_CACHE_SIZE, size);
+  }
+
+  /**
+   * Get the time in milliseconds a cached result is valid
+   * @return the ttl of the row cache
+   */
+  public int getRowCacheTtlMillis() {
+    return getInt(TABLESTORE_CLIENT_ROW_CACHE_TTL_MS, DEFAULT_TABLESTORE_CLIENT_ROW_CACHE_TTL_MS);
+  }
+
+  /**
+   * Set the time in milliseconds a cached result is valid
+   * @param ttlMillis
+   */
+  public void setRowCacheTtlMillis(int ttlMillis) {
+    setInt(TABLESTORE_CLIENT_ROW_CACHE_TTL_MS, ttlMillis);
+  }
+
+  /**
+   * Get the class of the {@link AsyncClientFactory} creating the OTS client
+   * @return the class name of the client factory, or null to access the service by the endpoint
+   */
+  public String getClientFactory() {
+    return getValue(TABLESTORE_CLIENT_FACTORY);
+  }
+
+  /**
+   * Set the class of the {@link AsyncClientFactory} creating the OTS client
+   * @param className
+   */
+  public void setClientFactory(String className) {
+    setValue(TABLESTORE_CLIENT_FACTORY, className);
+  }
+
+  /**
+   * Whether the buffered mutations of a row are coalesced before they are written
+   * @return true if coalesced
+   */
+  public boolean isWriteCoalescingEnabled() {
+    return getBoolean(TABLESTORE_CLIENT_WRITE_COALESCING, DEFAULT_TABLESTORE_CLIENT_WRITE_COALESCING);
+  }
+
+  /**
+   * Set whether the buffered mutations of a row are coalesced before they are written
+   * @param enabled
+   */
+  public void setWriteCoalescingEnabled(boolean enabled) {
+    setBoolean(TABLESTORE_CLIENT_WRITE_COALESCING, enabled);
+  }
+
+  /**
+   * Whether the rows of a batch write are grouped by the partition of the table they belong to
+   * @return true if grouped
+   */
+  public boolean isWritePartitionGroupingEnabled() {
+    return getBoolean(TABLESTORE_CLIENT_WRITE_PARTITION_GROUPING, DEFAULT_TABLESTORE_CLIENT_WRITE_PARTITION_GROUPING);
+  }
+
+  /**
+   * Set whether the rows of a batch write are grouped by the partition of the table they belong to
+   * @param enabled
+   */
+  public void setWritePartitionGroupingEnabled(boolean enabled) {
+    setBoolean(TABLESTORE_CLIENT_WRITE_PARTITION_GROUPING, enabled);
+  }
+
+  /**
+   * Get the time in milliseconds the cached shard splits of a table are used before described again
+   * @return the time to live of the shard splits
+   */
+  public int getShardSplitsCacheTtlMillis() {
+    return getInt(TABLESTORE_CLIENT_SHARD_SPLITS_CACHE_TTL_MS, DEFAULT_TABLESTORE_CLIENT_SHARD_SPLITS_CACHE_TTL_MS);
+  }
+
+  /**
+   * Set the time in milliseconds the cached shard splits of a table are used before described again
+   * @param ttlMillis
+   */
+  public void setShardSplitsCacheTtlMillis(int ttlMillis) {
+    setInt(TABLESTORE_CLIENT_SHARD_SPLITS_CACHE_TTL_MS, ttlMillis);
+  }
+
+  /**
+   * Get whether the latencies, retries and failures of the calls are recorded
+   * @return true if the metrics are enabled
+   */
+  public boolean isMetricsEnabled() {
+    return getBoolean(TABLESTORE_CLIENT_METRICS_ENABLED, DEFAULT_TABLESTORE_CLIENT_METRICS_ENABLED);
+  }
+
+  /**
+   * Set whether the latencies, retries and failures of the calls are recorded
+   * @param enabled
+   */
+  public void setMetricsEnabled(boolean enabled) {
+    setBoolean(TABLESTORE_CLIENT_METRICS_ENABLED, enabled);
+  }
+
+  /**
+   * Get the comma separated classes of the reporters the metrics are exported by, see
+   * {@link com.alicloud.tablestore.adaptor.client.metrics.MetricsReporter}
+   * @return the classes of the metrics reporters
+   */
+  public String getMetricsReporters() {
+    return getValue(TABLESTORE_CLIENT_METRICS_REPORTERS, DEFAULT_TABLESTORE_CLIENT_METRICS_REPORTERS);
+  }
+
+  /**
+   * Set the comma separated classes of the reporters the metrics are exported by, see
+   * {@link com.alicloud.tablestore.adaptor.client.metrics.MetricsReporter}
+   * @param reporters
+   */
+  public void setMetricsReporters(String reporters) {
+    setValue(TABLESTORE_CLIENT_METRICS_REPORTERS, reporters);
+  }
+
+  /**
+   * Get whether the capacity units consumed by the reads are attached to their results, see
+   * {@link com.alicloud.tablestore.adaptor.struct.OResult#getConsumedCapacity()}
+   * @return true if the consumed capacity is attached
+   */
+  public boolean isCapacityAttachedToResults() {
+    return getBoolean(TABLESTORE_CLIENT_CAPACITY_ATTACH_RESULTS, DEFAULT_TABLESTORE_CLIENT_CAPACITY_ATTACH_RESULTS);
+  }
+
+  /**
+   * Set whether the capacity units consumed by the reads are attached to their results
+   * @param attached
+   */
+  public void setCapacityAttachedToResults(boolean attached) {
+    setBoolean(TABLESTORE_CLIENT_CAPACITY_ATTACH_RESULTS, attached);
+  }
+
+  /**
+   * Get the read capacity units per second each table is limited to, 0 if the reads are not limited
+   * @return the read capacity units per second
+   */
+  public int getCapacityLimitReadUnits() {
+    return getInt(TABLESTORE_CLIENT_CAPACITY_LIMIT_READ_UNITS, DEFAULT_TABLESTORE_CLIENT_CAPACITY_LIMIT_READ_UNITS);
+  }
+
+  /**
+   * Set the read capacity units per second each table is limited to, 0 to not limit the reads
+   * @param readUnits
+   */
+  public void setCapacityLimitReadUnits(int readUnits) {
+    setInt(TABLESTORE_CLIENT_CAPACITY_LIMIT_READ_UNITS, readUnits);
+  }
+
+  /**
+   * Get the write capacity units per second each table is limited to, 0 if the writes are not
+   * limited
+   * @return the write capacity units per second
+   */
+  public int getCapacityLimitWriteUnits() {
+    return getInt(TABLESTORE_CLIENT_CAPACITY_LIMIT_WRITE_UNITS, DEFAULT_TABLESTORE_CLIENT_CAPACITY_LIMIT_WRITE_UNITS);
+  }
+
+  /**
+   * Set the write capacity units per second each table is limited to, 0 to not limit the writes
+   * @param writeUnits
+   */
+  public void setCapacityLimitWriteUnits(int writeUnits) {
+    setInt(TABLESTORE_CLIENT_CAPACITY_LIMIT_WRITE_UNITS, writeUnits);
+  }
+
+  /**
+   * Get whether the capacity limits are lowered on throttling errors and recover afterwards
+   * @return true if the capacity limits are adaptive
+   */
+  public boolean isCapacityLimitAdaptive() {
+    return getBoolean(TABLESTORE_CLIENT_CAPACITY_LIMIT_ADAPTIVE, DEFAULT_TABLESTORE_CLIENT_CAPACITY_LIMIT_ADAPTIVE);
+  }
+
+  /**
+   * Set whether the capacity limits are lowered on throttling errors and recover afterwards
+   * @param adaptive
+   */
+  public void setCapacityLimitAdaptive(boolean adaptive) {
+    setBoolean(TABLESTORE_CLIENT_CAPACITY_LIMIT_ADAPTIVE, adaptive);
+  }
+
+  /**
+   * Get the max number of the requests in flight of an adapter, 0 if not limited
+   * @return the max concurrency limit
+   */
+  public int getConcurrencyLimitMax() {
+    return getInt(TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MAX, DEFAULT_TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MAX);
+  }
+
+  /**
+   * Set the max number of the requests in flight of an adapter, 0 to not limit them. The limit
+   * starts at a quarter of it, and adapts to the latencies and the throttling errors of the requests
+   * @param maxLimit
+   */
+  public void setConcurrencyLimitMax(int maxLimit) {
+    setInt(TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MAX, maxLimit);
+  }
+
+  /**
+   * Get the number of the requests in flight of an adapter the limit is never lowered below
+   * @return the min concurrency limit
+   */
+  public int getConcurrencyLimitMin() {
+    return getInt(TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MIN, DEFAULT_TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MIN);
+  }
+
+  /**
+   * Set the number of the requests in flight of an adapter the limit is never lowered below
+   * @param minLimit
+   */
+  public void setConcurrencyLimitMin(int minLimit) {
+    setInt(TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MIN, minLimit);
+  }
+
+  /**
+   * Get the latency in milliseconds above which a request lowers the concurrency limit
+   * @return the latency threshold in milliseconds
+   */
+  public int getConcurrencyLimitLatencyThreshold() {
+    return getInt(TABLESTORE_CLIENT_CONCURRENCY_LIMIT_LATENCY_THRESHOLD_MS,
+        DEFAULT_TABLESTORE_CLIENT_CONCURRENCY_LIMIT_LATENCY_THRESHOLD_MS);
+  }
+
+  /**
+   * Set the latency in milliseconds above which a request lowers the concurrency limit
+   * @param latencyThresholdMillis
+   */
+  public void setConcurrencyLimitLatencyThreshold(int latencyThresholdMillis) {
+    setInt(TABLESTORE_CLIENT_CONCURRENCY_LIMIT_LATENCY_THRESHOLD_MS, latencyThresholdMillis);
+  }
+
+  /**
+   * Get how long in milliseconds a request waits to be sent before it is rejected
+   * @return the queue timeout in milliseconds
+   */
+  public int getConcurrencyLimitQueueTimeout() {
+    return getInt(TABLESTORE_CLIENT_CONCURRENCY_LIMIT_QUEUE_TIMEOUT_MS,
+        DEFAULT_TABLESTORE_CLIENT_CONCURRENCY_LIMIT_QUEUE_TIMEOUT_MS);
+  }
+
+  /**
+   * Set how long in milliseconds a request waits to be sent before it is rejected
+   * @param queueTimeoutMillis
+   */
+  public void setConcurrencyLimitQueueTimeout(int queueTimeoutMillis) {
+    setInt(TABLESTORE_CLIENT_CONCURRENCY_LIMIT_QUEUE_TIMEOUT_MS, queueTimeoutMillis);
+  }
+
+  /**
+   * Get the percentile of the recent latencies after which a read is hedged, 0 if the reads are
+   * not hedged
+   * @return the hedge percentile
+   */
+  public double getHedgePercentile() {
+    return Double.parseDouble(getValue(TABLESTORE_CLIENT_HEDGE_PERCENTILE, DEFAULT_TABLESTORE_CLIENT_HEDGE_PERCENTILE));
+  }
+
+  /**
+   * Set the percentile of the recent latencies after which a read is hedged, e.g. 95, or 0 to not
+   * hedge the reads
+   * @param percentile
+   */
+  public void setHedgePercentile(double percentile) {
+    setValue(TABLESTORE_CLIENT_HEDGE_PERCENTILE, Double.toString(percentile));
+  }
+
+  /**
+   * Get the max ratio of the hedged reads to all the reads
+   * @return the hedge budget ratio
+   */
+  public double getHedgeBudgetRatio() {
+    return Double.parseDouble(getValue(TABLESTORE_CLIENT_HEDGE_BUDGET_RATIO, DEFAULT_TABLESTORE_CLIENT_HEDGE_BUDGET_RATIO));
+  }
+
+  /**
+   * Set the max ratio of the hedged reads to all the reads
+   * @param budgetRatio
+   */
+  public void setHedgeBudgetRatio(double budgetRatio) {
+    setValue(TABLESTORE_CLIENT_HEDGE_BUDGET_RATIO, Double.toString(budgetRatio));
+  }
+
+  /**
+   * Get the min time in milliseconds a read waits before it is hedged
+   * @return the min hedge delay in milliseconds
+   */
+  public int getHedgeMinDelay() {
+    return getInt(TABLESTORE_CLIENT_HEDGE_MIN_DELAY_MS, DEFAULT_TABLESTORE_CLIENT_HEDGE_MIN_DELAY_MS);
+  }
+
+  /**
+   * Set the min time in milliseconds a read waits before it is hedged
+   * @param minDelayMillis
+   */
+  public void setHedgeMinDelay(int minDelayMillis) {
+    setInt(TABLESTORE_CLIENT_HEDGE_MIN_DELAY_MS, minDelayMillis);
+  }
+
   public int getOTSMaxBatchRowCount() {
     return getInt(TABLESTORE_MAX_BATCH_ROW_COUNT, DEFAULT_TABLESTORE_MAX_BATCH_ROW_COUNT);
   }
@@ -186,6 +759,10 @@ public class TablestoreClientConf {
     setInt(TABLESTORE_MAX_BATCH_ROW_COUNT, rowCount);
   }
 
+  /**
+   * Get the max bytes of the rows of a BatchWriteRow request, as they are encoded in the request
+   * @return the max data size of a batch write
+   */
   public int getOTSMaxBatchDataSize() {
     return getInt(TABLESTORE_MAX_BATCH_DATA_SIZE, DEFAULT_TABLESTORE_MAX_BATCH_DATA_SIZE);
   }
@@ -198,6 +775,18 @@ public class TablestoreClientConf {
     setInt(TABLESTORE_MAX_BATCH_DATA_SIZE, dataSize);
   }
 
+  public int getOTSMaxBatchGetRowCount() {
+    return getInt(TABLESTORE_MAX_BATCH_GET_ROW_COUNT, DEFAULT_TABLESTORE_MAX_BATCH_GET_ROW_COUNT);
+  }
+
+  /**
+   * Rely on the server configuration. Do not use it unauthorized.
+   * @param rowCount
+   */
+  public void setOTSMaxBatchGetRowCount(int rowCount) {
+    setInt(TABLESTORE_MAX_BATCH_GET_ROW_COUNT, rowCount);
+  }
+
   public int getOTSMaxScanLimit() {
     return getInt(TABLESTORE_MAX_SCAN_LIMIT, DEFAULT_TABLESTORE_MAX_SCAN_LIMIT);
   }
@@ -0,0 +1,216 @@
+package com.alicloud.tablestore.adaptor.client.metrics;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.alicloud.tablestore.adaptor.client.ConcurrencyLimiter;
+import com.alicloud.tablestore.adaptor.client.RowCache;
+
+/**
+ * The metrics of one client, per table and operation type, and the reporters they are exported by.
+ */
+public class ClientMetrics implements ClientMetricsMBean, Closeable {
+  private static final Log LOG = LogFactory.getLog(ClientMetrics.class);
+
+  private final String name;
+  private final List<MetricsReporter> reporters;
+  // table -> operation -> metrics
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, OperationMetrics>> tables =
+      new ConcurrentHashMap<String, ConcurrentHashMap<String, OperationMetrics>>();
+  // null if the requests in flight are not limited
+  private volatile ConcurrencyLimiter concurrencyLimiter;
+  // table -> the row cache of the table
+  private final ConcurrentHashMap<String, RowCache> rowCaches = new ConcurrentHashMap<String, RowCache>();
+
+  public ClientMetrics(String name, List<MetricsReporter> reporters) {
+    this.name = name;
+    this.reporters = reporters;
+    for (MetricsReporter reporter : reporters) {
+      reporter.start(this);
+    }
+  }
+
+  /**
+   * Creates the reporters by class name.
+   * @param classNames a comma separated list of the classes of the reporters
+   */
+  public static List<MetricsReporter> createReporters(String classNames) {
+    List<MetricsReporter> reporters = new ArrayList<MetricsReporter>();
+    if (classNames == null) {
+      return reporters;
+    }
+    for (String className : classNames.split(",")) {
+      className = className.trim();
+      if (className.isEmpty()) {
+        continue;
+      }
+      try {
+        reporters.add((MetricsReporter) Class.forName(className).newInstance());
+      } catch (Exception e) {
+        throw new IllegalArgumentException("Can not create the metrics reporter " + className, e);
+      }
+    }
+    return reporters;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Exports the state of the limiter of the requests in flight of the client.
+   */
+  public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+    this.concurrencyLimiter = concurrencyLimiter;
+  }
+
+  @Override
+  public int getConcurrencyLimit() {
+    ConcurrencyLimiter limiter = concurrencyLimiter;
+    return limiter == null ? 0 : limiter.getLimit();
+  }
+
+  @Override
+  public int getInFlightRequests() {
+    ConcurrencyLimiter limiter = concurrencyLimiter;
+    return limiter == null ? 0 : limiter.getInFlight();
+  }
+
+  @Override
+  public long getQueuedRequests() {
+    ConcurrencyLimiter limiter = concurrencyLimiter;
+    return limiter == null ? 0 : limiter.getQueued();
+  }
+
+  @Override
+  public long getRejectedRequests() {
+    ConcurrencyLimiter limiter = concurrencyLimiter;
+    return limiter == null ? 0 : limiter.getRejected();
+  }
+
+  @Override
+  public double getMeanQueueTimeMicros() {
+    ConcurrencyLimiter limiter = concurrencyLimiter;
+    return limiter == null ? 0 : limiter.getQueueTimeMicros().snapshot().getMean();
+  }
+
+  @Override
+  public long getQueueTimeMicros99thPercentile() {
+    ConcurrencyLimiter limiter = concurrencyLimiter;
+    return limiter == null ? 0 : limiter.getQueueTimeMicros().snapshot().getValueAtPercentile(99);
+  }
+
+  /**
+   * Exports the hits, misses and evictions of the row cache of a table.
+   */
+  public void addRowCache(String table, RowCache rowCache) {
+    rowCaches.put(table, rowCache);
+  }
+
+  @Override
+  public long getRowCacheHits() {
+    long hits = 0;
+    for (RowCache rowCache : rowCaches.values()) {
+      hits += rowCache.getHitCount();
+    }
+    return hits;
+  }
+
+  @Override
+  public long getRowCacheMisses() {
+    long misses = 0;
+    for (RowCache rowCache : rowCaches.values()) {
+      misses += rowCache.getMissCount();
+    }
+    return misses;
+  }
+
+  @Override
+  public long getRowCacheEvictions() {
+    long evictions = 0;
+    for (RowCache rowCache : rowCaches.values()) {
+      evictions += rowCache.getEvictionCount();
+    }
+    return evictions;
+  }
+
+  @Override
+  public int getRowCacheSize() {
+    int size = 0;
+    for (RowCache rowCache : rowCaches.values()) {
+      size += rowCache.size();
+    }
+    return size;
+  }
+
+  /**
+   * @param table the table of the operation, or the empty string for the operations of no table
+   * @return the metrics of the operation type on the table, which is added on the first call
+   */
+  public OperationMetrics operation(String table, String operation) {
+    if (table == null) {
+      table = "";
+    }
+    ConcurrentHashMap<String, OperationMetrics> operations = tables.get(table);
+    if (operations == null) {
+      ConcurrentHashMap<String, OperationMetrics> created = new ConcurrentHashMap<String, OperationMetrics>();
+      operations = tables.putIfAbsent(table, created);
+      if (operations == null) {
+        operations = created;
+      }
+    }
+    OperationMetrics metrics = operations.get(operation);
+    if (metrics == null) {
+      OperationMetrics created = new OperationMetrics(table, operation);
+      metrics = operations.putIfAbsent(operation, created);
+      if (metrics == null) {
+        metrics = created;
+        for (MetricsReporter reporter : reporters) {
+          try {
+            reporter.added(metrics);
+          } catch (RuntimeException e) {
+            LOG.warn("Failed adding the metrics of " + operation + " on " + table + " to " + reporter, e);
+          }
+        }
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * @return the metrics of the operation type on the table, or null if it is never called
+   */
+  public OperationMetrics getOperation(String table, String operation) {
+    ConcurrentHashMap<String, OperationMetrics> operations = tables.get(table);
+    return operations == null ? null : operations.get(operation);
+  }
+
+  /**
+   * @return the metrics of all the tables and operation types called so far
+   */
+  public List<OperationMetrics> getOperations() {
+    List<OperationMetrics> all = new ArrayList<OperationMetrics>();
+    for (ConcurrentHashMap<String, OperationMetrics> operations : tables.values()) {
+      all.addAll(operations.values());
+    }
+    return Collections.unmodifiableList(all);
+  }
+
+  @Override
+  public void close() {
+    for (MetricsReporter reporter : reporters) {
+      try {
+        reporter.stop();
+      } catch (RuntimeException e) {
+        LOG.warn("Failed stopping the metrics reporter " + reporter, e);
+      }
+    }
+  }
+}
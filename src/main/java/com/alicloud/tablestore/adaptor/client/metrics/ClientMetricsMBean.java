@@ -0,0 +1,43 @@
+package com.alicloud.tablestore.adaptor.client.metrics;
+
+/**
+ * The JMX view of {@link ClientMetrics}.
+ */
+public interface ClientMetricsMBean {
+  String getName();
+
+  /**
+   * @return the current limit of the requests in flight, 0 if not limited
+   */
+  int getConcurrencyLimit();
+
+  int getInFlightRequests();
+
+  /**
+   * @return the number of the requests which waited for the concurrency limit
+   */
+  long getQueuedRequests();
+
+  /**
+   * @return the number of the requests rejected after waiting for the queue timeout
+   */
+  long getRejectedRequests();
+
+  double getMeanQueueTimeMicros();
+
+  long getQueueTimeMicros99thPercentile();
+
+  /**
+   * @return the gets answered by the row caches of the tables
+   */
+  long getRowCacheHits();
+
+  long getRowCacheMisses();
+
+  long getRowCacheEvictions();
+
+  /**
+   * @return the number of the results in the row caches of the tables
+   */
+  int getRowCacheSize();
+}
@@ -0,0 +1,64 @@
+package com.alicloud.tablestore.adaptor.client.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Registers the metrics of a client in the platform MBean server, as
+ * com.alicloud.tablestore:type=Client,name=&lt;client&gt; and
+ * com.alicloud.tablestore:type=Operation,client=&lt;client&gt;,table=&lt;table&gt;,operation=&lt;operation&gt;.
+ * The MBeans are unregistered when the client is closed.
+ */
+public class JmxMetricsReporter implements MetricsReporter {
+  private static final Log LOG = LogFactory.getLog(JmxMetricsReporter.class);
+  public static final String DOMAIN = "com.alicloud.tablestore";
+
+  private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+  private final List<ObjectName> registered = new ArrayList<ObjectName>();
+  private String client;
+
+  @Override
+  public void start(ClientMetrics metrics) {
+    client = ObjectName.quote(metrics.getName());
+    register(DOMAIN + ":type=Client,name=" + client, metrics);
+  }
+
+  @Override
+  public void added(OperationMetrics metrics) {
+    register(DOMAIN + ":type=Operation,client=" + client + ",table=" + ObjectName.quote(metrics.getTable())
+        + ",operation=" + metrics.getOperation(), metrics);
+  }
+
+  private void register(String name, Object mbean) {
+    try {
+      ObjectName objectName = new ObjectName(name);
+      server.registerMBean(mbean, objectName);
+      synchronized (registered) {
+        registered.add(objectName);
+      }
+    } catch (Exception e) {
+      LOG.warn("Failed registering the MBean " + name, e);
+    }
+  }
+
+  @Override
+  public void stop() {
+    synchronized (registered) {
+      for (ObjectName name : registered) {
+        try {
+          server.unregisterMBean(name);
+        } catch (Exception e) {
+          LOG.warn("Failed unregistering the MBean " + name, e);
+        }
+      }
+      registered.clear();
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.alicloud.tablestore.adaptor.client.metrics;
+
+/**
+ * Exports the metrics of a client, such as to JMX or to a metrics registry. The reporters are
+ * listed by class name in tablestore.client.metrics.reporters, and must have a public no-argument
+ * constructor. The metrics are recorded whether or not they are read, so a reporter may either read
+ * them when polled, or bridge each of them to a gauge of its registry as it is added.
+ */
+public interface MetricsReporter {
+  /**
+   * Called once, when the client is started, before any operation metrics is added.
+   */
+  void start(ClientMetrics metrics);
+
+  /**
+   * Called once for each table and operation type, on the first call of the operation on the table.
+   */
+  void added(OperationMetrics metrics);
+
+  /**
+   * Called once, when the client is closed.
+   */
+  void stop();
+}
@@ -0,0 +1,153 @@
+package com.alicloud.tablestore.adaptor.client.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of one operation type on one table: the latency of each call including its retries,
+ * the number of rows of each batch call, the counts of the failed calls, the retries and the
+ * throttling errors, the duplicates sent by the hedged reads, and the read and write capacity units
+ * consumed as reported by the responses.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+  private final String table;
+  private final String operation;
+  private final Histogram latencyMicros = new Histogram();
+  private final Histogram batchSizes = new Histogram();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder throttled = new LongAdder();
+  private final LongAdder hedged = new LongAdder();
+  private final LongAdder readCapacityUnits = new LongAdder();
+  private final LongAdder writeCapacityUnits = new LongAdder();
+
+  OperationMetrics(String table, String operation) {
+    this.table = table;
+    this.operation = operation;
+  }
+
+  public void recordLatencyMicros(long micros) {
+    latencyMicros.record(micros);
+  }
+
+  public void recordBatchSize(int rows) {
+    batchSizes.record(rows);
+  }
+
+  public void incrementFailures() {
+    failures.increment();
+  }
+
+  public void incrementRetries() {
+    retries.increment();
+  }
+
+  public void incrementThrottled() {
+    throttled.increment();
+  }
+
+  public void incrementHedged() {
+    hedged.increment();
+  }
+
+  public void addCapacityUnits(int read, int write) {
+    if (read != 0) {
+      readCapacityUnits.add(read);
+    }
+    if (write != 0) {
+      writeCapacityUnits.add(write);
+    }
+  }
+
+  public Histogram getLatencyMicros() {
+    return latencyMicros;
+  }
+
+  public Histogram getBatchSizes() {
+    return batchSizes;
+  }
+
+  @Override
+  public String getTable() {
+    return table;
+  }
+
+  @Override
+  public String getOperation() {
+    return operation;
+  }
+
+  @Override
+  public long getCount() {
+    return latencyMicros.getCount();
+  }
+
+  @Override
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  @Override
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  @Override
+  public long getThrottled() {
+    return throttled.sum();
+  }
+
+  @Override
+  public long getHedged() {
+    return hedged.sum();
+  }
+
+  @Override
+  public long getReadCapacityUnits() {
+    return readCapacityUnits.sum();
+  }
+
+  @Override
+  public long getWriteCapacityUnits() {
+    return writeCapacityUnits.sum();
+  }
+
+  @Override
+  public double getMeanLatencyMicros() {
+    return latencyMicros.snapshot().getMean();
+  }
+
+  @Override
+  public long getMaxLatencyMicros() {
+    return latencyMicros.snapshot().getMax();
+  }
+
+  @Override
+  public long getLatencyMicros50thPercentile() {
+    return latencyMicros.snapshot().getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getLatencyMicros95thPercentile() {
+    return latencyMicros.snapshot().getValueAtPercentile(95);
+  }
+
+  @Override
+  public long getLatencyMicros99thPercentile() {
+    return latencyMicros.snapshot().getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getLatencyMicros999thPercentile() {
+    return latencyMicros.snapshot().getValueAtPercentile(99.9);
+  }
+
+  @Override
+  public double getMeanBatchSize() {
+    return batchSizes.snapshot().getMean();
+  }
+
+  @Override
+  public long getMaxBatchSize() {
+    return batchSizes.snapshot().getMax();
+  }
+}
@@ -0,0 +1,40 @@
+package com.alicloud.tablestore.adaptor.client.metrics;
+
+/**
+ * The JMX view of {@link OperationMetrics}. The latencies are in microseconds.
+ */
+public interface OperationMetricsMBean {
+  String getTable();
+
+  String getOperation();
+
+  long getCount();
+
+  long getFailures();
+
+  long getRetries();
+
+  long getThrottled();
+
+  long getHedged();
+
+  long getReadCapacityUnits();
+
+  long getWriteCapacityUnits();
+
+  double getMeanLatencyMicros();
+
+  long getMaxLatencyMicros();
+
+  long getLatencyMicros50thPercentile();
+
+  long getLatencyMicros95thPercentile();
+
+  long getLatencyMicros99thPercentile();
+
+  long getLatencyMicros999thPercentile();
+
+  double getMeanBatchSize();
+
+  long getMaxBatchSize();
+}
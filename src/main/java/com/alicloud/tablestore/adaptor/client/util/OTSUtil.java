@@ -258,11 +258,36 @@ public class OTSUtil {
             kvs[i] =
                     new com.alicloud.tablestore.adaptor.struct.OColumnValue(rowKey,
                             Bytes.toBytes(row.getColumns()[i].getName()), row.getColumns()[i].getTimestamp(),
-                            com.alicloud.tablestore.adaptor.struct.OColumnValue.Type.PUT, row.getColumns()[i].getValue().asBinary());
+                            com.alicloud.tablestore.adaptor.struct.OColumnValue.Type.PUT, toBytes(row.getColumns()[i].getValue()));
         }
         return new com.alicloud.tablestore.adaptor.struct.OResult(rowKey, kvs);
     }
 
+    /**
+     * The integer columns are written by increments, and are read as the 8 bytes of the long value.
+     */
+    private static byte[] toBytes(ColumnValue value) {
+        if (value.getType() == ColumnType.INTEGER) {
+            return Bytes.toBytes(value.asLong());
+        }
+        return value.asBinary();
+    }
+
+    /**
+     * Whether the error, or one of its causes, is Tablestore throttling the request.
+     */
+    public static boolean isThrottled(Throwable ex) {
+        for (Throwable e = ex; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof TableStoreException) {
+                String errorCode = ((TableStoreException) e).getErrorCode();
+                return OTSErrorCode.SERVER_BUSY.equals(errorCode)
+                        || OTSErrorCode.QUOTA_EXHAUSTED.equals(errorCode)
+                        || OTSErrorCode.NOT_ENOUGH_CAPACITY_UNIT.equals(errorCode);
+            }
+        }
+        return false;
+    }
+
     public static boolean shouldRetry(Throwable ex) {
         if (ex instanceof TableStoreException) {
             String errorCode = ((TableStoreException) ex).getErrorCode();
@@ -0,0 +1,123 @@
+package com.alicloud.tablestore.adaptor.client.util;
+
+import com.alicloud.openservices.tablestore.core.utils.Pair;
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.model.PrimaryKeyColumn;
+import com.alicloud.openservices.tablestore.model.PrimaryKeyValue;
+import com.alicloud.openservices.tablestore.model.RowChange;
+import com.alicloud.openservices.tablestore.model.RowDeleteChange;
+import com.alicloud.openservices.tablestore.model.RowPutChange;
+import com.alicloud.openservices.tablestore.model.RowUpdateChange;
+
+/**
+ * Computes the size of a row change as it is sent in a BatchWriteRow request: the row encoded in
+ * PlainBuffer, with the tags, the length prefixes, the checksums and the timestamps of its cells,
+ * and the protobuf message which carries it. The size is computed from the row change without
+ * encoding it.
+ */
+public final class PlainBufferSize {
+  private static final int HEADER = 4;
+  private static final int TAG = 1;
+  private static final int LENGTH = 4;
+  private static final int CHECKSUM = TAG + 1;
+  private static final int TIMESTAMP = TAG + 8;
+  private static final int CELL_TYPE = TAG + 1;
+  // the operation type and the condition of a row in the request, with their tags
+  private static final int ROW_MESSAGE_FIELDS = 2 + 4;
+
+  private PlainBufferSize() {
+  }
+
+  /**
+   * @return the bytes the row change takes in a BatchWriteRow request, not counting the column
+   *         condition
+   */
+  public static long ofBatchWriteRow(RowChange change) {
+    long rowChange = of(change);
+    long row = ROW_MESSAGE_FIELDS + TAG + varintSize(rowChange) + rowChange;
+    return TAG + varintSize(row) + row;
+  }
+
+  /**
+   * @return the bytes of the row change encoded in PlainBuffer, with its header
+   */
+  public static long of(RowChange change) {
+    long size = HEADER + TAG;
+    for (PrimaryKeyColumn column : change.getPrimaryKey().getPrimaryKeyColumns()) {
+      size += cell(column.getNameRawData(), valueSize(column.getValue()), false, false);
+    }
+    if (change instanceof RowUpdateChange) {
+      if (!((RowUpdateChange) change).getColumnsToUpdate().isEmpty()) {
+        size += TAG;
+      }
+      for (Pair<Column, RowUpdateChange.Type> column : ((RowUpdateChange) change).getColumnsToUpdate()) {
+        boolean put = column.getSecond() == RowUpdateChange.Type.PUT
+            || column.getSecond() == RowUpdateChange.Type.INCREMENT;
+        Column c = column.getFirst();
+        size += cell(c.getNameRawData(), put ? valueSize(c.getValue()) : -1, !put || column.getSecond() == RowUpdateChange.Type.INCREMENT,
+            column.getSecond() != RowUpdateChange.Type.DELETE_ALL && c.hasSetTimestamp());
+      }
+    } else if (change instanceof RowPutChange) {
+      if (!((RowPutChange) change).getColumnsToPut().isEmpty()) {
+        size += TAG;
+      }
+      for (Column c : ((RowPutChange) change).getColumnsToPut()) {
+        size += cell(c.getNameRawData(), valueSize(c.getValue()), false, c.hasSetTimestamp());
+      }
+    } else if (change instanceof RowDeleteChange) {
+      // the delete marker of the row
+      size += TAG;
+    }
+    return size + CHECKSUM;
+  }
+
+  private static long cell(byte[] name, long valueSize, boolean type, boolean timestamp) {
+    long size = TAG + TAG + LENGTH + name.length;
+    if (valueSize >= 0) {
+      size += TAG + LENGTH + valueSize;
+    }
+    if (type) {
+      size += CELL_TYPE;
+    }
+    if (timestamp) {
+      size += TIMESTAMP;
+    }
+    return size + CHECKSUM;
+  }
+
+  private static long valueSize(PrimaryKeyValue value) {
+    if (value.isInfMin() || value.isInfMax() || value.isPlaceHolderForAutoIncr()) {
+      return 1;
+    }
+    switch (value.getType()) {
+    case STRING:
+      return 1 + LENGTH + value.asStringInBytes().length;
+    case BINARY:
+      return 1 + LENGTH + value.asBinary().length;
+    default:
+      return 1 + 8;
+    }
+  }
+
+  private static long valueSize(ColumnValue value) {
+    switch (value.getType()) {
+    case STRING:
+      return 1 + LENGTH + value.asStringInBytes().length;
+    case BINARY:
+      return 1 + LENGTH + value.asBinary().length;
+    case BOOLEAN:
+      return 1 + 1;
+    default:
+      return 1 + 8;
+    }
+  }
+
+  private static int varintSize(long value) {
+    int size = 1;
+    while ((value >>>= 7) != 0) {
+      size++;
+    }
+    return size;
+  }
+}
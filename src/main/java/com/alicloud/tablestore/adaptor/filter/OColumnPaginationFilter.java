@@ -1,5 +1,6 @@
 package com.alicloud.tablestore.adaptor.filter;
 
+import java.util.Arrays;
 
 public class OColumnPaginationFilter implements OFilter {
     private int limit = 1;
@@ -27,4 +28,18 @@ public class OColumnPaginationFilter implements OFilter {
     public byte[] getColumnOffset() {
         return columnOffset;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof OColumnPaginationFilter)) {
+            return false;
+        }
+        OColumnPaginationFilter that = (OColumnPaginationFilter) other;
+        return limit == that.limit && offset == that.offset && Arrays.equals(columnOffset, that.columnOffset);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * limit + offset) + Arrays.hashCode(columnOffset);
+    }
 }
@@ -3,6 +3,8 @@ package com.alicloud.tablestore.adaptor.filter;
 import com.alicloud.tablestore.adaptor.filter.OFilter;
 import org.apache.hadoop.hbase.filter.ColumnRangeFilter;
 
+import java.util.Arrays;
+
 
 public class OColumnRangeFilter implements OFilter {
     protected byte[] minColumn = null;
@@ -45,5 +47,23 @@ public class OColumnRangeFilter implements OFilter {
     public boolean getMaxColumnInclusive() {
         return this.maxColumnInclusive;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof OColumnRangeFilter)) {
+            return false;
+        }
+        OColumnRangeFilter that = (OColumnRangeFilter) other;
+        return minColumnInclusive == that.minColumnInclusive && maxColumnInclusive == that.maxColumnInclusive
+                && Arrays.equals(minColumn, that.minColumn) && Arrays.equals(maxColumn, that.maxColumn);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Arrays.hashCode(minColumn);
+        hash = 31 * hash + Arrays.hashCode(maxColumn);
+        hash = 31 * hash + (minColumnInclusive ? 1 : 0);
+        return 31 * hash + (maxColumnInclusive ? 1 : 0);
+    }
 }
 
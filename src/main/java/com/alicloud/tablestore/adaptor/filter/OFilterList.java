@@ -97,4 +97,18 @@ public class OFilterList implements OFilter {
   public void addFilter(OFilter filter) {
     this.filters.add(filter);
   }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof OFilterList)) {
+      return false;
+    }
+    OFilterList that = (OFilterList) other;
+    return operator == that.operator && filters.equals(that.filters);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * operator.hashCode() + filters.hashCode();
+  }
 }
@@ -1,5 +1,7 @@
 package com.alicloud.tablestore.adaptor.filter;
 
+import java.util.Arrays;
+
 public class OSingleColumnValueFilter implements OFilter {
 
   protected byte[] columnQualifier;
@@ -88,4 +90,24 @@ public class OSingleColumnValueFilter implements OFilter {
     this.latestVersionOnly = latestVersionOnly;
   }
 
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof OSingleColumnValueFilter)) {
+      return false;
+    }
+    OSingleColumnValueFilter that = (OSingleColumnValueFilter) other;
+    return compareOp == that.compareOp && filterIfMissing == that.filterIfMissing
+        && latestVersionOnly == that.latestVersionOnly && Arrays.equals(columnQualifier, that.columnQualifier)
+        && Arrays.equals(compareValue, that.compareValue);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = Arrays.hashCode(columnQualifier);
+    hash = 31 * hash + (compareOp == null ? 0 : compareOp.hashCode());
+    hash = 31 * hash + Arrays.hashCode(compareValue);
+    hash = 31 * hash + (filterIfMissing ? 1 : 0);
+    return 31 * hash + (latestVersionOnly ? 1 : 0);
+  }
+
 }
@@ -29,7 +29,7 @@ public class OColumnValue {
   };
 
   public static enum Type {
-    PUT, DELETE, DELETE_ALL
+    PUT, DELETE, DELETE_ALL, INCREMENT
   }
 
   private Type type;
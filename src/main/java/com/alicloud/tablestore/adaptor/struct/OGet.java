@@ -7,10 +7,13 @@
 package com.alicloud.tablestore.adaptor.struct;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.NavigableSet;
 import java.util.TreeSet;
 
+import com.alicloud.openservices.tablestore.model.MultiRowQueryCriteria;
 import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.openservices.tablestore.model.RowQueryCriteria;
 import com.alicloud.openservices.tablestore.model.SingleRowQueryCriteria;
 import com.alicloud.tablestore.adaptor.client.OTSConstants;
 import com.alicloud.tablestore.adaptor.client.util.Bytes;
@@ -177,19 +180,67 @@ public class OGet implements com.alicloud.tablestore.adaptor.struct.ORow, Compar
     return this.columnsToGet;
   }
 
+  /**
+   * Whether the other get reads the same columns, versions, time range and filter as this one, so
+   * that both rows could be fetched by one query criteria.
+   * @param other the get to compare with
+   * @return true if the two gets only differ in row key
+   */
+  public boolean isSameQuery(OGet other) {
+    if (this.maxVersions != other.maxVersions) {
+      return false;
+    }
+    if (this.tr.getMin() != other.tr.getMin() || this.tr.getMax() != other.tr.getMax()) {
+      return false;
+    }
+    if (this.columnsToGet.size() != other.columnsToGet.size()
+        || !this.columnsToGet.containsAll(other.columnsToGet)) {
+      return false;
+    }
+    return this.filter == null ? other.filter == null : this.filter.equals(other.filter);
+  }
+
+  /**
+   * Hash code consistent with {@link #isSameQuery(OGet)}.
+   * @return the hash code of the query part of this get
+   */
+  public int queryHashCode() {
+    int hash = maxVersions;
+    hash = 31 * hash + (int) (tr.getMin() ^ (tr.getMin() >>> 32));
+    hash = 31 * hash + (int) (tr.getMax() ^ (tr.getMax() >>> 32));
+    for (byte[] col : columnsToGet) {
+      hash = 31 * hash + Arrays.hashCode(col);
+    }
+    return 31 * hash + (filter == null ? 0 : filter.hashCode());
+  }
+
   /**
    * For core use. DO NOT USE.
    */
   public SingleRowQueryCriteria toOTSParameter(String tableName) {
     PrimaryKey primaryKey = OTSUtil.toPrimaryKey(getRow(), OTSConstants.PRIMARY_KEY_NAME);
     SingleRowQueryCriteria criteria = new SingleRowQueryCriteria(tableName, primaryKey);
+    fillQueryCriteria(criteria);
+    return criteria;
+  }
+
+  /**
+   * For core use. DO NOT USE. The returned criteria contains no row, rows sharing the same query
+   * (see {@link #isSameQuery(OGet)}) are added by the caller.
+   */
+  public MultiRowQueryCriteria toMultiRowQueryCriteria(String tableName) {
+    MultiRowQueryCriteria criteria = new MultiRowQueryCriteria(tableName);
+    fillQueryCriteria(criteria);
+    return criteria;
+  }
+
+  private void fillQueryCriteria(RowQueryCriteria criteria) {
     criteria.setMaxVersions(getMaxVersions());
     criteria.setTimeRange(OTSUtil.toTimeRange(getTimeRange()));
     for (byte[] col : columnsToGet) {
       criteria.addColumnsToGet(ColumnMapping.getTablestoreColumnName(col));
     }
     OTSUtil.handleFilterForRowQueryCriteria(criteria, getFilter());
-    return criteria;
   }
 
 }
@@ -8,6 +8,7 @@ package com.alicloud.tablestore.adaptor.struct;
 
 import java.util.*;
 
+import com.alicloud.openservices.tablestore.model.CapacityUnit;
 import com.alicloud.openservices.tablestore.model.Response;
 import com.alicloud.tablestore.adaptor.client.OTSConstants;
 import com.alicloud.tablestore.adaptor.client.util.Bytes;
@@ -51,6 +52,7 @@ public class OResult {
   // that this is where we cache row if we're ever asked for it.
   private transient byte[] row = null;
   private Response response = null;
+  private CapacityUnit consumedCapacity = null;
 
   /**
    * Instantiate a Result with the specified array of KeyValues.
@@ -290,6 +292,21 @@ public class OResult {
     return this.kvs == null ? 0 : this.kvs.length;
   }
 
+  /**
+   * @return the approximate number of bytes of the row key and the KeyValues
+   */
+  public long getSerializedSize() {
+    long size = this.row == null ? 0 : this.row.length;
+    if (this.kvs != null) {
+      for (OColumnValue kv : this.kvs) {
+        size += kv.getQualifier() == null ? 0 : kv.getQualifier().length;
+        size += kv.getValue() == null ? 0 : kv.getValue().length;
+        size += 8;
+      }
+    }
+    return size;
+  }
+
   /**
    * @return String
    */
@@ -366,4 +383,22 @@ public class OResult {
   public Response getOtsResult() {
     return response;
   }
+
+  /**
+   * Set the capacity units consumed to read this result. Only set if
+   * tablestore.client.capacity.attach.results is enabled.
+   * @param consumedCapacity the capacity units reported by the response
+   */
+  public void setConsumedCapacity(CapacityUnit consumedCapacity) {
+    this.consumedCapacity = consumedCapacity;
+  }
+
+  /**
+   * Get the capacity units consumed to read this result. For a scan, the capacity consumed by the
+   * whole response is attached to the last result of the response.
+   * @return the consumed capacity units, or null if not attached
+   */
+  public CapacityUnit getConsumedCapacity() {
+    return consumedCapacity;
+  }
 }
@@ -110,6 +110,8 @@ public class OScan {
     tr = new OTimeRange(ctr.getMin(), ctr.getMax());
     NavigableSet<byte[]> columns = scan.getColumnsToGet();
     this.columnsToGet.addAll(columns);
+    filter = scan.getFilter();
+    reversed = scan.getReversed();
   }
 
   /**
@@ -3,9 +3,11 @@ package com.alicloud.tablestore.adaptor.struct;
 
 import com.alicloud.openservices.tablestore.AsyncClientInterface;
 import com.alicloud.openservices.tablestore.core.utils.Preconditions;
+import com.alicloud.openservices.tablestore.model.Column;
 import com.alicloud.openservices.tablestore.model.ColumnValue;
 import com.alicloud.openservices.tablestore.model.GetRowResponse;
 import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.openservices.tablestore.model.ReturnType;
 import com.alicloud.openservices.tablestore.model.RowUpdateChange;
 import com.alicloud.tablestore.adaptor.client.OTSConstants;
 import com.alicloud.tablestore.adaptor.client.util.Bytes;
@@ -17,6 +19,8 @@ import java.io.IOException;
 import java.util.Arrays;
 
 public class OUpdate extends OMutation implements Comparable<ORow> {
+    private boolean returnResults = true;
+
     public OUpdate(byte[] row) {
         Preconditions.checkNotNull(row);
 
@@ -26,6 +30,32 @@ public class OUpdate extends OMutation implements Comparable<ORow> {
     public OUpdate(OUpdate updateToCopy) {
         this(updateToCopy.getRow());
         this.keyValues.addAll(updateToCopy.keyValues);
+        this.returnResults = updateToCopy.returnResults;
+    }
+
+    /**
+     * Atomically increments the integer column by the amount. The column is created with the amount
+     * if it does not exist, and it must not hold a binary value.
+     * @param qualifier column qualifier
+     * @param amount the amount to add, which may be negative
+     * @return this
+     */
+    public OUpdate increment(byte[] qualifier, long amount) {
+        keyValues.add(new OColumnValue(this.row, qualifier, OTSConstants.LATEST_TIMESTAMP,
+                OColumnValue.Type.INCREMENT, Bytes.toBytes(amount)));
+        return this;
+    }
+
+    /**
+     * Whether the values of the incremented columns after the update are returned.
+     */
+    public boolean isReturnResults() {
+        return returnResults;
+    }
+
+    public OUpdate setReturnResults(boolean returnResults) {
+        this.returnResults = returnResults;
+        return this;
     }
 
     public void add(OPut p) throws IOException {
@@ -67,6 +97,14 @@ public class OUpdate extends OMutation implements Comparable<ORow> {
                 case DELETE_ALL:
                     ruc.deleteColumns(ColumnMapping.getTablestoreColumnName(kv.getQualifier()));
                     break;
+                case INCREMENT:
+                    String columnName = ColumnMapping.getTablestoreColumnName(kv.getQualifier());
+                    ruc.increment(new Column(columnName, ColumnValue.fromLong(Bytes.toLong(kv.getValue()))));
+                    if (returnResults) {
+                        ruc.setReturnType(ReturnType.RT_AFTER_MODIFY);
+                        ruc.addReturnColumn(columnName);
+                    }
+                    break;
                 default:
                     throw new IllegalArgumentException("Unknown type: " + kv.getType().name());
             }
@@ -380,6 +380,47 @@ public class ElementConvertor {
         return out;
     }
 
+    /**
+     * Creates a {@link OUpdate} (Tablestore) incrementing the columns of an {@link Increment} (HBase).
+     *
+     * @param in the <code>Increment</code> to convert
+     *
+     * @return converted <code>OUpdate</code>
+     */
+    public static OUpdate toOtsIncrement(Increment in, ColumnMapping columnMapping) {
+        OUpdate out = new OUpdate(in.getRow());
+        validateMultiFamilySupport(in.getFamilyCellMap().keySet(), columnMapping, false);
+
+        checkIncrementSupport(in);
+
+        for (List<Cell> list : in.getFamilyCellMap().values()) {
+            for (Cell cell : list) {
+                out.increment(columnMapping.getTablestoreColumn(CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell)),
+                        Bytes.toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
+            }
+        }
+        out.setReturnResults(in.isReturnResults());
+        return out;
+    }
+
+    private static void checkIncrementSupport(Increment in) {
+        if (!in.getTimeRange().isAllTime()) {
+            throw new UnsupportedOperationException("Increment#setTimeRange() is not supported");
+        }
+        if (in.getACL() != null) {
+            throw new UnsupportedOperationException("Increment#setACL() is not supported");
+        }
+        if (in.getTTL() != Long.MAX_VALUE) {
+            throw new UnsupportedOperationException("Increment#setTTL() is not supported");
+        }
+        if (in.getDurability() != Durability.USE_DEFAULT) {
+            throw new UnsupportedOperationException("Increment#setDurability() is not supported");
+        }
+        if (!in.getAttributesMap().isEmpty()) {
+            throw new UnsupportedOperationException("Increment#setAttribute() is not supported");
+        }
+    }
+
     public static Condition toOtsCondition(byte[] family, byte[] qualifier,
                                            CompareFilter.CompareOp compareOp, byte[] value,
                                            ColumnMapping columnMapping)
@@ -468,8 +509,18 @@ public class ElementConvertor {
         if (in.getConsistency().equals(Consistency.TIMELINE)) {
             throw new UnsupportedOperationException("Scan#setConsistency(TIMELINE) is not support");
         }
-        if (!in.getAttributesMap().isEmpty()) {
-            throw new UnsupportedOperationException("Scan#setAttribute() is not support");
+        for (Map.Entry<String, byte[]> attribute : in.getAttributesMap().entrySet()) {
+            if (!attribute.getKey().equals(TablestoreTable.SCAN_ATTRIBUTE_PARALLEL)) {
+                throw new UnsupportedOperationException("Scan#setAttribute() is not support");
+            }
+            String mode = Bytes.toString(attribute.getValue());
+            if (!TablestoreTable.PARALLEL_ORDERED.equals(mode) && !TablestoreTable.PARALLEL_UNORDERED.equals(mode)) {
+                throw new UnsupportedOperationException("Scan#setAttribute(" + TablestoreTable.SCAN_ATTRIBUTE_PARALLEL
+                        + ") only supports " + TablestoreTable.PARALLEL_ORDERED + " and " + TablestoreTable.PARALLEL_UNORDERED);
+            }
+            if (in.isReversed()) {
+                throw new UnsupportedOperationException("Reversed scan can not be run in parallel");
+            }
         }
         if (in.getAllowPartialResults()) {
             throw new UnsupportedOperationException("Scan#setAllowPartialResults() is not support");
@@ -0,0 +1,124 @@
+package com.alicloud.tablestore.hbase;
+
+import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.util.Preconditions;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.security.User;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An {@link AsyncConnection} backed by the async client of Tablestore. All tables of the
+ * connection share one {@link OTSAdapter}, whose requests are completed by the callbacks of the
+ * Tablestore client instead of a thread per call.
+ */
+public class TablestoreAsyncConnection implements AsyncConnection {
+    private final Configuration hbaseConf;
+    private final TablestoreClientConf tablestoreConf;
+    private final OTSAdapter tablestoreAdaptor;
+    private volatile boolean closed = false;
+
+    public TablestoreAsyncConnection(Configuration conf) {
+        this.hbaseConf = conf;
+        this.tablestoreConf = TablestoreConnection.loadOtsConf(conf);
+        this.tablestoreAdaptor = OTSAdapter.getInstance(this.tablestoreConf);
+    }
+
+    /**
+     * Used by {@link ConnectionFactory#createAsyncConnection(Configuration)} with
+     * hbase.client.async.connection.impl. The registry is not needed by Tablestore.
+     */
+    public TablestoreAsyncConnection(Configuration conf, ConnectionRegistry registry, String clusterId, User user) {
+        this(conf);
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return this.hbaseConf;
+    }
+
+    public TablestoreClientConf getTablestoreConf() {
+        return tablestoreConf;
+    }
+
+    OTSAdapter getTablestoreAdaptor() {
+        return tablestoreAdaptor;
+    }
+
+    @Override
+    public AsyncTableRegionLocator getRegionLocator(TableName tableName) {
+        Preconditions.checkNotNull(tableName);
+        return new TablestoreAsyncRegionLocator(this, tableName);
+    }
+
+    @Override
+    public void clearRegionLocationCache() {
+        throw new UnsupportedOperationException("Tablestore does not support clearRegionLocationCache.");
+    }
+
+    @Override
+    public AsyncTableBuilder<AdvancedScanResultConsumer> getTableBuilder(TableName tableName) {
+        Preconditions.checkNotNull(tableName);
+        return new TablestoreAsyncTable.Builder(this, tableName);
+    }
+
+    @Override
+    public AsyncTableBuilder<ScanResultConsumer> getTableBuilder(TableName tableName, ExecutorService pool) {
+        throw new UnsupportedOperationException("Tablestore does not support getTableBuilder with pool.");
+    }
+
+    @Override
+    public AsyncAdminBuilder getAdminBuilder() {
+        throw new UnsupportedOperationException("Tablestore does not support getAdminBuilder.");
+    }
+
+    @Override
+    public AsyncAdminBuilder getAdminBuilder(ExecutorService pool) {
+        throw new UnsupportedOperationException("Tablestore does not support getAdminBuilder.");
+    }
+
+    @Override
+    public AsyncBufferedMutatorBuilder getBufferedMutatorBuilder(TableName tableName) {
+        throw new UnsupportedOperationException("Tablestore does not support getBufferedMutatorBuilder.");
+    }
+
+    @Override
+    public AsyncBufferedMutatorBuilder getBufferedMutatorBuilder(TableName tableName, ExecutorService pool) {
+        throw new UnsupportedOperationException("Tablestore does not support getBufferedMutatorBuilder.");
+    }
+
+    @Override
+    public CompletableFuture<Hbck> getHbck() {
+        CompletableFuture<Hbck> future = new CompletableFuture<Hbck>();
+        future.completeExceptionally(new UnsupportedOperationException("Tablestore does not support getHbck."));
+        return future;
+    }
+
+    @Override
+    public Hbck getHbck(ServerName masterServer) throws IOException {
+        throw new UnsupportedOperationException("Tablestore does not support getHbck.");
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.tablestoreAdaptor.close();
+    }
+}
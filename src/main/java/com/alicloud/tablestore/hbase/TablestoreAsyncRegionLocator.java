@@ -0,0 +1,128 @@
+package com.alicloud.tablestore.hbase;
+
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncTableRegionLocator;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * The async counterpart of {@link TablestoreRegionLocator}. Each shard of the table is reported as
+ * a region, and the shards are cached for {@link TablestoreRegionLocator#MAX_REGION_AGE_MILLIS}.
+ */
+public class TablestoreAsyncRegionLocator implements AsyncTableRegionLocator {
+    private final TableName tableName;
+    private final TablestoreAsyncConnection connection;
+    private final ServerName serverName;
+    private volatile long regionsFetchTimeMillis;
+    private volatile List<HRegionLocation> regions;
+
+    public TablestoreAsyncRegionLocator(TablestoreAsyncConnection connection, TableName tableName) {
+        this.tableName = tableName;
+        this.connection = connection;
+        this.serverName = ServerName.valueOf(connection.getTablestoreConf().getOTSEndpoint(), 0, 0);
+        this.regionsFetchTimeMillis = 0;
+    }
+
+    @Override
+    public TableName getName() {
+        return tableName;
+    }
+
+    @Override
+    public CompletableFuture<HRegionLocation> getRegionLocation(byte[] row, int replicaId, boolean reload) {
+        final byte[] key = row;
+        final CompletableFuture<HRegionLocation> future = new CompletableFuture<HRegionLocation>();
+        getRegions(reload).whenComplete(new BiConsumer<List<HRegionLocation>, Throwable>() {
+            @Override
+            public void accept(List<HRegionLocation> regions, Throwable ex) {
+                if (ex != null) {
+                    future.completeExceptionally(ex);
+                    return;
+                }
+                for (HRegionLocation region : regions) {
+                    if (region.getRegionInfo().containsRow(key)) {
+                        future.complete(region);
+                        return;
+                    }
+                }
+                future.completeExceptionally(new IOException("Region not found for row: " + Bytes.toStringBinary(key)));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<List<HRegionLocation>> getRegionLocations(byte[] row, boolean reload) {
+        final byte[] key = row;
+        final CompletableFuture<List<HRegionLocation>> future = new CompletableFuture<List<HRegionLocation>>();
+        getRegions(reload).whenComplete(new BiConsumer<List<HRegionLocation>, Throwable>() {
+            @Override
+            public void accept(List<HRegionLocation> regions, Throwable ex) {
+                if (ex != null) {
+                    future.completeExceptionally(ex);
+                    return;
+                }
+                List<HRegionLocation> result = new ArrayList<HRegionLocation>();
+                for (HRegionLocation region : regions) {
+                    if (region.getRegionInfo().containsRow(key)) {
+                        result.add(region);
+                    }
+                }
+                future.complete(result);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<List<HRegionLocation>> getAllRegionLocations() {
+        return getRegions(false);
+    }
+
+    @Override
+    public void clearRegionLocationCache() {
+        this.regions = null;
+    }
+
+    private CompletableFuture<List<HRegionLocation>> getRegions(boolean reload) {
+        List<HRegionLocation> cached = this.regions;
+        if (!reload && cached != null && regionsFetchTimeMillis + TablestoreRegionLocator.MAX_REGION_AGE_MILLIS > System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        final CompletableFuture<List<HRegionLocation>> future = new CompletableFuture<List<HRegionLocation>>();
+        connection.getTablestoreAdaptor().getAsyncInterface().describeTable(tableName.getNameAsString())
+                .whenComplete(new BiConsumer<OTableDescriptor, Throwable>() {
+                    @Override
+                    public void accept(OTableDescriptor oTableDescriptor, Throwable ex) {
+                        if (ex != null) {
+                            future.completeExceptionally(ex);
+                            return;
+                        }
+                        List<HRegionLocation> regions = new ArrayList<HRegionLocation>();
+                        try {
+                            for (int i = 0; i < oTableDescriptor.getStartKeys().length; i++) {
+                                HRegionInfo regionInfo = new HRegionInfo(tableName, oTableDescriptor.getStartKeys()[i], oTableDescriptor.getEndKeys()[i]);
+                                regions.add(new HRegionLocation(regionInfo, serverName, i));
+                            }
+                        } catch (IOException e) {
+                            future.completeExceptionally(e);
+                            return;
+                        }
+                        TablestoreAsyncRegionLocator.this.regions = regions;
+                        TablestoreAsyncRegionLocator.this.regionsFetchTimeMillis = System.currentTimeMillis();
+                        future.complete(regions);
+                    }
+                });
+        return future;
+    }
+}
@@ -0,0 +1,774 @@
+package com.alicloud.tablestore.hbase;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.Condition;
+import com.alicloud.tablestore.adaptor.client.AsyncCallOptions;
+import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.OTSAsyncInterface;
+import com.alicloud.tablestore.adaptor.struct.*;
+import com.google.protobuf.RpcChannel;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.filter.CompareFilter;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.io.TimeRange;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * An {@link AsyncTable} on Tablestore. The returned futures are completed by the callbacks of the
+ * Tablestore async client, so the calls never block the caller. The futures may be completed in the
+ * callback threads of the client, so the actions attached to them should not block either.
+ */
+public class TablestoreAsyncTable implements AsyncTable<AdvancedScanResultConsumer> {
+    private static final String CONDITION_CHECK_FAIL = "OTSConditionCheckFail";
+
+    private final TableName tableName;
+    private final String tableNameStr;
+    private final TablestoreAsyncConnection connection;
+    private final OTSAdapter tablestoreAdaptor;
+    private final OTSAsyncInterface tablestoreAsync;
+    // the pages of the async scans, each of which is limited by the scan timeout
+    private final OTSAsyncInterface tablestoreAsyncScan;
+    private final ColumnMapping tablestoreColumnMapping;
+    private final int scannerCaching;
+    private final long rpcTimeoutNs;
+    private final long readRpcTimeoutNs;
+    private final long writeRpcTimeoutNs;
+    private final long operationTimeoutNs;
+    private final long scanTimeoutNs;
+
+    TablestoreAsyncTable(TablestoreAsyncConnection connection, Builder builder) {
+        this.tableName = builder.tableName;
+        this.tableNameStr = tableName.getNameAsString();
+        this.connection = connection;
+        this.tablestoreAdaptor = connection.getTablestoreAdaptor();
+        this.tablestoreColumnMapping = new ColumnMapping(tableNameStr, connection.getConfiguration());
+        this.scannerCaching = 5000;
+        this.rpcTimeoutNs = builder.rpcTimeoutNs;
+        this.readRpcTimeoutNs = builder.readRpcTimeoutNs;
+        this.writeRpcTimeoutNs = builder.writeRpcTimeoutNs;
+        this.operationTimeoutNs = builder.operationTimeoutNs;
+        this.scanTimeoutNs = builder.scanTimeoutNs;
+        // the socket timeout of the client already bounds the requests
+        long socketTimeoutNs = TimeUnit.MILLISECONDS.toNanos(connection.getTablestoreConf().getOTSSocketTimeout());
+        AsyncCallOptions options = new AsyncCallOptions()
+                .setReadRpcTimeout(readRpcTimeoutNs < socketTimeoutNs ? toMillis(readRpcTimeoutNs) : Integer.MAX_VALUE)
+                .setWriteRpcTimeout(writeRpcTimeoutNs < socketTimeoutNs ? toMillis(writeRpcTimeoutNs) : Integer.MAX_VALUE)
+                .setMaxAttempts(builder.maxAttempts)
+                .setRetryPause(TimeUnit.NANOSECONDS.toMillis(builder.retryPauseNs))
+                .setRetryPauseForServerOverloaded(TimeUnit.NANOSECONDS.toMillis(builder.retryPauseForServerOverloadedNs));
+        OTSAsyncInterface async = tablestoreAdaptor.getAsyncInterface();
+        this.tablestoreAsync = async.withOptions(options.setOperationTimeout(toMillis(operationTimeoutNs)));
+        this.tablestoreAsyncScan = async.withOptions(options.setOperationTimeout(toMillis(scanTimeoutNs)));
+    }
+
+    /**
+     * @return the milliseconds of a timeout, Integer.MAX_VALUE if it is not positive or too long
+     */
+    private static int toMillis(long timeoutNs) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(timeoutNs);
+        return millis <= 0 || millis >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) millis;
+    }
+
+    @Override
+    public TableName getName() {
+        return tableName;
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return connection.getConfiguration();
+    }
+
+    @Override
+    public CompletableFuture<TableDescriptor> getDescriptor() {
+        final CompletableFuture<TableDescriptor> future = new CompletableFuture<TableDescriptor>();
+        tablestoreAsync.describeTable(tableNameStr).whenComplete(new BiConsumer<OTableDescriptor, Throwable>() {
+            @Override
+            public void accept(OTableDescriptor oTableDescriptor, Throwable ex) {
+                if (ex != null) {
+                    future.completeExceptionally(ex);
+                } else {
+                    future.complete(ElementConvertor.toHbaseTableDescriptor(oTableDescriptor, tablestoreColumnMapping));
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public AsyncTableRegionLocator getRegionLocator() {
+        return connection.getRegionLocator(tableName);
+    }
+
+    @Override
+    public long getRpcTimeout(TimeUnit unit) {
+        return unit.convert(rpcTimeoutNs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getReadRpcTimeout(TimeUnit unit) {
+        return unit.convert(readRpcTimeoutNs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getWriteRpcTimeout(TimeUnit unit) {
+        return unit.convert(writeRpcTimeoutNs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getOperationTimeout(TimeUnit unit) {
+        return unit.convert(operationTimeoutNs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getScanTimeout(TimeUnit unit) {
+        return unit.convert(scanTimeoutNs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public CompletableFuture<Result> get(Get get) {
+        final CompletableFuture<Result> future = new CompletableFuture<Result>();
+        OGet oget;
+        try {
+            oget = ElementConvertor.toOtsGet(get, this.tablestoreColumnMapping);
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+        tablestoreAsync.get(tableNameStr, oget).whenComplete(new BiConsumer<OResult, Throwable>() {
+            @Override
+            public void accept(OResult result, Throwable ex) {
+                if (ex != null) {
+                    future.completeExceptionally(ex);
+                } else {
+                    future.complete(ElementConvertor.toHBaseResult(result, tablestoreColumnMapping));
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Put put) {
+        OPut oput;
+        try {
+            oput = ElementConvertor.toOtsPut(put, this.tablestoreColumnMapping);
+        } catch (Throwable ex) {
+            return failedFuture(ex);
+        }
+        return tablestoreAsync.put(tableNameStr, oput);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Delete delete) {
+        ODelete odelete;
+        try {
+            odelete = ElementConvertor.toOtsDelete(delete, this.tablestoreColumnMapping);
+        } catch (Throwable ex) {
+            return failedFuture(ex);
+        }
+        return tablestoreAsync.delete(tableNameStr, odelete);
+    }
+
+    @Override
+    public CompletableFuture<Result> append(Append append) {
+        return failedFuture(new UnsupportedOperationException("append"));
+    }
+
+    @Override
+    public CompletableFuture<Result> increment(Increment increment) {
+        final CompletableFuture<Result> future = new CompletableFuture<Result>();
+        OUpdate oupdate;
+        try {
+            oupdate = ElementConvertor.toOtsIncrement(increment, this.tablestoreColumnMapping);
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+        tablestoreAsync.increment(tableNameStr, oupdate).whenComplete(new BiConsumer<OResult, Throwable>() {
+            @Override
+            public void accept(OResult result, Throwable ex) {
+                if (ex != null) {
+                    future.completeExceptionally(ex);
+                } else {
+                    future.complete(ElementConvertor.toHBaseResult(result, tablestoreColumnMapping));
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CheckAndMutateBuilder checkAndMutate(byte[] row, byte[] family) {
+        return new CheckAndMutateBuilderImpl(row, family);
+    }
+
+    @Override
+    public CheckAndMutateWithFilterBuilder checkAndMutate(byte[] row, Filter filter) {
+        throw new UnsupportedOperationException("checkAndMutate with filter");
+    }
+
+    @Override
+    public CompletableFuture<CheckAndMutateResult> checkAndMutate(CheckAndMutate checkAndMutate) {
+        if (checkAndMutate.hasFilter()) {
+            return failedFuture(new UnsupportedOperationException("checkAndMutate with filter"));
+        }
+        if (!checkAndMutate.getTimeRange().isAllTime()) {
+            return failedFuture(new UnsupportedOperationException("checkAndMutate with time range"));
+        }
+        CheckAndMutateBuilderImpl builder = new CheckAndMutateBuilderImpl(checkAndMutate.getRow(), checkAndMutate.getFamily());
+        builder.qualifier(checkAndMutate.getQualifier());
+        builder.ifMatches(checkAndMutate.getCompareOp(), checkAndMutate.getValue());
+        CompletableFuture<Boolean> succeed;
+        Row action = checkAndMutate.getAction();
+        if (action instanceof Put) {
+            succeed = builder.thenPut((Put) action);
+        } else if (action instanceof Delete) {
+            succeed = builder.thenDelete((Delete) action);
+        } else if (action instanceof RowMutations) {
+            succeed = builder.thenMutate((RowMutations) action);
+        } else {
+            return failedFuture(new UnsupportedOperationException("Unsupport type "
+                    + action.getClass().getName() + " in checkAndMutate operation."));
+        }
+        final CompletableFuture<CheckAndMutateResult> future = new CompletableFuture<CheckAndMutateResult>();
+        succeed.whenComplete(new BiConsumer<Boolean, Throwable>() {
+            @Override
+            public void accept(Boolean success, Throwable ex) {
+                if (ex != null) {
+                    future.completeExceptionally(ex);
+                } else {
+                    future.complete(new CheckAndMutateResult(success, null));
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public List<CompletableFuture<CheckAndMutateResult>> checkAndMutate(List<CheckAndMutate> checkAndMutates) {
+        List<CompletableFuture<CheckAndMutateResult>> futures = new ArrayList<CompletableFuture<CheckAndMutateResult>>(checkAndMutates.size());
+        for (CheckAndMutate checkAndMutate : checkAndMutates) {
+            futures.add(checkAndMutate(checkAndMutate));
+        }
+        return futures;
+    }
+
+    @Override
+    public CompletableFuture<Result> mutateRow(RowMutations mutation) {
+        OUpdate oupdate;
+        try {
+            oupdate = ElementConvertor.toOtsUpdate(mutation, this.tablestoreColumnMapping);
+        } catch (Throwable ex) {
+            return failedFuture(ex);
+        }
+        // returning empty result as TablestoreTable#mutateRow
+        return tablestoreAsync.update(tableNameStr, oupdate).thenApply(new Function<Void, Result>() {
+            @Override
+            public Result apply(Void aVoid) {
+                return Result.EMPTY_RESULT;
+            }
+        });
+    }
+
+    @Override
+    public void scan(Scan scan, AdvancedScanResultConsumer consumer) {
+        OScan oscan;
+        try {
+            oscan = toOtsScan(scan);
+        } catch (Throwable ex) {
+            consumer.onError(ex);
+            return;
+        }
+        new AsyncScanner(oscan, consumer).start();
+    }
+
+    @Override
+    public ResultScanner getScanner(Scan scan) {
+        try {
+            return new TablestoreTable.Scanner(TablestoreTable.getScanner(tablestoreAdaptor, tableNameStr, scan,
+                    toOtsScan(scan)), this.tablestoreColumnMapping);
+        } catch (java.io.IOException ex) {
+            // reported by next(), where the scanners of HBase report the errors of the scan
+            return new FailedScanner(ex);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Result>> scanAll(Scan scan) {
+        final CompletableFuture<List<Result>> future = new CompletableFuture<List<Result>>();
+        final List<Result> results = new ArrayList<Result>();
+        scan(scan, new AdvancedScanResultConsumer() {
+            @Override
+            public void onNext(Result[] rows, ScanController controller) {
+                results.addAll(Arrays.asList(rows));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(results);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public List<CompletableFuture<Result>> get(List<Get> gets) {
+        List<CompletableFuture<Result>> futures = new ArrayList<CompletableFuture<Result>>(gets.size());
+        for (Get get : gets) {
+            futures.add(get(get));
+        }
+        return futures;
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> put(List<Put> puts) {
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(puts.size());
+        for (Put put : puts) {
+            futures.add(put(put));
+        }
+        return futures;
+    }
+
+    @Override
+    public List<CompletableFuture<Void>> delete(List<Delete> deletes) {
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(deletes.size());
+        for (Delete delete : deletes) {
+            futures.add(delete(delete));
+        }
+        return futures;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<CompletableFuture<T>> batch(List<? extends Row> actions) {
+        List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(actions.size());
+        for (Row action : actions) {
+            CompletableFuture<?> future;
+            if (action instanceof Get) {
+                future = get((Get) action);
+            } else if (action instanceof Put) {
+                future = toEmptyResult(put((Put) action));
+            } else if (action instanceof Delete) {
+                future = toEmptyResult(delete((Delete) action));
+            } else if (action instanceof RowMutations) {
+                future = mutateRow((RowMutations) action);
+            } else {
+                future = failedFuture(new UnsupportedOperationException("Unsupport type "
+                        + action.getClass().getName() + " in batch operation."));
+            }
+            futures.add((CompletableFuture<T>) future);
+        }
+        return futures;
+    }
+
+    @Override
+    public <S, R> CompletableFuture<R> coprocessorService(Function<RpcChannel, S> stubMaker, ServiceCaller<S, R> callable, byte[] row) {
+        return failedFuture(new UnsupportedOperationException("coprocessorService"));
+    }
+
+    @Override
+    public <S, R> CoprocessorServiceBuilder<S, R> coprocessorService(Function<RpcChannel, S> stubMaker, ServiceCaller<S, R> callable, CoprocessorCallback<R> callback) {
+        throw new UnsupportedOperationException("coprocessorService");
+    }
+
+    /**
+     * Converts the scan of the caller as is: a copy would carry the isolation level as an attribute,
+     * which the conversion rejects, and the scan of the caller is not changed.
+     */
+    private OScan toOtsScan(Scan scan) throws java.io.IOException {
+        OScan oscan = ElementConvertor.toOtsScan(scan, this.tablestoreColumnMapping);
+        if (scan.getCaching() <= 0) {
+            oscan.setCaching(this.scannerCaching);
+        }
+        return oscan;
+    }
+
+    private static CompletableFuture<Result> toEmptyResult(CompletableFuture<Void> future) {
+        return future.thenApply(new Function<Void, Result>() {
+            @Override
+            public Result apply(Void aVoid) {
+                return Result.EMPTY_RESULT;
+            }
+        });
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable ex) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(ex);
+        return future;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            return ex.getCause();
+        }
+        return ex;
+    }
+
+    private static boolean isConditionCheckFail(Throwable ex) {
+        for (Throwable cause = unwrap(ex); cause != null; cause = cause.getCause()) {
+            if (cause instanceof TableStoreException
+                    && CONDITION_CHECK_FAIL.equals(((TableStoreException) cause).getErrorCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Completes with false instead of an error if the condition of the mutation is not met.
+     */
+    private static CompletableFuture<Boolean> toCheckResult(CompletableFuture<Void> mutation) {
+        final CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+        mutation.whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public void accept(Void aVoid, Throwable ex) {
+                if (ex == null) {
+                    future.complete(true);
+                } else if (isConditionCheckFail(ex)) {
+                    future.complete(false);
+                } else {
+                    future.completeExceptionally(unwrap(ex));
+                }
+            }
+        });
+        return future;
+    }
+
+    private final class CheckAndMutateBuilderImpl implements CheckAndMutateBuilder {
+        private final byte[] row;
+        private final byte[] family;
+        private byte[] qualifier;
+        private CompareFilter.CompareOp compareOp;
+        private byte[] value;
+
+        CheckAndMutateBuilderImpl(byte[] row, byte[] family) {
+            this.row = row;
+            this.family = family;
+        }
+
+        @Override
+        public CheckAndMutateBuilder qualifier(byte[] qualifier) {
+            this.qualifier = qualifier;
+            return this;
+        }
+
+        @Override
+        public CheckAndMutateBuilder timeRange(TimeRange timeRange) {
+            throw new UnsupportedOperationException("checkAndMutate with time range");
+        }
+
+        @Override
+        public CheckAndMutateBuilder ifNotExists() {
+            throw new UnsupportedOperationException("checkAndMutate with ifNotExists");
+        }
+
+        @Override
+        public CheckAndMutateBuilder ifMatches(CompareOperator compareOp, byte[] value) {
+            this.compareOp = CompareFilter.CompareOp.valueOf(compareOp.name());
+            this.value = value;
+            return this;
+        }
+
+        private Condition toCondition() {
+            if (compareOp == null) {
+                throw new IllegalArgumentException("The compare condition is not specified, call ifMatches first.");
+            }
+            return ElementConvertor.toOtsCondition(family, qualifier, compareOp, value, tablestoreColumnMapping);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> thenPut(Put put) {
+            if (!Arrays.equals(put.getRow(), row)) {
+                return failedFuture(new UnsupportedOperationException("CheckAndPut does not support check one row but put other row"));
+            }
+            OPut oput;
+            try {
+                oput = ElementConvertor.toOtsPut(put, tablestoreColumnMapping);
+                oput.setCondition(toCondition());
+            } catch (Throwable ex) {
+                return failedFuture(ex);
+            }
+            return toCheckResult(tablestoreAsync.put(tableNameStr, oput));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> thenDelete(Delete delete) {
+            if (!Arrays.equals(delete.getRow(), row)) {
+                return failedFuture(new UnsupportedOperationException("CheckAndDelete does not support check one row but delete other row"));
+            }
+            ODelete odelete;
+            try {
+                odelete = ElementConvertor.toOtsDelete(delete, tablestoreColumnMapping);
+                odelete.setCondition(toCondition());
+            } catch (Throwable ex) {
+                return failedFuture(ex);
+            }
+            return toCheckResult(tablestoreAsync.delete(tableNameStr, odelete));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> thenMutate(RowMutations mutation) {
+            if (!Arrays.equals(mutation.getRow(), row)) {
+                return failedFuture(new UnsupportedOperationException("CheckAndMutation does not support check one row but Mutate other row"));
+            }
+            OUpdate oupdate;
+            try {
+                oupdate = ElementConvertor.toOtsUpdate(mutation, tablestoreColumnMapping);
+                oupdate.setCondition(toCondition());
+            } catch (Throwable ex) {
+                return failedFuture(ex);
+            }
+            return toCheckResult(tablestoreAsync.update(tableNameStr, oupdate));
+        }
+    }
+
+    /**
+     * A scanner which could not be opened, and throws the error from next().
+     */
+    private static final class FailedScanner implements ResultScanner {
+        private final java.io.IOException error;
+
+        FailedScanner(java.io.IOException error) {
+            this.error = error;
+        }
+
+        @Override
+        public Result next() throws java.io.IOException {
+            throw error;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean renewLease() {
+            return false;
+        }
+
+        @Override
+        public ScanMetrics getScanMetrics() {
+            return null;
+        }
+    }
+
+    /**
+     * Drives a scan by chaining the async range reads: the next page is requested from the callback
+     * of the previous one, unless the consumer suspended or terminated the scan.
+     */
+    private final class AsyncScanner {
+        private final OScan scan;
+        private final int caching;
+        private final AdvancedScanResultConsumer consumer;
+
+        AsyncScanner(OScan scan, AdvancedScanResultConsumer consumer) {
+            this.scan = scan;
+            this.caching = scan.getCaching() > 0 ? scan.getCaching() : scannerCaching;
+            this.consumer = consumer;
+        }
+
+        void start() {
+            fetch();
+        }
+
+        private void fetch() {
+            final ByteArrayOutputStream nextRow = new ByteArrayOutputStream();
+            tablestoreAsyncScan.scan(tableNameStr, scan, caching, nextRow).whenComplete(new BiConsumer<List<OResult>, Throwable>() {
+                @Override
+                public void accept(List<OResult> results, Throwable ex) {
+                    if (ex != null) {
+                        consumer.onError(unwrap(ex));
+                        return;
+                    }
+                    onPage(results, nextRow.toByteArray());
+                }
+            });
+        }
+
+        private void onPage(List<OResult> results, byte[] nextRow) {
+            ScanControllerImpl controller = new ScanControllerImpl();
+            if (!results.isEmpty()) {
+                try {
+                    consumer.onNext(ElementConvertor.toHBaseResults(results, tablestoreColumnMapping), controller);
+                } catch (Throwable ex) {
+                    consumer.onError(ex);
+                    return;
+                }
+            }
+            if (controller.terminated || nextRow.length == 0) {
+                consumer.onComplete();
+                return;
+            }
+            scan.setStartRow(nextRow);
+            if (controller.leaveOnNext()) {
+                fetch();
+            }
+        }
+
+        private final class ScanControllerImpl implements AdvancedScanResultConsumer.ScanController,
+                AdvancedScanResultConsumer.ScanResumer {
+            private boolean inOnNext = true;
+            private boolean suspended = false;
+            private boolean resumed = false;
+            private volatile boolean terminated = false;
+
+            @Override
+            public synchronized AdvancedScanResultConsumer.ScanResumer suspend() {
+                checkInOnNext();
+                suspended = true;
+                return this;
+            }
+
+            @Override
+            public synchronized void terminate() {
+                checkInOnNext();
+                terminated = true;
+            }
+
+            @Override
+            public Optional<Cursor> cursor() {
+                return Optional.empty();
+            }
+
+            private void checkInOnNext() {
+                if (!inOnNext) {
+                    throw new IllegalStateException("The scan controller can only be used in onNext.");
+                }
+            }
+
+            /**
+             * @return whether the caller should fetch the next page, false if the scan is suspended
+             *         and the resumer will fetch it later.
+             */
+            synchronized boolean leaveOnNext() {
+                inOnNext = false;
+                return !suspended || resumed;
+            }
+
+            @Override
+            public void resume() {
+                synchronized (this) {
+                    if (resumed) {
+                        return;
+                    }
+                    resumed = true;
+                    if (inOnNext) {
+                        // the page will be fetched when onNext returns
+                        return;
+                    }
+                }
+                fetch();
+            }
+        }
+    }
+
+    /**
+     * Builder of {@link TablestoreAsyncTable}. The operation timeout limits each call of the table,
+     * and the scan timeout each page of its async scans. The rpc timeouts fail a request which takes
+     * longer, so it is retried, while the socket timeout of the client still applies. The max
+     * attempts and the retry pauses limit the retries decided by the retry policy of the adapter,
+     * which may give up earlier as by tablestore.client.retries.
+     */
+    static final class Builder implements AsyncTableBuilder<AdvancedScanResultConsumer> {
+        private final TablestoreAsyncConnection connection;
+        private final TableName tableName;
+        private long rpcTimeoutNs;
+        private long readRpcTimeoutNs;
+        private long writeRpcTimeoutNs;
+        private long operationTimeoutNs;
+        private long scanTimeoutNs;
+        private int maxAttempts = 0;
+        private long retryPauseNs = 0;
+        private long retryPauseForServerOverloadedNs = 0;
+
+        Builder(TablestoreAsyncConnection connection, TableName tableName) {
+            this.connection = connection;
+            this.tableName = tableName;
+            long operationTimeoutMs = connection.getTablestoreConf().getOperationTimeout();
+            long socketTimeoutMs = connection.getTablestoreConf().getOTSSocketTimeout();
+            this.operationTimeoutNs = TimeUnit.MILLISECONDS.toNanos(operationTimeoutMs);
+            this.scanTimeoutNs = this.operationTimeoutNs;
+            this.rpcTimeoutNs = TimeUnit.MILLISECONDS.toNanos(socketTimeoutMs);
+            this.readRpcTimeoutNs = this.rpcTimeoutNs;
+            this.writeRpcTimeoutNs = this.rpcTimeoutNs;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setOperationTimeout(long timeout, TimeUnit unit) {
+            this.operationTimeoutNs = unit.toNanos(timeout);
+            return this;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setScanTimeout(long timeout, TimeUnit unit) {
+            this.scanTimeoutNs = unit.toNanos(timeout);
+            return this;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setRpcTimeout(long timeout, TimeUnit unit) {
+            this.rpcTimeoutNs = unit.toNanos(timeout);
+            this.readRpcTimeoutNs = this.rpcTimeoutNs;
+            this.writeRpcTimeoutNs = this.rpcTimeoutNs;
+            return this;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setReadRpcTimeout(long timeout, TimeUnit unit) {
+            this.readRpcTimeoutNs = unit.toNanos(timeout);
+            return this;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setWriteRpcTimeout(long timeout, TimeUnit unit) {
+            this.writeRpcTimeoutNs = unit.toNanos(timeout);
+            return this;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setRetryPause(long pause, TimeUnit unit) {
+            this.retryPauseNs = unit.toNanos(pause);
+            return this;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setRetryPauseForServerOverloaded(long pause, TimeUnit unit) {
+            this.retryPauseForServerOverloadedNs = unit.toNanos(pause);
+            return this;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        @Override
+        public AsyncTableBuilder<AdvancedScanResultConsumer> setStartLogErrorsCnt(int startLogErrorsCnt) {
+            return this;
+        }
+
+        @Override
+        public AsyncTable<AdvancedScanResultConsumer> build() {
+            return new TablestoreAsyncTable(connection, this);
+        }
+    }
+}
@@ -1,41 +1,157 @@
 package com.alicloud.tablestore.hbase;
 
 
+import com.alicloud.tablestore.adaptor.client.MutationCoalescer;
 import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.OTSConstants;
+import com.alicloud.tablestore.adaptor.client.util.ThreadFactoryBuilder;
 import com.alicloud.tablestore.adaptor.struct.ODelete;
+import com.alicloud.tablestore.adaptor.struct.OMutation;
 import com.alicloud.tablestore.adaptor.struct.OPut;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Buffers the mutations of the producers, and writes them to Tablestore in the background. The
+ * buffer is flushed once it reaches hbase.client.write.buffer, or once its oldest mutation waited
+ * for the periodic flush timeout, while the producers keep appending to a new one. The flushes of a
+ * mutator are run one at a time.
+ * <p>
+ * To not serialize the producers on one lock, the buffer is striped: a producer appends to the
+ * stripe of its thread, and the buffered bytes are counted by a {@link LongAdder}. There are
+ * hbase.client.tablestore.write.buffer.stripes stripes, twice the processors by default. Only the
+ * flush task drains the stripes, and the producers only take the lock of the mutator to start a
+ * flush or to wait for one. So the mutations are only kept in order per producing thread, not across the
+ * threads sharing the mutator. If clearBufferOnFail is false, the failed mutations of a flush are
+ * appended to the first stripe again, and are written after the mutations buffered meanwhile.
+ * <p>
+ * The bytes buffered or being flushed are bounded by hbase.client.tablestore.write.buffer.max.pending,
+ * beyond which a producer is blocked until a flush completes, or fails at once if
+ * hbase.client.tablestore.write.buffer.block is false. The failures of the flushes are reported to
+ * the {@link BufferedMutator.ExceptionListener} of the params, and an exception thrown by the
+ * listener is thrown by the next call to mutate, flush or close.
+ * <p>
+ * If tablestore.client.write.coalescing is true, the mutations of a row in a flush are coalesced
+ * by {@link MutationCoalescer}, and written in rounds sorted by row key.
+ */
 public class TablestoreBufferedMutator implements BufferedMutator {
+    private static final Log LOG = LogFactory.getLog(TablestoreBufferedMutator.class);
+
+    private static final ExecutorService FLUSH_POOL = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("tablestore-mutator-flush-%d").setDaemon(true).build());
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("tablestore-mutator-timer-%d").setDaemon(true).build());
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private static final int MAX_STRIPES = 64;
+
+    private static final ExceptionListener DEFAULT_LISTENER = new ExceptionListener() {
+        @Override
+        public void onException(RetriesExhaustedWithDetailsException exception, BufferedMutator mutator)
+                throws RetriesExhaustedWithDetailsException {
+            throw exception;
+        }
+    };
+
     private final TableName tableName;
     private TablestoreConnection connection;
     private volatile long writeBufferSize;
-    private long currentWriteBufferSize;
-    private final ConcurrentLinkedQueue<Mutation> writeBuffer;
-    private ColumnMapping columnMapping;
+    private final long maxPendingSize;
+    private final boolean blockOnFull;
+    private final ColumnMapping columnMapping;
     private OTSAdapter adapter;
     private volatile boolean clearBufferOnFail;
+    private final boolean coalesce;
+    private final ExceptionListener listener;
+    private final ExecutorService pool;
+
+    /**
+     * The mutations appended by the threads mapped to one stripe.
+     */
+    private static final class Stripe {
+        // guarded by this
+        private List<Mutation> mutations = new ArrayList<Mutation>();
+    }
+
+    private final Stripe[] stripes;
+    private final LongAdder currentWriteBufferSize = new LongAdder();
+    private volatile long flushingSize = 0;
+    // when the oldest mutation of the buffer was added, or 0 if the buffer is empty
+    private final AtomicLong firstMutationNanos = new AtomicLong();
+    private volatile boolean flushing = false;
+    private volatile boolean closed = false;
+    private volatile IOException pendingError = null;
+
+    // guards the fields below, and the start of the flushes
+    private final Object lock = new Object();
+    // whether the next flush takes the buffer even if it is not full
+    private boolean flushRequested = false;
+    // the number of the buffers taken and flushed
+    private long taken = 0;
+    private long flushed = 0;
+
+    private long periodicFlushTimeoutMs = 0;
+    private long periodicFlushTimerTickMs = MIN_WRITE_BUFFER_PERIODIC_FLUSH_TIMERTICK_MS;
+    private ScheduledFuture<?> periodicFlushTask = null;
 
     public TablestoreBufferedMutator(TablestoreConnection connection, TableName tableName) {
-        this.tableName = tableName;
+        this(connection, new BufferedMutatorParams(tableName));
+    }
+
+    public TablestoreBufferedMutator(TablestoreConnection connection, BufferedMutatorParams params) {
+        this.tableName = params.getTableName();
         this.connection = connection;
-        writeBuffer = new ConcurrentLinkedQueue<Mutation>();
-        this.writeBufferSize = this.connection.getConfiguration().getLong("hbase.client.write.buffer", 2097152);
-        this.currentWriteBufferSize = 0;
-        this.columnMapping = new ColumnMapping(tableName.getNameAsString(), this.connection.getConfiguration());
+        Configuration conf = this.connection.getConfiguration();
+        this.writeBufferSize = params.getWriteBufferSize() > 0 ? params.getWriteBufferSize()
+                : conf.getLong("hbase.client.write.buffer", 2097152);
+        this.maxPendingSize = conf.getLong(OTSConstants.WRITE_BUFFER_MAX_PENDING_CONF_KEY, 4 * this.writeBufferSize);
+        this.blockOnFull = conf.getBoolean(OTSConstants.WRITE_BUFFER_BLOCK_CONF_KEY, true);
+        this.columnMapping = new ColumnMapping(tableName.getNameAsString(), conf);
         this.adapter = OTSAdapter.getInstance(this.connection.getTablestoreConf());
         this.clearBufferOnFail = true;
+        this.coalesce = this.connection.getTablestoreConf().isWriteCoalescingEnabled();
+        this.listener = params.getListener() != null ? params.getListener() : DEFAULT_LISTENER;
+        this.pool = params.getPool() != null ? params.getPool() : FLUSH_POOL;
+        int stripes = conf.getInt(OTSConstants.WRITE_BUFFER_STRIPES_CONF_KEY, 2 * Runtime.getRuntime().availableProcessors());
+        int stripeCount = 1;
+        while (stripeCount < Math.min(MAX_STRIPES, stripes)) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        long timeoutMs = params.getWriteBufferPeriodicFlushTimeoutMs() >= 0 ? params.getWriteBufferPeriodicFlushTimeoutMs()
+                : conf.getLong("hbase.client.write.buffer.periodicflush.timeout.ms", 0);
+        long timerTickMs = params.getWriteBufferPeriodicFlushTimerTickMs() >= 0 ? params.getWriteBufferPeriodicFlushTimerTickMs()
+                : conf.getLong("hbase.client.write.buffer.periodicflush.timertick.ms", 1000);
+        setWriteBufferPeriodicFlush(timeoutMs, timerTickMs);
     }
 
     @Override
@@ -55,102 +171,368 @@ public class TablestoreBufferedMutator implements BufferedMutator {
 
     @Override
     public void mutate(List<? extends Mutation> list) throws IOException {
-        List<OPut> flushPuts = new ArrayList<OPut>();
-        List<ODelete> flushDeletes = new ArrayList<ODelete>();
-
+        long size = 0;
         for (Mutation mutation : list) {
-            writeBuffer.add(mutation);
-            currentWriteBufferSize += mutation.heapSize();
+            size += mutation.heapSize();
+        }
+
+        if (closed) {
+            throw new IllegalStateException("Cannot put when the BufferedMutator is closed.");
+        }
+        if (pendingError != null) {
+            synchronized (lock) {
+                throwPendingError();
+            }
+        }
+        if (pendingSize() + size > maxPendingSize) {
+            waitForSpace(size);
         }
-        if (currentWriteBufferSize >= writeBufferSize) {
-            extractOMutation(flushPuts, flushDeletes);
+        append(stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)], list, size);
+        if (!flushing && currentWriteBufferSize.sum() >= writeBufferSize) {
+            synchronized (lock) {
+                startFlush();
+            }
         }
+    }
 
-        flush(flushPuts, flushDeletes);
+    private long pendingSize() {
+        return currentWriteBufferSize.sum() + flushingSize;
     }
 
-    private void extractOMutation(List<OPut> flushPuts, List<ODelete> flushDeletes) {
-        for (Mutation mutation : writeBuffer) {
-            if (mutation instanceof Put) {
-                flushPuts.add(ElementConvertor.toOtsPut((Put)mutation, this.columnMapping));
-            } else if (mutation instanceof Delete) {
-                flushDeletes.add(ElementConvertor.toOtsDelete((Delete)mutation, this.columnMapping));
+    private void append(Stripe stripe, List<? extends Mutation> mutations, long size) {
+        synchronized (stripe) {
+            stripe.mutations.addAll(mutations);
+            currentWriteBufferSize.add(size);
+        }
+        if (firstMutationNanos.get() == 0) {
+            firstMutationNanos.compareAndSet(0, System.nanoTime());
+        }
+    }
+
+    /**
+     * Blocks until the pending bytes leave room for the mutations, or fails if the producers must
+     * not be blocked.
+     */
+    private void waitForSpace(long size) throws IOException {
+        synchronized (lock) {
+            // a single list larger than the limit is still accepted once nothing else is pending
+            while (pendingSize() > 0 && pendingSize() + size > maxPendingSize) {
+                if (!blockOnFull) {
+                    throw new IOException("The write buffer of " + tableName + " is full, "
+                            + pendingSize() + " bytes are pending");
+                }
+                flushRequested = true;
+                startFlush();
+                waitForFlush();
+                throwPendingError();
             }
         }
-        writeBuffer.clear();
-        currentWriteBufferSize = 0;
     }
 
-    private void flush(List<OPut> flushPuts, List<ODelete> flushDeletes) throws IOException {
-        if (!flushPuts.isEmpty()) {
-            commitPuts(flushPuts);
+    /**
+     * Starts the flush task unless it is running already, in which case it takes the buffer once
+     * it is done with the previous one. Must be called with the lock held.
+     */
+    private void startFlush() {
+        if (flushing || currentWriteBufferSize.sum() == 0) {
+            return;
         }
-        if (!flushDeletes.isEmpty()) {
-            commitDeletes(flushDeletes);
+        flushing = true;
+        try {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flushInBackground();
+                }
+            });
+        } catch (RuntimeException e) {
+            flushing = false;
+            throw e;
         }
     }
 
-    @Override
-    public void close() throws IOException {
-        if (this.adapter != null) {
-            this.adapter.close();
-            this.adapter = null;
+    private void flushInBackground() {
+        while (true) {
+            List<Mutation> mutations;
+            synchronized (lock) {
+                long bufferSize = currentWriteBufferSize.sum();
+                if (bufferSize == 0 || (!flushRequested && bufferSize < writeBufferSize)) {
+                    flushing = false;
+                    // a producer may have filled the buffer since, and seen this flush still running
+                    if (currentWriteBufferSize.sum() < writeBufferSize) {
+                        lock.notifyAll();
+                        return;
+                    }
+                    flushing = true;
+                    continue;
+                }
+                mutations = drain();
+                flushRequested = false;
+                taken++;
+            }
+            try {
+                commit(mutations);
+            } catch (RetriesExhaustedWithDetailsException e) {
+                try {
+                    listener.onException(e, this);
+                } catch (RetriesExhaustedWithDetailsException thrown) {
+                    synchronized (lock) {
+                        pendingError = thrown;
+                    }
+                } catch (RuntimeException thrown) {
+                    LOG.warn("Failed notifying the exception listener of " + tableName, thrown);
+                }
+            } catch (Throwable e) {
+                LOG.error("Failed flushing the write buffer of " + tableName, e);
+                synchronized (lock) {
+                    pendingError = e instanceof IOException ? (IOException) e : new IOException(e);
+                }
+            } finally {
+                synchronized (lock) {
+                    flushingSize = 0;
+                    flushed++;
+                    lock.notifyAll();
+                }
+            }
         }
     }
 
-    @Override
-    public void flush() throws IOException {
-        List<OPut> flushPuts = new ArrayList<OPut>();
-        List<ODelete> flushDeletes = new ArrayList<ODelete>();
-
-        synchronized (writeBuffer) {
-            extractOMutation(flushPuts, flushDeletes);
+    /**
+     * Takes the mutations of all the stripes. Only called by the flush task.
+     */
+    private List<Mutation> drain() {
+        firstMutationNanos.set(0);
+        List<Mutation> mutations = new ArrayList<Mutation>();
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            List<Mutation> taken;
+            synchronized (stripe) {
+                if (stripe.mutations.isEmpty()) {
+                    continue;
+                }
+                taken = stripe.mutations;
+                stripe.mutations = new ArrayList<Mutation>();
+                for (Mutation mutation : taken) {
+                    size += mutation.heapSize();
+                }
+                currentWriteBufferSize.add(-size);
+                flushingSize += size;
+                size = 0;
+            }
+            mutations.addAll(taken);
         }
-        flush(flushPuts, flushDeletes);
+        return mutations;
     }
 
-    @Override
-    public long getWriteBufferSize() {
-        return writeBufferSize;
+    private void waitForFlush() throws InterruptedIOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the write buffer of " + tableName);
+        }
     }
 
-    public void setClearBufferOnFail(boolean clearBufferOnFail) {
-        this.clearBufferOnFail = clearBufferOnFail;
+    private void throwPendingError() throws IOException {
+        if (pendingError != null) {
+            IOException error = pendingError;
+            pendingError = null;
+            throw error;
+        }
     }
 
-    private void commitPuts(final List<OPut> puts) throws IOException {
-        boolean flushSuccessfully = false;
-        try {
-            this.adapter.putMultiple(tableName.getNameAsString(), puts);
-            flushSuccessfully = true;
-        } finally {
-            if (!flushSuccessfully && !clearBufferOnFail) {
-                List<Put> hputs = ElementConvertor.toHBasePuts(puts, this.columnMapping);
-                synchronized (writeBuffer) {
-                    for (Put put : hputs) {
-                        writeBuffer.add(put);
-                        currentWriteBufferSize += put.heapSize();
+    private void commit(List<Mutation> mutations) throws RetriesExhaustedWithDetailsException {
+        List<Throwable> exceptions = new ArrayList<Throwable>();
+        List<Row> actions = new ArrayList<Row>();
+        if (coalesce) {
+            List<Mutation> sources = new ArrayList<Mutation>();
+            List<OMutation> converted = new ArrayList<OMutation>();
+            for (Mutation mutation : mutations) {
+                if (mutation instanceof Put) {
+                    sources.add(mutation);
+                    converted.add(ElementConvertor.toOtsPut((Put)mutation, this.columnMapping));
+                } else if (mutation instanceof Delete) {
+                    sources.add(mutation);
+                    converted.add(ElementConvertor.toOtsDelete((Delete)mutation, this.columnMapping));
+                }
+            }
+            // each round has a row at most once, and is written after the rounds before it
+            for (List<MutationCoalescer.Entry> round : MutationCoalescer.coalesce(converted)) {
+                List<Mutation> putMutations = new ArrayList<Mutation>();
+                List<OPut> flushPuts = new ArrayList<OPut>();
+                List<Mutation> deleteMutations = new ArrayList<Mutation>();
+                List<ODelete> flushDeletes = new ArrayList<ODelete>();
+                for (MutationCoalescer.Entry entry : round) {
+                    List<Mutation> merged = entry.getMutation() instanceof OPut ? putMutations : deleteMutations;
+                    for (int index : entry.getIndexes()) {
+                        merged.add(sources.get(index));
+                    }
+                    if (entry.getMutation() instanceof OPut) {
+                        flushPuts.add((OPut) entry.getMutation());
+                    } else {
+                        flushDeletes.add((ODelete) entry.getMutation());
                     }
                 }
+                write(putMutations, flushPuts, deleteMutations, flushDeletes, exceptions, actions);
+            }
+        } else {
+            List<Mutation> putMutations = new ArrayList<Mutation>();
+            List<OPut> flushPuts = new ArrayList<OPut>();
+            List<Mutation> deleteMutations = new ArrayList<Mutation>();
+            List<ODelete> flushDeletes = new ArrayList<ODelete>();
+            for (Mutation mutation : mutations) {
+                if (mutation instanceof Put) {
+                    putMutations.add(mutation);
+                    flushPuts.add(ElementConvertor.toOtsPut((Put)mutation, this.columnMapping));
+                } else if (mutation instanceof Delete) {
+                    deleteMutations.add(mutation);
+                    flushDeletes.add(ElementConvertor.toOtsDelete((Delete)mutation, this.columnMapping));
+                }
+            }
+            write(putMutations, flushPuts, deleteMutations, flushDeletes, exceptions, actions);
+        }
+
+        if (!exceptions.isEmpty()) {
+            List<String> hosts = new ArrayList<String>();
+            String host = String.valueOf(connection.getTablestoreConf().getOTSEndpoint());
+            for (int i = 0; i < exceptions.size(); i++) {
+                hosts.add(host);
+            }
+            throw new RetriesExhaustedWithDetailsException(exceptions, actions, hosts);
+        }
+    }
+
+    /**
+     * Writes the puts and the deletes, and collects the mutations they were made of if they fail.
+     */
+    private void write(List<Mutation> putMutations, List<OPut> flushPuts, List<Mutation> deleteMutations,
+                       List<ODelete> flushDeletes, List<Throwable> exceptions, List<Row> actions) {
+        if (!flushPuts.isEmpty()) {
+            try {
+                this.adapter.putMultiple(tableName.getNameAsString(), flushPuts);
+            } catch (IOException e) {
+                failed(putMutations, e, exceptions, actions);
+            }
+        }
+        if (!flushDeletes.isEmpty()) {
+            try {
+                this.adapter.deleteMultiple(tableName.getNameAsString(), flushDeletes);
+            } catch (IOException e) {
+                failed(deleteMutations, e, exceptions, actions);
             }
         }
     }
 
-    private void commitDeletes(final List<ODelete> deletes) throws IOException {
-        boolean flushSuccessfully = false;
+    private void failed(List<Mutation> mutations, IOException e, List<Throwable> exceptions, List<Row> actions) {
+        for (Mutation mutation : mutations) {
+            exceptions.add(e);
+            actions.add(mutation);
+        }
+        if (!clearBufferOnFail) {
+            long size = 0;
+            for (Mutation mutation : mutations) {
+                size += mutation.heapSize();
+            }
+            append(stripes[0], mutations, size);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed || adapter == null) {
+                return;
+            }
+            if (periodicFlushTask != null) {
+                periodicFlushTask.cancel(false);
+                periodicFlushTask = null;
+            }
+        }
         try {
-            this.adapter.deleteMultiple(tableName.getNameAsString(), deletes);
-            flushSuccessfully = true;
+            flush();
         } finally {
-            if (!flushSuccessfully && !clearBufferOnFail) {
-                List<Delete> hDeletes = ElementConvertor.toHBaseDeletes(deletes, this.columnMapping);
-                synchronized (writeBuffer) {
-                    for (Delete delete : hDeletes) {
-                        writeBuffer.add(delete);
-                        currentWriteBufferSize += delete.heapSize();
+            synchronized (lock) {
+                closed = true;
+            }
+            if (this.adapter != null) {
+                this.adapter.close();
+                this.adapter = null;
+            }
+        }
+    }
+
+    /**
+     * Flushes all the mutations buffered so far, and waits for them to be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            long target = taken + (currentWriteBufferSize.sum() == 0 ? 0 : 1);
+            flushRequested = true;
+            startFlush();
+            while (flushed < target) {
+                waitForFlush();
+            }
+            throwPendingError();
+        }
+    }
+
+    @Override
+    public void setWriteBufferPeriodicFlush(long timeoutMs, long timerTickMs) {
+        synchronized (lock) {
+            if (periodicFlushTask != null) {
+                periodicFlushTask.cancel(false);
+                periodicFlushTask = null;
+            }
+            periodicFlushTimeoutMs = Math.max(0, timeoutMs);
+            periodicFlushTimerTickMs = Math.max(MIN_WRITE_BUFFER_PERIODIC_FLUSH_TIMERTICK_MS, timerTickMs);
+            if (periodicFlushTimeoutMs > 0 && !closed) {
+                periodicFlushTask = TIMER.scheduleAtFixedRate(new Runnable() {
+                    @Override
+                    public void run() {
+                        periodicFlush();
                     }
-                }
+                }, periodicFlushTimerTickMs, periodicFlushTimerTickMs, TimeUnit.MILLISECONDS);
             }
         }
     }
+
+    private void periodicFlush() {
+        synchronized (lock) {
+            long firstNanos = firstMutationNanos.get();
+            if (firstNanos != 0 && System.nanoTime() - firstNanos
+                    >= TimeUnit.MILLISECONDS.toNanos(periodicFlushTimeoutMs)) {
+                flushRequested = true;
+                startFlush();
+            }
+        }
+    }
+
+    @Override
+    public void disableWriteBufferPeriodicFlush() {
+        setWriteBufferPeriodicFlush(0, MIN_WRITE_BUFFER_PERIODIC_FLUSH_TIMERTICK_MS);
+    }
+
+    @Override
+    public long getWriteBufferPeriodicFlushTimeoutMs() {
+        synchronized (lock) {
+            return periodicFlushTimeoutMs;
+        }
+    }
+
+    @Override
+    public long getWriteBufferPeriodicFlushTimerTickMs() {
+        synchronized (lock) {
+            return periodicFlushTimerTickMs;
+        }
+    }
+
+    @Override
+    public long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setClearBufferOnFail(boolean clearBufferOnFail) {
+        this.clearBufferOnFail = clearBufferOnFail;
+    }
 }
@@ -84,8 +84,8 @@ public class TablestoreConnection implements Connection {
     @Override
     public BufferedMutator getBufferedMutator(BufferedMutatorParams params) throws IOException {
         Preconditions.checkNotNull(params);
-        TableName tableName = params.getTableName();
-        return new TablestoreBufferedMutator(this, tableName);
+        Preconditions.checkNotNull(params.getTableName());
+        return new TablestoreBufferedMutator(this, params);
     }
 
     @Override
@@ -124,7 +124,7 @@ public class TablestoreConnection implements Connection {
         return this.aborted;
     }
 
-    private TablestoreClientConf loadOtsConf(Configuration conf) {
+    static TablestoreClientConf loadOtsConf(Configuration conf) {
         synchronized (globalTablestoreConfs) {
             TablestoreClientConf existedTablestoreConf = globalTablestoreConfs.get(conf);
             if (existedTablestoreConf == null) {
@@ -139,12 +139,49 @@ public class TablestoreConnection implements Connection {
                  tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CONNECTION_TIMEOUT);
                  tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_OPERATION_TIMEOUT);
                  tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_RETRIES);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_RETRY_POLICY);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_RETRY_BASE_DELAY_MS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_RETRY_MAX_DELAY_MS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_RETRY_BUDGET_RATIO);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_RETRY_BUDGET_MIN_PER_SECOND);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_MAX_INFLIGHT_BATCH_WRITES);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_SCANNER_PREFETCH_DEPTH);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_SCANNER_PREFETCH_MAX_BYTES);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_SCANNER_PARALLELISM);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_GET_COALESCING_WINDOW_MICROS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_GET_COALESCING_MAX_ROWS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_ROW_CACHE_TABLES);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_ROW_CACHE_SIZE);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_ROW_CACHE_TTL_MS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_WRITE_COALESCING);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_WRITE_PARTITION_GROUPING);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_SHARD_SPLITS_CACHE_TTL_MS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_FACTORY);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_METRICS_ENABLED);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_METRICS_REPORTERS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CAPACITY_ATTACH_RESULTS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CAPACITY_LIMIT_READ_UNITS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CAPACITY_LIMIT_WRITE_UNITS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CAPACITY_LIMIT_ADAPTIVE);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MAX);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CONCURRENCY_LIMIT_MIN);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CONCURRENCY_LIMIT_LATENCY_THRESHOLD_MS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_CONCURRENCY_LIMIT_QUEUE_TIMEOUT_MS);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_HEDGE_PERCENTILE);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_HEDGE_BUDGET_RATIO);
+                 tablestoreConfKeys.add(TablestoreClientConf.TABLESTORE_CLIENT_HEDGE_MIN_DELAY_MS);
                 // Load settings
                 for (String key :  tablestoreConfKeys) {
                     if (conf.get(key) != null) {
                         existedTablestoreConf.setValue(key, conf.get(key));
                     }
                 }
+                // the settings of the client factory
+                for (Map.Entry<String, String> entry : conf) {
+                    if (entry.getKey().startsWith(TablestoreClientConf.TABLESTORE_CLIENT_FACTORY + ".")) {
+                        existedTablestoreConf.setValue(entry.getKey(), conf.get(entry.getKey()));
+                    }
+                }
                 globalTablestoreConfs.put(conf, existedTablestoreConf);
             }
             return existedTablestoreConf;
@@ -18,6 +18,14 @@ import java.io.IOException;
 import java.util.*;
 
 public class TablestoreTable implements Table {
+    /**
+     * Set this attribute of a {@link Scan} to {@link #PARALLEL_ORDERED} or {@link #PARALLEL_UNORDERED} to scan the
+     * shards of the table concurrently. The rows are returned in the order of the row keys in the ordered mode, and
+     * as soon as they are read in the unordered mode.
+     */
+    public static final String SCAN_ATTRIBUTE_PARALLEL = "tablestore.scan.parallel";
+    public static final String PARALLEL_ORDERED = "ordered";
+    public static final String PARALLEL_UNORDERED = "unordered";
 
     private final TableName tableName;
     private final String tableNameStr;
@@ -269,10 +277,20 @@ public class TablestoreTable implements Table {
         }
         OScan oscan = ElementConvertor.toOtsScan(scan,
                 this.tablestoreColumnMapping);
-        OResultScanner oScanner = this.tablestoreAdaptor.getScanner(tableNameStr, oscan);
+        OResultScanner oScanner = getScanner(this.tablestoreAdaptor, tableNameStr, scan, oscan);
         return new Scanner(oScanner, this.tablestoreColumnMapping);
     }
 
+    static OResultScanner getScanner(OTSAdapter tablestoreAdaptor, String tableName, Scan scan, OScan oscan)
+            throws IOException {
+        byte[] parallel = scan.getAttribute(SCAN_ATTRIBUTE_PARALLEL);
+        if (parallel == null) {
+            return tablestoreAdaptor.getScanner(tableName, oscan);
+        }
+        boolean ordered = PARALLEL_ORDERED.equals(org.apache.hadoop.hbase.util.Bytes.toString(parallel));
+        return tablestoreAdaptor.getParallelScanner(tableName, oscan, ordered);
+    }
+
     @Override
     public ResultScanner getScanner(byte[] family) throws IOException {
         Scan scan = new Scan();
@@ -307,18 +325,26 @@ public class TablestoreTable implements Table {
 
     @Override
     public Result increment(Increment increment) throws IOException {
-        throw new UnsupportedOperationException("increment");
+        OUpdate oupdate = ElementConvertor.toOtsIncrement(increment, this.tablestoreColumnMapping);
+        OResult result = this.tablestoreAdaptor.increment(tableNameStr, oupdate);
+        return ElementConvertor.toHBaseResult(result, this.tablestoreColumnMapping);
     }
 
     @Override
     public long incrementColumnValue(byte[] row, byte[] family, byte[] qualifier,
                                      long amount) throws IOException {
-        throw new UnsupportedOperationException("incrementColumnValue");
+        Increment increment = new Increment(row);
+        increment.addColumn(family, qualifier, amount);
+        Result result = increment(increment);
+        return org.apache.hadoop.hbase.util.Bytes.toLong(result.getValue(family, qualifier));
     }
 
     @Override
     public long incrementColumnValue(byte[] row, byte[] family, byte[] qualifier, long amount, Durability durability) throws IOException {
-        throw new UnsupportedOperationException("incrementColumnValue");
+        if (durability != Durability.USE_DEFAULT) {
+            throw new UnsupportedOperationException("incrementColumnValue with durability");
+        }
+        return incrementColumnValue(row, family, qualifier, amount);
     }
 
     @Override
@@ -444,7 +470,7 @@ public class TablestoreTable implements Table {
         return true;
     }
 
-    private static class Scanner extends AbstractClientScanner {
+    static class Scanner extends AbstractClientScanner {
         private final OResultScanner tscanner;
         private ColumnMapping tablestoreColumnMapping;
 
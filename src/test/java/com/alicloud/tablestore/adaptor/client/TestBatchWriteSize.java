@@ -0,0 +1,203 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.core.protocol.PlainBufferBuilder;
+import com.alicloud.openservices.tablestore.model.BatchWriteRowRequest;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.model.RowDeleteChange;
+import com.alicloud.openservices.tablestore.model.RowPutChange;
+import com.alicloud.openservices.tablestore.model.RowUpdateChange;
+import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+import com.alicloud.tablestore.adaptor.client.util.PlainBufferSize;
+import com.alicloud.tablestore.adaptor.struct.ODelete;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.adaptor.struct.ORow;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+
+public class TestBatchWriteSize {
+  private static final String TABLE = "table";
+  private static final byte[] ROW = Bytes.toBytes("row");
+
+  @Test
+  public void testSizeOfPutIsTheEncodedSize() throws Exception {
+    OPut put = new OPut(ROW);
+    put.add(Bytes.toBytes("col"), Bytes.toBytes("value"));
+    put.add(Bytes.toBytes("列"), 100, new byte[1000]);
+    RowUpdateChange change = put.toOTSParameter(TABLE);
+    assertEquals(PlainBufferBuilder.buildRowUpdateChangeWithHeader(change).length, PlainBufferSize.of(change));
+
+    RowPutChange putChange = new RowPutChange(TABLE, OTSUtil.toPrimaryKey(ROW, OTSConstants.PRIMARY_KEY_NAME));
+    putChange.addColumn("string", ColumnValue.fromString("value"));
+    putChange.addColumn("long", ColumnValue.fromLong(1), 100);
+    putChange.addColumn("boolean", ColumnValue.fromBoolean(true));
+    putChange.addColumn("double", ColumnValue.fromDouble(1.5));
+    assertEquals(PlainBufferBuilder.buildRowPutChangeWithHeader(putChange).length, PlainBufferSize.of(putChange));
+  }
+
+  @Test
+  public void testSizeOfDeleteIsTheEncodedSize() throws Exception {
+    ODelete delete = new ODelete(ROW);
+    delete.deleteColumn(Bytes.toBytes("col"), 100);
+    delete.deleteColumns(Bytes.toBytes("other"));
+    RowUpdateChange change = (RowUpdateChange) delete.toOTSParameter(TABLE);
+    assertEquals(PlainBufferBuilder.buildRowUpdateChangeWithHeader(change).length, PlainBufferSize.of(change));
+
+    RowDeleteChange rowDelete = (RowDeleteChange) new ODelete(ROW).toOTSParameter(TABLE);
+    assertEquals(PlainBufferBuilder.buildRowDeleteChangeWithHeader(rowDelete).length, PlainBufferSize.of(rowDelete));
+  }
+
+  @Test
+  public void testSizeInRequestCountsTheMessage() {
+    RowUpdateChange change = new OPut(ROW).add(Bytes.toBytes("col"), new byte[200]).toOTSParameter(TABLE);
+    long size = PlainBufferSize.of(change);
+    // the row change needs 2 bytes of length, and the row 2 more
+    assertEquals(size + 6 + 1 + 2 + 1 + 2, PlainBufferSize.ofBatchWriteRow(change));
+  }
+
+  @Test
+  public void testRequestIsLimitedByItsEncodedSize() throws Exception {
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance("encoded-size-" + System.nanoTime());
+    OTSImplement ots = new OTSImplement(new TablestoreClientConf(), emulator);
+    ots.createTable(new OTableDescriptor(TABLE));
+    // small cells, whose encoding takes more than twice their data size
+    BatchWriteRowRequest request = new BatchWriteRowRequest();
+    long dataSize = 0;
+    for (int i = 0; i < 200; i++) {
+      OPut put = new OPut(Bytes.toBytes(String.format("row_%03d", i)));
+      for (int j = 0; j < 1000; j++) {
+        put.add(Bytes.toBytes(String.format("c%04d", j)), 100, new byte[1]);
+      }
+      RowUpdateChange change = put.toOTSParameter(TABLE);
+      dataSize += change.getDataSize();
+      request.addRowChange(change);
+    }
+    assertTrue(dataSize < 4 * 1024 * 1024);
+    try {
+      emulator.batchWriteRow(request, null).get();
+      fail();
+    } catch (TableStoreException e) {
+      assertEquals(OTSErrorCode.REQUEST_TOO_LARGE, e.getErrorCode());
+    }
+  }
+
+  @Test
+  public void testBatchesPackedToTheLimitAreAccepted() throws Exception {
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance("packed-" + System.nanoTime());
+    TablestoreClientConf conf = new TablestoreClientConf();
+    conf.setRetryCount(0);
+    OTSImplement ots = new OTSImplement(conf, emulator);
+    ots.createTable(new OTableDescriptor(TABLE));
+    List<OPut> puts = new ArrayList<OPut>();
+    for (int i = 0; i < 100; i++) {
+      OPut put = new OPut(Bytes.toBytes(String.format("row_%03d", i)));
+      for (int j = 0; j < 100; j++) {
+        put.add(Bytes.toBytes(String.format("c%03d", j)), new byte[1000]);
+      }
+      puts.add(put);
+    }
+    long requests = emulator.getRequestCount();
+    ots.putMultiple(TABLE, puts);
+    assertEquals(100, emulator.getRowCount(TABLE));
+    // 35 rows of 100KB in each request, none of which is rejected and split
+    assertEquals(3, emulator.getRequestCount() - requests);
+  }
+
+  @Test
+  public void testBatchTooLargeIsSplit() throws Exception {
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance("too-large-" + System.nanoTime());
+    TablestoreClientConf conf = new TablestoreClientConf();
+    conf.setRetryCount(0);
+    // larger than the emulator accepts, as if the limit of the service was lower than expected
+    conf.setOTSMaxBatchDataSize(64 * 1024 * 1024);
+    OTSImplement ots = new OTSImplement(conf, emulator);
+    ots.createTable(new OTableDescriptor(TABLE));
+    List<OPut> puts = new ArrayList<OPut>();
+    for (int i = 0; i < 100; i++) {
+      puts.add(new OPut(Bytes.toBytes("row_" + i)).add(Bytes.toBytes("col"), new byte[100 * 1024]));
+    }
+    long requests = emulator.getRequestCount();
+    ots.putMultiple(TABLE, puts);
+    assertEquals(100, emulator.getRowCount(TABLE));
+    // 10MB is rejected, and its halves of 5MB too, then the quarters of 2.5MB are written
+    assertTrue(emulator.getRequestCount() - requests >= 7);
+  }
+
+  @Test
+  public void testBatchesInFlightAreAwaitedOnError() throws Exception {
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance("in-flight-" + System.nanoTime());
+    emulator.setLatencyMicros(2000);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    conf.setRetryCount(0);
+    conf.setMaxInflightBatchWrites(2);
+    // more rows than the emulator accepts, so the first batch is rejected
+    conf.setOTSMaxBatchRowCount(250);
+    OTSImplement ots = new OTSImplement(conf, emulator);
+    ots.createTable(new OTableDescriptor(TABLE));
+    List<ORow> puts = new ArrayList<ORow>();
+    for (int i = 0; i < 300; i++) {
+      puts.add(new OPut(Bytes.toBytes(String.format("row_%03d", i))).add(Bytes.toBytes("col"), Bytes.toBytes(i)));
+    }
+    Object[] results = new Object[puts.size()];
+    try {
+      ots.batch(TABLE, puts, results);
+      fail();
+    } catch (DoNotRetryIOException e) {
+      // the first batch is not retryable
+    }
+    assertTrue(results[0] instanceof TableStoreException);
+    // the second batch was in flight, and is reported
+    assertEquals(50, emulator.getRowCount(TABLE));
+    for (int i = 250; i < 300; i++) {
+      assertTrue(results[i] instanceof OResult);
+    }
+  }
+
+  @Test
+  public void testInterruptFailsTheRetries() throws Exception {
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance("interrupted-" + System.nanoTime());
+    TablestoreClientConf conf = new TablestoreClientConf();
+    conf.setRetryBaseDelay(60000);
+    conf.setRetryMaxDelay(60000);
+    final OTSImplement ots = new OTSImplement(conf, emulator);
+    ots.createTable(new OTableDescriptor(TABLE));
+    // every row is throttled, so the batch waits to be retried
+    emulator.setThrottleRatio(1);
+    final List<OPut> puts = new ArrayList<OPut>();
+    puts.add(new OPut(ROW).add(Bytes.toBytes("col"), Bytes.toBytes("value")));
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    final AtomicBoolean interrupted = new AtomicBoolean();
+    Thread writer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          ots.putMultiple(TABLE, puts);
+        } catch (Throwable e) {
+          error.set(e);
+        }
+        interrupted.set(Thread.currentThread().isInterrupted());
+      }
+    };
+    writer.start();
+    Thread.sleep(200);
+    writer.interrupt();
+    writer.join(10000);
+    assertTrue(error.get() instanceof InterruptedIOException);
+    assertTrue(interrupted.get());
+  }
+}
@@ -0,0 +1,57 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestCapacityLimiter {
+
+  @Test
+  public void testWritesArePaced() throws Exception {
+    CapacityLimiter limiter = new CapacityLimiter(0, 100, false);
+    long start = System.nanoTime();
+    for (int i = 0; i < 150; i++) {
+      limiter.acquire("t", 0, 1);
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+    // the first second of units is in the bucket, the other 50 units take half a second
+    assertTrue(elapsedMillis >= 400);
+    assertTrue(elapsedMillis < 3000);
+
+    // the other tables and the reads are not limited by it
+    start = System.nanoTime();
+    for (int i = 0; i < 100; i++) {
+      limiter.acquire("other", 0, 1);
+      limiter.acquire("t", 1, 0);
+    }
+    assertTrue((System.nanoTime() - start) / 1000000 < 400);
+  }
+
+  @Test
+  public void testReadsAreSettledWithTheConsumedUnits() throws Exception {
+    CapacityLimiter limiter = new CapacityLimiter(100, 0, false);
+    limiter.acquire("t", 1, 0);
+    limiter.consumed("t", 1, 150);
+    long start = System.nanoTime();
+    limiter.acquire("t", 1, 0);
+    assertTrue((System.nanoTime() - start) / 1000000 >= 300);
+  }
+
+  @Test
+  public void testRateAdaptsToThrottling() throws Exception {
+    CapacityLimiter limiter = new CapacityLimiter(1000, 1000, true);
+    limiter.throttled("t", true);
+    assertEquals(500, limiter.getRate("t", true), 1);
+    assertEquals(1000, limiter.getRate("t", false), 0);
+    // at most once per second
+    limiter.throttled("t", true);
+    assertEquals(500, limiter.getRate("t", true), 1);
+
+    Thread.sleep(500);
+    double rate = limiter.getRate("t", true);
+    limiter.acquire("t", 0, 1);
+    assertTrue(limiter.getRate("t", true) > rate);
+    assertTrue(limiter.getRate("t", true) < 1000);
+  }
+}
@@ -0,0 +1,243 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.client.metrics.ClientMetrics;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.adaptor.struct.OScan;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+
+public class TestConcurrencyLimiter {
+
+  @Test
+  public void testLimitAdaptsAndRequestsAreRejected() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 4, 1000, 50);
+    assertEquals(1, limiter.getLimit());
+    TableStoreCallback<Object, Object> first = limiter.acquire().callback();
+    try {
+      limiter.acquire();
+      fail();
+    } catch (IOException e) {
+      // no permit within the queue timeout
+    }
+    assertEquals(1, limiter.getQueued());
+    assertEquals(1, limiter.getRejected());
+
+    first.onCompleted(null, null);
+    // released once only
+    first.onCompleted(null, null);
+    assertEquals(0, limiter.getInFlight());
+    assertEquals(2, limiter.getLimit());
+
+    TableStoreCallback<Object, Object> second = limiter.acquire().callback();
+    TableStoreCallback<Object, Object> third = limiter.acquire().callback();
+    assertEquals(2, limiter.getInFlight());
+    second.onCompleted(null, null);
+    assertEquals(3, limiter.getLimit());
+    third.onFailed(null, new TableStoreException("busy", null, OTSErrorCode.SERVER_BUSY, "id", 503));
+    assertEquals(2, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void testAsyncRequestsWaitInTheQueue() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1000, 50);
+    ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+    try {
+      TableStoreCallback<Object, Object> first = limiter.acquire().callback();
+      final AtomicReference<ConcurrencyLimiter.Permit> granted = new AtomicReference<ConcurrencyLimiter.Permit>();
+      final CompletableFuture<IOException> rejected = new CompletableFuture<IOException>();
+      ConcurrencyLimiter.PermitListener listener = new ConcurrencyLimiter.PermitListener() {
+        @Override
+        public void onPermit(ConcurrencyLimiter.Permit permit) {
+          granted.set(permit);
+        }
+
+        @Override
+        public void onRejected(IOException ex) {
+          rejected.complete(ex);
+        }
+      };
+      limiter.acquire(listener, timer);
+      assertEquals(null, granted.get());
+      assertEquals(1, limiter.getQueued());
+
+      // the permit is handed over to the waiting request
+      first.onCompleted(null, null);
+      assertNotNull(granted.get());
+      assertEquals(1, limiter.getInFlight());
+
+      limiter.acquire(listener, timer);
+      assertNotNull(rejected.get(5, TimeUnit.SECONDS));
+      assertEquals(1, limiter.getRejected());
+      granted.get().release(null);
+      assertEquals(0, limiter.getInFlight());
+    } finally {
+      timer.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testAsyncRequestsAreLimited() throws Exception {
+    String instance = "concurrency-async-" + System.nanoTime();
+    InMemoryAsyncClient.getInstance(instance);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setValue(InMemoryAsyncClient.Factory.LATENCY_MICROS, "1000");
+    conf.setConcurrencyLimitMax(4);
+    conf.setScannerPrefetchDepth(2);
+    OTSAdapter adapter = OTSAdapter.getInstance(conf);
+    ClientMetrics metrics = adapter.getMetrics();
+    try {
+      adapter.createTable(new OTableDescriptor("limited"));
+      List<CompletableFuture<Void>> puts = new ArrayList<CompletableFuture<Void>>();
+      for (int i = 0; i < 200; i++) {
+        puts.add(adapter.getAsyncInterface().put("limited",
+            new OPut(Bytes.toBytes("row_" + i)).add(Bytes.toBytes("col"), Bytes.toBytes(i))));
+      }
+      CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+      assertTrue(metrics.getQueuedRequests() > 0);
+      assertEquals(0, metrics.getRejectedRequests());
+      assertEquals(0, metrics.getInFlightRequests());
+      assertEquals(200, metrics.getOperation("limited", "put").getCount());
+      assertEquals(200, metrics.getOperation("limited", "put").getWriteCapacityUnits());
+
+      // the pages prefetched by the scanner are limited and measured too
+      OScan scan = new OScan();
+      scan.setCaching(50);
+      OResultScanner scanner = adapter.getScanner("limited", scan);
+      int rows = 0;
+      while (scanner.next() != null) {
+        rows++;
+      }
+      scanner.close();
+      assertEquals(200, rows);
+      assertTrue(metrics.getOperation("limited", "scan").getCount() >= 4);
+      assertEquals(0, metrics.getInFlightRequests());
+    } finally {
+      adapter.close();
+    }
+  }
+
+  @Test
+  public void testLimitIsCutOncePerRoundTrip() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 40, 1000, 50);
+    assertEquals(10, limiter.getLimit());
+    List<TableStoreCallback<Object, Object>> callbacks = new ArrayList<TableStoreCallback<Object, Object>>();
+    for (int i = 0; i < 5; i++) {
+      callbacks.add(limiter.acquire().callback());
+    }
+    // the requests sent together were throttled together, which cuts the limit once
+    for (TableStoreCallback<Object, Object> callback : callbacks) {
+      callback.onFailed(null, new TableStoreException("busy", null, OTSErrorCode.SERVER_BUSY, "id", 503));
+    }
+    assertEquals(9, limiter.getLimit());
+
+    // a request sent after the cut cuts it again
+    limiter.acquire().callback().onFailed(null,
+        new TableStoreException("busy", null, OTSErrorCode.SERVER_BUSY, "id", 503));
+    assertEquals(8, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void testWaitingRequestsAreServedInOrder() throws Exception {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1000, 5000);
+    ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+    try {
+      TableStoreCallback<Object, Object> first = limiter.acquire().callback();
+      final CompletableFuture<ConcurrencyLimiter.Permit> blocked = new CompletableFuture<ConcurrencyLimiter.Permit>();
+      Thread caller = new Thread() {
+        @Override
+        public void run() {
+          try {
+            blocked.complete(limiter.acquire());
+          } catch (IOException e) {
+            blocked.completeExceptionally(e);
+          }
+        }
+      };
+      caller.start();
+      while (limiter.getQueued() < 1) {
+        Thread.sleep(1);
+      }
+      final AtomicReference<ConcurrencyLimiter.Permit> granted = new AtomicReference<ConcurrencyLimiter.Permit>();
+      limiter.acquire(new ConcurrencyLimiter.PermitListener() {
+        @Override
+        public void onPermit(ConcurrencyLimiter.Permit permit) {
+          granted.set(permit);
+        }
+
+        @Override
+        public void onRejected(IOException ex) {
+        }
+      }, timer);
+
+      // the blocked caller asked first, so it gets the permit before the request of the async client
+      first.onCompleted(null, null);
+      ConcurrencyLimiter.Permit permit = blocked.get(5, TimeUnit.SECONDS);
+      assertEquals(null, granted.get());
+      assertEquals(null, limiter.tryAcquire());
+
+      permit.release(null);
+      assertNotNull(granted.get());
+      granted.get().release(null);
+      caller.join();
+      assertEquals(0, limiter.getInFlight());
+      assertEquals(0, limiter.getRejected());
+    } finally {
+      timer.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBatchGetIsLimited() throws Exception {
+    String instance = "concurrency-" + System.nanoTime();
+    InMemoryAsyncClient.getInstance(instance);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setValue(InMemoryAsyncClient.Factory.LATENCY_MICROS, "1000");
+    conf.setConcurrencyLimitMax(4);
+    OTSAdapter adapter = OTSAdapter.getInstance(conf);
+    ClientMetrics metrics = adapter.getMetrics();
+    try {
+      adapter.createTable(new OTableDescriptor("limited"));
+      List<OPut> puts = new ArrayList<OPut>();
+      List<OGet> gets = new ArrayList<OGet>();
+      for (int i = 0; i < 2000; i++) {
+        puts.add(new OPut(Bytes.toBytes("row_" + i)).add(Bytes.toBytes("col"), Bytes.toBytes(i)));
+        gets.add(new OGet(Bytes.toBytes("row_" + i)));
+      }
+      adapter.putMultiple("limited", puts);
+      List<OResult> results = adapter.getMultiple("limited", gets);
+      for (int i = 0; i < 2000; i++) {
+        assertNotNull(results.get(i).getRow());
+      }
+      assertTrue(metrics.getQueuedRequests() > 0);
+      assertEquals(0, metrics.getRejectedRequests());
+      assertEquals(0, metrics.getInFlightRequests());
+      assertTrue(metrics.getConcurrencyLimit() <= 4);
+    } finally {
+      adapter.close();
+    }
+  }
+}
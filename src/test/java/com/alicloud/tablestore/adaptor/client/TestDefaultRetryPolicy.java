@@ -0,0 +1,68 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+
+public class TestDefaultRetryPolicy {
+
+  private static TableStoreException error(String code) {
+    return new TableStoreException(code, null, code, "id", 503);
+  }
+
+  @Test
+  public void testClassify() {
+    assertEquals(RetryPolicy.ErrorClass.THROTTLED, DefaultRetryPolicy.classify(error(OTSErrorCode.SERVER_BUSY)));
+    assertEquals(RetryPolicy.ErrorClass.TRANSIENT,
+        DefaultRetryPolicy.classify(new IOException(error(OTSErrorCode.PARTITION_UNAVAILABLE))));
+    assertEquals(RetryPolicy.ErrorClass.NOT_RETRYABLE,
+        DefaultRetryPolicy.classify(error(OTSErrorCode.INVALID_PARAMETER)));
+    assertEquals(RetryPolicy.ErrorClass.NOT_RETRYABLE,
+        DefaultRetryPolicy.classify(new DoNotRetryIOException("failed")));
+    assertEquals(RetryPolicy.ErrorClass.TRANSIENT, DefaultRetryPolicy.classify(new IOException("reset")));
+  }
+
+  @Test
+  public void testDelaysAreJitteredAndCapped() {
+    DefaultRetryPolicy policy = new DefaultRetryPolicy(20, 10, 300, 0, 1000000);
+    for (int retries = 0; retries < 10; retries++) {
+      long delay = policy.retryDelay(error(OTSErrorCode.PARTITION_UNAVAILABLE), retries);
+      assertTrue(delay >= 0 && delay <= Math.min(300, 10 << retries));
+      long throttled = policy.retryDelay(error(OTSErrorCode.SERVER_BUSY), retries);
+      assertTrue(throttled >= 0 && throttled <= Math.min(300, 40 << retries));
+    }
+    assertEquals(-1, policy.retryDelay(error(OTSErrorCode.PARTITION_UNAVAILABLE), 20));
+    assertEquals(-1, policy.retryDelay(error(OTSErrorCode.INVALID_PARAMETER), 0));
+  }
+
+  @Test
+  public void testRetriesAreBudgeted() {
+    DefaultRetryPolicy policy = new DefaultRetryPolicy(3, 1, 1, 0.5, 0);
+    // a single retry is saved at first
+    assertTrue(policy.retryDelay(error(OTSErrorCode.SERVER_BUSY), 0) >= 0);
+    assertEquals(-1, policy.retryDelay(error(OTSErrorCode.SERVER_BUSY), 0));
+    // and two more calls earn another one
+    policy.onCall();
+    assertEquals(-1, policy.retryDelay(error(OTSErrorCode.SERVER_BUSY), 0));
+    policy.onCall();
+    policy.onCall();
+    assertTrue(policy.retryDelay(error(OTSErrorCode.SERVER_BUSY), 0) >= 0);
+  }
+
+  @Test
+  public void testRetryIsNotTriedAfterDeadline() {
+    DefaultRetryPolicy policy = new DefaultRetryPolicy(3, 1000, 1000, 0, 1000000);
+    OperationContext context = OperationContext.start("test", 1);
+    try {
+      assertEquals(-1, policy.retryDelay(error(OTSErrorCode.PARTITION_UNAVAILABLE), 2));
+    } finally {
+      context.finish();
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OColumnValue;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+
+public class TestGetCoalescer {
+
+  /**
+   * Answers each batch get with the rows asked for, fails the row "bad", and the row "invalid" as
+   * a non-retryable error. A batch with the row "fatal", or sent by an interrupted thread, fails as
+   * a whole.
+   */
+  private static OTSInterface table(final List<Integer> batchSizes) {
+    return (OTSInterface) Proxy.newProxyInstance(OTSInterface.class.getClassLoader(),
+        new Class<?>[] { OTSInterface.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+              return method.getName().equals("toString") ? "table" : method.invoke(this, args);
+            }
+            List<?> gets = (List<?>) args[1];
+            Object[] results = (Object[]) args[2];
+            batchSizes.add(gets.size());
+            if (Thread.currentThread().isInterrupted()) {
+              // as the waits on the client would
+              throw new InterruptedIOException();
+            }
+            for (Object get : gets) {
+              if (Bytes.toString(((OGet) get).getRow()).equals("fatal")) {
+                throw new DoNotRetryIOException("fatal row");
+              }
+            }
+            boolean failed = false;
+            for (int i = 0; i < gets.size(); i++) {
+              byte[] row = ((OGet) gets.get(i)).getRow();
+              if (Bytes.toString(row).equals("bad")) {
+                results[i] = new IOException("bad row");
+                failed = true;
+              } else if (Bytes.toString(row).equals("invalid")) {
+                results[i] = new TableStoreException("invalid row", null, OTSErrorCode.INVALID_PARAMETER, "id", 400);
+                failed = true;
+              } else {
+                results[i] = new OResult(row, new OColumnValue[0]);
+              }
+            }
+            if (failed) {
+              throw new IOException("batch failed");
+            }
+            return null;
+          }
+        });
+  }
+
+  private static List<Future<Object>> getConcurrently(final GetCoalescer coalescer, final List<String> rows)
+      throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(rows.size());
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Object>> futures = new ArrayList<Future<Object>>();
+    for (final String row : rows) {
+      futures.add(pool.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          start.await();
+          try {
+            return coalescer.get("t", new OGet(Bytes.toBytes(row)));
+          } catch (IOException e) {
+            return e;
+          }
+        }
+      }));
+    }
+    start.countDown();
+    pool.shutdown();
+    return futures;
+  }
+
+  @Test
+  public void testConcurrentGetsAreCoalesced() throws Exception {
+    List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+    GetCoalescer coalescer = new GetCoalescer(table(batchSizes), 200 * 1000, 8, Integer.MAX_VALUE);
+    List<String> rows = new ArrayList<String>();
+    for (int i = 0; i < 20; i++) {
+      rows.add("row_" + i);
+    }
+    List<Future<Object>> futures = getConcurrently(coalescer, rows);
+    for (int i = 0; i < rows.size(); i++) {
+      OResult result = (OResult) futures.get(i).get();
+      assertEquals(rows.get(i), Bytes.toString(result.getRow()));
+    }
+    int total = 0;
+    for (int size : batchSizes) {
+      assertTrue(size <= 8);
+      total += size;
+    }
+    assertEquals(20, total);
+    assertTrue(batchSizes.size() < 20);
+  }
+
+  @Test
+  public void testFailedRowOnlyFailsItsGet() throws Exception {
+    List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+    GetCoalescer coalescer = new GetCoalescer(table(batchSizes), 200 * 1000, 3, Integer.MAX_VALUE);
+    List<String> rows = new ArrayList<String>();
+    rows.add("row_0");
+    rows.add("bad");
+    rows.add("row_2");
+    List<Future<Object>> futures = getConcurrently(coalescer, rows);
+    assertTrue(futures.get(0).get() instanceof OResult);
+    assertTrue(futures.get(1).get() instanceof IOException);
+    assertTrue(futures.get(2).get() instanceof OResult);
+    assertEquals(1, batchSizes.size());
+  }
+
+  @Test
+  public void testErrorsKeepTheirType() throws Exception {
+    List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+    GetCoalescer coalescer = new GetCoalescer(table(batchSizes), 200 * 1000, 3, Integer.MAX_VALUE);
+    List<String> rows = new ArrayList<String>();
+    rows.add("row_0");
+    rows.add("invalid");
+    rows.add("bad");
+    List<Future<Object>> futures = getConcurrently(coalescer, rows);
+    assertTrue(futures.get(0).get() instanceof OResult);
+    assertTrue(futures.get(1).get() instanceof DoNotRetryIOException);
+    assertTrue(futures.get(2).get() instanceof IOException);
+    assertFalse(futures.get(2).get() instanceof DoNotRetryIOException);
+
+    rows.set(1, "fatal");
+    futures = getConcurrently(coalescer, rows);
+    for (Future<Object> future : futures) {
+      assertTrue(future.get() instanceof DoNotRetryIOException);
+    }
+  }
+
+  @Test
+  public void testInterruptOfLeaderOnlyFailsItsGet() throws Exception {
+    List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+    final GetCoalescer coalescer = new GetCoalescer(table(batchSizes), 2000 * 1000, 8, Integer.MAX_VALUE);
+    ExecutorService pool = Executors.newFixedThreadPool(3);
+    Future<Object> leader = pool.submit(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        try {
+          return coalescer.get("t", new OGet(Bytes.toBytes("row_0")));
+        } catch (IOException e) {
+          return e;
+        }
+      }
+    });
+    Thread.sleep(100);
+    List<String> rows = new ArrayList<String>();
+    rows.add("row_1");
+    rows.add("row_2");
+    List<Future<Object>> followers = getConcurrently(coalescer, rows);
+    Thread.sleep(100);
+    // the leader waits for the window, and is interrupted
+    pool.shutdownNow();
+    assertTrue(leader.get() instanceof InterruptedIOException);
+    for (Future<Object> follower : followers) {
+      assertTrue(follower.get() instanceof OResult);
+    }
+    assertEquals(1, batchSizes.size());
+    assertEquals(3, (int) batchSizes.get(0));
+  }
+
+  @Test
+  public void testGetWaitsUntilItsOwnDeadline() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    OTSInterface slow = (OTSInterface) Proxy.newProxyInstance(OTSInterface.class.getClassLoader(),
+        new Class<?>[] { OTSInterface.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+              return method.getName().equals("toString") ? "slow" : method.invoke(this, args);
+            }
+            release.await();
+            return null;
+          }
+        });
+    GetCoalescer coalescer = new GetCoalescer(slow, 1000, 8, 200);
+    long start = System.nanoTime();
+    try {
+      coalescer.get("t", new OGet(Bytes.toBytes("row_0")));
+      fail();
+    } catch (OperationTimeoutException e) {
+      // the batch is still being sent
+    }
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    assertFalse(Thread.currentThread().isInterrupted());
+    release.countDown();
+  }
+}
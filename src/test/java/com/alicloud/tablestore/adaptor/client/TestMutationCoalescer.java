@@ -0,0 +1,70 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.model.Condition;
+import com.alicloud.openservices.tablestore.model.RowExistenceExpectation;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.ODelete;
+import com.alicloud.tablestore.adaptor.struct.OMutation;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+
+public class TestMutationCoalescer {
+  private static final byte[] COL_A = Bytes.toBytes("a");
+  private static final byte[] COL_B = Bytes.toBytes("b");
+
+  private static OPut put(String row, byte[] qualifier, int value) {
+    return new OPut(Bytes.toBytes(row)).add(qualifier, Bytes.toBytes(value));
+  }
+
+  @Test
+  public void testPutsAreMergedAndSorted() {
+    List<List<MutationCoalescer.Entry>> rounds = MutationCoalescer.coalesce(Arrays.asList(
+        put("r2", COL_A, 1), put("r1", COL_A, 2), put("r2", COL_A, 3), put("r2", COL_B, 4),
+        new OPut(Bytes.toBytes("r2")).add(COL_A, 10L, Bytes.toBytes(5))));
+    assertEquals(1, rounds.size());
+    List<MutationCoalescer.Entry> round = rounds.get(0);
+    assertEquals(2, round.size());
+    assertEquals("r1", Bytes.toString(round.get(0).getMutation().getRow()));
+    OMutation r2 = round.get(1).getMutation();
+    assertEquals(Arrays.asList(0, 2, 3, 4), round.get(1).getIndexes());
+    // the last put at the latest timestamp wins, and the explicit version is kept
+    assertEquals(3, r2.getKeyValues().size());
+    assertEquals(3, Bytes.toInt(((OPut) r2).get(COL_A).get(0).getValue()));
+    assertTrue(((OPut) r2).has(COL_A, 10L));
+  }
+
+  @Test
+  public void testDeletes() {
+    List<List<MutationCoalescer.Entry>> rounds = MutationCoalescer.coalesce(Arrays.asList(
+        put("r1", COL_A, 1), new ODelete(Bytes.toBytes("r1")), put("r1", COL_A, 2), put("r1", COL_B, 3),
+        put("r2", COL_A, 1), new ODelete(Bytes.toBytes("r2")).deleteColumns(COL_A),
+        put("r3", COL_A, 1), put("r3", COL_B, 1), new ODelete(Bytes.toBytes("r3")).deleteColumns(COL_A)));
+    assertEquals(2, rounds.size());
+    // a delete of the row replaces the put before it, and the puts after it follow in a round
+    OMutation r1 = rounds.get(0).get(0).getMutation();
+    assertTrue(r1 instanceof ODelete && r1.getKeyValues().isEmpty());
+    assertEquals(2, rounds.get(1).get(0).getMutation().getKeyValues().size());
+    // a delete of the only column put replaces the put
+    OMutation r2 = rounds.get(0).get(1).getMutation();
+    assertTrue(r2 instanceof ODelete && r2.getKeyValues().size() == 1);
+    // the puts of other columns stay, and the delete follows them
+    assertEquals(2, rounds.get(0).get(2).getMutation().getKeyValues().size());
+    assertTrue(rounds.get(1).get(1).getMutation() instanceof ODelete);
+  }
+
+  @Test
+  public void testConditionalMutationsAreNotMerged() {
+    OPut conditional = put("r1", COL_A, 2);
+    conditional.setCondition(new Condition(RowExistenceExpectation.EXPECT_EXIST));
+    List<List<MutationCoalescer.Entry>> rounds =
+        MutationCoalescer.coalesce(Arrays.asList(put("r1", COL_A, 1), conditional, put("r1", COL_A, 3)));
+    assertEquals(3, rounds.size());
+  }
+}
@@ -0,0 +1,111 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OColumnValue;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.adaptor.struct.OScan;
+
+public class TestOParallelClientScanner {
+  private static final int ROW_COUNT = 100;
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row_%03d", i));
+  }
+
+  /**
+   * Serves the paged range scans of a table with ROW_COUNT rows.
+   */
+  private static OTSInterface table() {
+    return (OTSInterface) Proxy.newProxyInstance(OTSInterface.class.getClassLoader(),
+        new Class<?>[] { OTSInterface.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+              return method.getName().equals("toString") ? "table" : method.invoke(this, args);
+            }
+            OScan scan = (OScan) args[1];
+            int limit = (Integer) args[2];
+            ByteArrayOutputStream nextRow = (ByteArrayOutputStream) args[3];
+            List<OResult> results = new ArrayList<OResult>();
+            int next = -1;
+            for (int i = 0; i < ROW_COUNT; i++) {
+              byte[] row = row(i);
+              if (Bytes.compareTo(row, scan.getStartRow()) < 0
+                  || (scan.getStopRow().length != 0 && Bytes.compareTo(row, scan.getStopRow()) >= 0)) {
+                continue;
+              }
+              if (results.size() == limit) {
+                next = i;
+                break;
+              }
+              results.add(new OResult(row, new OColumnValue[0]));
+            }
+            if (next >= 0) {
+              nextRow.write(row(next), 0, row(next).length);
+            }
+            return results;
+          }
+        });
+  }
+
+  private static final byte[][] START_KEYS = new byte[][] { new byte[0], row(25), row(50), row(75) };
+  private static final byte[][] END_KEYS = new byte[][] { row(25), row(50), row(75), new byte[0] };
+
+  @Test
+  public void testSplit() throws Exception {
+    List<OScan> subScans = OParallelClientScanner.split(new OScan(row(30), row(60)), START_KEYS, END_KEYS);
+    assertEquals(2, subScans.size());
+    assertEquals("row_030", Bytes.toString(subScans.get(0).getStartRow()));
+    assertEquals("row_050", Bytes.toString(subScans.get(0).getStopRow()));
+    assertEquals("row_050", Bytes.toString(subScans.get(1).getStartRow()));
+    assertEquals("row_060", Bytes.toString(subScans.get(1).getStopRow()));
+
+    subScans = OParallelClientScanner.split(new OScan(), START_KEYS, END_KEYS);
+    assertEquals(4, subScans.size());
+    assertEquals(0, subScans.get(0).getStartRow().length);
+    assertEquals(0, subScans.get(3).getStopRow().length);
+  }
+
+  @Test
+  public void testOrderedScan() throws Exception {
+    OScan scan = new OScan(row(10));
+    scan.setCaching(7);
+    OParallelClientScanner scanner = new OParallelClientScanner("t", scan, table(), START_KEYS, END_KEYS, 2, true);
+    for (int i = 10; i < ROW_COUNT; i++) {
+      assertEquals(Bytes.toString(row(i)), Bytes.toString(scanner.next().getRow()));
+    }
+    assertNull(scanner.next());
+    scanner.close();
+  }
+
+  @Test
+  public void testUnorderedScan() throws Exception {
+    OScan scan = new OScan();
+    scan.setCaching(7);
+    OParallelClientScanner scanner = new OParallelClientScanner("t", scan, table(), START_KEYS, END_KEYS, 3, false);
+    List<String> rows = new ArrayList<String>();
+    OResult result;
+    while ((result = scanner.next()) != null) {
+      rows.add(Bytes.toString(result.getRow()));
+    }
+    Collections.sort(rows);
+    assertEquals(ROW_COUNT, rows.size());
+    for (int i = 0; i < ROW_COUNT; i++) {
+      assertEquals(Bytes.toString(row(i)), rows.get(i));
+    }
+    scanner.close();
+  }
+}
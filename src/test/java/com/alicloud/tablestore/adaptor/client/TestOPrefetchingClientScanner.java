@@ -0,0 +1,167 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OColumnValue;
+import com.alicloud.tablestore.adaptor.struct.ODelete;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.adaptor.struct.OScan;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import com.alicloud.tablestore.adaptor.struct.OUpdate;
+
+public class TestOPrefetchingClientScanner {
+
+  /**
+   * Serves the scans of a table with the given number of rows, completing each page immediately.
+   */
+  private static class PagedTable implements OTSAsyncInterface {
+    private final int rowCount;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile boolean failing = false;
+
+    PagedTable(int rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    static byte[] row(int i) {
+      return Bytes.toBytes(String.format("row_%03d", i));
+    }
+
+    @Override
+    public CompletableFuture<List<OResult>> scan(String tableName, OScan scan, int limit, ByteArrayOutputStream nextRow) {
+      requests.incrementAndGet();
+      CompletableFuture<List<OResult>> future = new CompletableFuture<List<OResult>>();
+      if (failing) {
+        future.completeExceptionally(new IOException("fail"));
+        return future;
+      }
+      int start = 0;
+      if (scan.getStartRow() != null && scan.getStartRow().length > 0) {
+        start = Integer.parseInt(Bytes.toString(scan.getStartRow()).substring(4));
+      }
+      List<OResult> results = new ArrayList<OResult>();
+      int i = start;
+      for (; i < rowCount && i < start + limit; i++) {
+        results.add(new OResult(row(i), new OColumnValue[] {
+            new OColumnValue(row(i), Bytes.toBytes("col"), 0, OColumnValue.Type.PUT, new byte[100]) }));
+      }
+      if (i < rowCount) {
+        byte[] next = row(i);
+        nextRow.write(next, 0, next.length);
+      }
+      future.complete(results);
+      return future;
+    }
+
+    @Override
+    public CompletableFuture<OResult> get(String tableName, OGet get) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String tableName, OPut put) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String tableName, ODelete delete) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String tableName, OUpdate update) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<OResult> increment(String tableName, OUpdate update) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<OTableDescriptor> describeTable(String tableName) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OTSAsyncInterface withOptions(AsyncCallOptions options) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  @Test
+  public void testScanAllRowsInOrder() throws Exception {
+    PagedTable table = new PagedTable(25);
+    OScan scan = new OScan();
+    scan.setCaching(10);
+    OPrefetchingClientScanner scanner = new OPrefetchingClientScanner("t", scan, table, 2, Integer.MAX_VALUE);
+    // two pages are held before the caller starts draining
+    assertEquals(2, table.requests.get());
+    scanner.next();
+    assertEquals(3, table.requests.get());
+    for (int i = 1; i < 25; i++) {
+      OResult result = scanner.next();
+      assertEquals("row_" + String.format("%03d", i), Bytes.toString(result.getRow()));
+    }
+    assertNull(scanner.next());
+    assertEquals(3, table.requests.get());
+    scanner.close();
+  }
+
+  @Test
+  public void testPrefetchedBytesAreCapped() throws Exception {
+    PagedTable table = new PagedTable(25);
+    OScan scan = new OScan();
+    scan.setCaching(10);
+    OPrefetchingClientScanner scanner = new OPrefetchingClientScanner("t", scan, table, 5, 1);
+    // one page already exceeds the cap, so nothing is fetched ahead of it
+    assertEquals(1, table.requests.get());
+    scanner.next();
+    // the first page is being drained, so the second one may be held
+    assertEquals(2, table.requests.get());
+    int count = 1;
+    while (scanner.next() != null) {
+      count++;
+    }
+    assertEquals(25, count);
+    assertEquals(3, table.requests.get());
+  }
+
+  @Test
+  public void testErrorIsThrownAfterFetchedPages() throws Exception {
+    PagedTable table = new PagedTable(25);
+    OScan scan = new OScan();
+    scan.setCaching(10);
+    OPrefetchingClientScanner scanner = new OPrefetchingClientScanner("t", scan, table, 1, Integer.MAX_VALUE);
+    table.failing = true;
+    // the first page was fetched before the failure
+    for (int i = 0; i < 10; i++) {
+      assertTrue(scanner.next() != null);
+    }
+    try {
+      scanner.next();
+      fail("the failed page should be thrown");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -109,4 +109,15 @@ public class TestOTSUtil {
             SingleColumnValueFilter.CompareOperator.GREATER_THAN, otsFilter3.getOperator());
   }
 
+  @Test
+  public void testParseIntegerColumnToResult() {
+    List<PrimaryKeyColumn> primaryKeyColumnList = new ArrayList<PrimaryKeyColumn>();
+    primaryKeyColumnList.add(new PrimaryKeyColumn(OTSConstants.PRIMARY_KEY_NAME,
+            PrimaryKeyValue.fromBinary(Bytes.toBytes("pk"))));
+    List<Column> columns = new ArrayList<Column>();
+    columns.add(new Column("counter", ColumnValue.fromLong(42), 1));
+
+    OResult result = OTSUtil.parseOTSRowToResult(new Row(new PrimaryKey(primaryKeyColumnList), columns));
+    assertEquals(42, Bytes.toLong(result.getValue(Bytes.toBytes("counter"))));
+  }
 }
@@ -0,0 +1,179 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.CreateTableRequest;
+import com.alicloud.openservices.tablestore.model.PrimaryKeyType;
+import com.alicloud.openservices.tablestore.model.TableMeta;
+import com.alicloud.openservices.tablestore.model.TableOptions;
+import com.alicloud.tablestore.adaptor.DoNotRetryIOException;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+
+public class TestReadHedger {
+
+  /**
+   * Answers at once, except the primary reads if stuck, which are never answered or failed.
+   */
+  private static class FakeSender implements ReadHedger.Sender<String, String> {
+    final AtomicInteger hedges = new AtomicInteger();
+    final boolean stuck;
+    final boolean fail;
+
+    FakeSender(boolean stuck, boolean fail) {
+      this.stuck = stuck;
+      this.fail = fail;
+    }
+
+    @Override
+    public Future<String> send(TableStoreCallback<String, String> callback, boolean hedge) {
+      if (hedge) {
+        hedges.incrementAndGet();
+        callback.onCompleted("request", "hedge");
+      } else if (fail) {
+        callback.onFailed("request", new TableStoreException("busy", null, OTSErrorCode.SERVER_BUSY, "id", 503));
+      } else if (!stuck) {
+        callback.onCompleted("request", "primary");
+      }
+      return new CompletableFuture<String>();
+    }
+  }
+
+  /**
+   * Reads until a window has enough latencies to hedge.
+   */
+  private static void warmUp(ReadHedger hedger) throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (hedger.getDelayNanos("get") < 0) {
+      assertTrue(System.currentTimeMillis() < deadline);
+      for (int i = 0; i < 200; i++) {
+        assertEquals("primary", hedger.send("get", new FakeSender(false, false)).get());
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testSlowReadIsHedged() throws Exception {
+    ReadHedger hedger = new ReadHedger(95, 1, 0, 50);
+    warmUp(hedger);
+    FakeSender sender = new FakeSender(true, false);
+    assertEquals("hedge", hedger.send("get", sender).get(5, TimeUnit.SECONDS));
+    assertEquals(1, sender.hedges.get());
+    // the other kinds of reads have no latencies yet
+    assertEquals(-1, hedger.getDelayNanos("batchGet"));
+  }
+
+  @Test
+  public void testHedgesAreBounded() throws Exception {
+    ReadHedger hedger = new ReadHedger(95, 0.05, 0, 50);
+    warmUp(hedger);
+    FakeSender sender = new FakeSender(true, false);
+    for (int i = 0; i < 40; i++) {
+      hedger.send("get", sender);
+    }
+    Thread.sleep(200);
+    // at most 10 hedges are kept, and the 40 slow reads earned 2 more
+    assertTrue(sender.hedges.get() > 0);
+    assertTrue(sender.hedges.get() <= 12);
+  }
+
+  @Test
+  public void testFailedReadIsNotHedged() throws Exception {
+    ReadHedger hedger = new ReadHedger(95, 1, 0, 50);
+    warmUp(hedger);
+    FakeSender sender = new FakeSender(false, true);
+    try {
+      hedger.send("get", sender).get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TableStoreException);
+    }
+    assertEquals(0, sender.hedges.get());
+  }
+
+  @Test
+  public void testHedgedAdapterReads() throws Exception {
+    String instance = "hedge-" + System.nanoTime();
+    InMemoryAsyncClient.getInstance(instance);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setHedgePercentile(95);
+    conf.setConcurrencyLimitMax(16);
+    OTSAdapter adapter = OTSAdapter.getInstance(conf);
+    try {
+      adapter.createTable(new OTableDescriptor("hedged"));
+      adapter.put("hedged", new OPut(Bytes.toBytes("row")).add(Bytes.toBytes("col"), Bytes.toBytes(1)));
+      for (int i = 0; i < 10; i++) {
+        assertEquals("row", Bytes.toString(adapter.get("hedged", new OGet(Bytes.toBytes("row"))).getRow()));
+      }
+      assertEquals(2, adapter.getMultiple("hedged",
+          Arrays.asList(new OGet(Bytes.toBytes("row")), new OGet(Bytes.toBytes("row")))).size());
+      assertEquals(0, adapter.getMetrics().getInFlightRequests());
+    } finally {
+      adapter.close();
+    }
+  }
+
+  @Test
+  public void testHedgedReadErrorsAreClassified() throws Exception {
+    String instance = "hedge-error-" + System.nanoTime();
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance(instance);
+    // a table whose primary key is not the one of the adapter, which rejects the reads
+    TableMeta meta = new TableMeta("foreign");
+    meta.addPrimaryKeyColumn("id", PrimaryKeyType.STRING);
+    emulator.createTable(new CreateTableRequest(meta, new TableOptions(-1, 1)), null).get();
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setHedgePercentile(95);
+    OTSAdapter adapter = OTSAdapter.getInstance(conf);
+    try {
+      try {
+        adapter.get("foreign", new OGet(Bytes.toBytes("row")));
+        fail();
+      } catch (IOException e) {
+        assertTrue(hasCause(e, DoNotRetryIOException.class));
+        assertFalse(hasCause(e, ExecutionException.class));
+      }
+      try {
+        adapter.getMultiple("foreign", Arrays.asList(new OGet(Bytes.toBytes("row"))));
+        fail();
+      } catch (IOException e) {
+        assertTrue(hasCause(e, DoNotRetryIOException.class));
+        assertFalse(hasCause(e, ExecutionException.class));
+      }
+      // the primary key is invalid, which is not retried
+      assertEquals(0, adapter.getMetrics().getOperation("foreign", "get").getRetries());
+      assertEquals(0, adapter.getMetrics().getOperation("foreign", "getMultiple").getRetries());
+    } finally {
+      adapter.close();
+    }
+  }
+
+  private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (type.isInstance(cause)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,185 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+
+public class TestRetryingOTSInterface {
+
+  /**
+   * The decorator must retry exactly the methods annotated with {@link Idempotent}, as the retry
+   * proxy does.
+   */
+  @Test
+  public void testRetryIdempotentMethodsOnly() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    OTSInterface failing = (OTSInterface) Proxy.newProxyInstance(OTSInterface.class.getClassLoader(),
+        new Class<?>[] { OTSInterface.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+              return method.getName().equals("toString") ? "failing" : method.invoke(this, args);
+            }
+            calls.incrementAndGet();
+            throw new IOException("fail");
+          }
+        });
+    TablestoreClientConf conf = new TablestoreClientConf();
+    conf.setRetryCount(1);
+    RetryingOTSInterface retrying = new RetryingOTSInterface(conf, failing);
+
+    for (Method method : OTSInterface.class.getMethods()) {
+      if (method.getName().equals("close")) {
+        continue;
+      }
+      Object[] args = new Object[method.getParameterTypes().length];
+      for (int i = 0; i < args.length; i++) {
+        if (method.getParameterTypes()[i] == int.class) {
+          args[i] = 0;
+        }
+      }
+      calls.set(0);
+      try {
+        method.invoke(retrying, args);
+        fail(method.getName() + " should fail");
+      } catch (InvocationTargetException e) {
+        assertTrue(e.getTargetException() instanceof IOException);
+      }
+      int expected = method.isAnnotationPresent(Idempotent.class) ? 2 : 1;
+      assertEquals(method.getName(), expected, calls.get());
+    }
+  }
+
+  /**
+   * A call which is not idempotent fails without being retried, so it must leave the retry budget
+   * to the calls which are.
+   */
+  @Test
+  public void testNonIdempotentFailuresDoNotSpendTheBudget() throws Exception {
+    OTSInterface failing = (OTSInterface) Proxy.newProxyInstance(OTSInterface.class.getClassLoader(),
+        new Class<?>[] { OTSInterface.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+              return method.getName().equals("toString") ? "failing" : method.invoke(this, args);
+            }
+            throw new IOException("fail");
+          }
+        });
+    // a budget of a single retry, which is never refilled
+    DefaultRetryPolicy policy = new DefaultRetryPolicy(3, 1, 1, 0, 0);
+    RetryingOTSInterface retrying = new RetryingOTSInterface(new TablestoreClientConf(), failing, null, policy);
+    for (int i = 0; i < 3; i++) {
+      try {
+        retrying.increment("table", null);
+        fail();
+      } catch (IOException e) {
+        // not retried
+      }
+    }
+    assertTrue(policy.retryDelay(new IOException("fail"), 0) >= 0);
+    assertEquals(-1, policy.retryDelay(new IOException("fail"), 0));
+  }
+
+  /**
+   * A call blocked longer than the operation timeout must be failed on the calling thread, and
+   * must not leave the thread interrupted.
+   */
+  @Test
+  public void testOperationTimeout() throws Exception {
+    final CountDownLatch never = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    OTSInterface blocking = (OTSInterface) Proxy.newProxyInstance(OTSInterface.class.getClassLoader(),
+        new Class<?>[] { OTSInterface.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+              return method.getName().equals("toString") ? "blocking" : method.invoke(this, args);
+            }
+            if (calls.incrementAndGet() == 1) {
+              try {
+                never.await();
+              } catch (InterruptedException e) {
+                throw new IOException(e);
+              }
+            }
+            return null;
+          }
+        });
+    TablestoreClientConf conf = new TablestoreClientConf();
+    conf.setOperationTimeout(200);
+    RetryingOTSInterface retrying = new RetryingOTSInterface(conf, blocking);
+
+    long start = System.currentTimeMillis();
+    try {
+      retrying.get("table", null);
+      fail("get should time out");
+    } catch (OperationTimeoutException e) {
+      // expected
+    }
+    assertTrue(System.currentTimeMillis() - start < 1000);
+    assertEquals(1, calls.get());
+    assertFalse(Thread.currentThread().isInterrupted());
+
+    // the next call is not affected by the timer of the previous one
+    retrying.get("table", null);
+    Thread.sleep(300);
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  /**
+   * No request of a batch is sent once the deadline of the operation is passed.
+   */
+  @Test
+  public void testNoRequestIsSentAfterDeadline() throws Exception {
+    String instance = "deadline-" + System.nanoTime();
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance(instance);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setConcurrencyLimitMax(1);
+    conf.setOperationTimeout(200);
+    OTSAdapter adapter = OTSAdapter.getInstance(conf);
+    try {
+      adapter.createTable(new OTableDescriptor("deadline"));
+      emulator.setLatencyMicros(50000);
+      List<OGet> gets = new ArrayList<OGet>();
+      for (int i = 0; i < 2000; i++) {
+        gets.add(new OGet(Bytes.toBytes("row_" + i)));
+      }
+      long requests = emulator.getRequestCount();
+      long start = System.currentTimeMillis();
+      try {
+        adapter.getMultiple("deadline", gets);
+        fail("getMultiple should time out");
+      } catch (OperationTimeoutException e) {
+        // expected
+      }
+      assertTrue(System.currentTimeMillis() - start < 1000);
+      Thread.sleep(500);
+      // 20 batches are needed, and only the ones sent before the deadline are
+      assertTrue(emulator.getRequestCount() - requests <= 6);
+      assertFalse(Thread.currentThread().isInterrupted());
+    } finally {
+      emulator.setLatencyMicros(0);
+      adapter.close();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.model.CapacityUnit;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OColumnValue;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+
+public class TestRowCache {
+
+  private static OGet get(String row) {
+    return new OGet(Bytes.toBytes(row));
+  }
+
+  private static OResult result(String row) {
+    return new OResult(Bytes.toBytes(row), new OColumnValue[0]);
+  }
+
+  @Test
+  public void testHitAndMiss() throws Exception {
+    RowCache cache = new RowCache(10, 60000);
+    assertNull(cache.get(get("row_0")));
+    OResult result = result("row_0");
+    result.setConsumedCapacity(new CapacityUnit(1, 0));
+    cache.put(get("row_0"), result, cache.getGeneration());
+    OResult cached = cache.get(get("row_0"));
+    // each caller gets its own copy, without the metadata of the request which read it
+    assertNotSame(result, cached);
+    assertNotSame(cached, cache.get(get("row_0")));
+    assertArrayEquals(result.getRow(), cached.getRow());
+    assertNull(cached.getConsumedCapacity());
+
+    OGet otherQuery = get("row_0");
+    otherQuery.addColumn(Bytes.toBytes("col"));
+    assertNull(cache.get(otherQuery));
+    assertEquals(2, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    RowCache cache = new RowCache(10, 60000);
+    cache.put(get("row_0"), result("row_0"), cache.getGeneration());
+    cache.put(get("row_1"), result("row_1"), cache.getGeneration());
+    cache.invalidate(Bytes.toBytes("row_0"));
+    assertNull(cache.get(get("row_0")));
+    assertEquals(1, cache.size());
+
+    // a result read before the invalidation is not cached
+    long generation = cache.getGeneration();
+    cache.invalidate(Bytes.toBytes("row_2"));
+    cache.put(get("row_2"), result("row_2"), generation);
+    assertNull(cache.get(get("row_2")));
+    // while the writes of the other rows do not matter
+    generation = cache.getGeneration();
+    cache.invalidate(Bytes.toBytes("row_4"));
+    cache.put(get("row_3"), result("row_3"), generation);
+    assertNotNull(cache.get(get("row_3")));
+  }
+
+  @Test
+  public void testForgottenInvalidation() throws Exception {
+    RowCache cache = new RowCache(2, 60000);
+    long generation = cache.getGeneration();
+    cache.invalidate(Bytes.toBytes("row_0"));
+    cache.invalidate(Bytes.toBytes("row_1"));
+    cache.invalidate(Bytes.toBytes("row_2"));
+    // the invalidation of row_0 is forgotten, so a result read before it is not cached
+    cache.put(get("row_0"), result("row_0"), generation);
+    assertNull(cache.get(get("row_0")));
+    cache.put(get("row_0"), result("row_0"), cache.getGeneration());
+    assertNotNull(cache.get(get("row_0")));
+
+    generation = cache.getGeneration();
+    cache.clear();
+    cache.put(get("row_5"), result("row_5"), generation);
+    assertNull(cache.get(get("row_5")));
+  }
+
+  @Test
+  public void testEvictionAndExpiration() throws Exception {
+    RowCache cache = new RowCache(2, 60000);
+    cache.put(get("row_0"), result("row_0"), cache.getGeneration());
+    cache.put(get("row_1"), result("row_1"), cache.getGeneration());
+    cache.get(get("row_0"));
+    cache.put(get("row_2"), result("row_2"), cache.getGeneration());
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    assertNull(cache.get(get("row_1")));
+
+    cache = new RowCache(2, 0);
+    cache.put(get("row_0"), result("row_0"), cache.getGeneration());
+    assertNull(cache.get(get("row_0")));
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,117 @@
+package com.alicloud.tablestore.adaptor.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.model.BatchWriteRowRequest;
+import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.openservices.tablestore.model.RowChange;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+import com.alicloud.tablestore.adaptor.struct.ODelete;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+
+public class TestShardSplits {
+  private static final String TABLE = "partitioned";
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row_%03d", i));
+  }
+
+  private static int partition(byte[] row) {
+    int i = Integer.parseInt(Bytes.toString(row).substring(4));
+    return i / 100;
+  }
+
+  /**
+   * Records the batch writes sent to the emulator.
+   */
+  private static AsyncClientInterface recording(final AsyncClientInterface ots, final List<BatchWriteRowRequest> requests) {
+    return (AsyncClientInterface) Proxy.newProxyInstance(AsyncClientInterface.class.getClassLoader(),
+        new Class[] { AsyncClientInterface.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("batchWriteRow")) {
+              requests.add((BatchWriteRowRequest) args[0]);
+            }
+            try {
+              return method.invoke(ots, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          }
+        });
+  }
+
+  @Test
+  public void testRowsAreBatchedByPartition() throws Exception {
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance("partitioned-" + System.nanoTime());
+    List<BatchWriteRowRequest> requests = new CopyOnWriteArrayList<BatchWriteRowRequest>();
+    TablestoreClientConf conf = new TablestoreClientConf();
+    conf.setWritePartitionGroupingEnabled(true);
+    OTSImplement ots = new OTSImplement(conf, recording(emulator, requests));
+    ots.createTable(new OTableDescriptor(TABLE));
+    List<PrimaryKey> splits = new ArrayList<PrimaryKey>();
+    splits.add(OTSUtil.toPrimaryKey(row(100), OTSConstants.PRIMARY_KEY_NAME));
+    splits.add(OTSUtil.toPrimaryKey(row(200), OTSConstants.PRIMARY_KEY_NAME));
+    emulator.setShardSplits(TABLE, splits);
+
+    List<Integer> rows = new ArrayList<Integer>();
+    for (int i = 0; i < 300; i += 10) {
+      for (int j = 0; j < 9; j++) {
+        rows.add(i + j);
+      }
+    }
+    Collections.shuffle(rows, new Random(7));
+    List<OPut> puts = new ArrayList<OPut>();
+    List<ODelete> deletes = new ArrayList<ODelete>();
+    for (int i : rows) {
+      puts.add(new OPut(row(i)).add(Bytes.toBytes("col"), Bytes.toBytes(i)));
+      deletes.add(new ODelete(row(i)));
+    }
+    ots.putMultiple(TABLE, puts);
+    assertEquals(270, emulator.getRowCount(TABLE));
+    // 90 rows in each of the 3 partitions, which fit in a batch each
+    assertEquals(3, requests.size());
+    Set<Integer> partitions = new HashSet<Integer>();
+    for (BatchWriteRowRequest request : requests) {
+      int partition = -1;
+      for (RowChange change : request.getRowChange().get(TABLE)) {
+        int p = partition(change.getPrimaryKey().getPrimaryKeyColumn(0).getValue().asBinary());
+        assertTrue(partition == -1 || partition == p);
+        partition = p;
+      }
+      partitions.add(partition);
+    }
+    assertEquals(3, partitions.size());
+
+    requests.clear();
+    ots.deleteMultiple(TABLE, deletes);
+    assertEquals(0, emulator.getRowCount(TABLE));
+    assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void testRowsOfPartitionKeepTheirOrder() {
+    assertArrayEquals(new int[] { 1, 4, 0, 3, 2, 5 }, OTSImplement.groupByPartition(new int[] { 1, 0, 2, 1, 0, 2 }));
+    assertArrayEquals(new int[] { 0, 1, 2 }, OTSImplement.groupByPartition(new int[3]));
+  }
+}
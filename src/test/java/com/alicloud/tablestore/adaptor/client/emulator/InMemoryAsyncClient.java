@@ -0,0 +1,608 @@
+package com.alicloud.tablestore.adaptor.client.emulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.core.auth.CredentialsProvider;
+import com.alicloud.openservices.tablestore.core.protocol.OTSProtocolBuilder;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.delivery.*;
+import com.alicloud.openservices.tablestore.model.search.*;
+import com.alicloud.openservices.tablestore.model.sql.*;
+import com.alicloud.tablestore.adaptor.client.AsyncClientFactory;
+import com.alicloud.tablestore.adaptor.client.OTSErrorCode;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.util.ThreadFactoryBuilder;
+
+/**
+ * An in-process emulator of the Tablestore service, which lets the client run without an instance
+ * in tests and benchmarks. The tables are kept in memory with the versions of the cells, and the
+ * reads honor the columns to get, time ranges, max versions, column value filters and column
+ * pagination, while the writes honor the row existence and column conditions. A GetRange response
+ * does not cross the shard splits set by {@link #setShardSplits}.
+ * <p/>
+ * The requests are completed from a shared pool as by the real client, after the latency injected
+ * into them if any, and a ratio of the requests, or of the rows of the batch requests, can be
+ * failed with OTSServerBusy to emulate throttling. Only the table and row operations used by this
+ * adaptor are supported, the others throw {@link UnsupportedOperationException}.
+ * <p/>
+ * Configure the adaptor by {@link #configure}, or set tablestore.client.factory to {@link Factory},
+ * to let it use the instance of {@link #getInstance} named by its instance name instead of a real
+ * client.
+ */
+public class InMemoryAsyncClient implements AsyncClientInterface {
+  static final int MAX_BATCH_GET_ROWS = 100;
+  static final int MAX_BATCH_WRITE_ROWS = 200;
+  static final int MAX_REQUEST_BYTES = 4 * 1024 * 1024;
+
+  private static final ConcurrentHashMap<String, InMemoryAsyncClient> INSTANCES =
+      new ConcurrentHashMap<String, InMemoryAsyncClient>();
+  // completes the requests, after the injected latency if any
+  private static final ScheduledThreadPoolExecutor TIMER;
+
+  static {
+    TIMER = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder().setNameFormat("otsadapter-emulator-%d").setDaemon(true).build());
+  }
+
+  private final ConcurrentHashMap<String, InMemoryTable> tables = new ConcurrentHashMap<String, InMemoryTable>();
+  private final AtomicLong requestCount = new AtomicLong();
+  private volatile long latencyMicros = 0;
+  private volatile double throttleRatio = 0;
+
+  /**
+   * Creates the emulator named by the instance name of the conf, and sets the latency and the
+   * throttle ratio of the emulator if they are configured.
+   */
+  public static class Factory implements AsyncClientFactory {
+    public static final String LATENCY_MICROS = "tablestore.client.factory.emulator.latency.micros";
+    public static final String THROTTLE_RATIO = "tablestore.client.factory.emulator.throttle.ratio";
+
+    @Override
+    public AsyncClientInterface create(TablestoreClientConf conf) {
+      if (conf.getOTSInstanceName() == null) {
+        throw new IllegalArgumentException("The instance name of the emulator is not set");
+      }
+      InMemoryAsyncClient emulator = getInstance(conf.getOTSInstanceName());
+      if (conf.getValue(LATENCY_MICROS) != null) {
+        emulator.setLatencyMicros(Long.parseLong(conf.getValue(LATENCY_MICROS)));
+      }
+      if (conf.getValue(THROTTLE_RATIO) != null) {
+        emulator.setThrottleRatio(Double.parseDouble(conf.getValue(THROTTLE_RATIO)));
+      }
+      return emulator;
+    }
+  }
+
+  private interface Operation<Res> {
+    Res run(Response meta);
+  }
+
+  /**
+   * Throws the {@link TableStoreException} of a failed request from get(), as the futures of the
+   * real client do.
+   */
+  private static class ResponseFuture<T> extends CompletableFuture<T> {
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+      try {
+        return super.get();
+      } catch (ExecutionException e) {
+        throw unwrap(e);
+      }
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      try {
+        return super.get(timeout, unit);
+      } catch (ExecutionException e) {
+        throw unwrap(e);
+      }
+    }
+
+    private static ExecutionException unwrap(ExecutionException e) {
+      if (e.getCause() instanceof TableStoreException) {
+        TableStoreException ex = (TableStoreException) e.getCause();
+        throw new TableStoreException(ex.getMessage(), ex, ex.getErrorCode(), ex.getRequestId(), ex.getHttpStatus());
+      }
+      return e;
+    }
+  }
+
+  /**
+   * Get the emulator of the name, which is created on the first call and lives as long as the JVM.
+   * @param name
+   * @return the shared emulator of the name
+   */
+  public static InMemoryAsyncClient getInstance(String name) {
+    InMemoryAsyncClient instance = INSTANCES.get(name);
+    if (instance == null) {
+      instance = new InMemoryAsyncClient();
+      InMemoryAsyncClient existedOne = INSTANCES.putIfAbsent(name, instance);
+      if (existedOne != null) {
+        instance = existedOne;
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Let the adaptor created by the conf use the emulator of the name instead of a real client.
+   * @param conf
+   * @param name
+   * @return the shared emulator of the name
+   */
+  public static InMemoryAsyncClient configure(TablestoreClientConf conf, String name) {
+    conf.setClientFactory(Factory.class.getName());
+    conf.setOTSInstanceName(name);
+    return getInstance(name);
+  }
+
+  /**
+   * Set the time in microseconds each request takes, 0 to complete the requests as soon as the
+   * pool runs them
+   * @param latencyMicros
+   */
+  public void setLatencyMicros(long latencyMicros) {
+    this.latencyMicros = latencyMicros;
+  }
+
+  public long getLatencyMicros() {
+    return latencyMicros;
+  }
+
+  /**
+   * Set the ratio of the requests, or of the rows of the batch requests, which fail with
+   * OTSServerBusy
+   * @param throttleRatio between 0 and 1
+   */
+  public void setThrottleRatio(double throttleRatio) {
+    this.throttleRatio = throttleRatio;
+  }
+
+  public double getThrottleRatio() {
+    return throttleRatio;
+  }
+
+  /**
+   * Splits the table into shards at the sorted keys, as returned by DescribeTable.
+   * @param tableName
+   * @param shardSplits
+   */
+  public void setShardSplits(String tableName, List<PrimaryKey> shardSplits) {
+    getTable(tableName, null).setShardSplits(shardSplits);
+  }
+
+  /**
+   * @return the number of the rows of the table which are not deleted
+   */
+  public int getRowCount(String tableName) {
+    return getTable(tableName, null).getRowCount();
+  }
+
+  /**
+   * @return the number of the requests received
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  static TableStoreException error(String errorCode, String message, Response meta, int httpStatus) {
+    return new TableStoreException(message, null, errorCode, meta == null ? null : meta.getRequestId(), httpStatus);
+  }
+
+  private InMemoryTable getTable(String tableName, Response meta) {
+    InMemoryTable table = tables.get(tableName);
+    if (table == null) {
+      throw error(OTSErrorCode.OBJECT_NOT_EXIST, "Requested table does not exist.", meta, 404);
+    }
+    return table;
+  }
+
+  private void throttle(Response meta) {
+    double ratio = throttleRatio;
+    if (ratio > 0 && ThreadLocalRandom.current().nextDouble() < ratio) {
+      throw error(OTSErrorCode.SERVER_BUSY, "Server is busy.", meta, 503);
+    }
+  }
+
+  private static UnsupportedOperationException unsupported(String operation) {
+    return new UnsupportedOperationException(operation + " is not supported by the emulator.");
+  }
+
+  private <Req, Res> Future<Res> submit(final Req request, final TableStoreCallback<Req, Res> callback,
+      final boolean throttled, final Operation<Res> operation) {
+    final Response meta = new Response(Long.toString(requestCount.incrementAndGet()));
+    final ResponseFuture<Res> future = new ResponseFuture<Res>();
+    Runnable task = new Runnable() {
+      @Override
+      public void run() {
+        Res response;
+        try {
+          if (throttled) {
+            throttle(meta);
+          }
+          response = operation.run(meta);
+        } catch (TableStoreException e) {
+          future.completeExceptionally(e);
+          if (callback != null) {
+            callback.onFailed(request, e);
+          }
+          return;
+        }
+        future.complete(response);
+        if (callback != null) {
+          callback.onCompleted(request, response);
+        }
+      }
+    };
+    long latency = latencyMicros;
+    if (latency > 0) {
+      TIMER.schedule(task, latency, TimeUnit.MICROSECONDS);
+    } else {
+      TIMER.execute(task);
+    }
+    return future;
+  }
+
+  @Override
+  public Future<CreateTableResponse> createTable(final CreateTableRequest request,
+      TableStoreCallback<CreateTableRequest, CreateTableResponse> callback) {
+    return submit(request, callback, false, new Operation<CreateTableResponse>() {
+      @Override
+      public CreateTableResponse run(Response meta) {
+        InMemoryTable table = new InMemoryTable(request.getTableMeta(), request.getTableOptions());
+        if (tables.putIfAbsent(table.getName(), table) != null) {
+          throw error(OTSErrorCode.OBJECT_ALREADY_EXIST, "Requested table already exists.", meta, 409);
+        }
+        return new CreateTableResponse(meta);
+      }
+    });
+  }
+
+  @Override
+  public Future<UpdateTableResponse> updateTable(final UpdateTableRequest request,
+      TableStoreCallback<UpdateTableRequest, UpdateTableResponse> callback) {
+    return submit(request, callback, false, new Operation<UpdateTableResponse>() {
+      @Override
+      public UpdateTableResponse run(Response meta) {
+        InMemoryTable table = getTable(request.getTableName(), meta);
+        if (request.getTableOptionsForUpdate() != null) {
+          table.setTableOptions(request.getTableOptionsForUpdate());
+        }
+        return new UpdateTableResponse(meta);
+      }
+    });
+  }
+
+  @Override
+  public Future<DescribeTableResponse> describeTable(final DescribeTableRequest request,
+      TableStoreCallback<DescribeTableRequest, DescribeTableResponse> callback) {
+    return submit(request, callback, false, new Operation<DescribeTableResponse>() {
+      @Override
+      public DescribeTableResponse run(Response meta) {
+        return getTable(request.getTableName(), meta).describe(meta);
+      }
+    });
+  }
+
+  @Override
+  public Future<ListTableResponse> listTable(TableStoreCallback<ListTableRequest, ListTableResponse> callback) {
+    return submit(new ListTableRequest(), callback, false, new Operation<ListTableResponse>() {
+      @Override
+      public ListTableResponse run(Response meta) {
+        ListTableResponse response = new ListTableResponse(meta);
+        response.setTableNames(new ArrayList<String>(tables.keySet()));
+        return response;
+      }
+    });
+  }
+
+  @Override
+  public Future<DeleteTableResponse> deleteTable(final DeleteTableRequest request,
+      TableStoreCallback<DeleteTableRequest, DeleteTableResponse> callback) {
+    return submit(request, callback, false, new Operation<DeleteTableResponse>() {
+      @Override
+      public DeleteTableResponse run(Response meta) {
+        if (tables.remove(request.getTableName()) == null) {
+          throw error(OTSErrorCode.OBJECT_NOT_EXIST, "Requested table does not exist.", meta, 404);
+        }
+        return new DeleteTableResponse(meta);
+      }
+    });
+  }
+
+  @Override
+  public Future<GetRowResponse> getRow(final GetRowRequest request,
+      TableStoreCallback<GetRowRequest, GetRowResponse> callback) {
+    return submit(request, callback, true, new Operation<GetRowResponse>() {
+      @Override
+      public GetRowResponse run(Response meta) {
+        SingleRowQueryCriteria criteria = request.getRowQueryCriteria();
+        return getTable(criteria.getTableName(), meta).getRow(meta, criteria);
+      }
+    });
+  }
+
+  @Override
+  public Future<PutRowResponse> putRow(final PutRowRequest request,
+      TableStoreCallback<PutRowRequest, PutRowResponse> callback) {
+    return submit(request, callback, true, new Operation<PutRowResponse>() {
+      @Override
+      public PutRowResponse run(Response meta) {
+        RowPutChange change = request.getRowChange();
+        Row row = getTable(change.getTableName(), meta).write(meta, change);
+        return new PutRowResponse(meta, row, InMemoryTable.writeCapacity(change));
+      }
+    });
+  }
+
+  @Override
+  public Future<UpdateRowResponse> updateRow(final UpdateRowRequest request,
+      TableStoreCallback<UpdateRowRequest, UpdateRowResponse> callback) {
+    return submit(request, callback, true, new Operation<UpdateRowResponse>() {
+      @Override
+      public UpdateRowResponse run(Response meta) {
+        RowUpdateChange change = request.getRowChange();
+        Row row = getTable(change.getTableName(), meta).write(meta, change);
+        return new UpdateRowResponse(meta, row, InMemoryTable.writeCapacity(change));
+      }
+    });
+  }
+
+  @Override
+  public Future<DeleteRowResponse> deleteRow(final DeleteRowRequest request,
+      TableStoreCallback<DeleteRowRequest, DeleteRowResponse> callback) {
+    return submit(request, callback, true, new Operation<DeleteRowResponse>() {
+      @Override
+      public DeleteRowResponse run(Response meta) {
+        RowDeleteChange change = request.getRowChange();
+        Row row = getTable(change.getTableName(), meta).write(meta, change);
+        return new DeleteRowResponse(meta, row, InMemoryTable.writeCapacity(change));
+      }
+    });
+  }
+
+  @Override
+  public Future<BatchGetRowResponse> batchGetRow(final BatchGetRowRequest request,
+      TableStoreCallback<BatchGetRowRequest, BatchGetRowResponse> callback) {
+    return submit(request, callback, false, new Operation<BatchGetRowResponse>() {
+      @Override
+      public BatchGetRowResponse run(Response meta) {
+        int rowCount = 0;
+        for (MultiRowQueryCriteria criteria : request.getCriteriasByTable().values()) {
+          rowCount += criteria.size();
+        }
+        if (rowCount > MAX_BATCH_GET_ROWS) {
+          throw error(OTSErrorCode.INVALID_PARAMETER, "Rows count exceeds the upper limit: " + MAX_BATCH_GET_ROWS + ".", meta, 400);
+        }
+        BatchGetRowResponse response = new BatchGetRowResponse(meta);
+        for (Map.Entry<String, MultiRowQueryCriteria> entry : request.getCriteriasByTable().entrySet()) {
+          for (int i = 0; i < entry.getValue().size(); i++) {
+            try {
+              throttle(meta);
+              response.addResult(getTable(entry.getKey(), meta).getRow(meta, entry.getValue(), i));
+            } catch (TableStoreException e) {
+              response.addResult(new BatchGetRowResponse.RowResult(entry.getKey(),
+                  new com.alicloud.openservices.tablestore.model.Error(e.getErrorCode(), e.getMessage()), i));
+            }
+          }
+        }
+        return response;
+      }
+    });
+  }
+
+  @Override
+  public Future<BatchWriteRowResponse> batchWriteRow(final BatchWriteRowRequest request,
+      TableStoreCallback<BatchWriteRowRequest, BatchWriteRowResponse> callback) {
+    return submit(request, callback, false, new Operation<BatchWriteRowResponse>() {
+      @Override
+      public BatchWriteRowResponse run(Response meta) {
+        if (request.getRowsCount() > MAX_BATCH_WRITE_ROWS) {
+          throw error(OTSErrorCode.INVALID_PARAMETER, "Rows count exceeds the upper limit: " + MAX_BATCH_WRITE_ROWS + ".", meta, 400);
+        }
+        // the service limits the request as it is encoded
+        long dataSize = OTSProtocolBuilder.buildBatchWriteRowRequest(request).getSerializedSize();
+        if (dataSize > MAX_REQUEST_BYTES) {
+          throw error(OTSErrorCode.REQUEST_TOO_LARGE, "The total data size of the request exceeds the upper limit: "
+              + MAX_REQUEST_BYTES + ".", meta, 413);
+        }
+        BatchWriteRowResponse response = new BatchWriteRowResponse(meta);
+        for (Map.Entry<String, List<RowChange>> entry : request.getRowChange().entrySet()) {
+          for (int i = 0; i < entry.getValue().size(); i++) {
+            RowChange change = entry.getValue().get(i);
+            try {
+              throttle(meta);
+              Row row = getTable(entry.getKey(), meta).write(meta, change);
+              response.addRowResult(new BatchWriteRowResponse.RowResult(entry.getKey(), row,
+                  InMemoryTable.writeCapacity(change), i));
+            } catch (TableStoreException e) {
+              response.addRowResult(new BatchWriteRowResponse.RowResult(entry.getKey(), null,
+                  new com.alicloud.openservices.tablestore.model.Error(e.getErrorCode(), e.getMessage()), i));
+            }
+          }
+        }
+        return response;
+      }
+    });
+  }
+
+  @Override
+  public Future<GetRangeResponse> getRange(final GetRangeRequest request,
+      TableStoreCallback<GetRangeRequest, GetRangeResponse> callback) {
+    return submit(request, callback, true, new Operation<GetRangeResponse>() {
+      @Override
+      public GetRangeResponse run(Response meta) {
+        RangeRowQueryCriteria criteria = request.getRangeRowQueryCriteria();
+        return getTable(criteria.getTableName(), meta).getRange(meta, criteria);
+      }
+    });
+  }
+
+  @Override
+  public Future<CreateIndexResponse> createIndex(CreateIndexRequest request, TableStoreCallback<CreateIndexRequest, CreateIndexResponse> callback) {
+    throw unsupported("createIndex");
+  }
+
+  @Override
+  public Future<DeleteIndexResponse> deleteIndex(DeleteIndexRequest request, TableStoreCallback<DeleteIndexRequest, DeleteIndexResponse> callback) {
+    throw unsupported("deleteIndex");
+  }
+
+  @Override
+  public Future<AddDefinedColumnResponse> addDefinedColumn(AddDefinedColumnRequest request, TableStoreCallback<AddDefinedColumnRequest, AddDefinedColumnResponse> callback) {
+    throw unsupported("addDefinedColumn");
+  }
+
+  @Override
+  public Future<DeleteDefinedColumnResponse> deleteDefinedColumn(DeleteDefinedColumnRequest request, TableStoreCallback<DeleteDefinedColumnRequest, DeleteDefinedColumnResponse> callback) {
+    throw unsupported("deleteDefinedColumn");
+  }
+
+  @Override
+  public Future<BulkImportResponse> bulkImport(BulkImportRequest request, TableStoreCallback<BulkImportRequest, BulkImportResponse> callback) {
+    throw unsupported("bulkImport");
+  }
+
+  @Override
+  public Future<BulkExportResponse> bulkExport(BulkExportRequest request, TableStoreCallback<BulkExportRequest, BulkExportResponse> callback) {
+    throw unsupported("bulkExport");
+  }
+
+  @Override
+  public Future<ComputeSplitsBySizeResponse> computeSplitsBySize(ComputeSplitsBySizeRequest request, TableStoreCallback<ComputeSplitsBySizeRequest, ComputeSplitsBySizeResponse> callback) {
+    throw unsupported("computeSplitsBySize");
+  }
+
+  @Override
+  public Future<ListStreamResponse> listStream(ListStreamRequest request, TableStoreCallback<ListStreamRequest, ListStreamResponse> callback) {
+    throw unsupported("listStream");
+  }
+
+  @Override
+  public Future<DescribeStreamResponse> describeStream(DescribeStreamRequest request, TableStoreCallback<DescribeStreamRequest, DescribeStreamResponse> callback) {
+    throw unsupported("describeStream");
+  }
+
+  @Override
+  public Future<GetShardIteratorResponse> getShardIterator(GetShardIteratorRequest request, TableStoreCallback<GetShardIteratorRequest, GetShardIteratorResponse> callback) {
+    throw unsupported("getShardIterator");
+  }
+
+  @Override
+  public Future<GetStreamRecordResponse> getStreamRecord(GetStreamRecordRequest request, TableStoreCallback<GetStreamRecordRequest, GetStreamRecordResponse> callback) {
+    throw unsupported("getStreamRecord");
+  }
+
+  @Override
+  public Future<StartLocalTransactionResponse> startLocalTransaction(StartLocalTransactionRequest request, TableStoreCallback<StartLocalTransactionRequest, StartLocalTransactionResponse> callback) {
+    throw unsupported("startLocalTransaction");
+  }
+
+  @Override
+  public Future<CommitTransactionResponse> commitTransaction(CommitTransactionRequest request, TableStoreCallback<CommitTransactionRequest, CommitTransactionResponse> callback) {
+    throw unsupported("commitTransaction");
+  }
+
+  @Override
+  public Future<AbortTransactionResponse> abortTransaction(AbortTransactionRequest request, TableStoreCallback<AbortTransactionRequest, AbortTransactionResponse> callback) {
+    throw unsupported("abortTransaction");
+  }
+
+  @Override
+  public Future<CreateSearchIndexResponse> createSearchIndex(CreateSearchIndexRequest request, TableStoreCallback<CreateSearchIndexRequest, CreateSearchIndexResponse> callback) {
+    throw unsupported("createSearchIndex");
+  }
+
+  @Override
+  public Future<UpdateSearchIndexResponse> updateSearchIndex(UpdateSearchIndexRequest request, TableStoreCallback<UpdateSearchIndexRequest, UpdateSearchIndexResponse> callback) {
+    throw unsupported("updateSearchIndex");
+  }
+
+  @Override
+  public Future<ListSearchIndexResponse> listSearchIndex(ListSearchIndexRequest request, TableStoreCallback<ListSearchIndexRequest, ListSearchIndexResponse> callback) {
+    throw unsupported("listSearchIndex");
+  }
+
+  @Override
+  public Future<DeleteSearchIndexResponse> deleteSearchIndex(DeleteSearchIndexRequest request, TableStoreCallback<DeleteSearchIndexRequest, DeleteSearchIndexResponse> callback) {
+    throw unsupported("deleteSearchIndex");
+  }
+
+  @Override
+  public Future<DescribeSearchIndexResponse> describeSearchIndex(DescribeSearchIndexRequest request, TableStoreCallback<DescribeSearchIndexRequest, DescribeSearchIndexResponse> callback) {
+    throw unsupported("describeSearchIndex");
+  }
+
+  @Override
+  public Future<ComputeSplitsResponse> computeSplits(ComputeSplitsRequest request, TableStoreCallback<ComputeSplitsRequest, ComputeSplitsResponse> callback) {
+    throw unsupported("computeSplits");
+  }
+
+  @Override
+  public Future<ParallelScanResponse> parallelScan(ParallelScanRequest request, TableStoreCallback<ParallelScanRequest, ParallelScanResponse> callback) {
+    throw unsupported("parallelScan");
+  }
+
+  @Override
+  public Future<CreateDeliveryTaskResponse> createDeliveryTask(CreateDeliveryTaskRequest request, TableStoreCallback<CreateDeliveryTaskRequest, CreateDeliveryTaskResponse> callback) {
+    throw unsupported("createDeliveryTask");
+  }
+
+  @Override
+  public Future<DeleteDeliveryTaskResponse> deleteDeliveryTask(DeleteDeliveryTaskRequest request, TableStoreCallback<DeleteDeliveryTaskRequest, DeleteDeliveryTaskResponse> callback) {
+    throw unsupported("deleteDeliveryTask");
+  }
+
+  @Override
+  public Future<DescribeDeliveryTaskResponse> describeDeliveryTask(DescribeDeliveryTaskRequest request, TableStoreCallback<DescribeDeliveryTaskRequest, DescribeDeliveryTaskResponse> callback) {
+    throw unsupported("describeDeliveryTask");
+  }
+
+  @Override
+  public Future<ListDeliveryTaskResponse> listDeliveryTask(ListDeliveryTaskRequest request, TableStoreCallback<ListDeliveryTaskRequest, ListDeliveryTaskResponse> callback) {
+    throw unsupported("listDeliveryTask");
+  }
+
+  @Override
+  public Future<SearchResponse> search(SearchRequest request, TableStoreCallback<SearchRequest, SearchResponse> callback) {
+    throw unsupported("search");
+  }
+
+  @Override
+  public Future<SQLQueryResponse> sqlQuery(SQLQueryRequest request, TableStoreCallback<SQLQueryRequest, SQLQueryResponse> callback) {
+    throw unsupported("sqlQuery");
+  }
+
+  @Override
+  public SyncClientInterface asSyncClient() {
+    throw unsupported("asSyncClient");
+  }
+
+  /**
+   * Keeps the tables, as the instance may be shared by other adapters.
+   */
+  @Override
+  public void shutdown() {
+  }
+
+  @Override
+  public void switchCredentialsProvider(CredentialsProvider credentialsProvider) {
+  }
+}
@@ -0,0 +1,498 @@
+package com.alicloud.tablestore.adaptor.client.emulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.core.utils.Pair;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.filter.ColumnPaginationFilter;
+import com.alicloud.openservices.tablestore.model.filter.ColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.filter.CompositeColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.filter.Filter;
+import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.condition.CompositeColumnValueCondition;
+import com.alicloud.openservices.tablestore.model.condition.SingleColumnValueCondition;
+import com.alicloud.tablestore.adaptor.client.OTSErrorCode;
+
+/**
+ * The rows of a table of {@link InMemoryAsyncClient}. Each row keeps the versions of its cells,
+ * newest first, and is locked on its own while it is read or written, so operations on different
+ * rows do not contend. Deleted rows are kept as empty rows, which are invisible to the reads.
+ */
+class InMemoryTable {
+  // the server returns at most 5000 rows or 4MB in one GetRange response
+  static final int MAX_RANGE_ROWS = 5000;
+  static final int MAX_RANGE_BYTES = 4 * 1024 * 1024;
+  private static final int CAPACITY_UNIT_BYTES = 4 * 1024;
+
+  private final String name;
+  private final TableMeta tableMeta;
+  private volatile TableOptions tableOptions;
+  private volatile List<PrimaryKey> shardSplits = Collections.emptyList();
+  private final long creationTime = System.currentTimeMillis();
+  private final ConcurrentSkipListMap<PrimaryKey, StoredRow> rows = new ConcurrentSkipListMap<PrimaryKey, StoredRow>();
+
+  /**
+   * column name -> timestamp -> value, newest version first. Guarded by itself.
+   */
+  private static class StoredRow {
+    final TreeMap<String, TreeMap<Long, ColumnValue>> columns = new TreeMap<String, TreeMap<Long, ColumnValue>>();
+  }
+
+  InMemoryTable(TableMeta tableMeta, TableOptions tableOptions) {
+    this.name = tableMeta.getTableName();
+    this.tableMeta = tableMeta;
+    this.tableOptions = tableOptions;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  void setTableOptions(TableOptions tableOptions) {
+    TableOptions merged = new TableOptions();
+    merged.setMaxVersions(tableOptions.hasSetMaxVersions() ? tableOptions.getMaxVersions() : this.tableOptions.getMaxVersions());
+    merged.setTimeToLive(tableOptions.hasSetTimeToLive() ? tableOptions.getTimeToLive() : this.tableOptions.getTimeToLive());
+    if (tableOptions.hasSetMaxTimeDeviation()) {
+      merged.setMaxTimeDeviation(tableOptions.getMaxTimeDeviation());
+    } else if (this.tableOptions.hasSetMaxTimeDeviation()) {
+      merged.setMaxTimeDeviation(this.tableOptions.getMaxTimeDeviation());
+    }
+    this.tableOptions = merged;
+  }
+
+  /**
+   * Splits the table into shards at the keys, which must be sorted.
+   */
+  void setShardSplits(List<PrimaryKey> shardSplits) {
+    this.shardSplits = Collections.unmodifiableList(new ArrayList<PrimaryKey>(shardSplits));
+  }
+
+  DescribeTableResponse describe(Response meta) {
+    DescribeTableResponse response = new DescribeTableResponse(meta);
+    response.setTableMeta(tableMeta);
+    response.setTableOptions(tableOptions);
+    response.setShardSplits(shardSplits);
+    response.setCreationTime(creationTime);
+    return response;
+  }
+
+  GetRowResponse getRow(Response meta, SingleRowQueryCriteria criteria) {
+    checkPrimaryKey(criteria.getPrimaryKey(), meta);
+    StoredRow stored = rows.get(criteria.getPrimaryKey());
+    Row row = null;
+    if (stored != null) {
+      synchronized (stored) {
+        row = read(criteria.getPrimaryKey(), stored, criteria);
+      }
+    }
+    return new GetRowResponse(meta, row, readCapacity(row));
+  }
+
+  BatchGetRowResponse.RowResult getRow(Response meta, MultiRowQueryCriteria criteria, int index) {
+    PrimaryKey primaryKey = criteria.get(index);
+    checkPrimaryKey(primaryKey, meta);
+    StoredRow stored = rows.get(primaryKey);
+    Row row = null;
+    if (stored != null) {
+      synchronized (stored) {
+        row = read(primaryKey, stored, criteria);
+      }
+    }
+    return new BatchGetRowResponse.RowResult(name, row, readCapacity(row), index);
+  }
+
+  GetRangeResponse getRange(Response meta, RangeRowQueryCriteria criteria) {
+    PrimaryKey start = criteria.getInclusiveStartPrimaryKey();
+    PrimaryKey end = criteria.getExclusiveEndPrimaryKey();
+    checkRangeKey(start, meta);
+    checkRangeKey(end, meta);
+    boolean forward = criteria.getDirection() != Direction.BACKWARD;
+    int order = start.compareTo(end);
+    if (forward ? order > 0 : order < 0) {
+      throw InMemoryAsyncClient.error(OTSErrorCode.INVALID_PARAMETER,
+          "The start primary key must be " + (forward ? "less" : "greater") + " than the end primary key.", meta, 400);
+    }
+
+    NavigableMap<PrimaryKey, StoredRow> range;
+    PrimaryKey shardEnd = null;
+    if (forward) {
+      // a response does not cross the boundary of the shard the range starts in
+      for (PrimaryKey split : shardSplits) {
+        if (split.compareTo(start) > 0) {
+          if (split.compareTo(end) < 0) {
+            shardEnd = split;
+          }
+          break;
+        }
+      }
+      range = rows.subMap(start, true, shardEnd != null ? shardEnd : end, false);
+    } else {
+      range = rows.subMap(end, false, start, true).descendingMap();
+    }
+
+    int limit = criteria.getLimit() > 0 ? Math.min(criteria.getLimit(), MAX_RANGE_ROWS) : MAX_RANGE_ROWS;
+    List<Row> results = new ArrayList<Row>();
+    long bytes = 0;
+    PrimaryKey next = shardEnd;
+    for (Map.Entry<PrimaryKey, StoredRow> entry : range.entrySet()) {
+      if (results.size() >= limit || bytes >= MAX_RANGE_BYTES) {
+        next = entry.getKey();
+        break;
+      }
+      Row row;
+      synchronized (entry.getValue()) {
+        row = read(entry.getKey(), entry.getValue(), criteria);
+      }
+      if (row != null) {
+        results.add(row);
+        bytes += dataSize(row);
+      }
+    }
+    GetRangeResponse response = new GetRangeResponse(meta, new ConsumedCapacity(new CapacityUnit(capacityUnits(bytes), 0)));
+    response.setRows(results);
+    response.setNextStartPrimaryKey(next);
+    return response;
+  }
+
+  /**
+   * Applies the change to its row.
+   * @return the row to return by the return type of the change, or null
+   * @throws TableStoreException if the condition of the change fails or the change is invalid
+   */
+  Row write(Response meta, RowChange change) {
+    checkPrimaryKey(change.getPrimaryKey(), meta);
+    StoredRow stored = rows.get(change.getPrimaryKey());
+    if (stored == null) {
+      StoredRow created = new StoredRow();
+      stored = rows.putIfAbsent(change.getPrimaryKey(), created);
+      if (stored == null) {
+        stored = created;
+      }
+    }
+    long now = System.currentTimeMillis();
+    synchronized (stored) {
+      checkCondition(change.getCondition(), stored, meta);
+      if (change instanceof RowPutChange) {
+        stored.columns.clear();
+        for (Column column : ((RowPutChange) change).getColumnsToPut()) {
+          putCell(stored, column.getName(), column.hasSetTimestamp() ? column.getTimestamp() : now, column.getValue());
+        }
+      } else if (change instanceof RowDeleteChange) {
+        stored.columns.clear();
+      } else if (change instanceof RowUpdateChange) {
+        update((RowUpdateChange) change, stored, now, meta);
+      } else {
+        throw InMemoryAsyncClient.error(OTSErrorCode.INVALID_PARAMETER,
+            "Unsupported row change: " + change.getClass().getName(), meta, 400);
+      }
+      trimVersions(stored);
+      return returnRow(change, stored);
+    }
+  }
+
+  static ConsumedCapacity writeCapacity(RowChange change) {
+    return new ConsumedCapacity(new CapacityUnit(0, capacityUnits(change.getDataSize())));
+  }
+
+  private void update(RowUpdateChange change, StoredRow stored, long now, Response meta) {
+    // increments are checked first, so that a failed one leaves the row unchanged
+    for (Pair<Column, RowUpdateChange.Type> update : change.getColumnsToUpdate()) {
+      if (update.getSecond() == RowUpdateChange.Type.INCREMENT) {
+        ColumnValue latest = latest(stored, update.getFirst().getName());
+        if (update.getFirst().getValue().getType() != ColumnType.INTEGER
+            || (latest != null && latest.getType() != ColumnType.INTEGER)) {
+          throw InMemoryAsyncClient.error(OTSErrorCode.INVALID_PARAMETER,
+              "Only integer columns can be incremented: " + update.getFirst().getName(), meta, 400);
+        }
+      }
+    }
+    for (Pair<Column, RowUpdateChange.Type> update : change.getColumnsToUpdate()) {
+      Column column = update.getFirst();
+      switch (update.getSecond()) {
+        case PUT:
+          putCell(stored, column.getName(), column.hasSetTimestamp() ? column.getTimestamp() : now, column.getValue());
+          break;
+        case DELETE: {
+          TreeMap<Long, ColumnValue> versions = stored.columns.get(column.getName());
+          if (versions != null) {
+            versions.remove(column.getTimestamp());
+            if (versions.isEmpty()) {
+              stored.columns.remove(column.getName());
+            }
+          }
+          break;
+        }
+        case DELETE_ALL:
+          stored.columns.remove(column.getName());
+          break;
+        case INCREMENT: {
+          ColumnValue latest = latest(stored, column.getName());
+          long value = (latest == null ? 0 : latest.asLong()) + column.getValue().asLong();
+          putCell(stored, column.getName(), now, ColumnValue.fromLong(value));
+          break;
+        }
+        default:
+          throw InMemoryAsyncClient.error(OTSErrorCode.INVALID_PARAMETER,
+              "Unsupported update type: " + update.getSecond(), meta, 400);
+      }
+    }
+  }
+
+  private static void putCell(StoredRow stored, String column, long timestamp, ColumnValue value) {
+    TreeMap<Long, ColumnValue> versions = stored.columns.get(column);
+    if (versions == null) {
+      versions = new TreeMap<Long, ColumnValue>(Collections.<Long>reverseOrder());
+      stored.columns.put(column, versions);
+    }
+    versions.put(timestamp, value);
+  }
+
+  private static ColumnValue latest(StoredRow stored, String column) {
+    TreeMap<Long, ColumnValue> versions = stored.columns.get(column);
+    return versions == null ? null : versions.firstEntry().getValue();
+  }
+
+  private void trimVersions(StoredRow stored) {
+    int maxVersions = tableOptions.hasSetMaxVersions() ? tableOptions.getMaxVersions() : 1;
+    for (TreeMap<Long, ColumnValue> versions : stored.columns.values()) {
+      while (versions.size() > maxVersions) {
+        versions.pollLastEntry();
+      }
+    }
+  }
+
+  private static Row returnRow(RowChange change, StoredRow stored) {
+    if (change.getReturnType() == ReturnType.RT_PK) {
+      return new Row(change.getPrimaryKey(), new ArrayList<Column>());
+    }
+    if (change.getReturnType() == ReturnType.RT_AFTER_MODIFY) {
+      List<Column> columns = new ArrayList<Column>();
+      for (String column : change.getReturnColumnNames()) {
+        TreeMap<Long, ColumnValue> versions = stored.columns.get(column);
+        if (versions != null) {
+          columns.add(new Column(column, versions.firstEntry().getValue(), versions.firstKey()));
+        }
+      }
+      return new Row(change.getPrimaryKey(), columns);
+    }
+    return null;
+  }
+
+  private void checkCondition(Condition condition, StoredRow stored, Response meta) {
+    if (condition == null) {
+      return;
+    }
+    boolean exists = !stored.columns.isEmpty();
+    RowExistenceExpectation expectation = condition.getRowExistenceExpectation();
+    boolean passed = expectation == null
+        || expectation == RowExistenceExpectation.IGNORE
+        || (expectation == RowExistenceExpectation.EXPECT_EXIST && exists)
+        || (expectation == RowExistenceExpectation.EXPECT_NOT_EXIST && !exists);
+    if (passed && condition.getColumnCondition() != null) {
+      ColumnValueFilter filter;
+      if (condition.getColumnCondition() instanceof SingleColumnValueCondition) {
+        filter = ((SingleColumnValueCondition) condition.getColumnCondition()).toFilter();
+      } else {
+        filter = ((CompositeColumnValueCondition) condition.getColumnCondition()).toFilter();
+      }
+      passed = matches(filter, stored, null);
+    }
+    if (!passed) {
+      throw InMemoryAsyncClient.error(OTSErrorCode.CONDITION_CHECK_FAIL, "Condition check failed.", meta, 403);
+    }
+  }
+
+  /**
+   * Reads the columns of the row selected by the criteria.
+   * @return the row, or null if the row does not exist or no column is selected
+   */
+  private Row read(PrimaryKey primaryKey, StoredRow stored, RowQueryCriteria criteria) {
+    if (stored.columns.isEmpty()) {
+      return null;
+    }
+    TimeRange timeRange = criteria.hasSetTimeRange() ? criteria.getTimeRange() : null;
+    Filter filter = criteria.hasSetFilter() ? criteria.getFilter() : null;
+    if (filter instanceof ColumnValueFilter && !matches((ColumnValueFilter) filter, stored, timeRange)) {
+      return null;
+    }
+
+    int maxVersions = criteria.hasSetMaxVersions() ? criteria.getMaxVersions() : Integer.MAX_VALUE;
+    long minTimestamp = tableOptions.hasSetTimeToLive() && tableOptions.getTimeToLive() > 0
+        ? System.currentTimeMillis() - tableOptions.getTimeToLive() * 1000L : Long.MIN_VALUE;
+    int offset = 0;
+    int limit = Integer.MAX_VALUE;
+    if (filter instanceof ColumnPaginationFilter) {
+      offset = ((ColumnPaginationFilter) filter).getOffset();
+      limit = ((ColumnPaginationFilter) filter).getLimit();
+    }
+
+    List<Column> columns = new ArrayList<Column>();
+    NavigableMap<String, TreeMap<Long, ColumnValue>> selected = stored.columns;
+    if (criteria.hasSetStartColumn()) {
+      selected = selected.tailMap(criteria.getStartColumn(), true);
+    }
+    if (criteria.hasSetEndColumn()) {
+      selected = selected.headMap(criteria.getEndColumn(), false);
+    }
+    int columnCount = 0;
+    for (Map.Entry<String, TreeMap<Long, ColumnValue>> column : selected.entrySet()) {
+      if (!criteria.getColumnsToGet().isEmpty() && !criteria.getColumnsToGet().contains(column.getKey())) {
+        continue;
+      }
+      List<Column> versions = new ArrayList<Column>();
+      for (Map.Entry<Long, ColumnValue> version : column.getValue().entrySet()) {
+        if (versions.size() >= maxVersions) {
+          break;
+        }
+        if (version.getKey() >= minTimestamp && (timeRange == null || timeRange.withinTimeRange(version.getKey()))) {
+          versions.add(new Column(column.getKey(), version.getValue(), version.getKey()));
+        }
+      }
+      if (versions.isEmpty()) {
+        continue;
+      }
+      if (columnCount++ < offset) {
+        continue;
+      }
+      if (columnCount - offset > limit) {
+        break;
+      }
+      columns.addAll(versions);
+    }
+    if (columns.isEmpty()) {
+      return null;
+    }
+    return new Row(primaryKey, columns);
+  }
+
+  private static boolean matches(ColumnValueFilter filter, StoredRow stored, TimeRange timeRange) {
+    if (filter instanceof SingleColumnValueFilter) {
+      SingleColumnValueFilter single = (SingleColumnValueFilter) filter;
+      TreeMap<Long, ColumnValue> versions = stored.columns.get(single.getColumnName());
+      boolean missing = true;
+      if (versions != null) {
+        for (Map.Entry<Long, ColumnValue> version : versions.entrySet()) {
+          if (timeRange != null && !timeRange.withinTimeRange(version.getKey())) {
+            continue;
+          }
+          missing = false;
+          if (compare(single.getOperator(), version.getValue(), single.getColumnValue())) {
+            return true;
+          }
+          if (single.isLatestVersionsOnly()) {
+            return false;
+          }
+        }
+      }
+      return missing && single.isPassIfMissing();
+    }
+    CompositeColumnValueFilter composite = (CompositeColumnValueFilter) filter;
+    switch (composite.getOperationType()) {
+      case NOT:
+        return !matches(composite.getSubFilters().get(0), stored, timeRange);
+      case AND:
+        for (ColumnValueFilter subFilter : composite.getSubFilters()) {
+          if (!matches(subFilter, stored, timeRange)) {
+            return false;
+          }
+        }
+        return true;
+      default:
+        for (ColumnValueFilter subFilter : composite.getSubFilters()) {
+          if (matches(subFilter, stored, timeRange)) {
+            return true;
+          }
+        }
+        return false;
+    }
+  }
+
+  private static boolean compare(SingleColumnValueFilter.CompareOperator operator, ColumnValue value, ColumnValue target) {
+    if (value.getType() != target.getType()) {
+      return false;
+    }
+    int result = value.compareTo(target);
+    switch (operator) {
+      case EQUAL:
+        return result == 0;
+      case NOT_EQUAL:
+        return result != 0;
+      case GREATER_THAN:
+        return result > 0;
+      case GREATER_EQUAL:
+        return result >= 0;
+      case LESS_THAN:
+        return result < 0;
+      default:
+        return result <= 0;
+    }
+  }
+
+  private void checkPrimaryKey(PrimaryKey primaryKey, Response meta) {
+    checkRangeKey(primaryKey, meta);
+    for (PrimaryKeyColumn column : primaryKey.getPrimaryKeyColumns()) {
+      if (column.getValue().isInfMin() || column.getValue().isInfMax()) {
+        throw InMemoryAsyncClient.error(OTSErrorCode.INVALID_PK, "INF_MIN or INF_MAX is not allowed in the primary key of a row.",
+            meta, 400);
+      }
+    }
+  }
+
+  private void checkRangeKey(PrimaryKey primaryKey, Response meta) {
+    List<PrimaryKeySchema> schema = tableMeta.getPrimaryKeyList();
+    if (primaryKey == null || primaryKey.size() != schema.size()) {
+      throw InMemoryAsyncClient.error(OTSErrorCode.INVALID_PK, "Validate PK size fail. Input: "
+          + (primaryKey == null ? 0 : primaryKey.size()) + ", Meta: " + schema.size() + ".", meta, 400);
+    }
+    for (int i = 0; i < schema.size(); i++) {
+      PrimaryKeyColumn column = primaryKey.getPrimaryKeyColumn(i);
+      if (!column.getName().equals(schema.get(i).getName())) {
+        throw InMemoryAsyncClient.error(OTSErrorCode.INVALID_PK, "Validate PK name fail. Input: " + column.getName()
+            + ", Meta: " + schema.get(i).getName() + ".", meta, 400);
+      }
+      if (!column.getValue().isInfMin() && !column.getValue().isInfMax()
+          && column.getValue().getType() != schema.get(i).getType()) {
+        throw InMemoryAsyncClient.error(OTSErrorCode.INVALID_PK, "Validate PK type fail. Input: " + column.getValue().getType()
+            + ", Meta: " + schema.get(i).getType() + ".", meta, 400);
+      }
+    }
+  }
+
+  private static ConsumedCapacity readCapacity(Row row) {
+    return new ConsumedCapacity(new CapacityUnit(capacityUnits(row == null ? 0 : dataSize(row)), 0));
+  }
+
+  private static long dataSize(Row row) {
+    long size = row.getPrimaryKey().getDataSize();
+    for (Column column : row.getColumns()) {
+      size += column.getDataSize();
+    }
+    return size;
+  }
+
+  private static int capacityUnits(long bytes) {
+    return (int) Math.max(1, (bytes + CAPACITY_UNIT_BYTES - 1) / CAPACITY_UNIT_BYTES);
+  }
+
+  /**
+   * @return the number of the rows which are not deleted
+   */
+  int getRowCount() {
+    int size = 0;
+    for (StoredRow stored : rows.values()) {
+      synchronized (stored) {
+        if (!stored.columns.isEmpty()) {
+          size++;
+        }
+      }
+    }
+    return size;
+  }
+}
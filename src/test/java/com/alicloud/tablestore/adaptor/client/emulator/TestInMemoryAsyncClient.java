@@ -0,0 +1,178 @@
+package com.alicloud.tablestore.adaptor.client.emulator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.model.Condition;
+import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.openservices.tablestore.model.RowExistenceExpectation;
+import com.alicloud.tablestore.adaptor.client.OResultScanner;
+import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.OTSConstants;
+import com.alicloud.tablestore.adaptor.client.OTSErrorCode;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.client.util.OTSUtil;
+import com.alicloud.tablestore.adaptor.filter.OSingleColumnValueFilter;
+import com.alicloud.tablestore.adaptor.struct.ODelete;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.adaptor.struct.OScan;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import com.alicloud.tablestore.adaptor.struct.OUpdate;
+
+public class TestInMemoryAsyncClient {
+  private static final String TABLE = "emulated";
+  private static final byte[] COL = Bytes.toBytes("col");
+
+  private String instance;
+  private InMemoryAsyncClient emulator;
+  private OTSAdapter adapter;
+
+  @Before
+  public void setUp() throws IOException {
+    instance = "test-" + System.nanoTime();
+    emulator = InMemoryAsyncClient.getInstance(instance);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setRetryCount(0);
+    adapter = OTSAdapter.getInstance(conf);
+    adapter.createTable(new OTableDescriptor(TABLE, 3));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    adapter.close();
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row_%03d", i));
+  }
+
+  @Test
+  public void testTables() throws Exception {
+    assertEquals(1, adapter.listTable().size());
+    List<PrimaryKey> splits = new ArrayList<PrimaryKey>();
+    splits.add(OTSUtil.toPrimaryKey(row(50), OTSConstants.PRIMARY_KEY_NAME));
+    emulator.setShardSplits(TABLE, splits);
+    OTableDescriptor descriptor = adapter.describeTable(TABLE);
+    assertEquals(3, descriptor.getMaxVersion());
+    assertEquals(2, descriptor.getStartKeys().length);
+    assertArrayEquals(row(50), descriptor.getStartKeys()[1]);
+
+    try {
+      adapter.createTable(new OTableDescriptor(TABLE));
+      fail();
+    } catch (IOException e) {
+      // already exists
+    }
+    adapter.deleteTable(TABLE);
+    assertEquals(0, adapter.listTable().size());
+  }
+
+  @Test
+  public void testVersions() throws Exception {
+    for (long ts = 1; ts <= 4; ts++) {
+      adapter.put(TABLE, new OPut(row(0)).add(COL, ts, Bytes.toBytes("v" + ts)));
+    }
+    OResult result = adapter.get(TABLE, new OGet(row(0)).setMaxVersions(10));
+    // the table keeps 3 versions
+    assertEquals(3, result.size());
+    assertEquals("v4", Bytes.toString(result.getValue(COL)));
+
+    result = adapter.get(TABLE, new OGet(row(0)).setMaxVersions(10).setTimeRange(2, 4));
+    assertEquals(2, result.size());
+    assertEquals("v3", Bytes.toString(result.getValue(COL)));
+
+    adapter.delete(TABLE, new ODelete(row(0)).deleteColumn(COL, 4));
+    assertEquals("v3", Bytes.toString(adapter.get(TABLE, new OGet(row(0))).getValue(COL)));
+    adapter.delete(TABLE, new ODelete(row(0)));
+    assertNull(adapter.get(TABLE, new OGet(row(0))).getRow());
+  }
+
+  @Test
+  public void testFilterAndCondition() throws Exception {
+    adapter.put(TABLE, new OPut(row(0)).add(COL, Bytes.toBytes("a")));
+    adapter.put(TABLE, new OPut(row(1)).add(COL, Bytes.toBytes("b")));
+    OScan scan = new OScan();
+    scan.setFilter(new OSingleColumnValueFilter(COL, OSingleColumnValueFilter.OCompareOp.EQUAL, Bytes.toBytes("b")));
+    List<OResult> results = adapter.scan(TABLE, scan, 10);
+    assertEquals(1, results.size());
+    assertArrayEquals(row(1), results.get(0).getRow());
+
+    OPut put = new OPut(row(0)).add(COL, Bytes.toBytes("c"));
+    put.setCondition(new Condition(RowExistenceExpectation.EXPECT_NOT_EXIST));
+    try {
+      adapter.put(TABLE, put);
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("Condition"));
+    }
+    assertEquals("a", Bytes.toString(adapter.get(TABLE, new OGet(row(0))).getValue(COL)));
+  }
+
+  @Test
+  public void testIncrement() throws Exception {
+    adapter.increment(TABLE, new OUpdate(row(0)).increment(COL, 5));
+    OResult result = adapter.increment(TABLE, new OUpdate(row(0)).increment(COL, 2));
+    assertEquals(7, Bytes.toLong(result.getValue(COL)));
+  }
+
+  @Test
+  public void testScanAcrossShardsWithLatency() throws Exception {
+    List<PrimaryKey> splits = new ArrayList<PrimaryKey>();
+    splits.add(OTSUtil.toPrimaryKey(row(30), OTSConstants.PRIMARY_KEY_NAME));
+    splits.add(OTSUtil.toPrimaryKey(row(60), OTSConstants.PRIMARY_KEY_NAME));
+    emulator.setShardSplits(TABLE, splits);
+    List<OPut> puts = new ArrayList<OPut>();
+    for (int i = 0; i < 100; i++) {
+      puts.add(new OPut(row(i)).add(COL, Bytes.toBytes(i)));
+    }
+    adapter.putMultiple(TABLE, puts);
+    assertEquals(100, emulator.getRowCount(TABLE));
+
+    emulator.setLatencyMicros(100);
+    OScan scan = new OScan(row(10));
+    scan.setCaching(25);
+    OResultScanner scanner = adapter.getScanner(TABLE, scan);
+    for (int i = 10; i < 100; i++) {
+      assertArrayEquals(row(i), scanner.next().getRow());
+    }
+    assertNull(scanner.next());
+    scanner.close();
+
+    List<OGet> gets = new ArrayList<OGet>();
+    for (int i = 0; i < 100; i += 10) {
+      gets.add(new OGet(row(i)));
+    }
+    List<OResult> results = adapter.getMultiple(TABLE, gets);
+    for (int i = 0; i < gets.size(); i++) {
+      assertEquals(i * 10, Bytes.toInt(results.get(i).getValue(COL)));
+    }
+  }
+
+  @Test
+  public void testThrottling() throws Exception {
+    emulator.setThrottleRatio(1);
+    try {
+      adapter.get(TABLE, new OGet(row(0)));
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getCause().getMessage().contains(OTSErrorCode.SERVER_BUSY));
+    }
+    emulator.setThrottleRatio(0);
+    adapter.put(TABLE, new OPut(row(0)).add(COL, Bytes.toBytes("a")));
+  }
+}
@@ -0,0 +1,174 @@
+package com.alicloud.tablestore.adaptor.client.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.client.util.Bytes;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OPut;
+import com.alicloud.tablestore.adaptor.struct.OResult;
+import com.alicloud.tablestore.adaptor.struct.OScan;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+
+public class TestClientMetrics {
+  private static final String TABLE = "measured";
+
+  @Test
+  public void testHistogramPercentiles() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    Histogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(1000, snapshot.getCount());
+    assertEquals(1000, snapshot.getMax());
+    assertEquals(500.5, snapshot.getMean(), 0.001);
+    long p50 = snapshot.getValueAtPercentile(50);
+    assertTrue(p50 >= 500 && p50 <= 500 * 1.125);
+    long p99 = snapshot.getValueAtPercentile(99);
+    assertTrue(p99 >= 990 && p99 <= 1000);
+    assertEquals(1, snapshot.getValueAtPercentile(0));
+    assertEquals(0, new Histogram().snapshot().getValueAtPercentile(99));
+
+    for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+      int bucket = Histogram.bucket(value);
+      assertTrue(value <= Histogram.upperBound(bucket));
+      assertTrue(bucket == 0 || value > Histogram.upperBound(bucket - 1));
+    }
+    assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testCallsAreMeasuredAndExportedToJmx() throws Exception {
+    String instance = "metrics-" + System.nanoTime();
+    InMemoryAsyncClient emulator = InMemoryAsyncClient.getInstance(instance);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setRetryCount(1);
+    OTSAdapter adapter = OTSAdapter.getInstance(conf);
+    ClientMetrics metrics = adapter.getMetrics();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName putName = new ObjectName(JmxMetricsReporter.DOMAIN + ":type=Operation,client="
+        + ObjectName.quote(metrics.getName()) + ",table=" + ObjectName.quote(TABLE) + ",operation=putMultiple");
+    try {
+      adapter.createTable(new OTableDescriptor(TABLE));
+      List<OPut> puts = new ArrayList<OPut>();
+      for (int i = 0; i < 10; i++) {
+        puts.add(new OPut(Bytes.toBytes("row_" + i)).add(Bytes.toBytes("col"), Bytes.toBytes(i)));
+      }
+      adapter.putMultiple(TABLE, puts);
+      for (int i = 0; i < 5; i++) {
+        adapter.get(TABLE, new OGet(Bytes.toBytes("row_" + i)));
+      }
+
+      OperationMetrics get = metrics.getOperation(TABLE, "get");
+      assertEquals(5, get.getCount());
+      assertEquals(0, get.getFailures());
+      assertTrue(get.getMaxLatencyMicros() > 0);
+      OperationMetrics putMultiple = metrics.getOperation(TABLE, "putMultiple");
+      assertEquals(1, putMultiple.getCount());
+      assertEquals(10, putMultiple.getMaxBatchSize());
+      assertNull(metrics.getOperation(TABLE, "scan"));
+
+      assertEquals(1L, server.getAttribute(putName, "Count"));
+      assertEquals(10L, server.getAttribute(putName, "MaxBatchSize"));
+
+      emulator.setThrottleRatio(1);
+      try {
+        adapter.get(TABLE, new OGet(Bytes.toBytes("row_0")));
+        fail();
+      } catch (IOException e) {
+        // throttled
+      }
+      assertEquals(6, get.getCount());
+      assertEquals(1, get.getFailures());
+      assertEquals(1, get.getRetries());
+      assertEquals(2, get.getThrottled());
+    } finally {
+      adapter.close();
+    }
+    assertFalse(server.isRegistered(putName));
+  }
+
+  @Test
+  public void testRowCacheIsExportedToJmx() throws Exception {
+    String instance = "metrics-cache-" + System.nanoTime();
+    InMemoryAsyncClient.getInstance(instance);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setRowCacheTables(TABLE);
+    OTSAdapter adapter = OTSAdapter.getInstance(conf);
+    ObjectName clientName = new ObjectName(JmxMetricsReporter.DOMAIN + ":type=Client,name="
+        + ObjectName.quote(adapter.getMetrics().getName()));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      adapter.createTable(new OTableDescriptor(TABLE));
+      adapter.put(TABLE, new OPut(Bytes.toBytes("row_0")).add(Bytes.toBytes("col"), Bytes.toBytes(0)));
+      for (int i = 0; i < 3; i++) {
+        adapter.get(TABLE, new OGet(Bytes.toBytes("row_0")));
+      }
+      assertEquals(2L, server.getAttribute(clientName, "RowCacheHits"));
+      assertEquals(1L, server.getAttribute(clientName, "RowCacheMisses"));
+      assertEquals(1, server.getAttribute(clientName, "RowCacheSize"));
+    } finally {
+      adapter.close();
+    }
+  }
+
+  @Test
+  public void testConsumedCapacityIsAccounted() throws Exception {
+    String instance = "capacity-" + System.nanoTime();
+    InMemoryAsyncClient.getInstance(instance);
+    TablestoreClientConf conf = new TablestoreClientConf();
+    InMemoryAsyncClient.configure(conf, instance);
+    conf.setCapacityAttachedToResults(true);
+    OTSAdapter adapter = OTSAdapter.getInstance(conf);
+    ClientMetrics metrics = adapter.getMetrics();
+    try {
+      adapter.createTable(new OTableDescriptor(TABLE));
+      List<OPut> puts = new ArrayList<OPut>();
+      List<OGet> gets = new ArrayList<OGet>();
+      for (int i = 0; i < 4; i++) {
+        puts.add(new OPut(Bytes.toBytes("row_" + i)).add(Bytes.toBytes("col"), Bytes.toBytes(i)));
+        gets.add(new OGet(Bytes.toBytes("row_" + i)));
+      }
+      adapter.putMultiple(TABLE, puts);
+      adapter.put(TABLE, new OPut(Bytes.toBytes("big")).add(Bytes.toBytes("col"), new byte[10000]));
+
+      OResult result = adapter.get(TABLE, new OGet(Bytes.toBytes("big")));
+      assertNotNull(result.getConsumedCapacity());
+      assertEquals(3, result.getConsumedCapacity().getReadCapacityUnit());
+      for (OResult row : adapter.getMultiple(TABLE, gets)) {
+        assertEquals(1, row.getConsumedCapacity().getReadCapacityUnit());
+      }
+      List<OResult> scanned = adapter.scan(TABLE, new OScan(), 10);
+      assertNotNull(scanned.get(scanned.size() - 1).getConsumedCapacity());
+
+      assertEquals(4, metrics.getOperation(TABLE, "putMultiple").getWriteCapacityUnits());
+      assertEquals(0, metrics.getOperation(TABLE, "putMultiple").getReadCapacityUnits());
+      assertEquals(3, metrics.getOperation(TABLE, "put").getWriteCapacityUnits());
+      assertEquals(3, metrics.getOperation(TABLE, "get").getReadCapacityUnits());
+      assertEquals(4, metrics.getOperation(TABLE, "getMultiple").getReadCapacityUnits());
+      assertTrue(metrics.getOperation(TABLE, "scan").getReadCapacityUnits() > 0);
+    } finally {
+      adapter.close();
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.alicloud.tablestore.adaptor.struct;
 
+import com.alicloud.openservices.tablestore.model.MultiRowQueryCriteria;
 import com.alicloud.openservices.tablestore.model.SingleRowQueryCriteria;
 import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter;
 import com.alicloud.tablestore.adaptor.client.util.Bytes;
@@ -11,6 +12,7 @@ import org.junit.Test;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class TestOGet {
@@ -53,4 +55,33 @@ public class TestOGet {
     assertEquals(true, ((SingleColumnValueFilter)criteria.getFilter()).isLatestVersionsOnly());
 
   }
+
+  @Test
+  public void testToMultiRowQueryCriteria() throws IOException {
+    OGet get1 = new OGet(ROW);
+    get1.addColumn(QUALIFIER);
+    get1.setMaxVersions(3);
+    get1.setFilter(new OSingleColumnValueFilter(QUALIFIER,
+            OSingleColumnValueFilter.OCompareOp.EQUAL, Bytes.toBytes("v")));
+    OGet get2 = new OGet(Bytes.toBytes("Row2"));
+    get2.addColumn(QUALIFIER);
+    get2.setMaxVersions(3);
+    get2.setFilter(new OSingleColumnValueFilter(QUALIFIER,
+            OSingleColumnValueFilter.OCompareOp.EQUAL, Bytes.toBytes("v")));
+    assertTrue(get1.isSameQuery(get2));
+    assertEquals(get1.queryHashCode(), get2.queryHashCode());
+
+    MultiRowQueryCriteria criteria = get1.toMultiRowQueryCriteria(tableName);
+    assertEquals(tableName, criteria.getTableName());
+    assertEquals(0, criteria.size());
+    assertEquals(3, criteria.getMaxVersions());
+    assertTrue(criteria.getColumnsToGet().contains(Bytes.toString(QUALIFIER)));
+
+    get2.setFilter(new OSingleColumnValueFilter(QUALIFIER,
+            OSingleColumnValueFilter.OCompareOp.EQUAL, Bytes.toBytes("w")));
+    assertFalse(get1.isSameQuery(get2));
+    get2.setFilter(get1.getFilter());
+    get2.setTimeRange(10, 100);
+    assertFalse(get1.isSameQuery(get2));
+  }
 }
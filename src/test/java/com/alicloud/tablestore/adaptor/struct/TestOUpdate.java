@@ -0,0 +1,44 @@
+package com.alicloud.tablestore.adaptor.struct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.alicloud.openservices.tablestore.core.utils.Pair;
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ReturnType;
+import com.alicloud.openservices.tablestore.model.RowUpdateChange;
+
+public class TestOUpdate {
+
+  @Test
+  public void testIncrementToOTSParameter() throws Exception {
+    OUpdate update = new OUpdate(Bytes.toBytes("row"));
+    update.increment(Bytes.toBytes("c1"), 5);
+    update.increment(Bytes.toBytes("c2"), -3);
+    RowUpdateChange change = update.toOTSParameter("table");
+
+    assertEquals(2, change.getColumnsToUpdate().size());
+    for (Pair<Column, RowUpdateChange.Type> column : change.getColumnsToUpdate()) {
+      assertEquals(RowUpdateChange.Type.INCREMENT, column.getSecond());
+    }
+    assertEquals(5, change.getColumnsToUpdate().get(0).getFirst().getValue().asLong());
+    assertEquals(-3, change.getColumnsToUpdate().get(1).getFirst().getValue().asLong());
+    assertEquals(ReturnType.RT_AFTER_MODIFY, change.getReturnType());
+    assertTrue(change.getReturnColumnNames().contains("c1"));
+    assertTrue(change.getReturnColumnNames().contains("c2"));
+  }
+
+  @Test
+  public void testIncrementWithoutResults() throws Exception {
+    OUpdate update = new OUpdate(Bytes.toBytes("row"));
+    update.increment(Bytes.toBytes("c1"), 1);
+    update.setReturnResults(false);
+    RowUpdateChange change = update.toOTSParameter("table");
+
+    assertEquals(ReturnType.RT_NONE, change.getReturnType());
+    assertTrue(change.getReturnColumnNames().isEmpty());
+  }
+}
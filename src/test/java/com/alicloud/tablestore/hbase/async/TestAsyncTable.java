@@ -0,0 +1,112 @@
+package com.alicloud.tablestore.hbase.async;
+
+import com.alicloud.tablestore.hbase.TablestoreAsyncConnection;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestAsyncTable {
+    private static AsyncTable<AdvancedScanResultConsumer> table = null;
+    private static String familyName = null;
+    private static final String rowPrefix = "test_async_table_";
+
+    public TestAsyncTable() throws IOException, InterruptedException {
+        Configuration config = HBaseConfiguration.create();
+
+        Connection connection = ConnectionFactory.createConnection(config);
+        familyName = config.get("hbase.client.tablestore.family");
+
+        TableName tableName = TableName.valueOf(config.get("hbase.client.tablestore.table"));
+        if (!connection.getAdmin().tableExists(tableName)) {
+            HTableDescriptor descriptor = new HTableDescriptor(tableName);
+            connection.getAdmin().createTable(descriptor);
+            TimeUnit.SECONDS.sleep(1);
+        }
+        AsyncConnection asyncConnection = new TablestoreAsyncConnection(config);
+        table = asyncConnection.getTable(tableName);
+    }
+
+    private void clean() throws Exception {
+        List<CompletableFuture<Void>> deletes = new ArrayList<CompletableFuture<Void>>();
+        for (Result row : table.scanAll(new Scan()).get()) {
+            deletes.add(table.delete(new Delete(row.getRow())));
+        }
+        CompletableFuture.allOf(deletes.toArray(new CompletableFuture[0])).get();
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        clean();
+        byte[] rowKey = Bytes.toBytes(rowPrefix + 0);
+        byte[] family = Bytes.toBytes(familyName);
+        byte[] columnName = Bytes.toBytes("col_1");
+
+        Put put = new Put(rowKey);
+        put.addColumn(family, columnName, Bytes.toBytes("col_1_var"));
+        table.put(put).get();
+
+        Result result = table.get(new Get(rowKey)).get();
+        assertEquals("col_1_var", Bytes.toString(result.getValue(family, columnName)));
+        assertTrue(table.exists(new Get(rowKey)).get());
+    }
+
+    @Test
+    public void testCheckAndPut() throws Exception {
+        clean();
+        byte[] rowKey = Bytes.toBytes(rowPrefix + 1);
+        byte[] family = Bytes.toBytes(familyName);
+        byte[] columnName = Bytes.toBytes("col_1");
+
+        Put put = new Put(rowKey);
+        put.addColumn(family, columnName, Bytes.toBytes("var_1"));
+        table.put(put).get();
+
+        Put update = new Put(rowKey);
+        update.addColumn(family, columnName, Bytes.toBytes("var_2"));
+        assertFalse(table.checkAndMutate(rowKey, family).qualifier(columnName)
+                .ifMatches(CompareOperator.EQUAL, Bytes.toBytes("var_0")).thenPut(update).get());
+        assertTrue(table.checkAndMutate(rowKey, family).qualifier(columnName)
+                .ifEquals(Bytes.toBytes("var_1")).thenPut(update).get());
+
+        Result result = table.get(new Get(rowKey)).get();
+        assertEquals("var_2", Bytes.toString(result.getValue(family, columnName)));
+    }
+
+    @Test
+    public void testScanWithSmallPages() throws Exception {
+        clean();
+        byte[] family = Bytes.toBytes(familyName);
+        byte[] columnName = Bytes.toBytes("col_1");
+
+        List<Put> puts = new ArrayList<Put>();
+        for (int i = 0; i < 10; i++) {
+            Put put = new Put(Bytes.toBytes(rowPrefix + i));
+            put.addColumn(family, columnName, Bytes.toBytes(i));
+            puts.add(put);
+        }
+        table.putAll(puts).get();
+
+        Scan scan = new Scan();
+        scan.setCaching(3);
+        List<Result> results = table.scanAll(scan).get();
+        assertEquals(10, results.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(rowPrefix + i, Bytes.toString(results.get(i).getRow()));
+        }
+    }
+}
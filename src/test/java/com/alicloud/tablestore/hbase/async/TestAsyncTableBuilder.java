@@ -0,0 +1,121 @@
+package com.alicloud.tablestore.hbase.async;
+
+import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.OperationTimeoutException;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import com.alicloud.tablestore.hbase.TablestoreAsyncConnection;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestAsyncTableBuilder {
+    private static final String TABLE = "async_builder";
+    private static final byte[] FAMILY = Bytes.toBytes("s");
+    private static final byte[] COL = Bytes.toBytes("col");
+    private static final byte[] ROW = Bytes.toBytes("row");
+
+    private InMemoryAsyncClient emulator;
+    private TablestoreAsyncConnection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        String instance = "async-builder-" + System.nanoTime();
+        emulator = InMemoryAsyncClient.getInstance(instance);
+        Configuration config = new Configuration(false);
+        config.set(TablestoreClientConf.TABLESTORE_CLIENT_FACTORY, InMemoryAsyncClient.Factory.class.getName());
+        config.set(TablestoreClientConf.TABLESTORE_CLIENT_INSTANCENAME, instance);
+        config.setInt(TablestoreClientConf.TABLESTORE_CLIENT_RETRIES, 10);
+        config.setInt(TablestoreClientConf.TABLESTORE_CLIENT_RETRY_BASE_DELAY_MS, 1);
+        connection = new TablestoreAsyncConnection(config);
+        OTSAdapter adapter = OTSAdapter.getInstance(connection.getTablestoreConf());
+        adapter.createTable(new OTableDescriptor(TABLE));
+        adapter.close();
+        connection.getTable(TableName.valueOf(TABLE)).put(new Put(ROW).addColumn(FAMILY, COL, Bytes.toBytes(1))).get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        emulator.setLatencyMicros(0);
+        emulator.setThrottleRatio(0);
+        connection.close();
+    }
+
+    private static Throwable failure(AsyncTable<AdvancedScanResultConsumer> table) throws Exception {
+        try {
+            table.get(new Get(ROW)).get(10, TimeUnit.SECONDS);
+            fail();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    @Test
+    public void testOperationTimeoutLimitsTheCallsOfTheTable() throws Exception {
+        emulator.setLatencyMicros(2000000);
+        AsyncTable<AdvancedScanResultConsumer> table = connection.getTableBuilder(TableName.valueOf(TABLE))
+                .setOperationTimeout(100, TimeUnit.MILLISECONDS).build();
+        long start = System.nanoTime();
+        assertTrue(failure(table) instanceof OperationTimeoutException);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testMaxAttemptsLimitTheRetries() throws Exception {
+        emulator.setThrottleRatio(1);
+        AsyncTable<AdvancedScanResultConsumer> table = connection.getTableBuilder(TableName.valueOf(TABLE))
+                .setMaxAttempts(2).build();
+        long requests = emulator.getRequestCount();
+        assertTrue(failure(table) instanceof IOException);
+        assertEquals(2, emulator.getRequestCount() - requests);
+    }
+
+    @Test
+    public void testReadRpcTimeoutRetriesASlowRequest() throws Exception {
+        emulator.setLatencyMicros(500000);
+        AsyncTable<AdvancedScanResultConsumer> table = connection.getTableBuilder(TableName.valueOf(TABLE))
+                .setReadRpcTimeout(50, TimeUnit.MILLISECONDS).setMaxAttempts(3).build();
+        long requests = emulator.getRequestCount();
+        long start = System.nanoTime();
+        Throwable error = failure(table);
+        assertTrue(error.getCause() instanceof SocketTimeoutException);
+        assertEquals(3, emulator.getRequestCount() - requests);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+
+        // the writes are not limited by the read rpc timeout
+        emulator.setLatencyMicros(100000);
+        table.put(new Put(ROW).addColumn(FAMILY, COL, Bytes.toBytes(2))).get(10, TimeUnit.SECONDS);
+        emulator.setLatencyMicros(0);
+        Result result = table.get(new Get(ROW)).get(10, TimeUnit.SECONDS);
+        assertEquals(2, Bytes.toInt(result.getValue(FAMILY, COL)));
+    }
+
+    @Test
+    public void testRetryPauseSpacesTheRetries() throws Exception {
+        emulator.setThrottleRatio(1);
+        AsyncTable<AdvancedScanResultConsumer> table = connection.getTableBuilder(TableName.valueOf(TABLE))
+                .setRetryPauseForServerOverloaded(200, TimeUnit.MILLISECONDS).setMaxAttempts(2).build();
+        long start = System.nanoTime();
+        failure(table);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+}
@@ -0,0 +1,161 @@
+package com.alicloud.tablestore.hbase.async;
+
+import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import com.alicloud.tablestore.hbase.TablestoreAsyncConnection;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestAsyncTableScan {
+    private static final String TABLE = "async_scan";
+    private static final byte[] FAMILY = Bytes.toBytes("s");
+    private static final byte[] COL = Bytes.toBytes("col");
+    private static final int ROWS = 35;
+
+    private TablestoreAsyncConnection connection;
+    private AsyncTable<AdvancedScanResultConsumer> table;
+
+    @Before
+    public void setUp() throws Exception {
+        String instance = "async-scan-" + System.nanoTime();
+        InMemoryAsyncClient.getInstance(instance);
+        Configuration config = new Configuration(false);
+        config.set(TablestoreClientConf.TABLESTORE_CLIENT_FACTORY, InMemoryAsyncClient.Factory.class.getName());
+        config.set(TablestoreClientConf.TABLESTORE_CLIENT_INSTANCENAME, instance);
+        // the pages are completed from the timer of the emulator rather than the calling thread
+        config.setInt(InMemoryAsyncClient.Factory.LATENCY_MICROS, 200);
+        connection = new TablestoreAsyncConnection(config);
+        OTSAdapter adapter = OTSAdapter.getInstance(connection.getTablestoreConf());
+        adapter.createTable(new OTableDescriptor(TABLE));
+        adapter.close();
+        table = connection.getTable(TableName.valueOf(TABLE));
+        List<CompletableFuture<Void>> puts = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < ROWS; i++) {
+            puts.add(table.put(new Put(row(i)).addColumn(FAMILY, COL, Bytes.toBytes(i))));
+        }
+        CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        connection.close();
+    }
+
+    private static byte[] row(int i) {
+        return Bytes.toBytes(String.format("row_%03d", i));
+    }
+
+    @Test
+    public void testScanAllReadsAllPages() throws Exception {
+        List<Result> results = table.scanAll(new Scan().setCaching(10)).get(10, TimeUnit.SECONDS);
+        assertEquals(ROWS, results.size());
+        for (int i = 0; i < ROWS; i++) {
+            assertArrayEquals(row(i), results.get(i).getRow());
+            assertEquals(i, Bytes.toInt(results.get(i).getValue(FAMILY, COL)));
+        }
+
+        // the default caching, one page
+        assertEquals(ROWS, table.scanAll(new Scan()).get(10, TimeUnit.SECONDS).size());
+        assertEquals(5, table.scanAll(new Scan().withStartRow(row(10)).withStopRow(row(15)).setCaching(2))
+                .get(10, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void testScanIsSuspendedAndResumed() throws Exception {
+        final AtomicInteger rows = new AtomicInteger();
+        final AtomicInteger pages = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(1);
+        table.scan(new Scan().setCaching(10), new AdvancedScanResultConsumer() {
+            @Override
+            public void onNext(Result[] results, ScanController controller) {
+                rows.addAndGet(results.length);
+                pages.incrementAndGet();
+                final ScanResumer resumer = controller.suspend();
+                new Thread() {
+                    @Override
+                    public void run() {
+                        resumer.resume();
+                    }
+                }.start();
+            }
+
+            @Override
+            public void onError(Throwable ex) {
+                error.set(ex);
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertEquals(ROWS, rows.get());
+        assertEquals(4, pages.get());
+    }
+
+    @Test
+    public void testGetScanner() throws Exception {
+        Scan scan = new Scan().setCaching(10);
+        ResultScanner scanner = table.getScanner(scan);
+        int count = 0;
+        for (Result result : scanner) {
+            assertArrayEquals(row(count), result.getRow());
+            count++;
+        }
+        scanner.close();
+        assertEquals(ROWS, count);
+        // the scan of the caller is not changed
+        assertTrue(scan.getAttributesMap().isEmpty());
+    }
+
+    @Test
+    public void testErrorsAreReported() throws Exception {
+        AsyncTable<AdvancedScanResultConsumer> missing = connection.getTable(TableName.valueOf("missing"));
+        try {
+            missing.scanAll(new Scan()).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        ResultScanner scanner = missing.getScanner(new Scan());
+        try {
+            scanner.next();
+            fail();
+        } catch (IOException e) {
+            // the table does not exist
+        }
+        scanner.close();
+    }
+}
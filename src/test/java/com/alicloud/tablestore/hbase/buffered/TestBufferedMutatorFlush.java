@@ -0,0 +1,188 @@
+package com.alicloud.tablestore.hbase.buffered;
+
+import com.alicloud.tablestore.adaptor.client.OTSAdapter;
+import com.alicloud.tablestore.adaptor.client.OTSConstants;
+import com.alicloud.tablestore.adaptor.client.TablestoreClientConf;
+import com.alicloud.tablestore.adaptor.client.emulator.InMemoryAsyncClient;
+import com.alicloud.tablestore.adaptor.struct.OGet;
+import com.alicloud.tablestore.adaptor.struct.OTableDescriptor;
+import com.alicloud.tablestore.hbase.TablestoreConnection;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestBufferedMutatorFlush {
+    private static final String TABLE = "buffered";
+
+    private InMemoryAsyncClient emulator;
+    private Configuration config;
+
+    private TablestoreConnection connect(boolean createTable) throws IOException {
+        String instance = "mutator-" + System.nanoTime();
+        emulator = InMemoryAsyncClient.getInstance(instance);
+        config = new Configuration(false);
+        config.set(TablestoreClientConf.TABLESTORE_CLIENT_FACTORY, InMemoryAsyncClient.Factory.class.getName());
+        config.set(TablestoreClientConf.TABLESTORE_CLIENT_INSTANCENAME, instance);
+        TablestoreConnection connection = new TablestoreConnection(config);
+        if (createTable) {
+            OTSAdapter adapter = OTSAdapter.getInstance(connection.getTablestoreConf());
+            adapter.createTable(new OTableDescriptor(TABLE));
+            adapter.close();
+        }
+        return connection;
+    }
+
+    private static Put put(int i) {
+        Put put = new Put(Bytes.toBytes("row_" + i));
+        put.addColumn(Bytes.toBytes("s"), Bytes.toBytes("col"), Bytes.toBytes(i));
+        return put;
+    }
+
+    private void waitForRows(int rows) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (emulator.getRowCount(TABLE) < rows) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testFullBufferIsFlushedInBackground() throws Exception {
+        TablestoreConnection connection = connect(true);
+        BufferedMutator mutator = connection.getBufferedMutator(
+                new BufferedMutatorParams(TableName.valueOf(TABLE)).writeBufferSize(1024));
+        for (int i = 0; i < 100; i++) {
+            mutator.mutate(put(i));
+        }
+        waitForRows(90);
+        mutator.close();
+        // the rest is flushed on close
+        assertEquals(100, emulator.getRowCount(TABLE));
+    }
+
+    @Test
+    public void testBufferIsFlushedPeriodically() throws Exception {
+        TablestoreConnection connection = connect(true);
+        BufferedMutatorParams params = new BufferedMutatorParams(TableName.valueOf(TABLE))
+                .setWriteBufferPeriodicFlushTimeoutMs(50).setWriteBufferPeriodicFlushTimerTickMs(100);
+        BufferedMutator mutator = connection.getBufferedMutator(params);
+        assertEquals(50, mutator.getWriteBufferPeriodicFlushTimeoutMs());
+        mutator.mutate(put(0));
+        waitForRows(1);
+        mutator.close();
+    }
+
+    @Test
+    public void testProducerFailsWhenFull() throws Exception {
+        TablestoreConnection connection = connect(true);
+        config.setLong(OTSConstants.WRITE_BUFFER_MAX_PENDING_CONF_KEY, 2048);
+        config.setBoolean(OTSConstants.WRITE_BUFFER_BLOCK_CONF_KEY, false);
+        emulator.setLatencyMicros(200000);
+        BufferedMutator mutator = connection.getBufferedMutator(
+                new BufferedMutatorParams(TableName.valueOf(TABLE)).writeBufferSize(1024));
+        try {
+            for (int i = 0; i < 100; i++) {
+                mutator.mutate(put(i));
+            }
+            fail("the buffer should be full");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("full"));
+        } finally {
+            mutator.close();
+            emulator.setLatencyMicros(0);
+        }
+    }
+
+    @Test
+    public void testFailuresAreReportedToListener() throws Exception {
+        TablestoreConnection connection = connect(false);
+        final AtomicInteger failedRows = new AtomicInteger();
+        BufferedMutator.ExceptionListener listener = new BufferedMutator.ExceptionListener() {
+            @Override
+            public void onException(RetriesExhaustedWithDetailsException exception, BufferedMutator mutator) {
+                failedRows.addAndGet(exception.getNumExceptions());
+            }
+        };
+        BufferedMutator mutator = connection.getBufferedMutator(
+                new BufferedMutatorParams(TableName.valueOf(TABLE)).listener(listener));
+        mutator.mutate(put(0));
+        mutator.mutate(put(1));
+        // the table does not exist, and the listener swallows the failure
+        mutator.flush();
+        assertEquals(2, failedRows.get());
+        mutator.close();
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        TablestoreConnection connection = connect(true);
+        final BufferedMutator mutator = connection.getBufferedMutator(
+                new BufferedMutatorParams(TableName.valueOf(TABLE)).writeBufferSize(16 * 1024));
+        ExecutorService producers = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 16; t++) {
+                final int producer = t;
+                futures.add(producers.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 500; i++) {
+                            mutator.mutate(put(producer * 500 + i));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            mutator.flush();
+            assertEquals(8000, emulator.getRowCount(TABLE));
+        } finally {
+            producers.shutdown();
+            mutator.close();
+        }
+    }
+
+    @Test
+    public void testMutationsOfRowAreCoalesced() throws Exception {
+        TablestoreConnection connection = connect(true);
+        connection.getTablestoreConf().setWriteCoalescingEnabled(true);
+        BufferedMutator mutator = connection.getBufferedMutator(TableName.valueOf(TABLE));
+        for (int i = 0; i < 1000; i++) {
+            Put put = new Put(Bytes.toBytes("row_" + (i % 10)));
+            put.addColumn(Bytes.toBytes("s"), Bytes.toBytes("col"), Bytes.toBytes(i));
+            mutator.mutate(put);
+        }
+        long requests = emulator.getRequestCount();
+        mutator.flush();
+        // the 10 rows are written by one batch
+        assertEquals(1, emulator.getRequestCount() - requests);
+        OTSAdapter adapter = OTSAdapter.getInstance(connection.getTablestoreConf());
+        try {
+            assertEquals(999, Bytes.toInt(adapter.get(TABLE, new OGet(Bytes.toBytes("row_9")))
+                    .getValue(Bytes.toBytes("col"))));
+        } finally {
+            adapter.close();
+            mutator.close();
+        }
+    }
+}